@@ -23,6 +23,7 @@ import com.linkedin.d2.balancer.strategies.LoadBalancerStrategy;
 import com.linkedin.d2.balancer.strategies.LoadBalancerStrategyFactory;
 import com.linkedin.d2.balancer.strategies.degrader.DegraderLoadBalancerStrategyFactoryV2;
 import com.linkedin.d2.balancer.strategies.degrader.DegraderLoadBalancerStrategyFactoryV3;
+import com.linkedin.d2.balancer.strategies.leastloaded.LeastLoadedLoadBalancerStrategyFactory;
 import com.linkedin.d2.balancer.strategies.random.RandomLoadBalancerStrategyFactory;
 import com.linkedin.d2.balancer.zkfs.ZKFSComponentFactory;
 import com.linkedin.d2.balancer.zkfs.ZKFSLoadBalancer;
@@ -79,11 +80,13 @@ public class ZKFSLoadBalancerWithFacilitiesFactory implements LoadBalancerWithFa
     final RandomLoadBalancerStrategyFactory randomStrategyFactory = new RandomLoadBalancerStrategyFactory();
     final DegraderLoadBalancerStrategyFactoryV2 degraderStrategyFactoryV2 = new DegraderLoadBalancerStrategyFactoryV2();
     final DegraderLoadBalancerStrategyFactoryV3 degraderStrategyFactoryV3 = new DegraderLoadBalancerStrategyFactoryV3();
+    final LeastLoadedLoadBalancerStrategyFactory leastLoadedStrategyFactory = new LeastLoadedLoadBalancerStrategyFactory();
 
     loadBalancerStrategyFactories.put("random", randomStrategyFactory);
     loadBalancerStrategyFactories.put("degrader", degraderStrategyFactoryV2);
     loadBalancerStrategyFactories.put("degraderV2", degraderStrategyFactoryV2);
     loadBalancerStrategyFactories.put("degraderV3", degraderStrategyFactoryV3);
+    loadBalancerStrategyFactories.put("leastLoaded", leastLoadedStrategyFactory);
 
     return loadBalancerStrategyFactories;
   }
@@ -58,11 +58,24 @@ public class TrackerClient implements LoadBalancerClient
 {
   private static final Logger      _log = LoggerFactory.getLogger(TrackerClient.class);
 
+  public static final long DEFAULT_CALL_TRACKER_INTERVAL = Time.milliseconds(5000);
+
+  // weight of each new sample in the latency and error rate EWMAs
+  public static final double LATENCY_EWMA_ALPHA = 0.2;
+
   private final TransportClient _wrappedClient;
   // The keys for the maps are partitionIds
   private final Map<Integer, PartitionState> _partitionStates;
   private final CallTracker     _callTracker;
   private final URI             _uri;
+  private final Clock           _clock;
+
+  // exponentially weighted moving average of the latency of successful calls in ms; negative
+  // until the first one completes. Updates race, which may lose a sample.
+  private volatile double       _latencyEwma = -1;
+  // exponentially weighted moving average of the fraction of calls that failed, not counting
+  // client errors (4xx). Updates race like the latency EWMA's.
+  private volatile double       _errorRateEwma = 0;
 
   public TrackerClient(URI uri, Map<Integer, PartitionData> partitionDataMap, TransportClient wrappedClient)
   {
@@ -71,10 +84,23 @@ public class TrackerClient implements LoadBalancerClient
 
   public TrackerClient(URI uri, Map<Integer, PartitionData> partitionDataMap, TransportClient wrappedClient,
                        Clock clock, Config config)
+  {
+    this(uri, partitionDataMap, wrappedClient, clock, config,
+         new CallTrackerImpl(DEFAULT_CALL_TRACKER_INTERVAL, clock, config != null && config.isLatencyHistogram()));
+  }
+
+  /**
+   * @param callTracker tracks the calls of this client, e.g. a
+   *          {@link com.linkedin.util.degrader.StripedCallTrackerImpl} for clients called by many
+   *          threads; it must use the given clock.
+   */
+  public TrackerClient(URI uri, Map<Integer, PartitionData> partitionDataMap, TransportClient wrappedClient,
+                       Clock clock, Config config, CallTracker callTracker)
     {
       _uri = uri;
       _wrappedClient = wrappedClient;
-      _callTracker = new CallTrackerImpl(Time.milliseconds(5000), clock);
+      _callTracker = callTracker;
+      _clock = clock;
 
       if (config == null)
       {
@@ -110,7 +136,8 @@ public class TrackerClient implements LoadBalancerClient
                                requestContext,
                                wireAttrs,
                                new TrackerClientCallback<RestResponse>(callback,
-                                                                       _callTracker.startCall()));
+                                                                       _callTracker.startCall(),
+                                                                       _clock.currentTimeMillis()));
   }
 
   @Override
@@ -123,7 +150,8 @@ public class TrackerClient implements LoadBalancerClient
                               requestContext,
                               wireAttrs,
                               new TrackerClientCallback<RpcResponse>(callback,
-                                                                     _callTracker.startCall())
+                                                                     _callTracker.startCall(),
+                                                                     _clock.currentTimeMillis())
     );
   }
 
@@ -151,6 +179,36 @@ public class TrackerClient implements LoadBalancerClient
     return _callTracker;
   }
 
+  /**
+   * @return the exponentially weighted moving average of the latency of this client's
+   *         successful calls in ms, or a negative number if none has completed yet.
+   */
+  public double getLatencyEwma()
+  {
+    return _latencyEwma;
+  }
+
+  private void updateLatencyEwma(long latency)
+  {
+    double ewma = _latencyEwma;
+    _latencyEwma = ewma < 0 ? latency : ewma + LATENCY_EWMA_ALPHA * (latency - ewma);
+  }
+
+  /**
+   * @return the exponentially weighted moving average of the fraction of this client's calls
+   *         that failed, between 0 and 1. Client errors (4xx) don't count as failures.
+   */
+  public double getErrorRateEwma()
+  {
+    return _errorRateEwma;
+  }
+
+  private void updateErrorRateEwma(boolean error)
+  {
+    double ewma = _errorRateEwma;
+    _errorRateEwma = ewma + LATENCY_EWMA_ALPHA * ((error ? 1d : 0d) - ewma);
+  }
+
   public Degrader getDegrader(int partitionId)
   {
     // _partitionStates.get(partitionId) would not be null
@@ -180,12 +238,25 @@ public class TrackerClient implements LoadBalancerClient
   {
     private TransportCallback<T> _wrappedCallback;
     private CallCompletion       _callCompletion;
+    private final long           _startTime;
 
     public TrackerClientCallback(TransportCallback<T> wrappedCallback,
                                  CallCompletion callCompletion)
+    {
+      this(wrappedCallback, callCompletion, -1);
+    }
+
+    /**
+     * @param startTime when the call started, to update the client's latency and error rate
+     *          EWMAs, or negative not to update them.
+     */
+    public TrackerClientCallback(TransportCallback<T> wrappedCallback,
+                                 CallCompletion callCompletion,
+                                 long startTime)
     {
       _wrappedCallback = wrappedCallback;
       _callCompletion = callCompletion;
+      _startTime = startTime;
     }
 
     @Override
@@ -222,10 +293,30 @@ public class TrackerClient implements LoadBalancerClient
       else
       {
         _callCompletion.endCall();
+
+        if (_startTime >= 0)
+        {
+          updateLatencyEwma(_clock.currentTimeMillis() - _startTime);
+        }
+      }
+
+      if (_startTime >= 0)
+      {
+        updateErrorRateEwma(response.hasError() && !isClientError(response.getError()));
       }
 
       _wrappedCallback.onResponse(response);
     }
+
+    private boolean isClientError(Throwable throwable)
+    {
+      if (throwable instanceof RestException)
+      {
+        RestResponse response = ((RestException) throwable).getResponse();
+        return response != null && RestStatus.isClientError(response.getStatus());
+      }
+      return false;
+    }
   }
 
   // we origanize all data of a partition together so we don't have to maintain multiple maps in tracker client
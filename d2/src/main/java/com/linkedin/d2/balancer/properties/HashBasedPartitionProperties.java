@@ -32,9 +32,10 @@ public class HashBasedPartitionProperties implements PartitionProperties
   // There is no default hash. Users must specify one.
   private final HashAlgorithm       _hashAlgorithm;
 
+  // MURMUR3 is not compatible with MD5: switching an existing cluster between them moves keys to other partitions
   public enum HashAlgorithm
   {
-    MODULO, MD5
+    MODULO, MD5, MURMUR3
   }
   public HashBasedPartitionProperties(String partitionKeyRegex, int partitionCount, HashAlgorithm hashAlgorithm)
   {
@@ -57,6 +57,8 @@ public class PropertyKeys
   public static final String DEGRADER_LOW_OUTSTANDING = "degrader.lowOutstanding";
   public static final String DEGRADER_MIN_OUTSTANDING_COUNT = "degrader.minOutstandingCount";
   public static final String DEGRADER_OVERRIDE_MIN_CALL_COUNT = "degrader.overrideMinCallCount";
+  public static final String DEGRADER_STRIPED_CALL_TRACKER = "degrader.stripedCallTracker";
+  public static final String DEGRADER_LATENCY_HISTOGRAM = "degrader.latencyHistogram";
 
   //used by service properties
   public static final String LB_STRATEGY_NAME = "loadBalancerStrategyName";
@@ -75,6 +77,7 @@ public class PropertyKeys
   public static final String LB_RING_RAMP_FACTOR = "ringRampFactor";
   public static final String LB_GLOBAL_STEP_UP = "globalStepUp";
   public static final String LB_GLOBAL_STEP_DOWN = "globalStepDown";
+  public static final String LB_UPDATE_ASYNC = "updateAsync";
 
   public static final String PATH = "path";
   public static final String CLUSTER_NAME = "clusterName";
@@ -91,6 +94,11 @@ public class PropertyKeys
   public static final String HTTP_LB_RING_RAMP_FACTOR = "http.loadBalancer.ringRampFactor";
   public static final String HTTP_LB_GLOBAL_STEP_UP = "http.loadBalancer.globalStepUp";
   public static final String HTTP_LB_GLOBAL_STEP_DOWN = "http.loadBalancer.globalStepDown";
+  public static final String HTTP_LB_UPDATE_ASYNC = "http.loadBalancer.updateAsync";
+  public static final String HTTP_LB_HEDGING_ENABLED = "http.loadBalancer.hedgingEnabled";
+  public static final String HTTP_LB_HEDGING_DELAY_MS = "http.loadBalancer.hedgingDelayMs";
+  public static final String HTTP_LB_HEDGING_MIN_DELAY_MS = "http.loadBalancer.hedgingMinDelayMs";
+  public static final String HTTP_LB_HEDGING_MAX_RATIO = "http.loadBalancer.hedgingMaxRatio";
   //used by cluster properties
   public static final String HTTP_REQUEST_TIMEOUT = HttpClientFactory.HTTP_REQUEST_TIMEOUT;
   public static final String HTTP_MAX_RESPONSE_SIZE = HttpClientFactory.HTTP_MAX_RESPONSE_SIZE;
@@ -0,0 +1,100 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.simple;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the share of requests of a service that are hedged. Every request that could be
+ * hedged earns a fraction of a hedge, and sending a hedged request spends a whole one, so
+ * over time at most that fraction of the requests is sent twice, however slow the service
+ * gets. At most {@link #MAX_SAVED_HEDGES} hedges can be saved up for a burst.
+ */
+class HedgeBudget
+{
+  static final int MAX_SAVED_HEDGES = 10;
+
+  // credits are counted in thousandths of a hedged request
+  private static final long CREDITS_PER_HEDGE = 1000;
+
+  private final long       _creditsPerRequest;
+  private final long       _maxCredits;
+  private final AtomicLong _credits = new AtomicLong();
+
+  /**
+   * @param maxRatio the maximum ratio of hedged requests to requests, between 0 and 1.
+   */
+  HedgeBudget(double maxRatio)
+  {
+    if (!(maxRatio >= 0 && maxRatio <= 1))
+    {
+      throw new IllegalArgumentException("hedging ratio must be between 0 and 1: " + maxRatio);
+    }
+    _creditsPerRequest = Math.round(maxRatio * CREDITS_PER_HEDGE);
+    _maxCredits = MAX_SAVED_HEDGES * CREDITS_PER_HEDGE;
+  }
+
+  /**
+   * Earns the share of a hedge of one request that could be hedged.
+   */
+  void onRequest()
+  {
+    if (_creditsPerRequest == 0)
+    {
+      return;
+    }
+    long credits;
+    do
+    {
+      credits = _credits.get();
+      if (credits >= _maxCredits)
+      {
+        return;
+      }
+    }
+    while (!_credits.compareAndSet(credits, Math.min(credits + _creditsPerRequest, _maxCredits)));
+  }
+
+  /**
+   * @return true if a hedged request may currently be sent.
+   */
+  boolean canHedge()
+  {
+    return _credits.get() >= CREDITS_PER_HEDGE;
+  }
+
+  /**
+   * Spends one hedge.
+   *
+   * @return true if the budget allowed the hedged request, false if it should not be sent.
+   */
+  boolean tryHedge()
+  {
+    long credits;
+    do
+    {
+      credits = _credits.get();
+      if (credits < CREDITS_PER_HEDGE)
+      {
+        return false;
+      }
+    }
+    while (!_credits.compareAndSet(credits, credits - CREDITS_PER_HEDGE));
+    return true;
+  }
+}
@@ -0,0 +1,340 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.simple;
+
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.common.stats.LongStats;
+import com.linkedin.common.util.None;
+import com.linkedin.d2.balancer.LoadBalancerClient;
+import com.linkedin.d2.balancer.clients.RewriteClient;
+import com.linkedin.d2.balancer.clients.TrackerClient;
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestRequest;
+import com.linkedin.r2.message.rest.RestResponse;
+import com.linkedin.r2.message.rpc.RpcRequest;
+import com.linkedin.r2.message.rpc.RpcResponse;
+import com.linkedin.r2.transport.common.bridge.client.TransportClient;
+import com.linkedin.r2.transport.common.bridge.common.TransportCallback;
+import com.linkedin.r2.transport.common.bridge.common.TransportResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A client that sends idempotent (HTTP GET) rest requests to the tracker client chosen by the
+ * load balancer and, if no response has arrived after the hedge delay, sends a duplicate to a
+ * different tracker client. The first successful response is passed to the caller; an error is
+ * only passed on once no other attempt is outstanding.
+ *
+ * The hedge delay is the configured delay for the service or, if none is configured, the 95th
+ * percentile call time of the primary tracker client over its last interval, but never less
+ * than the configured minimum delay. No hedge is sent while the tracker client has no latency
+ * statistics yet. The {@link HedgeBudget} of the service limits the share of requests which
+ * are hedged, so that hedging does not multiply the load of a service which is already slow.
+ *
+ * The backup client is only chosen, and the request context and wire attributes only copied
+ * for it, once the hedge delay has passed without a response. The timer thread hands this off
+ * to the hedge executor: a strategy may block while it updates its state, which must not hold
+ * up the single thread timing the hedged requests.
+ *
+ * Transport clients can not cancel a request that has been sent, so the response of the
+ * losing attempt is dropped when it arrives.
+ */
+class HedgedRequestClient implements LoadBalancerClient
+{
+  private static final Logger _log = LoggerFactory.getLogger(HedgedRequestClient.class);
+
+  private final SimpleLoadBalancer       _loadBalancer;
+  private final ServiceRoutingSnapshot   _snapshot;
+  private final TrackerClient            _trackerClient;
+  private final RewriteClient            _rewriteClient;
+  private final ScheduledExecutorService _scheduler;
+  private final Executor                 _executor;
+
+  HedgedRequestClient(SimpleLoadBalancer loadBalancer,
+                      ServiceRoutingSnapshot snapshot,
+                      TrackerClient trackerClient,
+                      RewriteClient rewriteClient,
+                      ScheduledExecutorService scheduler,
+                      Executor executor)
+  {
+    _loadBalancer = loadBalancer;
+    _snapshot = snapshot;
+    _trackerClient = trackerClient;
+    _rewriteClient = rewriteClient;
+    _scheduler = scheduler;
+    _executor = executor;
+  }
+
+  @Override
+  public void restRequest(final RestRequest request,
+                          final RequestContext requestContext,
+                          final Map<String, String> wireAttrs,
+                          final TransportCallback<RestResponse> callback)
+  {
+    long delay = getHedgeDelay();
+    if (delay < 0 || !isIdempotent(request))
+    {
+      _rewriteClient.restRequest(request, requestContext, wireAttrs, callback);
+      return;
+    }
+
+    final HedgeBudget budget = _snapshot.getHedgeBudget();
+    budget.onRequest();
+    if (!budget.canHedge())
+    {
+      _rewriteClient.restRequest(request, requestContext, wireAttrs, callback);
+      return;
+    }
+
+    final HedgedCallback<RestResponse> hedgedCallback = new HedgedCallback<RestResponse>(callback);
+
+    _rewriteClient.restRequest(request, requestContext, wireAttrs, hedgedCallback);
+
+    try
+    {
+      hedgedCallback.setHedge(_scheduler.schedule(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          if (hedgedCallback.isDone())
+          {
+            return;
+          }
+
+          try
+          {
+            _executor.execute(new Runnable()
+            {
+              @Override
+              public void run()
+              {
+                sendHedge(request, requestContext, wireAttrs, budget, hedgedCallback);
+              }
+            });
+          }
+          catch (RejectedExecutionException e)
+          {
+            _log.warn("unable to send hedged request for " + request.getURI(), e);
+          }
+        }
+      }, delay, TimeUnit.MILLISECONDS));
+    }
+    catch (RejectedExecutionException e)
+    {
+      _log.warn("unable to schedule hedged request for " + request.getURI(), e);
+    }
+  }
+
+  private void sendHedge(RestRequest request,
+                         RequestContext requestContext,
+                         Map<String, String> wireAttrs,
+                         HedgeBudget budget,
+                         HedgedCallback<RestResponse> hedgedCallback)
+  {
+    if (!hedgedCallback.startAttempt())
+    {
+      return;
+    }
+
+    // the primary attempt only adds to the context and wire attributes while it is being sent,
+    // which it has been by now, so they are safe to copy
+    RequestContext backupRequestContext = new RequestContext(requestContext);
+    Map<String, String> backupWireAttrs = new HashMap<String, String>(wireAttrs);
+
+    TransportClient backup = null;
+    try
+    {
+      backup = _loadBalancer.chooseBackupClient(request, backupRequestContext, _snapshot, _trackerClient);
+    }
+    catch (RuntimeException e)
+    {
+      _log.warn("failed to choose a backup client for " + request.getURI(), e);
+    }
+
+    if (backup == null || !budget.tryHedge())
+    {
+      hedgedCallback.cancelAttempt();
+      return;
+    }
+
+    _log.debug("sending hedged request for {} to {}", request.getURI(), backup);
+    backup.restRequest(request, backupRequestContext, backupWireAttrs, hedgedCallback);
+  }
+
+  @Override
+  public void rpcRequest(RpcRequest request,
+                         RequestContext requestContext,
+                         Map<String, String> wireAttrs,
+                         TransportCallback<RpcResponse> callback)
+  {
+    _rewriteClient.rpcRequest(request, requestContext, wireAttrs, callback);
+  }
+
+  @Override
+  public void shutdown(Callback<None> callback)
+  {
+    _rewriteClient.shutdown(callback);
+  }
+
+  @Override
+  public URI getUri()
+  {
+    return _rewriteClient.getUri();
+  }
+
+  RewriteClient getRewriteClient()
+  {
+    return _rewriteClient;
+  }
+
+  /**
+   * @return the delay in milliseconds after which a hedged request is sent, or -1 if no
+   *         hedged request should be sent.
+   */
+  long getHedgeDelay()
+  {
+    long delay = _snapshot.getHedgeDelay();
+    if (delay < 0)
+    {
+      LongStats callTimeStats = _trackerClient.getCallTracker().getCallStats().getCallTimeStats();
+      if (callTimeStats.getCount() == 0)
+      {
+        return -1;
+      }
+      delay = callTimeStats.get95Pct();
+    }
+    return Math.max(delay, _snapshot.getMinHedgeDelay());
+  }
+
+  private static boolean isIdempotent(RestRequest request)
+  {
+    return "GET".equalsIgnoreCase(request.getMethod());
+  }
+
+  @Override
+  public String toString()
+  {
+    return "HedgedRequestClient [_rewriteClient=" + _rewriteClient + "]";
+  }
+
+  /**
+   * Completes the caller's callback with the first successful response, or with the last
+   * error once every attempt has failed.
+   */
+  private static class HedgedCallback<T> implements TransportCallback<T>
+  {
+    private final TransportCallback<T> _callback;
+    private final AtomicInteger        _outstanding = new AtomicInteger(1);
+    private final AtomicBoolean        _done = new AtomicBoolean(false);
+    private volatile TransportResponse<T> _lastError;
+    private volatile ScheduledFuture<?> _hedge;
+
+    HedgedCallback(TransportCallback<T> callback)
+    {
+      _callback = callback;
+    }
+
+    void setHedge(ScheduledFuture<?> hedge)
+    {
+      _hedge = hedge;
+      if (_done.get())
+      {
+        hedge.cancel(false);
+      }
+    }
+
+    boolean isDone()
+    {
+      return _done.get();
+    }
+
+    /**
+     * @return true if another attempt may be sent; false if the call has already completed.
+     */
+    boolean startAttempt()
+    {
+      if (_done.get())
+      {
+        return false;
+      }
+      _outstanding.incrementAndGet();
+      if (_done.get())
+      {
+        _outstanding.decrementAndGet();
+        return false;
+      }
+      return true;
+    }
+
+    void cancelAttempt()
+    {
+      if (_outstanding.decrementAndGet() <= 0)
+      {
+        // the other attempts have all failed already
+        TransportResponse<T> lastError = _lastError;
+        if (lastError != null)
+        {
+          complete(lastError);
+        }
+      }
+    }
+
+    @Override
+    public void onResponse(TransportResponse<T> response)
+    {
+      if (response.hasError())
+      {
+        _lastError = response;
+        if (_outstanding.decrementAndGet() <= 0)
+        {
+          complete(response);
+        }
+      }
+      else
+      {
+        _outstanding.decrementAndGet();
+        complete(response);
+      }
+    }
+
+    private void complete(TransportResponse<T> response)
+    {
+      if (_done.compareAndSet(false, true))
+      {
+        ScheduledFuture<?> hedge = _hedge;
+        if (hedge != null)
+        {
+          hedge.cancel(false);
+        }
+        _callback.onResponse(response);
+      }
+    }
+  }
+}
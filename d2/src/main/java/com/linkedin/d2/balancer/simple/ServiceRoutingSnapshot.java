@@ -0,0 +1,279 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.simple;
+
+
+import com.linkedin.common.util.MapUtil;
+import com.linkedin.d2.balancer.LoadBalancerState;
+import com.linkedin.d2.balancer.LoadBalancerState.SchemeStrategyPair;
+import com.linkedin.d2.balancer.LoadBalancerStateItem;
+import com.linkedin.d2.balancer.clients.RewriteClient;
+import com.linkedin.d2.balancer.clients.TrackerClient;
+import com.linkedin.d2.balancer.properties.ClusterProperties;
+import com.linkedin.d2.balancer.properties.PropertyKeys;
+import com.linkedin.d2.balancer.properties.ServiceProperties;
+import com.linkedin.d2.balancer.properties.UriProperties;
+import com.linkedin.d2.balancer.util.partitions.PartitionAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Everything {@link SimpleLoadBalancer#getClient} needs to route a request for one service,
+ * resolved once from the {@link LoadBalancerState}.
+ *
+ * A snapshot remembers the state items it was built from and is only used while the state
+ * still returns those same items; any service, cluster or uri update publishes new items (with
+ * new versions) and the snapshot is rebuilt on the next request. The per-partition tracker
+ * client lists and the {@link RewriteClient} for each tracker client are filled in lazily, so
+ * that in steady state choosing a client neither walks the uri properties nor parses a URI.
+ *
+ * The snapshot also holds the service's hedging configuration, see {@link HedgedRequestClient}.
+ */
+class ServiceRoutingSnapshot
+{
+  private static final Logger _log = LoggerFactory.getLogger(ServiceRoutingSnapshot.class);
+
+  public static final boolean DEFAULT_HEDGING_ENABLED = false;
+  public static final long    DEFAULT_HEDGING_DELAY_MS = -1;
+  public static final long    DEFAULT_HEDGING_MIN_DELAY_MS = 10;
+  public static final double  DEFAULT_HEDGING_MAX_RATIO = 0.05;
+
+  private final String                                    _serviceName;
+  private final String                                    _clusterName;
+  private final LoadBalancerStateItem<ServiceProperties>  _serviceItem;
+  private final LoadBalancerStateItem<ClusterProperties>  _clusterItem;
+  private final LoadBalancerStateItem<UriProperties>      _uriItem;
+  private final LoadBalancerStateItem<PartitionAccessor>  _partitionAccessorItem;
+  private final List<SchemeStrategyPair>                  _orderedStrategies;
+
+  /**
+   * One array per entry of _orderedStrategies, indexed by partition id.
+   */
+  private final List<AtomicReferenceArray<List<TrackerClient>>> _potentialClients;
+  private final ConcurrentMap<TrackerClient, RewriteClient>    _rewriteClients;
+
+  private final boolean                                        _hedgingEnabled;
+  private final long                                           _hedgeDelay;
+  private final long                                           _minHedgeDelay;
+  private final HedgeBudget                                    _hedgeBudget;
+  private final ConcurrentMap<TrackerClient, HedgedRequestClient> _hedgedClients;
+
+  ServiceRoutingSnapshot(String serviceName,
+                         LoadBalancerStateItem<ServiceProperties> serviceItem,
+                         LoadBalancerStateItem<ClusterProperties> clusterItem,
+                         LoadBalancerStateItem<UriProperties> uriItem,
+                         LoadBalancerStateItem<PartitionAccessor> partitionAccessorItem,
+                         List<SchemeStrategyPair> orderedStrategies)
+  {
+    _serviceName = serviceName;
+    _clusterName = serviceItem.getProperty().getClusterName();
+    _serviceItem = serviceItem;
+    _clusterItem = clusterItem;
+    _uriItem = uriItem;
+    _partitionAccessorItem = partitionAccessorItem;
+    _orderedStrategies = orderedStrategies;
+
+    int partitionCount = partitionAccessorItem.getProperty().getMaxPartitionId() + 1;
+    _potentialClients = new ArrayList<AtomicReferenceArray<List<TrackerClient>>>(orderedStrategies.size());
+    for (int i = 0; i < orderedStrategies.size(); i++)
+    {
+      _potentialClients.add(new AtomicReferenceArray<List<TrackerClient>>(partitionCount));
+    }
+    _rewriteClients = new ConcurrentHashMap<TrackerClient, RewriteClient>();
+
+    boolean hedgingEnabled = DEFAULT_HEDGING_ENABLED;
+    long hedgeDelay = DEFAULT_HEDGING_DELAY_MS;
+    long minHedgeDelay = DEFAULT_HEDGING_MIN_DELAY_MS;
+    HedgeBudget hedgeBudget = null;
+    Map<String, Object> strategyProperties = serviceItem.getProperty().getLoadBalancerStrategyProperties();
+    if (strategyProperties != null)
+    {
+      try
+      {
+        hedgingEnabled = MapUtil.getWithDefault(strategyProperties, PropertyKeys.HTTP_LB_HEDGING_ENABLED,
+                                                DEFAULT_HEDGING_ENABLED, Boolean.class);
+        hedgeDelay = MapUtil.getWithDefault(strategyProperties, PropertyKeys.HTTP_LB_HEDGING_DELAY_MS,
+                                            DEFAULT_HEDGING_DELAY_MS, Long.class);
+        minHedgeDelay = MapUtil.getWithDefault(strategyProperties, PropertyKeys.HTTP_LB_HEDGING_MIN_DELAY_MS,
+                                               DEFAULT_HEDGING_MIN_DELAY_MS, Long.class);
+        if (minHedgeDelay < 0)
+        {
+          throw new IllegalArgumentException("minimum hedging delay must not be negative: " + minHedgeDelay);
+        }
+        hedgeBudget = new HedgeBudget(MapUtil.getWithDefault(strategyProperties, PropertyKeys.HTTP_LB_HEDGING_MAX_RATIO,
+                                                             DEFAULT_HEDGING_MAX_RATIO, Double.class));
+      }
+      catch (IllegalArgumentException e)
+      {
+        _log.warn("invalid hedging configuration for service " + serviceName + ", hedging is disabled", e);
+        hedgingEnabled = false;
+      }
+    }
+    _hedgingEnabled = hedgingEnabled;
+    _hedgeDelay = hedgeDelay;
+    _minHedgeDelay = minHedgeDelay;
+    _hedgeBudget = hedgeBudget;
+    _hedgedClients = hedgingEnabled ? new ConcurrentHashMap<TrackerClient, HedgedRequestClient>() : null;
+  }
+
+  /**
+   * @return true if the state still holds the items this snapshot was built from.
+   */
+  boolean isCurrent(LoadBalancerState state)
+  {
+    return state.getServiceProperties(_serviceName) == _serviceItem
+        && state.getClusterProperties(_clusterName) == _clusterItem
+        && state.getUriProperties(_clusterName) == _uriItem
+        && state.getPartitionAccessor(_clusterName) == _partitionAccessorItem
+        && state.getStrategiesForService(_serviceName,
+                                         _clusterItem.getProperty().getPrioritizedSchemes()) == _orderedStrategies;
+  }
+
+  String getServiceName()
+  {
+    return _serviceName;
+  }
+
+  String getClusterName()
+  {
+    return _clusterName;
+  }
+
+  ClusterProperties getCluster()
+  {
+    return _clusterItem.getProperty();
+  }
+
+  LoadBalancerStateItem<UriProperties> getUriItem()
+  {
+    return _uriItem;
+  }
+
+  PartitionAccessor getPartitionAccessor()
+  {
+    return _partitionAccessorItem.getProperty();
+  }
+
+  List<SchemeStrategyPair> getOrderedStrategies()
+  {
+    return _orderedStrategies;
+  }
+
+  /**
+   * @return the cached tracker clients for the strategy at strategyIndex and the given
+   *         partition, or null if they have not been computed yet.
+   */
+  List<TrackerClient> getPotentialClients(int strategyIndex, int partitionId)
+  {
+    AtomicReferenceArray<List<TrackerClient>> clients = _potentialClients.get(strategyIndex);
+    return partitionId >= 0 && partitionId < clients.length() ? clients.get(partitionId) : null;
+  }
+
+  /**
+   * Caches trackerClients for the strategy at strategyIndex and the given partition.
+   *
+   * @return the cached list, which is the one computed by another thread if it got there first.
+   */
+  List<TrackerClient> cachePotentialClients(int strategyIndex, int partitionId, List<TrackerClient> trackerClients)
+  {
+    AtomicReferenceArray<List<TrackerClient>> clients = _potentialClients.get(strategyIndex);
+    if (partitionId >= 0 && partitionId < clients.length()
+        && !clients.compareAndSet(partitionId, null, trackerClients))
+    {
+      // keep the first list so strategies keep seeing the same instance
+      return clients.get(partitionId);
+    }
+    return trackerClients;
+  }
+
+  boolean isHedgingEnabled()
+  {
+    return _hedgingEnabled;
+  }
+
+  /**
+   * @return the configured hedge delay in milliseconds, or -1 to use the tracker client's
+   *         95th percentile call time; in both cases at least {@link #getMinHedgeDelay()}
+   *         is waited for.
+   */
+  long getHedgeDelay()
+  {
+    return _hedgeDelay;
+  }
+
+  /**
+   * @return the minimum hedge delay in milliseconds.
+   */
+  long getMinHedgeDelay()
+  {
+    return _minHedgeDelay;
+  }
+
+  /**
+   * @return the budget shared by the hedged requests of the service.
+   */
+  HedgeBudget getHedgeBudget()
+  {
+    return _hedgeBudget;
+  }
+
+  HedgedRequestClient getHedgedClient(TrackerClient trackerClient,
+                                      SimpleLoadBalancer loadBalancer,
+                                      ScheduledExecutorService scheduler,
+                                      Executor executor)
+  {
+    HedgedRequestClient client = _hedgedClients.get(trackerClient);
+    if (client == null)
+    {
+      client = new HedgedRequestClient(loadBalancer, this, trackerClient, getRewriteClient(trackerClient),
+                                       scheduler, executor);
+      HedgedRequestClient previous = _hedgedClients.putIfAbsent(trackerClient, client);
+      if (previous != null)
+      {
+        client = previous;
+      }
+    }
+    return client;
+  }
+
+  RewriteClient getRewriteClient(TrackerClient trackerClient)
+  {
+    RewriteClient client = _rewriteClients.get(trackerClient);
+    if (client == null)
+    {
+      ServiceProperties service = _serviceItem.getProperty();
+      String clusterAndServiceUriString = trackerClient.getUri() + service.getPath();
+      client = new RewriteClient(service.getServiceName(), URI.create(clusterAndServiceUriString), trackerClient);
+      RewriteClient previous = _rewriteClients.putIfAbsent(trackerClient, client);
+      if (previous != null)
+      {
+        client = previous;
+      }
+    }
+    return client;
+  }
+}
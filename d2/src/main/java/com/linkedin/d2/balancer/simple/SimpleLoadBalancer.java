@@ -44,6 +44,7 @@ import com.linkedin.r2.message.Request;
 import com.linkedin.r2.message.RequestContext;
 import com.linkedin.r2.transport.common.TransportClientFactory;
 import com.linkedin.r2.transport.common.bridge.client.TransportClient;
+import com.linkedin.r2.util.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,7 +57,13 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import static com.linkedin.d2.discovery.util.LogUtil.debug;
@@ -68,6 +75,7 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
   private static final Logger     _log =
                                            LoggerFactory.getLogger(SimpleLoadBalancer.class);
   private static final String     D2_SCHEME_NAME = "d2";
+  private static final int        MAX_BACKUP_ATTEMPTS = 3;
 
   private final LoadBalancerState _state;
   private final Stats             _serviceUnavailableStats;
@@ -75,6 +83,23 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
   private final long              _timeout;
   private final TimeUnit          _unit;
 
+  /**
+   * Map from service name => routing snapshot used by getClient(); entries are replaced
+   * whenever the load balancer state publishes new items for the service or its cluster.
+   */
+  private final ConcurrentMap<String, ServiceRoutingSnapshot> _routingSnapshots;
+
+  /**
+   * Schedules hedged requests; created on first use if not passed in.
+   */
+  private volatile ScheduledExecutorService _hedgeScheduler;
+
+  /**
+   * Chooses the backup client for and sends the hedged requests once they are due; created on
+   * first use if not passed in.
+   */
+  private volatile Executor _hedgeExecutor;
+
   public SimpleLoadBalancer(LoadBalancerState state)
   {
     this(state, new Stats(1000), new Stats(1000), 0, TimeUnit.SECONDS);
@@ -102,12 +127,32 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
                             Stats serviceUnavailableStats,
                             long timeout,
                             TimeUnit unit)
+  {
+    this(state, serviceAvailableStats, serviceUnavailableStats, timeout, unit, null, null);
+  }
+
+  /**
+   * @param hedgeScheduler executor used to schedule hedged requests for services that enable
+   *          hedging; if null, a single daemon thread is started the first time one is needed.
+   * @param hedgeExecutor executor used to choose the backup client for and send a hedged request
+   *          once it is due; if null, daemon threads are started as they are needed.
+   */
+  public SimpleLoadBalancer(LoadBalancerState state,
+                            Stats serviceAvailableStats,
+                            Stats serviceUnavailableStats,
+                            long timeout,
+                            TimeUnit unit,
+                            ScheduledExecutorService hedgeScheduler,
+                            Executor hedgeExecutor)
   {
     _state = state;
     _serviceUnavailableStats = serviceUnavailableStats;
     _serviceAvailableStats = serviceAvailableStats;
     _timeout = timeout;
     _unit = unit;
+    _routingSnapshots = new ConcurrentHashMap<String, ServiceRoutingSnapshot>();
+    _hedgeScheduler = hedgeScheduler;
+    _hedgeExecutor = hedgeExecutor;
   }
 
   public Stats getServiceUnavailableStats()
@@ -149,13 +194,10 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
   {
     TransportClient client;
     URI uri = request.getURI();
-    debug(_log, "get client for uri: ", uri);
-
-    ServiceProperties service = listenToServiceAndCluster(uri);
-
-    String serviceName = service.getServiceName();
-    String clusterName = service.getClusterName();
-    ClusterProperties cluster = getClusterProperties(serviceName, clusterName);
+    if (_log.isDebugEnabled())
+    {
+      debug(_log, "get client for uri: ", uri);
+    }
 
     // Check if we want to override the service URL and bypass choosing among the existing
     // tracker clients. This is useful when the service we want is not announcing itself to
@@ -164,25 +206,29 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
 
     if (targetService == null)
     {
-      LoadBalancerStateItem<UriProperties> uriItem = getUriItem(serviceName, clusterName, cluster);
-      UriProperties uris = uriItem.getProperty();
-
-      List<LoadBalancerState.SchemeStrategyPair> orderedStrategies =
-              _state.getStrategiesForService(serviceName,
-                                             cluster.getPrioritizedSchemes());
+      ServiceRoutingSnapshot snapshot = getRoutingSnapshot(uri);
 
-      TrackerClient trackerClient = chooseTrackerClient(request, requestContext, serviceName, clusterName, cluster,
-                                                        uriItem, uris, orderedStrategies);
+      TrackerClient trackerClient = chooseTrackerClient(request, requestContext, snapshot);
 
-      String clusterAndServiceUriString = trackerClient.getUri() + service.getPath();
-      client = new RewriteClient(serviceName,
-                                               URI.create(clusterAndServiceUriString),
-                                               trackerClient);
+      if (snapshot.isHedgingEnabled())
+      {
+        client = snapshot.getHedgedClient(trackerClient, this, getHedgeScheduler(), getHedgeExecutor());
+      }
+      else
+      {
+        client = snapshot.getRewriteClient(trackerClient);
+      }
 
       _serviceAvailableStats.inc();
     }
     else
     {
+      ServiceProperties service = listenToServiceAndCluster(uri);
+
+      String serviceName = service.getServiceName();
+      String clusterName = service.getClusterName();
+      getClusterProperties(serviceName, clusterName);
+
       _log.debug("service hint found, using generic client for target: " + targetService);
 
       TransportClient transportClient = _state.getClient(clusterName, targetService.getScheme());
@@ -385,6 +431,52 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
     return service;
   }
 
+  /**
+   * Returns the routing snapshot for the service named by the given d2 uri, building a new
+   * one if there is none yet or if the load balancer state has changed since it was built.
+   * Only the first request for a service (or the first after a change) waits for the
+   * service and cluster to be listened to.
+   */
+  private ServiceRoutingSnapshot getRoutingSnapshot(URI uri)
+          throws ServiceUnavailableException
+  {
+    if (!D2_SCHEME_NAME.equalsIgnoreCase(uri.getScheme()))
+    {
+      throw new IllegalArgumentException("Unsupported scheme in URI " + uri);
+    }
+
+    String serviceName = LoadBalancerUtil.getServiceNameFromUri(uri);
+    ServiceRoutingSnapshot snapshot = _routingSnapshots.get(serviceName);
+
+    if (snapshot == null || !snapshot.isCurrent(_state))
+    {
+      listenToServiceAndCluster(uri);
+
+      LoadBalancerStateItem<ServiceProperties> serviceItem = getServicePropertiesItem(serviceName);
+      String clusterName = serviceItem.getProperty().getClusterName();
+      LoadBalancerStateItem<ClusterProperties> clusterItem = getClusterPropertiesItem(serviceName, clusterName);
+      ClusterProperties cluster = clusterItem.getProperty();
+      LoadBalancerStateItem<UriProperties> uriItem = getUriItem(serviceName, clusterName, cluster);
+      LoadBalancerStateItem<PartitionAccessor> partitionAccessorItem =
+          getPartitionAccessorItem(serviceName, clusterName);
+
+      List<LoadBalancerState.SchemeStrategyPair> orderedStrategies =
+          _state.getStrategiesForService(serviceName, cluster.getPrioritizedSchemes());
+
+      snapshot = new ServiceRoutingSnapshot(serviceName,
+                                            serviceItem,
+                                            clusterItem,
+                                            uriItem,
+                                            partitionAccessorItem,
+                                            orderedStrategies);
+      _routingSnapshots.put(serviceName, snapshot);
+
+      debug(_log, "created routing snapshot for service: ", serviceName);
+    }
+
+    return snapshot;
+  }
+
   private LoadBalancerStateItem<UriProperties> getUriItem(String serviceName,
                                                           String clusterName,
                                                           ClusterProperties cluster)
@@ -407,6 +499,13 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
   private ClusterProperties getClusterProperties(String serviceName,
                                                  String clusterName)
           throws ServiceUnavailableException
+  {
+    return getClusterPropertiesItem(serviceName, clusterName).getProperty();
+  }
+
+  private LoadBalancerStateItem<ClusterProperties> getClusterPropertiesItem(String serviceName,
+                                                                            String clusterName)
+          throws ServiceUnavailableException
   {
     LoadBalancerStateItem<ClusterProperties> clusterItem =
         _state.getClusterProperties(clusterName);
@@ -418,11 +517,17 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
       die(serviceName, "no cluster properties in lb state");
     }
 
-    return clusterItem.getProperty();
+    return clusterItem;
   }
 
   private PartitionAccessor getPartitionAccessor(String serviceName, String clusterName)
       throws ServiceUnavailableException
+  {
+    return getPartitionAccessorItem(serviceName, clusterName).getProperty();
+  }
+
+  private LoadBalancerStateItem<PartitionAccessor> getPartitionAccessorItem(String serviceName, String clusterName)
+      throws ServiceUnavailableException
   {
     LoadBalancerStateItem<PartitionAccessor> partitionAccessorItem =
         _state.getPartitionAccessor(clusterName);
@@ -432,11 +537,17 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
       die(serviceName, "No partition accessor available for cluster: " + clusterName);
     }
 
-    return partitionAccessorItem.getProperty();
+    return partitionAccessorItem;
   }
 
   private ServiceProperties getServiceProperties(String serviceName)
           throws ServiceUnavailableException
+  {
+    return getServicePropertiesItem(serviceName).getProperty();
+  }
+
+  private LoadBalancerStateItem<ServiceProperties> getServicePropertiesItem(String serviceName)
+          throws ServiceUnavailableException
   {
     LoadBalancerStateItem<ServiceProperties> serviceItem =
         _state.getServiceProperties(serviceName);
@@ -450,7 +561,7 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
 
     debug(_log, "got service: ", serviceItem);
 
-    return serviceItem.getProperty();
+    return serviceItem;
   }
 
   // supports partitioning
@@ -506,16 +617,13 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
   }
 
   private TrackerClient chooseTrackerClient(Request request, RequestContext requestContext,
-                                            String serviceName, String clusterName,
-                                            ClusterProperties cluster,
-                                            LoadBalancerStateItem<UriProperties> uriItem,
-                                            UriProperties uris,
-                                            List<LoadBalancerState.SchemeStrategyPair> orderedStrategies)
+                                            ServiceRoutingSnapshot snapshot)
           throws ServiceUnavailableException
   {
     // now try and find a tracker client for the uri
     TrackerClient trackerClient = null;
-    PartitionAccessor accessor = getPartitionAccessor(serviceName, clusterName);
+    String serviceName = snapshot.getServiceName();
+    PartitionAccessor accessor = snapshot.getPartitionAccessor();
     URI requestUri = request.getURI();
     int partitionId = -1;
     try
@@ -527,21 +635,24 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
       die(serviceName, "Error in finding the partition for URI: " + requestUri + ", " + e.getMessage());
     }
 
-    for (LoadBalancerState.SchemeStrategyPair pair : orderedStrategies)
+    long version = snapshot.getUriItem().getVersion();
+    List<LoadBalancerState.SchemeStrategyPair> orderedStrategies = snapshot.getOrderedStrategies();
+    for (int i = 0; i < orderedStrategies.size(); i++)
     {
-      LoadBalancerStrategy strategy = pair.getStrategy();
-      String scheme = pair.getScheme();
-
-      List<TrackerClient> clientsToLoadBalance = getPotentialClients(clusterName, cluster, uris, scheme, partitionId);
+      LoadBalancerStrategy strategy = orderedStrategies.get(i).getStrategy();
+      List<TrackerClient> clientsToLoadBalance = getPotentialClients(snapshot, i, partitionId);
 
       trackerClient =
-          strategy.getTrackerClient(request, requestContext, uriItem.getVersion(), partitionId, clientsToLoadBalance);
+          strategy.getTrackerClient(request, requestContext, version, partitionId, clientsToLoadBalance);
 
-      debug(_log,
-            "load balancer strategy for ",
-            serviceName,
-            " returned: ",
-            trackerClient);
+      if (_log.isDebugEnabled())
+      {
+        debug(_log,
+              "load balancer strategy for ",
+              serviceName,
+              " returned: ",
+              trackerClient);
+      }
 
       // break as soon as we find an available cluster client
       if (trackerClient != null)
@@ -557,6 +668,117 @@ public class SimpleLoadBalancer implements LoadBalancer, HashRingProvider, Clien
     return trackerClient;
   }
 
+  /**
+   * Chooses the tracker client for a hedged request: asks the service's strategies again for a
+   * client other than the one the original request was sent to. Only clients returned by a
+   * strategy are used, so a hedged request never goes to a client the strategy would not send
+   * a request to, e.g. one the degrader drops calls for. Sticky strategies keep returning the
+   * same client, so the request is then not hedged.
+   *
+   * @return the client to send the hedged request to, or null if no other client was found.
+   */
+  RewriteClient chooseBackupClient(Request request, RequestContext requestContext,
+                                   ServiceRoutingSnapshot snapshot, TrackerClient primary)
+  {
+    int partitionId;
+    try
+    {
+      partitionId = snapshot.getPartitionAccessor().getPartitionId(request.getURI());
+    }
+    catch (PartitionAccessException e)
+    {
+      return null;
+    }
+
+    long version = snapshot.getUriItem().getVersion();
+    List<LoadBalancerState.SchemeStrategyPair> orderedStrategies = snapshot.getOrderedStrategies();
+    for (int i = 0; i < orderedStrategies.size(); i++)
+    {
+      LoadBalancerStrategy strategy = orderedStrategies.get(i).getStrategy();
+      List<TrackerClient> clientsToLoadBalance = getPotentialClients(snapshot, i, partitionId);
+
+      for (int attempt = 0; attempt < MAX_BACKUP_ATTEMPTS; attempt++)
+      {
+        TrackerClient trackerClient =
+            strategy.getTrackerClient(request, requestContext, version, partitionId, clientsToLoadBalance);
+        if (trackerClient != null && trackerClient != primary)
+        {
+          return snapshot.getRewriteClient(trackerClient);
+        }
+      }
+    }
+
+    return null;
+  }
+
+  private List<TrackerClient> getPotentialClients(ServiceRoutingSnapshot snapshot,
+                                                  int strategyIndex,
+                                                  int partitionId)
+  {
+    List<TrackerClient> clients = snapshot.getPotentialClients(strategyIndex, partitionId);
+    if (clients == null)
+    {
+      clients = getPotentialClients(snapshot.getClusterName(),
+                                    snapshot.getCluster(),
+                                    snapshot.getUriItem().getProperty(),
+                                    snapshot.getOrderedStrategies().get(strategyIndex).getScheme(),
+                                    partitionId);
+      clients = snapshot.cachePotentialClients(strategyIndex, partitionId, clients);
+    }
+    return clients;
+  }
+
+  private ScheduledExecutorService getHedgeScheduler()
+  {
+    ScheduledExecutorService scheduler = _hedgeScheduler;
+    if (scheduler == null)
+    {
+      synchronized (this)
+      {
+        scheduler = _hedgeScheduler;
+        if (scheduler == null)
+        {
+          scheduler = Executors.newSingleThreadScheduledExecutor(newDaemonThreadFactory("D2 HedgedRequestTimer"));
+          _hedgeScheduler = scheduler;
+        }
+      }
+    }
+    return scheduler;
+  }
+
+  private Executor getHedgeExecutor()
+  {
+    Executor executor = _hedgeExecutor;
+    if (executor == null)
+    {
+      synchronized (this)
+      {
+        executor = _hedgeExecutor;
+        if (executor == null)
+        {
+          executor = Executors.newCachedThreadPool(newDaemonThreadFactory("D2 HedgedRequests"));
+          _hedgeExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  private static ThreadFactory newDaemonThreadFactory(String name)
+  {
+    final ThreadFactory threadFactory = new NamedThreadFactory(name);
+    return new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = threadFactory.newThread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+
   private void die(String serviceName, String message) throws ServiceUnavailableException
   {
     _serviceUnavailableStats.inc();
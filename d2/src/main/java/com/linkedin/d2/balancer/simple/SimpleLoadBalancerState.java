@@ -22,8 +22,12 @@ import static com.linkedin.d2.discovery.util.LogUtil.trace;
 import static com.linkedin.d2.discovery.util.LogUtil.warn;
 
 import com.linkedin.d2.balancer.strategies.degrader.DegraderConfigFactory;
+import com.linkedin.util.clock.Clock;
 import com.linkedin.util.clock.SystemClock;
+import com.linkedin.util.degrader.CallTracker;
+import com.linkedin.util.degrader.CallTrackerImpl;
 import com.linkedin.util.degrader.DegraderImpl;
+import com.linkedin.util.degrader.StripedCallTrackerImpl;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -52,6 +56,7 @@ import com.linkedin.d2.balancer.LoadBalancerStateItem;
 import com.linkedin.d2.balancer.clients.TrackerClient;
 import com.linkedin.d2.balancer.properties.ClusterProperties;
 import com.linkedin.d2.balancer.properties.PartitionData;
+import com.linkedin.d2.balancer.properties.PropertyKeys;
 import com.linkedin.d2.balancer.properties.ServiceProperties;
 import com.linkedin.d2.balancer.properties.UriProperties;
 import com.linkedin.d2.balancer.strategies.LoadBalancerStrategy;
@@ -688,6 +693,7 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
         ClusterInfoItem clusterInfoItem = _clusterInfo.get(clusterName);
 
         DegraderImpl.Config config = null;
+        boolean stripedCallTracker = false;
         if (clusterInfoItem == null || clusterInfoItem.getClusterPropertiesItem() == null
             || clusterInfoItem.getClusterPropertiesItem().getProperty() == null)
         {
@@ -699,6 +705,7 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
           Map<String, String> degraderImplProperties =
               clusterInfoItem.getClusterPropertiesItem().getProperty().getProperties();
           config = DegraderConfigFactory.toDegraderConfig(degraderImplProperties);
+          stripedCallTracker = isStripedCallTracker(degraderImplProperties);
         }
 
         for (URI uri : discoveryProperties.Uris())
@@ -708,7 +715,8 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
             TrackerClient client = getTrackerClient(discoveryProperties.getClusterName(),
                 uri,
                 discoveryProperties.getPartitionDataMap(uri),
-                config);
+                config,
+                stripedCallTracker);
 
             if (client != null)
             {
@@ -807,16 +815,16 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
     {
       if (discoveryProperties != null)
       {
-        _clusterInfo.put(listenTo, new ClusterInfoItem(discoveryProperties,
-            PartitionAccessorFactory.getPartitionAccessor(discoveryProperties.getPartitionProperties())));
+        // the new cluster info is published only once the tracker clients below have been
+        // replaced, so that anyone who sees the new item also sees the new tracker clients
+        ClusterInfoItem clusterInfoItem = new ClusterInfoItem(discoveryProperties,
+            PartitionAccessorFactory.getPartitionAccessor(discoveryProperties.getPartitionProperties()));
 
         final String clusterName = discoveryProperties.getClusterName();
         // update all tracker clients to use new cluster configs
         LoadBalancerStateItem<UriProperties> uriItem =
             _uriProperties.get(clusterName);
 
-        ClusterInfoItem clusterInfoItem =
-            _clusterInfo.get(clusterName);
         Map<String, String> clusterProperties = Collections.emptyMap();
 
         if (clusterInfoItem != null)
@@ -863,6 +871,7 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
         // each tracker clients that we instantiate here. If there's no such information, then we'll instantiate
         // each tracker clients with default configuration
         DegraderImpl.Config config = null;
+        boolean stripedCallTracker = false;
 
         if (discoveryProperties.getProperties() == null)
         {
@@ -873,6 +882,7 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
         {
           Map<String,String> degraderImplProperties = discoveryProperties.getProperties();
           config = DegraderConfigFactory.toDegraderConfig(degraderImplProperties);
+          stripedCallTracker = isStripedCallTracker(degraderImplProperties);
         }
 
         Map<URI,TrackerClient> newTrackerClients;
@@ -885,7 +895,7 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
           for (URI uri : uris)
           {
             TrackerClient trackerClient = getTrackerClient(clusterName, uri, uriProperties.getPartitionDataMap(uri),
-                                                           config);
+                                                           config, stripedCallTracker);
             if (trackerClient != null)
             {
               newTrackerClients.put(uri, trackerClient);
@@ -901,6 +911,8 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
         Map<URI,TrackerClient> oldTrackerClients = _trackerClients.put(clusterName, newTrackerClients);
         // No need to shut down oldTrackerClients, because they all point directly to the TransportClient for the cluster
 
+        _clusterInfo.put(listenTo, clusterInfoItem);
+
         // We do need to shut down the old cluster clients
         // However there is a concurrency edge case that we should handle here by delaying the shutdown.
         // Let's say there's a request to getClient() at the same time as new event coming to handlePut()
@@ -1059,8 +1071,14 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
     }
   }
 
+  private static boolean isStripedCallTracker(Map<String, String> degraderImplProperties)
+  {
+    return degraderImplProperties != null
+        && Boolean.parseBoolean(degraderImplProperties.get(PropertyKeys.DEGRADER_STRIPED_CALL_TRACKER));
+  }
+
   private TrackerClient getTrackerClient(String clusterName, URI uri, Map<Integer, PartitionData> partitionDataMap,
-                                         DegraderImpl.Config config)
+                                         DegraderImpl.Config config, boolean stripedCallTracker)
   {
     Map<String,TransportClient> clientsByScheme = _clusterClients.get(clusterName);
     if (clientsByScheme == null)
@@ -1076,7 +1094,12 @@ public class SimpleLoadBalancerState implements LoadBalancerState, ClientFactory
           new Object[]{ clusterName, uri, partitionDataMap });
       return null;
     }
-    TrackerClient trackerClient = new TrackerClient(uri, partitionDataMap, client, SystemClock.instance(), config);
+    Clock clock = SystemClock.instance();
+    boolean latencyHistogram = config != null && config.isLatencyHistogram();
+    CallTracker callTracker = stripedCallTracker
+        ? new StripedCallTrackerImpl(TrackerClient.DEFAULT_CALL_TRACKER_INTERVAL, clock, latencyHistogram)
+        : new CallTrackerImpl(TrackerClient.DEFAULT_CALL_TRACKER_INTERVAL, clock, latencyHistogram);
+    TrackerClient trackerClient = new TrackerClient(uri, partitionDataMap, client, clock, config, callTracker);
     return trackerClient;
   }
 
@@ -114,6 +114,10 @@ public class DegraderConfigFactory
       config.setOverrideMinCallCount(MapUtil.getWithDefault(properties,
                                                             PropertyKeys.DEGRADER_OVERRIDE_MIN_CALL_COUNT,
                                                             DegraderImpl.DEFAULT_OVERRIDE_MIN_CALL_COUNT));
+
+      config.setLatencyHistogram(MapUtil.getWithDefault(properties,
+                                                        PropertyKeys.DEGRADER_LATENCY_HISTOGRAM,
+                                                        DegraderImpl.DEFAULT_LATENCY_HISTOGRAM));
     }
     return config;
   }
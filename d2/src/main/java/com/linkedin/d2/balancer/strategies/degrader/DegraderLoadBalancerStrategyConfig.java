@@ -60,6 +60,11 @@ public class DegraderLoadBalancerStrategyConfig
   private final double _globalStepUp;
   private final double _globalStepDown;
 
+  // If true, the strategy recomputes its partition states on a background executor and request
+  // threads only read the last published state, instead of updating it inline (and making other
+  // request threads wait for the first update).
+  private final boolean _updateAsync;
+
   public static final Clock DEFAULT_CLOCK = SystemClock.instance();
   public static final double DEFAULT_INITIAL_RECOVERY_LEVEL = 0.01;
   public static final double DEFAULT_RAMP_FACTOR = 1.0;
@@ -76,6 +81,7 @@ public class DegraderLoadBalancerStrategyConfig
   // the globalStepUp and globalStepDown drop rates.
   public static final double DEFAULT_GLOBAL_STEP_UP = 0.20;
   public static final double DEFAULT_GLOBAL_STEP_DOWN = 0.20;
+  public static final boolean DEFAULT_UPDATE_ASYNC = false;
 
   public DegraderLoadBalancerStrategyConfig(long updateIntervalMs,
                                             double maxClusterLatencyWithoutDegrading)
@@ -99,7 +105,8 @@ public class DegraderLoadBalancerStrategyConfig
          config.getHighWaterMark(),
          config.getLowWaterMark(),
          config.getGlobalStepUp(),
-         config.getGlobalStepDown());
+         config.getGlobalStepDown(),
+         config.isUpdateAsync());
   }
 
   public DegraderLoadBalancerStrategyConfig(long updateIntervalMs,
@@ -115,6 +122,26 @@ public class DegraderLoadBalancerStrategyConfig
                                             double lowWaterMark,
                                             double globalStepUp,
                                             double globalStepDown)
+  {
+    this(updateIntervalMs, maxClusterLatencyWithoutDegrading, defaultSuccessfulTransmissionWeight, pointsPerWeight,
+         hashMethod, hashConfig, clock, initialRecoveryLevel, ringRampFactor, highWaterMark, lowWaterMark,
+         globalStepUp, globalStepDown, DEFAULT_UPDATE_ASYNC);
+  }
+
+  public DegraderLoadBalancerStrategyConfig(long updateIntervalMs,
+                                            double maxClusterLatencyWithoutDegrading,
+                                            double defaultSuccessfulTransmissionWeight,
+                                            int pointsPerWeight,
+                                            String hashMethod,
+                                            Map<String,Object> hashConfig,
+                                            Clock clock,
+                                            double initialRecoveryLevel,
+                                            double ringRampFactor,
+                                            double highWaterMark,
+                                            double lowWaterMark,
+                                            double globalStepUp,
+                                            double globalStepDown,
+                                            boolean updateAsync)
   {
     _updateIntervalMs = updateIntervalMs;
     _maxClusterLatencyWithoutDegrading = maxClusterLatencyWithoutDegrading;
@@ -129,6 +156,7 @@ public class DegraderLoadBalancerStrategyConfig
     _lowWaterMark = lowWaterMark;
     _globalStepUp = globalStepUp;
     _globalStepDown = globalStepDown;
+    _updateAsync = updateAsync;
   }
 
   private static <V> V getWithDefault(Map<String,Object> map, String oldKey, String httpKey, V defaultValue,
@@ -213,6 +241,9 @@ public class DegraderLoadBalancerStrategyConfig
     Double globalStepDown = getWithDefault(map, PropertyKeys.LB_GLOBAL_STEP_DOWN, PropertyKeys.HTTP_LB_GLOBAL_STEP_DOWN,
                                            DEFAULT_GLOBAL_STEP_DOWN, Double.class);
 
+    Boolean updateAsync = getWithDefault(map, PropertyKeys.LB_UPDATE_ASYNC, PropertyKeys.HTTP_LB_UPDATE_ASYNC,
+                                         DEFAULT_UPDATE_ASYNC, Boolean.class);
+
     @SuppressWarnings("unchecked")
     Map<String,Object> hashConfig = getWithDefault(map, PropertyKeys.LB_HASH_CONFIG,
                                                    PropertyKeys.HTTP_LB_HASH_CONFIG,
@@ -223,7 +254,7 @@ public class DegraderLoadBalancerStrategyConfig
         updateIntervalMs, maxClusterLatencyWithoutDegrading,
         defaultSuccessfulTransmissionWeight, pointsPerWeight, hashMethod, hashConfig,
         clock, initialRecoveryLevel, ringRampFactor, highWaterMark, lowWaterMark,
-        globalStepUp, globalStepDown);
+        globalStepUp, globalStepDown, updateAsync);
   }
 
   /**
@@ -270,6 +301,9 @@ public class DegraderLoadBalancerStrategyConfig
     Double globalStepDown = MapUtil.getWithDefault(map,
                                                    PropertyKeys.LB_GLOBAL_STEP_DOWN,
                                                    DEFAULT_GLOBAL_STEP_DOWN);
+    Boolean updateAsync = MapUtil.getWithDefault(map,
+                                                 PropertyKeys.LB_UPDATE_ASYNC,
+                                                 DEFAULT_UPDATE_ASYNC);
 
     @SuppressWarnings("unchecked")
     Map<String,Object> hashConfig = (Map<String,Object>)map.get(PropertyKeys.LB_HASH_CONFIG);
@@ -282,7 +316,7 @@ public class DegraderLoadBalancerStrategyConfig
             updateIntervalMs, maxClusterLatencyWithoutDegrading,
             defaultSuccessfulTransmissionWeight, pointsPerWeight, hashMethod, hashConfig,
             clock, initialRecoveryLevel, ringRampFactor, highWaterMark, lowWaterMark,
-            globalStepUp, globalStepDown);
+            globalStepUp, globalStepDown, updateAsync);
   }
 
   // helper method to choose new value over old value and print log debug if both new value and old
@@ -390,6 +424,15 @@ public class DegraderLoadBalancerStrategyConfig
     return _globalStepDown;
   }
 
+  /**
+   * @return Whether partition states are updated on a background executor rather than inline
+   *         on request threads.
+   */
+  public boolean isUpdateAsync()
+  {
+    return _updateAsync;
+  }
+
   @Override
   public String toString()
   {
@@ -397,6 +440,7 @@ public class DegraderLoadBalancerStrategyConfig
             + ", _lowWaterMark=" + _lowWaterMark + ", _initialRecoveryLevel=" + _initialRecoveryLevel
             + ", _ringRampFactor=" + _ringRampFactor + ", _globalStepUp=" + _globalStepUp
             + ", _globalStepDown=" + _globalStepDown + ", _pointsPerWeight=" + _pointsPerWeight
-            + ", _defaultTransmissionRate=" + _defaultSuccessfulTransmissionWeight + "]";
+            + ", _defaultTransmissionRate=" + _defaultSuccessfulTransmissionWeight
+            + ", _updateAsync=" + _updateAsync + "]";
   }
 }
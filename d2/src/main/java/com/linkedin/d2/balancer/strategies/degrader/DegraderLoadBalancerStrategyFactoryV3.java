@@ -17,10 +17,14 @@
 package com.linkedin.d2.balancer.strategies.degrader;
 
 import com.linkedin.d2.balancer.strategies.LoadBalancerStrategyFactory;
+import com.linkedin.r2.util.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import static com.linkedin.d2.discovery.util.LogUtil.debug;
 
@@ -29,8 +33,23 @@ public class DegraderLoadBalancerStrategyFactoryV3 implements
 {
   private static final Logger  _log =
                LoggerFactory.getLogger(DegraderLoadBalancerStrategyFactoryV3.class);
+
+  // runs the partition state updates of strategies configured with updateAsync
+  private ScheduledExecutorService _updateExecutor;
+
   public DegraderLoadBalancerStrategyFactoryV3()
   {
+    this(null);
+  }
+
+  /**
+   * @param updateExecutor executor for the state updates of strategies configured with
+   *          updateAsync. If null, one daemon thread is started the first time such a
+   *          strategy is created, and shared by all strategies from this factory.
+   */
+  public DegraderLoadBalancerStrategyFactoryV3(ScheduledExecutorService updateExecutor)
+  {
+    _updateExecutor = updateExecutor;
   }
 
   @Override
@@ -39,7 +58,30 @@ public class DegraderLoadBalancerStrategyFactoryV3 implements
   {
     debug(_log, "created a degrader load balancer strategyV3");
 
-    return new DegraderLoadBalancerStrategyV3(DegraderLoadBalancerStrategyConfig.createHttpConfigFromMap(strategyProperties),
-                                              serviceName);
+    DegraderLoadBalancerStrategyConfig config =
+        DegraderLoadBalancerStrategyConfig.createHttpConfigFromMap(strategyProperties);
+
+    return new DegraderLoadBalancerStrategyV3(config, serviceName,
+                                              config.isUpdateAsync() ? getUpdateExecutor() : null);
+  }
+
+  private synchronized ScheduledExecutorService getUpdateExecutor()
+  {
+    if (_updateExecutor == null)
+    {
+      final ThreadFactory threadFactory = new NamedThreadFactory("D2 DegraderStateUpdater");
+      _updateExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+      {
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+          Thread thread = threadFactory.newThread(runnable);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    return _updateExecutor;
   }
 }
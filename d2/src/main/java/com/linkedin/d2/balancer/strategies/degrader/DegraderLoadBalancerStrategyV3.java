@@ -19,10 +19,11 @@ package com.linkedin.d2.balancer.strategies.degrader;
 import com.linkedin.d2.balancer.KeyMapper;
 import com.linkedin.d2.balancer.clients.TrackerClient;
 import com.linkedin.d2.balancer.strategies.LoadBalancerStrategy;
-import com.linkedin.d2.balancer.util.hashing.ConsistentHashRing;
+import com.linkedin.d2.balancer.util.hashing.DelegatingRingFactory;
 import com.linkedin.d2.balancer.util.hashing.HashFunction;
 import com.linkedin.d2.balancer.util.hashing.RandomHash;
 import com.linkedin.d2.balancer.util.hashing.Ring;
+import com.linkedin.d2.balancer.util.hashing.RingFactory;
 import com.linkedin.d2.balancer.util.hashing.URIRegexHash;
 import com.linkedin.d2.balancer.util.partitions.DefaultPartitionAccessor;
 import com.linkedin.r2.message.Request;
@@ -36,6 +37,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
@@ -50,18 +55,45 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
 
   private static final Logger                         _log =
                            LoggerFactory.getLogger(DegraderLoadBalancerStrategyV3.class);
+  private static final RingFactory<URI>               DEFAULT_RING_FACTORY =
+      new DelegatingRingFactory<URI>(Collections.<String, Object>emptyMap());
 
   private boolean                                     _updateEnabled;
   private volatile DegraderLoadBalancerStrategyConfig _config;
   private volatile HashFunction<Request>              _hashFunction;
+  private volatile RingFactory<URI>                   _ringFactory;
   private final DegraderLoadBalancerState _state;
 
+  // executor for partition state updates when the config asks for updateAsync, and the
+  // partitions which have an update queued or running on it
+  private final ScheduledExecutorService              _updateExecutor;
+  private final Set<Integer>                          _pendingUpdates;
+
   public DegraderLoadBalancerStrategyV3(DegraderLoadBalancerStrategyConfig config,
                                         String serviceName)
+  {
+    this(config, serviceName, null);
+  }
+
+  /**
+   * @param updateExecutor executor to update partition states on if the config has
+   *          updateAsync set. If null, partition states are always updated inline.
+   */
+  public DegraderLoadBalancerStrategyV3(DegraderLoadBalancerStrategyConfig config,
+                                        String serviceName,
+                                        ScheduledExecutorService updateExecutor)
   {
     _updateEnabled = true;
     setConfig(config);
     _state = new DegraderLoadBalancerState(serviceName);
+    _updateExecutor = updateExecutor;
+    _pendingUpdates = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    if (config.isUpdateAsync() && updateExecutor == null)
+    {
+      warn(_log, "updateAsync is set for ", serviceName, " but no update executor was given, so partition ",
+           "states will be updated inline");
+    }
   }
 
   @Override
@@ -92,18 +124,20 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
     // tracker client from the hash ring, and will return null.
     checkUpdatePartitionState(clusterGenerationId, partitionId, trackerClients);
 
+    PartitionDegraderLoadBalancerState partitionState = _state.getPartitionState(partitionId);
     URI targetHostUri = KeyMapper.TargetHostHints.getRequestContextTargetHost(requestContext);
     URI hostHeaderUri = targetHostUri;
+    int hashCode = 0;
 
     //no valid target host header was found in the request
     if (targetHostUri == null)
     {
       // Compute the hash code
-      int hashCode = _hashFunction.hash(request);
+      hashCode = _hashFunction.hash(request);
 
       // we operate only on URIs to ensure that we never hold on to an old tracker client
       // that the cluster manager has removed
-      Ring<URI> ring = _state.getRing(partitionId);
+      Ring<URI> ring = partitionState.getRing();
       targetHostUri = (ring == null) ? null : ring.get(hashCode);
 
     }
@@ -116,27 +150,50 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
 
     if (targetHostUri != null)
     {
-      // These are the clients that were passed in, NOT necessarily the clients that make up the
-      // consistent hash ring! Therefore, this linear scan is the best we can do.
-      for (TrackerClient trackerClient : trackerClients)
+      // If we were passed the same list the ring was built from, the state's index maps the URI
+      // straight to one of the clients passed in.
+      if (partitionState.getTrackerClients() == trackerClients)
       {
-        if (trackerClient.getUri().equals(targetHostUri))
+        client = partitionState.getTrackerClientsMap().get(targetHostUri);
+      }
+      else
+      {
+        // These are the clients that were passed in, NOT necessarily the clients that make up the
+        // consistent hash ring! Therefore, this linear scan is the best we can do.
+        for (TrackerClient trackerClient : trackerClients)
         {
-          client = trackerClient;
-          break;
+          if (trackerClient.getUri().equals(targetHostUri))
+          {
+            client = trackerClient;
+            break;
+          }
         }
       }
 
-      if (client == null)
+    }
+
+    if (client == null && hostHeaderUri == null && isUpdateAsync()
+        && (!partitionState.isInitialized() || partitionState.getClusterGenerationId() != clusterGenerationId))
+    {
+      // The published state does not cover these clients yet (cold start, or a cluster change
+      // still being applied in the background). Rather than wait for the update, spread calls
+      // over the clients passed in. A state for this generation whose ring yields no client has
+      // degraded every client, and the call is dropped as in synchronous mode.
+      client = trackerClients.get((hashCode & Integer.MAX_VALUE) % trackerClients.size());
+      debug(_log, "partition state not ready, picked client without the hash ring: ", client);
+    }
+    else if (client == null)
+    {
+      if (targetHostUri != null)
       {
         warn(_log, "No client found for " + targetHostUri + (hostHeaderUri == null ?
                 ", degrader load balancer state is inconsistent with cluster manager" :
                 ", target host specified is no longer part of cluster"));
       }
-    }
-    else
-    {
-      warn(_log, "unable to find a URI to use");
+      else
+      {
+        warn(_log, "unable to find a URI to use");
+      }
     }
 
     boolean dropCall = client == null;
@@ -166,12 +223,21 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
    * will make those threads who want to access the same partition state wait, and notify them when
    * the new state for the partition is updated.
    *
+   * In async mode (see {@link DegraderLoadBalancerStrategyConfig#isUpdateAsync()}) it never waits;
+   * the update is handed to the update executor instead.
+   *
    * @param clusterGenerationId
    * @param partitionId
    * @param trackerClients
    */
   private void checkUpdatePartitionState(long clusterGenerationId, int partitionId, List<TrackerClient> trackerClients)
   {
+    if (isUpdateAsync())
+    {
+      scheduleUpdatePartitionState(clusterGenerationId, partitionId, trackerClients);
+      return;
+    }
+
     DegraderLoadBalancerStrategyConfig config = getConfig();
 
     Object lock = _state.getLock(partitionId);
@@ -185,7 +251,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
 
       synchronized (lock)
       {
-        partitionState = updatePartitionState(clusterGenerationId, partitionId, trackerClients, partitionState, config);
+        partitionState = updatePartitionState(clusterGenerationId, partitionId, trackerClients, partitionState, config,
+                                              _ringFactory);
         _state.setPartitionState(partitionId, partitionState);
         assert(partitionState.isInitialized());
         lock.notifyAll();
@@ -212,6 +279,79 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
     }
   }
 
+  /**
+   * Queues an update of the partition state on the update executor if the state is missing, is
+   * for an older cluster generation, or is older than the update interval. At most one update
+   * per partition is queued at a time; request threads keep using the last published state.
+   */
+  private void scheduleUpdatePartitionState(final long clusterGenerationId, final int partitionId,
+                                            final List<TrackerClient> trackerClients)
+  {
+    if (!_updateEnabled
+        || !isPartitionStale(clusterGenerationId, _state.getPartitionState(partitionId), getConfig())
+        || !_pendingUpdates.add(partitionId))
+    {
+      return;
+    }
+
+    debug(_log, "scheduling update for cluster generation id: ", clusterGenerationId, ", partitionId: ", partitionId);
+
+    try
+    {
+      _updateExecutor.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            DegraderLoadBalancerStrategyConfig config = getConfig();
+            Object lock = _state.getLock(partitionId);
+
+            synchronized (lock)
+            {
+              // check again, the state may have been updated since this task was queued
+              PartitionDegraderLoadBalancerState partitionState = _state.getPartitionState(partitionId);
+              if (isPartitionStale(clusterGenerationId, partitionState, config))
+              {
+                partitionState = updatePartitionState(clusterGenerationId, partitionId, trackerClients,
+                                                      partitionState, config, _ringFactory);
+                _state.setPartitionState(partitionId, partitionState);
+                lock.notifyAll();
+              }
+            }
+          }
+          catch (RuntimeException e)
+          {
+            _log.error("failed to update state for partition " + partitionId, e);
+          }
+          finally
+          {
+            _pendingUpdates.remove(partitionId);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      _pendingUpdates.remove(partitionId);
+      warn(_log, "update executor rejected the update for partition ", partitionId, ", state is not updated");
+    }
+  }
+
+  private static boolean isPartitionStale(long clusterGenerationId, PartitionDegraderLoadBalancerState partitionState,
+                                          DegraderLoadBalancerStrategyConfig config)
+  {
+    return !partitionState.isInitialized() ||
+        partitionState.getClusterGenerationId() != clusterGenerationId ||
+        config.getClock().currentTimeMillis() - partitionState.getLastUpdated() >= config.getUpdateIntervalMs();
+  }
+
+  private boolean isUpdateAsync()
+  {
+    return _updateExecutor != null && getConfig().isUpdateAsync();
+  }
+
   /**
    * updatePartitionState
    *
@@ -277,7 +417,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
   private static PartitionDegraderLoadBalancerState updatePartitionState(long clusterGenerationId, int partitionId,
                                                                          List<TrackerClient> trackerClients,
                                                                          PartitionDegraderLoadBalancerState oldState,
-                                                                         DegraderLoadBalancerStrategyConfig config)
+                                                                         DegraderLoadBalancerStrategyConfig config,
+                                                                         RingFactory<URI> ringFactory)
   {
     debug(_log, "updating state for: ", trackerClients);
 
@@ -496,6 +637,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
                                         currentOverrideDropRate,
                                         newCurrentAvgClusterLatency,
                                         newRecoveryMap,
+                                        trackerClients,
+                                        ringFactory,
                                         oldState.getServiceName());
       _log.info("Strategy updated: partitionId= " + partitionId + ", newState=" + newState + ", config=" + config);
     }
@@ -552,6 +695,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
                                             newDropLevel,
                                             newCurrentAvgClusterLatency,
                                             oldRecoveryMap,
+                                            trackerClients,
+                                            ringFactory,
                                             oldState.getServiceName());
 
       _log.info( "Strategy updated: partitionId=" + partitionId + ", newState=" + newState + ", config=" + config);
@@ -692,6 +837,16 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
       _log.warn("Unknown hash method {}, falling back to random", hashMethod);
       _hashFunction = new RandomHash();
     }
+
+    try
+    {
+      _ringFactory = new DelegatingRingFactory<URI>(hashConfig);
+    }
+    catch (IllegalArgumentException e)
+    {
+      _log.warn("Invalid hash ring config " + hashConfig + ", falling back to the point based ring", e);
+      _ringFactory = DEFAULT_RING_FACTORY;
+    }
   }
 
   @Override
@@ -730,6 +885,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
                                              oldState.getCurrentOverrideDropRate(),
                                              oldState.getCurrentAvgClusterLatency(),
                                              oldState.getRecoveryMap(),
+                                             oldState.getTrackerClients(),
+                                             _ringFactory,
                                              oldState.getServiceName());
 
     _state.setPartitionState(partitionId, newState);
@@ -767,6 +924,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
                                                                PartitionDegraderLoadBalancerState.Strategy.LOAD_BALANCE,
                                                                0, 0,
                                                                new HashMap<TrackerClient, Double>(),
+                                                               null,
+                                                               DEFAULT_RING_FACTORY,
                                                                serviceName));
       _partitionCount = 1;
       _serviceName = serviceName;
@@ -804,6 +963,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
                                                                        LOAD_BALANCE,
                                                                    0, 0,
                                                                    new HashMap<TrackerClient, Double>(),
+                                                                   null,
+                                                                   DEFAULT_RING_FACTORY,
                                                                    _serviceName));
           newLocks[i] = new Object();
         }
@@ -880,6 +1041,11 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
     // ring, and are slowly being ramped up until they start receiving traffic again.
     private final Map<TrackerClient,Double>          _recoveryMap;
 
+    // The tracker clients the ring was built from, and the same clients indexed by URI so
+    // getTrackerClient doesn't have to scan the client list for the URI picked from the ring.
+    private final List<TrackerClient>                _trackerClients;
+    private final Map<URI,TrackerClient>             _trackerClientsMap;
+
     // Because we will alternate between Load Balancing and Call Dropping strategies, we keep track of
     // the strategy to try to aid us in alternating strategies when updatingState. There is a setter
     // to manipulate the strategy tried if one particular strategy is desired for the next updatePartitionState.
@@ -912,6 +1078,8 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
       _currentOverrideDropRate = state._currentOverrideDropRate;
       _currentAvgClusterLatency = state._currentAvgClusterLatency;
       _recoveryMap = state._recoveryMap;
+      _trackerClients = state._trackerClients;
+      _trackerClientsMap = state._trackerClientsMap;
       _initialized = state._initialized;
       _lastUpdated = lastUpdated;
       _updateStarted = new AtomicBoolean(false);
@@ -927,10 +1095,12 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
                                      double currentOverrideDropRate,
                                      double currentAvgClusterLatency,
                                      Map<TrackerClient,Double> recoveryMap,
+                                     List<TrackerClient> trackerClients,
+                                     RingFactory<URI> ringFactory,
                                      String serviceName)
     {
       _clusterGenerationId = clusterGenerationId;
-      _ring = new ConsistentHashRing<URI>(pointsMap);
+      _ring = ringFactory.createRing(pointsMap != null ? pointsMap : Collections.<URI,Integer>emptyMap());
       _pointsMap = (pointsMap != null) ?
             Collections.unmodifiableMap(new HashMap<URI,Integer>(pointsMap)) :
             Collections.<URI,Integer>emptyMap();
@@ -940,6 +1110,20 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
       _recoveryMap = (recoveryMap != null) ?
           Collections.unmodifiableMap(new HashMap<TrackerClient,Double>(recoveryMap)) :
           Collections.<TrackerClient,Double>emptyMap();
+      _trackerClients = trackerClients;
+      if (trackerClients != null)
+      {
+        Map<URI,TrackerClient> trackerClientsMap = new HashMap<URI,TrackerClient>(trackerClients.size() * 2);
+        for (TrackerClient trackerClient : trackerClients)
+        {
+          trackerClientsMap.put(trackerClient.getUri(), trackerClient);
+        }
+        _trackerClientsMap = Collections.unmodifiableMap(trackerClientsMap);
+      }
+      else
+      {
+        _trackerClientsMap = Collections.<URI,TrackerClient>emptyMap();
+      }
       _initialized = initState;
       _lastUpdated = lastUpdated;
       _updateStarted = new AtomicBoolean(false);
@@ -986,6 +1170,16 @@ public class DegraderLoadBalancerStrategyV3 implements LoadBalancerStrategy
       return _recoveryMap;
     }
 
+    public List<TrackerClient> getTrackerClients()
+    {
+      return _trackerClients;
+    }
+
+    public Map<URI,TrackerClient> getTrackerClientsMap()
+    {
+      return _trackerClientsMap;
+    }
+
     public double getCurrentOverrideDropRate()
     {
       return _currentOverrideDropRate;
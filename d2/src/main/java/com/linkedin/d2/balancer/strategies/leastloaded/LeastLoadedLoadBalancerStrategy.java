@@ -0,0 +1,153 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.strategies.leastloaded;
+
+import com.linkedin.d2.balancer.clients.TrackerClient;
+import com.linkedin.d2.balancer.strategies.LoadBalancerStrategy;
+import com.linkedin.d2.balancer.util.hashing.Ring;
+import com.linkedin.r2.message.Request;
+import com.linkedin.r2.message.RequestContext;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Picks two of the tracker clients at random and returns the less loaded one ("power of two
+ * choices"). Of the two, a client whose degrader computes a lower drop rate always wins;
+ * otherwise the client with the lower load wins, where load is the client's number of
+ * outstanding calls plus one, times its latency EWMA, divided by the EWMA of its success
+ * rate. Since these are live, this reacts to a slow, stalled or failing server on the next
+ * request, rather than at the next degrader interval as the hash ring strategies do. Counting
+ * failures keeps a server that fails calls quickly from looking fast.
+ * <p>
+ * Clients whose degrader drops every call (a computed drop rate of 1) are skipped; if both
+ * picks are such clients, the other clients are scanned for one that is not. This strategy
+ * doesn't hash requests, so it has no ring, and returns null only if every client's degrader
+ * drops every call.
+ */
+public class LeastLoadedLoadBalancerStrategy implements LoadBalancerStrategy
+{
+  // bounds the load of a client that fails almost every call, so its outstanding calls still matter
+  private static final double MIN_SUCCESS_RATE = 0.01;
+
+  private final Random _random;
+
+  public LeastLoadedLoadBalancerStrategy()
+  {
+    this(new Random());
+  }
+
+  LeastLoadedLoadBalancerStrategy(Random random)
+  {
+    _random = random;
+  }
+
+  @Override
+  public Ring<URI> getRing(long clusterGenerationId, int partitionId, List<TrackerClient> trackerClients)
+  {
+    return null;
+  }
+
+  @Override
+  public TrackerClient getTrackerClient(Request request,
+                                        RequestContext requestContext,
+                                        long clusterGenerationId,
+                                        int partitionId,
+                                        List<TrackerClient> trackerClients)
+  {
+    int size = trackerClients.size();
+
+    if (size == 0)
+    {
+      return null;
+    }
+    else if (size == 1)
+    {
+      TrackerClient client = trackerClients.get(0);
+      return isDropped(client, partitionId) ? null : client;
+    }
+
+    // two distinct clients
+    int firstIndex = _random.nextInt(size);
+    int secondIndex = _random.nextInt(size - 1);
+    if (secondIndex >= firstIndex)
+    {
+      ++secondIndex;
+    }
+
+    TrackerClient first = trackerClients.get(firstIndex);
+    TrackerClient second = trackerClients.get(secondIndex);
+
+    double firstDropRate = first.getDegraderControl(partitionId).getCurrentComputedDropRate();
+    double secondDropRate = second.getDegraderControl(partitionId).getCurrentComputedDropRate();
+
+    if (firstDropRate >= 1d && secondDropRate >= 1d)
+    {
+      return findNotDropped(trackerClients, partitionId, firstIndex);
+    }
+    else if (firstDropRate != secondDropRate)
+    {
+      return firstDropRate < secondDropRate ? first : second;
+    }
+
+    double firstLatency = first.getLatencyEwma();
+    double secondLatency = second.getLatencyEwma();
+
+    // until a client's first call completes, assume it is as fast as the other one
+    if (firstLatency < 0)
+    {
+      firstLatency = secondLatency;
+    }
+    else if (secondLatency < 0)
+    {
+      secondLatency = firstLatency;
+    }
+
+    return getLoad(first, firstLatency) <= getLoad(second, secondLatency) ? first : second;
+  }
+
+  private static double getLoad(TrackerClient client, double latency)
+  {
+    // count calls faster than the clock resolution as 1ms, so outstanding calls still matter
+    return (client.getCallTracker().getCurrentConcurrency() + 1) * Math.max(latency, 1d)
+        / Math.max(1d - client.getErrorRateEwma(), MIN_SUCCESS_RATE);
+  }
+
+  private static boolean isDropped(TrackerClient client, int partitionId)
+  {
+    return client.getDegraderControl(partitionId).getCurrentComputedDropRate() >= 1d;
+  }
+
+  /**
+   * @return the first client after the one at the start index whose degrader doesn't drop every
+   *         call, or null if there is none.
+   */
+  private static TrackerClient findNotDropped(List<TrackerClient> trackerClients, int partitionId, int startIndex)
+  {
+    int size = trackerClients.size();
+    for (int i = 1; i < size; i++)
+    {
+      TrackerClient client = trackerClients.get((startIndex + i) % size);
+      if (!isDropped(client, partitionId))
+      {
+        return client;
+      }
+    }
+    return null;
+  }
+}
@@ -33,6 +33,7 @@ import com.linkedin.d2.balancer.strategies.LoadBalancerStrategy;
 import com.linkedin.d2.balancer.strategies.LoadBalancerStrategyFactory;
 import com.linkedin.d2.balancer.strategies.degrader.DegraderLoadBalancerStrategyFactoryV2;
 import com.linkedin.d2.balancer.strategies.degrader.DegraderLoadBalancerStrategyFactoryV3;
+import com.linkedin.d2.balancer.strategies.leastloaded.LeastLoadedLoadBalancerStrategyFactory;
 import com.linkedin.d2.balancer.strategies.random.RandomLoadBalancerStrategyFactory;
 import com.linkedin.d2.balancer.zkfs.ZKFSComponentFactory;
 import com.linkedin.d2.balancer.zkfs.ZKFSLoadBalancer;
@@ -740,6 +741,7 @@ public class LoadBalancerClientCli
     loadBalancerStrategyFactories.put("degrader", new DegraderLoadBalancerStrategyFactoryV2());
     loadBalancerStrategyFactories.put("degraderV2", new DegraderLoadBalancerStrategyFactoryV2());
     loadBalancerStrategyFactories.put("degraderV3", new DegraderLoadBalancerStrategyFactoryV3());
+    loadBalancerStrategyFactories.put("leastLoaded", new LeastLoadedLoadBalancerStrategyFactory());
 
     Map<String, TransportClientFactory> clientFactories =
         new HashMap<String, TransportClientFactory>();
@@ -791,6 +793,7 @@ public class LoadBalancerClientCli
     loadBalancerStrategyFactories.put("degrader", new DegraderLoadBalancerStrategyFactoryV2());
     loadBalancerStrategyFactories.put("degraderV2", new DegraderLoadBalancerStrategyFactoryV2());
     loadBalancerStrategyFactories.put("degraderV3", new DegraderLoadBalancerStrategyFactoryV3());
+    loadBalancerStrategyFactories.put("leastLoaded", new LeastLoadedLoadBalancerStrategyFactory());
 
 	ZKFSTogglingLoadBalancerFactoryImpl factory = new ZKFSTogglingLoadBalancerFactoryImpl(componentFactory,
                                         TIMEOUT, TimeUnit.MILLISECONDS,
@@ -23,7 +23,6 @@ import static com.linkedin.d2.discovery.util.LogUtil.warn;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -40,6 +39,12 @@ import org.slf4j.LoggerFactory;
  * given. Based on the key, the algorithm will deterministically pick an object in the
  * ring with probability based on the number of points it has relative to the total amount
  * points in the ring.
+ * <p>
+ * Lookups do not binary search the whole ring. When the ring is built, the int key space is
+ * split into a power-of-two number of equal buckets (about two per point), and each bucket
+ * records the index of the first point at or above its start. A lookup jumps straight to its
+ * bucket and scans forward past the few points that fall inside it, which takes constant
+ * expected time and picks exactly the same object as a binary search would.
  *
  * @param <T>
  */
@@ -47,12 +52,16 @@ public class ConsistentHashRing<T> implements Ring<T>
 {
   private static final Logger  _log = LoggerFactory.getLogger(ConsistentHashRing.class);
   private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int     MAX_BUCKET_BITS = 20;
 
   private final MessageDigest  _md;
   private final SortedSet<Point<T>> _points;
 
   private T[]                  _objects;
   private int[]                _ring;
+  // _buckets[b] is the index of the first point in _ring that is >= the start of bucket b
+  private int[]                _buckets;
+  private int                  _bucketShift;
 
   public ConsistentHashRing(Map<T, Integer> pointMap)
   {
@@ -139,9 +148,41 @@ public class ConsistentHashRing<T> implements Ring<T>
       ++i;
     }
 
+    buildBuckets();
+
     debug(_log, "re-initializing consistent hash ring with items: ", _objects);
   }
 
+  /**
+   * Build the jump table over the int key space. Bucket b covers the keys whose top
+   * bucketBits bits (after shifting the key into unsigned order) equal b.
+   */
+  private void buildBuckets()
+  {
+    int bucketBits = 1;
+    while (bucketBits < MAX_BUCKET_BITS && (1 << bucketBits) < 2 * _ring.length)
+    {
+      ++bucketBits;
+    }
+
+    _bucketShift = 32 - bucketBits;
+    _buckets = new int[1 << bucketBits];
+
+    int index = 0;
+
+    for (int b = 0; b < _buckets.length; ++b)
+    {
+      int bucketStart = (b << _bucketShift) ^ Integer.MIN_VALUE;
+
+      while (index < _ring.length && _ring[index] < bucketStart)
+      {
+        ++index;
+      }
+
+      _buckets[b] = index;
+    }
+  }
+
   /**
    * Deterministically pick an object in the ring based on the specified key. As long as
    * the ring doesn't change, the same key will always yield the same object.
@@ -157,13 +198,13 @@ public class ConsistentHashRing<T> implements Ring<T>
 
     debug(_log, "searching for hash in ring of size ", _ring.length, " using hash: ", key);
 
-    int index = Arrays.binarySearch(_ring, key);
+    // find the first point >= key, starting from the first point in the key's bucket. if
+    // there is none, wrap around to the first point in the ring.
+    int index = _buckets[(key ^ Integer.MIN_VALUE) >>> _bucketShift];
 
-    // if the index is negative, then no exact match was found, and the search function is
-    // returning (-(insertionPoint) - 1).
-    if (index < 0)
+    while (index < _ring.length && _ring[index] < key)
     {
-      index = Math.abs(index + 1);
+      ++index;
     }
 
     return _objects[index % _objects.length];
@@ -0,0 +1,93 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import com.linkedin.common.util.MapUtil;
+
+import java.util.Map;
+
+/**
+ * A {@link RingFactory} which picks the ring implementation from a JSON-style hash config
+ * (the load balancer strategy's hashConfig).
+ *
+ * @param <T>
+ */
+public class DelegatingRingFactory<T> implements RingFactory<T>
+{
+  /** optional config value naming the ring implementation, one of the RING_* values below. */
+  public static final String KEY_HASH_RING_ALGORITHM = "hashRingAlgorithm";
+
+  /** optional config value; the number of probes per lookup for {@link #RING_MULTI_PROBE}. */
+  public static final String KEY_NUMBER_OF_PROBES = "numberOfProbes";
+
+  /** optional config value; the lookup table size for {@link #RING_MAGLEV}. */
+  public static final String KEY_MAGLEV_TABLE_SIZE = "maglevTableSize";
+
+  /** {@link ConsistentHashRing}, the default. */
+  public static final String RING_POINT_BASED = "pointBased";
+
+  /** {@link MPConsistentHashRing}. */
+  public static final String RING_MULTI_PROBE = "multiProbe";
+
+  /** {@link MaglevRing}. */
+  public static final String RING_MAGLEV = "maglev";
+
+  private final String _algorithm;
+  private final int    _numberOfProbes;
+  private final int    _maglevTableSize;
+
+  public DelegatingRingFactory(Map<String, Object> hashConfig)
+  {
+    this(MapUtil.getWithDefault(hashConfig, KEY_HASH_RING_ALGORITHM, RING_POINT_BASED),
+         MapUtil.getWithDefault(hashConfig, KEY_NUMBER_OF_PROBES, MPConsistentHashRing.DEFAULT_NUMBER_OF_PROBES),
+         MapUtil.getWithDefault(hashConfig, KEY_MAGLEV_TABLE_SIZE, MaglevRing.DEFAULT_TABLE_SIZE));
+  }
+
+  public DelegatingRingFactory(String algorithm, int numberOfProbes, int maglevTableSize)
+  {
+    if (!RING_POINT_BASED.equals(algorithm) && !RING_MULTI_PROBE.equals(algorithm) && !RING_MAGLEV.equals(algorithm))
+    {
+      throw new IllegalArgumentException("Unknown hash ring algorithm: " + algorithm);
+    }
+
+    _algorithm = algorithm;
+    _numberOfProbes = numberOfProbes;
+    _maglevTableSize = maglevTableSize;
+  }
+
+  @Override
+  public Ring<T> createRing(Map<T, Integer> pointsMap)
+  {
+    if (RING_MULTI_PROBE.equals(_algorithm))
+    {
+      return new MPConsistentHashRing<T>(pointsMap, _numberOfProbes);
+    }
+    else if (RING_MAGLEV.equals(_algorithm))
+    {
+      return new MaglevRing<T>(pointsMap, _maglevTableSize);
+    }
+    else
+    {
+      return new ConsistentHashRing<T>(pointsMap);
+    }
+  }
+
+  public String getAlgorithm()
+  {
+    return _algorithm;
+  }
+}
@@ -34,6 +34,23 @@ public class MD5Hash implements HashFunction<String[]>
   private static final Charset UTF8 = Charset.forName("UTF8");
   private static final byte[] ONE_NULL = new byte[] { 0x00 };
 
+  // MessageDigest.getInstance() walks the security providers on every call, so each thread keeps its own digest
+  private static final ThreadLocal<MessageDigest> MD5_DIGEST = new ThreadLocal<MessageDigest>()
+  {
+    @Override
+    protected MessageDigest initialValue()
+    {
+      try
+      {
+        return MessageDigest.getInstance("MD5");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
   public int hash(String[] keyTokens)
   {
     byte[] digest = getMD5Digest(keyTokens);
@@ -52,20 +69,14 @@ public class MD5Hash implements HashFunction<String[]>
 
   private byte[] getMD5Digest(String [] keyTokens)
   {
-    try
-    {
-      MessageDigest md = MessageDigest.getInstance("MD5");
-      for (int i = 0; i < keyTokens.length; i++)
-      {
-        md.update(keyTokens[i].getBytes(UTF8));
-        // Boundary between fields; 0x00 byte does not occur in UTF8 strings
-        md.update(ONE_NULL);
-      }
-      return md.digest();
-    }
-    catch (NoSuchAlgorithmException e)
+    MessageDigest md = MD5_DIGEST.get();
+    md.reset();
+    for (int i = 0; i < keyTokens.length; i++)
     {
-      throw new IllegalStateException(e);
+      md.update(keyTokens[i].getBytes(UTF8));
+      // Boundary between fields; 0x00 byte does not occur in UTF8 strings
+      md.update(ONE_NULL);
     }
+    return md.digest();
   }
 }
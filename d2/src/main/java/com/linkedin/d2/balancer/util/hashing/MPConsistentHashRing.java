@@ -0,0 +1,249 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A weighted multi-probe consistent hash ring. Each object has a few points on the ring,
+ * derived from its string form, instead of one point per unit of weight. A lookup hashes the
+ * key several times ("probes"), finds the next point after each probe, and picks the object
+ * whose point is closest to its probe after dividing the distance by the object's relative
+ * weight. More probes give a more even distribution at the cost of slower lookups.
+ * <p>
+ * Building the ring costs one MD5 digest per four points, so it is much cheaper to rebuild
+ * than {@link ConsistentHashRing}, and needs memory for a few points per object only. The
+ * share of keys an object gets grows with its weight, but is only roughly proportional to it.
+ *
+ * @param <T>
+ */
+public class MPConsistentHashRing<T> implements Ring<T>
+{
+  public static final int DEFAULT_NUMBER_OF_PROBES = 21;
+  public static final int DEFAULT_POINTS_PER_OBJECT = 4;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final int      _numberOfProbes;
+  // sorted points, and the object and relative weight (0, 1] of each point's object
+  private final int[]    _points;
+  private final Object[] _objects;
+  private final double[] _weights;
+
+  public MPConsistentHashRing(Map<T, Integer> pointsMap)
+  {
+    this(pointsMap, DEFAULT_NUMBER_OF_PROBES);
+  }
+
+  public MPConsistentHashRing(Map<T, Integer> pointsMap, int numberOfProbes)
+  {
+    this(pointsMap, numberOfProbes, DEFAULT_POINTS_PER_OBJECT);
+  }
+
+  public MPConsistentHashRing(Map<T, Integer> pointsMap, int numberOfProbes, int pointsPerObject)
+  {
+    if (numberOfProbes <= 0 || pointsPerObject <= 0)
+    {
+      throw new IllegalArgumentException("numberOfProbes and pointsPerObject must be positive: " + numberOfProbes
+                                             + ", " + pointsPerObject);
+    }
+
+    _numberOfProbes = numberOfProbes;
+
+    MessageDigest md;
+    try
+    {
+      md = MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException(e);
+    }
+
+    List<Host<T>> hosts = new ArrayList<Host<T>>(pointsMap.size() * pointsPerObject);
+    int maxPoints = 0;
+
+    for (Map.Entry<T, Integer> entry : pointsMap.entrySet())
+    {
+      T t = entry.getKey();
+      int points = entry.getValue();
+
+      if (t == null)
+      {
+        throw new NullPointerException("null values in hash ring are unsupported");
+      }
+
+      if (points > 0)
+      {
+        String name = t.toString();
+        byte[] hash = name.getBytes(UTF8);
+
+        for (int i = 0; i < pointsPerObject; ++i)
+        {
+          int offset = (i % 4) * 4;
+
+          // take four points out of each digest, then roll the digest, as ConsistentHashRing does
+          if (offset == 0)
+          {
+            hash = md.digest(hash);
+          }
+
+          int point = ((0xff & hash[offset]) << 24) | ((0xff & hash[offset + 1]) << 16)
+              | ((0xff & hash[offset + 2]) << 8) | (0xff & hash[offset + 3]);
+          hosts.add(new Host<T>(t, name, point, points));
+        }
+        maxPoints = Math.max(maxPoints, points);
+      }
+    }
+
+    // sort by point, then by name, so every client builds the same ring for the same hosts
+    Collections.sort(hosts, new Comparator<Host<T>>()
+    {
+      @Override
+      public int compare(Host<T> h1, Host<T> h2)
+      {
+        if (h1._point != h2._point)
+        {
+          return h1._point < h2._point ? -1 : 1;
+        }
+        return h1._name.compareTo(h2._name);
+      }
+    });
+
+    _points = new int[hosts.size()];
+    _objects = new Object[hosts.size()];
+    _weights = new double[hosts.size()];
+
+    for (int i = 0; i < hosts.size(); ++i)
+    {
+      Host<T> host = hosts.get(i);
+      _points[i] = host._point;
+      _objects[i] = host._t;
+      _weights[i] = (double) host._points / maxPoints;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int key)
+  {
+    if (_points.length == 0)
+    {
+      return null;
+    }
+
+    int best = 0;
+    double bestScore = Double.MAX_VALUE;
+
+    for (int probe = 0; probe < _numberOfProbes; ++probe)
+    {
+      int hash = probeHash(key, probe);
+      int index = lowerBound(hash);
+      long distance;
+
+      if (index == _points.length)
+      {
+        // wrap around to the first point
+        index = 0;
+        distance = ((long) _points[0] - hash) + (1L << 32);
+      }
+      else
+      {
+        distance = (long) _points[index] - hash;
+      }
+
+      double score = distance / _weights[index];
+      if (score < bestScore)
+      {
+        bestScore = score;
+        best = index;
+      }
+    }
+
+    return (T) _objects[best];
+  }
+
+  public int getNumberOfProbes()
+  {
+    return _numberOfProbes;
+  }
+
+  /**
+   * @return the index of the first point >= hash, or the number of points if there is none.
+   */
+  private int lowerBound(int hash)
+  {
+    int low = 0;
+    int high = _points.length;
+
+    while (low < high)
+    {
+      int mid = (low + high) >>> 1;
+      if (_points[mid] < hash)
+      {
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  // the murmur3 finalizer, over the key offset by a different amount for each probe
+  private static int probeHash(int key, int probe)
+  {
+    int h = key + probe * 0x9E3779B9;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "MPConsistentHashRing [_numberOfProbes=" + _numberOfProbes + ", _size=" + _points.length + "]";
+  }
+
+  private static class Host<T>
+  {
+    private final T      _t;
+    private final String _name;
+    private final int    _point;
+    private final int    _points;
+
+    private Host(T t, String name, int point, int points)
+    {
+      _t = t;
+      _name = name;
+      _point = point;
+      _points = points;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A weighted Maglev lookup table. Each object walks its own permutation of the table's
+ * slots, derived from its string form, and the objects take turns claiming the next free
+ * slot in their permutation until the table is full. An object with more points gets
+ * proportionally more turns. A lookup is then a single array access.
+ * <p>
+ * The table size is a prime (a requested size is rounded up to the next prime) and should
+ * be much larger than the number of objects; with N objects the share of slots each object
+ * gets is within about N / size of its weighted share. When an object is added or removed,
+ * most slots keep their object, though the guarantee is weaker than for
+ * {@link ConsistentHashRing}.
+ *
+ * @param <T>
+ */
+public class MaglevRing<T> implements Ring<T>
+{
+  public static final int DEFAULT_TABLE_SIZE = 65537;
+
+  private static final MD5Hash MD5 = new MD5Hash();
+
+  private final Object[] _objects;
+  private final int[]    _table;
+
+  public MaglevRing(Map<T, Integer> pointsMap)
+  {
+    this(pointsMap, DEFAULT_TABLE_SIZE);
+  }
+
+  public MaglevRing(Map<T, Integer> pointsMap, int tableSize)
+  {
+    if (tableSize < 2)
+    {
+      throw new IllegalArgumentException("tableSize must be at least 2: " + tableSize);
+    }
+
+    List<Map.Entry<T, Integer>> entries = new ArrayList<Map.Entry<T, Integer>>(pointsMap.size());
+    for (Map.Entry<T, Integer> entry : pointsMap.entrySet())
+    {
+      if (entry.getKey() == null)
+      {
+        throw new NullPointerException("null values in hash ring are unsupported");
+      }
+      if (entry.getValue() > 0)
+      {
+        entries.add(entry);
+      }
+    }
+
+    // sort by name so every client fills the table the same way for the same hosts
+    Collections.sort(entries, new Comparator<Map.Entry<T, Integer>>()
+    {
+      @Override
+      public int compare(Map.Entry<T, Integer> e1, Map.Entry<T, Integer> e2)
+      {
+        return e1.getKey().toString().compareTo(e2.getKey().toString());
+      }
+    });
+
+    _objects = new Object[entries.size()];
+
+    if (entries.isEmpty())
+    {
+      _table = new int[0];
+      return;
+    }
+
+    int size = nextPrime(tableSize);
+    int count = entries.size();
+    long[] position = new long[count];
+    long[] skip = new long[count];
+    long[] credit = new long[count];
+    long[] points = new long[count];
+    long maxPoints = 0;
+
+    for (int i = 0; i < count; ++i)
+    {
+      Map.Entry<T, Integer> entry = entries.get(i);
+      long hash = MD5.hashLong(new String[] { entry.getKey().toString() });
+
+      _objects[i] = entry.getKey();
+      position[i] = ((hash >>> 32) & 0xffffffffL) % size;
+      skip[i] = (hash & 0xffffffffL) % (size - 1) + 1;
+      points[i] = entry.getValue();
+      maxPoints = Math.max(maxPoints, points[i]);
+    }
+
+    _table = new int[size];
+    Arrays.fill(_table, -1);
+
+    int filled = 0;
+
+    while (filled < size)
+    {
+      for (int i = 0; i < count && filled < size; ++i)
+      {
+        // each round, an object gets points / maxPoints turns, carrying over the remainder
+        credit[i] += points[i];
+
+        while (credit[i] >= maxPoints && filled < size)
+        {
+          credit[i] -= maxPoints;
+
+          int slot = (int) position[i];
+          while (_table[slot] >= 0)
+          {
+            slot = (int) ((slot + skip[i]) % size);
+          }
+
+          _table[slot] = i;
+          position[i] = (slot + skip[i]) % size;
+          ++filled;
+        }
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int key)
+  {
+    if (_table.length == 0)
+    {
+      return null;
+    }
+
+    return (T) _objects[_table[(int) ((key & 0xffffffffL) % _table.length)]];
+  }
+
+  public int getTableSize()
+  {
+    return _table.length;
+  }
+
+  private static int nextPrime(int n)
+  {
+    int candidate = n;
+    while (!isPrime(candidate))
+    {
+      ++candidate;
+    }
+    return candidate;
+  }
+
+  private static boolean isPrime(int n)
+  {
+    if (n < 2)
+    {
+      return false;
+    }
+    for (int d = 2; (long) d * d <= n; ++d)
+    {
+      if (n % d == 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "MaglevRing [_objects=" + Arrays.toString(_objects) + ", _tableSize=" + _table.length + "]";
+  }
+}
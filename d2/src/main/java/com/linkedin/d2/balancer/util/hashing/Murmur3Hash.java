@@ -0,0 +1,164 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import java.nio.charset.Charset;
+
+/**
+ * MurmurHash3 (x64, 128 bit variant, seed 0) of the UTF8 bytes of the key tokens, separated by 0x00 bytes
+ * as in {@link MD5Hash}. Not cryptographic, but well distributed and several times cheaper than MD5, which
+ * makes it suitable for partitioning keys. The hash values are the low bits of the first 64 bits of the
+ * 128 bit result.
+ */
+public class Murmur3Hash implements HashFunction<String[]>
+{
+  private static final Charset UTF8 = Charset.forName("UTF8");
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  public int hash(String[] keyTokens)
+  {
+    return (int) hashLong(keyTokens);
+  }
+
+  public long hashLong(String[] keyTokens)
+  {
+    byte[] data;
+    if (keyTokens.length == 1)
+    {
+      byte[] token = keyTokens[0].getBytes(UTF8);
+      data = new byte[token.length + 1];
+      System.arraycopy(token, 0, data, 0, token.length);
+    }
+    else
+    {
+      byte[][] tokens = new byte[keyTokens.length][];
+      int length = 0;
+      for (int i = 0; i < keyTokens.length; i++)
+      {
+        tokens[i] = keyTokens[i].getBytes(UTF8);
+        length += tokens[i].length + 1;
+      }
+      data = new byte[length];
+      int offset = 0;
+      for (byte[] token : tokens)
+      {
+        System.arraycopy(token, 0, data, offset, token.length);
+        // Boundary between fields; 0x00 byte does not occur in UTF8 strings
+        offset += token.length + 1;
+      }
+    }
+    return hash64(data, data.length);
+  }
+
+  /**
+   * @return the first 64 bits of the 128 bit MurmurHash3 of the first {@code length} bytes of {@code data}
+   */
+  // the tail bytes are mixed in by falling through the cases, as in the reference implementation
+  @SuppressWarnings("fallthrough")
+  static long hash64(byte[] data, int length)
+  {
+    long h1 = 0;
+    long h2 = 0;
+
+    int blockEnd = length & ~15;
+    for (int i = 0; i < blockEnd; i += 16)
+    {
+      long k1 = getLongLittleEndian(data, i);
+      long k2 = getLongLittleEndian(data, i + 8);
+
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    long k1 = 0;
+    long k2 = 0;
+    switch (length & 15)
+    {
+      case 15: k2 ^= (long) (data[blockEnd + 14] & 0xff) << 48;
+      case 14: k2 ^= (long) (data[blockEnd + 13] & 0xff) << 40;
+      case 13: k2 ^= (long) (data[blockEnd + 12] & 0xff) << 32;
+      case 12: k2 ^= (long) (data[blockEnd + 11] & 0xff) << 24;
+      case 11: k2 ^= (long) (data[blockEnd + 10] & 0xff) << 16;
+      case 10: k2 ^= (long) (data[blockEnd + 9] & 0xff) << 8;
+      case 9:  k2 ^= (long) (data[blockEnd + 8] & 0xff);
+               h2 ^= mixK2(k2);
+      case 8:  k1 ^= (long) (data[blockEnd + 7] & 0xff) << 56;
+      case 7:  k1 ^= (long) (data[blockEnd + 6] & 0xff) << 48;
+      case 6:  k1 ^= (long) (data[blockEnd + 5] & 0xff) << 40;
+      case 5:  k1 ^= (long) (data[blockEnd + 4] & 0xff) << 32;
+      case 4:  k1 ^= (long) (data[blockEnd + 3] & 0xff) << 24;
+      case 3:  k1 ^= (long) (data[blockEnd + 2] & 0xff) << 16;
+      case 2:  k1 ^= (long) (data[blockEnd + 1] & 0xff) << 8;
+      case 1:  k1 ^= (long) (data[blockEnd] & 0xff);
+               h1 ^= mixK1(k1);
+      default:
+    }
+
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    return h1 + h2;
+  }
+
+  private static long getLongLittleEndian(byte[] data, int offset)
+  {
+    return (data[offset] & 0xffL)
+        | ((data[offset + 1] & 0xffL) << 8)
+        | ((data[offset + 2] & 0xffL) << 16)
+        | ((data[offset + 3] & 0xffL) << 24)
+        | ((data[offset + 4] & 0xffL) << 32)
+        | ((data[offset + 5] & 0xffL) << 40)
+        | ((data[offset + 6] & 0xffL) << 48)
+        | ((data[offset + 7] & 0xffL) << 56);
+  }
+
+  private static long mixK1(long k1)
+  {
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    return k1 * C2;
+  }
+
+  private static long mixK2(long k2)
+  {
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    return k2 * C1;
+  }
+
+  private static long fmix64(long k)
+  {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+}
@@ -0,0 +1,30 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import java.util.Map;
+
+/**
+ * Builds a {@link Ring} from a map of objects to the number of points (weight) each should
+ * have in the ring.
+ *
+ * @param <T>
+ */
+public interface RingFactory<T>
+{
+  Ring<T> createRing(Map<T, Integer> pointsMap);
+}
@@ -25,16 +25,116 @@ public abstract class AbstractPartitionAccessor implements PartitionAccessor
   final private Pattern _pattern;
   final private int     _maxPartitionId;
 
+  // Most partition key regexes are a literal prefix followed by a single group of digits or of anything but
+  // one delimiter, e.g. "id=(\\d+)" or "/profiles/([^/]+)". For those the key is located with indexOf, which
+  // finds the same key as Matcher.find() without running the regex. _keyPrefix is null for other regexes.
+  final private String  _keyPrefix;
+  final private boolean _digitKey;
+  final private char    _keyDelimiter;
+
   public AbstractPartitionAccessor(String pattenStr, int maxPartitionId)
   {
     _pattern = Pattern.compile(pattenStr);
     _maxPartitionId = maxPartitionId;
+
+    String keyPrefix = null;
+    boolean digitKey = false;
+    char keyDelimiter = 0;
+    int groupStart = pattenStr.indexOf('(');
+    if (groupStart >= 0 && pattenStr.endsWith(")"))
+    {
+      String group = pattenStr.substring(groupStart + 1, pattenStr.length() - 1);
+      if (group.equals("\\d+") || group.equals("[0-9]+"))
+      {
+        digitKey = true;
+        keyPrefix = literal(pattenStr.substring(0, groupStart));
+      }
+      else if (group.startsWith("[^") && group.endsWith("]+"))
+      {
+        String delimiter = literal(group.substring(2, group.length() - 2));
+        if (delimiter != null && delimiter.length() == 1)
+        {
+          keyDelimiter = delimiter.charAt(0);
+          keyPrefix = literal(pattenStr.substring(0, groupStart));
+        }
+      }
+    }
+    _keyPrefix = keyPrefix;
+    _digitKey = digitKey;
+    _keyDelimiter = keyDelimiter;
+  }
+
+  /**
+   * @return the string matched by the regex, or null if it contains anything but literal characters
+   */
+  private static String literal(String regex)
+  {
+    StringBuilder literal = new StringBuilder(regex.length());
+    for (int i = 0; i < regex.length(); i++)
+    {
+      char c = regex.charAt(i);
+      if (c == '\\')
+      {
+        // escaped letters and digits are character classes, back references or quoting
+        if (++i == regex.length() || Character.isLetterOrDigit(regex.charAt(i)))
+        {
+          return null;
+        }
+        literal.append(regex.charAt(i));
+      }
+      else if ("^$.|?*+()[]{}".indexOf(c) >= 0)
+      {
+        return null;
+      }
+      else
+      {
+        literal.append(c);
+      }
+    }
+    return literal.toString();
+  }
+
+  private String findKey(String uriString)
+  {
+    int from = 0;
+    int start;
+    while ((start = uriString.indexOf(_keyPrefix, from)) >= 0)
+    {
+      int keyStart = start + _keyPrefix.length();
+      int keyEnd = keyStart;
+      while (keyEnd < uriString.length() && isKeyChar(uriString.charAt(keyEnd)))
+      {
+        keyEnd++;
+      }
+      if (keyEnd > keyStart)
+      {
+        return uriString.substring(keyStart, keyEnd);
+      }
+      from = start + 1;
+    }
+    return null;
+  }
+
+  private boolean isKeyChar(char c)
+  {
+    return _digitKey ? c >= '0' && c <= '9' : c != _keyDelimiter;
   }
 
   @Override
   public int getPartitionId(URI uri) throws PartitionAccessException
   {
     final String uriString = uri.toString();
+    if (_keyPrefix != null)
+    {
+      final String key = findKey(uriString);
+      if (key != null)
+      {
+        return getPartitionId(key);
+      }
+      throw new PartitionAccessException("Pattern: " + _pattern.toString()
+          + " does not match anything in request URI: " + uriString);
+    }
+
     final Matcher matcher = _pattern.matcher(uriString);
     if (matcher.find())
     {
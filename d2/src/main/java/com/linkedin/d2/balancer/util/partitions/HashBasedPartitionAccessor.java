@@ -18,14 +18,31 @@ package com.linkedin.d2.balancer.util.partitions;
 
 import com.linkedin.d2.balancer.properties.HashBasedPartitionProperties;
 import com.linkedin.d2.balancer.util.hashing.MD5Hash;
+import com.linkedin.d2.balancer.util.hashing.Murmur3Hash;
 
 public class HashBasedPartitionAccessor extends AbstractPartitionAccessor
 {
+  /**
+   * Number of slots in the key to partition id cache; a power of two.
+   */
+  public static final int KEY_CACHE_SIZE = 4096;
+
+  private static final MD5Hash     MD5_HASH     = new MD5Hash();
+  private static final Murmur3Hash MURMUR3_HASH = new Murmur3Hash();
+
   final private HashBasedPartitionProperties _properties;
+
+  // Direct mapped cache of hashed keys, indexed by the low bits of the key's hashCode. A colliding key simply
+  // replaces the slot. Entries are immutable, so reading a slot written by another thread without
+  // synchronization is safe: the worst case is a miss.
+  final private KeyPartition[] _keyCache;
+
   public HashBasedPartitionAccessor(HashBasedPartitionProperties properties)
   {
     super(properties.getPartitionKeyRegex(), properties.getPartitionCount() - 1);
     _properties = properties;
+    _keyCache = properties.getHashAlgorithm() == HashBasedPartitionProperties.HashAlgorithm.MODULO
+        ? null : new KeyPartition[KEY_CACHE_SIZE];
   }
 
   @Override
@@ -45,18 +62,38 @@ public class HashBasedPartitionAccessor extends AbstractPartitionAccessor
         {
           throw new PartitionAccessException("Using MODULO hash function. Keys should be long values, but failed to parse key to long: " + key);
         }
-        break;
+        return Math.abs((int)(longKey % _properties.getPartitionCount()));
       case MD5:
-        MD5Hash hashFunction = new MD5Hash();
+      case MURMUR3:
+        int slot = key.hashCode() & (KEY_CACHE_SIZE - 1);
+        KeyPartition cached = _keyCache[slot];
+        if (cached != null && cached._key.equals(key))
+        {
+          return cached._partitionId;
+        }
+
         String[] keyStrings = new String[1];
         keyStrings[0] = key;
-        longKey = hashFunction.hashLong(keyStrings);
-        break;
+        longKey = hashAlgorithm == HashBasedPartitionProperties.HashAlgorithm.MD5
+            ? MD5_HASH.hashLong(keyStrings) : MURMUR3_HASH.hashLong(keyStrings);
+        int partitionId = Math.abs((int)(longKey % _properties.getPartitionCount()));
+        _keyCache[slot] = new KeyPartition(key, partitionId);
+        return partitionId;
       default:
         // impossible to happen
         throw new PartitionAccessException("Unsupported hash algorithm");
     }
+  }
+
+  private static class KeyPartition
+  {
+    private final String _key;
+    private final int    _partitionId;
 
-    return Math.abs((int)(longKey % _properties.getPartitionCount()));
+    private KeyPartition(String key, int partitionId)
+    {
+      _key = key;
+      _partitionId = partitionId;
+    }
   }
 }
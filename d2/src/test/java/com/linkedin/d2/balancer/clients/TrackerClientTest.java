@@ -21,6 +21,7 @@ import com.linkedin.common.util.None;
 import com.linkedin.d2.balancer.properties.PartitionData;
 import com.linkedin.d2.balancer.util.partitions.DefaultPartitionAccessor;
 import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestException;
 import com.linkedin.r2.message.rest.RestRequest;
 import com.linkedin.r2.message.rest.RestRequestBuilder;
 import com.linkedin.r2.message.rest.RestResponse;
@@ -39,6 +40,7 @@ import org.testng.annotations.Test;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
 
 import static org.testng.Assert.assertEquals;
@@ -88,6 +90,100 @@ public class TrackerClientTest
     assertEquals(client.getCallTracker().getCurrentCallCountTotal(), 2);
   }
 
+  @Test(groups = { "small", "back-end" })
+  public void testLatencyEwma()
+  {
+    URI uri = URI.create("http://test.qa.com:1234/foo");
+    SettableClock clock = new SettableClock();
+    DeferredClient wrappedClient = new DeferredClient();
+    Map<Integer, PartitionData> partitionDataMap = new HashMap<Integer, PartitionData>(2);
+    partitionDataMap.put(DefaultPartitionAccessor.DEFAULT_PARTITION_ID, new PartitionData(1d));
+    TrackerClient client = new TrackerClient(uri, partitionDataMap, wrappedClient, clock, null);
+    RestRequest restRequest = new RestRequestBuilder(uri).build();
+
+    assertTrue(client.getLatencyEwma() < 0);
+
+    // the first sample is taken as is
+    client.restRequest(restRequest, new RequestContext(), new HashMap<String, String>(),
+                       new TestTransportCallback<RestResponse>());
+    assertEquals(client.getCallTracker().getCurrentConcurrency(), 1);
+    clock.addDuration(100);
+    wrappedClient.respond(null);
+    assertEquals(client.getLatencyEwma(), 100d);
+
+    // later samples move the average by LATENCY_EWMA_ALPHA
+    client.restRequest(restRequest, new RequestContext(), new HashMap<String, String>(),
+                       new TestTransportCallback<RestResponse>());
+    clock.addDuration(200);
+    wrappedClient.respond(null);
+    assertEquals(client.getLatencyEwma(), 100d + TrackerClient.LATENCY_EWMA_ALPHA * 100, 1e-9);
+
+    // errors don't count
+    client.restRequest(restRequest, new RequestContext(), new HashMap<String, String>(),
+                       new TestTransportCallback<RestResponse>());
+    clock.addDuration(1000);
+    wrappedClient.respond(new Exception("fail"));
+    assertEquals(client.getLatencyEwma(), 100d + TrackerClient.LATENCY_EWMA_ALPHA * 100, 1e-9);
+    assertEquals(client.getCallTracker().getCurrentConcurrency(), 0);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testErrorRateEwma()
+  {
+    URI uri = URI.create("http://test.qa.com:1234/foo");
+    DeferredClient wrappedClient = new DeferredClient();
+    Map<Integer, PartitionData> partitionDataMap = new HashMap<Integer, PartitionData>(2);
+    partitionDataMap.put(DefaultPartitionAccessor.DEFAULT_PARTITION_ID, new PartitionData(1d));
+    TrackerClient client = new TrackerClient(uri, partitionDataMap, wrappedClient, new SettableClock(), null);
+    RestRequest restRequest = new RestRequestBuilder(uri).build();
+
+    assertEquals(client.getErrorRateEwma(), 0d);
+
+    client.restRequest(restRequest, new RequestContext(), new HashMap<String, String>(),
+                       new TestTransportCallback<RestResponse>());
+    wrappedClient.respond(new Exception("fail"));
+    assertEquals(client.getErrorRateEwma(), TrackerClient.LATENCY_EWMA_ALPHA, 1e-9);
+
+    // client errors and successes move the average back towards 0
+    double expected = TrackerClient.LATENCY_EWMA_ALPHA * (1 - TrackerClient.LATENCY_EWMA_ALPHA);
+    client.restRequest(restRequest, new RequestContext(), new HashMap<String, String>(),
+                       new TestTransportCallback<RestResponse>());
+    wrappedClient.respond(new RestException(new RestResponseBuilder().setStatus(404).build(), "not found"));
+    assertEquals(client.getErrorRateEwma(), expected, 1e-9);
+
+    expected *= 1 - TrackerClient.LATENCY_EWMA_ALPHA;
+    client.restRequest(restRequest, new RequestContext(), new HashMap<String, String>(),
+                       new TestTransportCallback<RestResponse>());
+    wrappedClient.respond(null);
+    assertEquals(client.getErrorRateEwma(), expected, 1e-9);
+  }
+
+  /**
+   * Holds on to rest callbacks until {@link #respond(Throwable)} is called.
+   */
+  public static class DeferredClient extends TestClient
+  {
+    private final LinkedList<TransportCallback<RestResponse>> _callbacks =
+        new LinkedList<TransportCallback<RestResponse>>();
+
+    @Override
+    public void restRequest(RestRequest request,
+                            RequestContext requestContext,
+                            Map<String, String> wireAttrs,
+                            TransportCallback<RestResponse> callback)
+    {
+      _callbacks.add(callback);
+    }
+
+    public void respond(Throwable error)
+    {
+      Map<String, String> wireAttrs = new HashMap<String, String>();
+      _callbacks.removeFirst().onResponse(error == null ?
+          TransportResponseImpl.<RestResponse> success(new RestResponseBuilder().build(), wireAttrs) :
+          TransportResponseImpl.<RestResponse> error(error, wireAttrs));
+    }
+  }
+
   public static class TestClient implements TransportClient
   {
     public RestRequest                     restRequest;
@@ -0,0 +1,437 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.simple;
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.common.callback.FutureCallback;
+import com.linkedin.common.util.None;
+import com.linkedin.d2.balancer.ServiceUnavailableException;
+import com.linkedin.d2.balancer.clients.RewriteClient;
+import com.linkedin.d2.balancer.clients.TrackerClient;
+import com.linkedin.d2.balancer.properties.ClusterProperties;
+import com.linkedin.d2.balancer.properties.PartitionData;
+import com.linkedin.d2.balancer.properties.PropertyKeys;
+import com.linkedin.d2.balancer.properties.ServiceProperties;
+import com.linkedin.d2.balancer.properties.UriProperties;
+import com.linkedin.d2.balancer.strategies.LoadBalancerStrategy;
+import com.linkedin.d2.balancer.strategies.LoadBalancerStrategyFactory;
+import com.linkedin.d2.balancer.util.hashing.Ring;
+import com.linkedin.d2.balancer.util.partitions.DefaultPartitionAccessor;
+import com.linkedin.d2.discovery.event.SynchronousExecutorService;
+import com.linkedin.d2.discovery.stores.mock.MockStore;
+import com.linkedin.d2.discovery.util.Stats;
+import com.linkedin.r2.message.Request;
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestRequest;
+import com.linkedin.r2.message.rest.RestRequestBuilder;
+import com.linkedin.r2.message.rest.RestResponse;
+import com.linkedin.r2.message.rest.RestResponseBuilder;
+import com.linkedin.r2.message.rpc.RpcRequest;
+import com.linkedin.r2.message.rpc.RpcResponse;
+import com.linkedin.r2.transport.common.TransportClientFactory;
+import com.linkedin.r2.transport.common.bridge.client.TransportClient;
+import com.linkedin.r2.transport.common.bridge.common.TransportCallback;
+import com.linkedin.r2.transport.common.bridge.common.TransportResponse;
+import com.linkedin.r2.transport.common.bridge.common.TransportResponseImpl;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class HedgedRequestClientTest
+{
+  private static final URI URI_1 = URI.create("http://test.qa1.com:1234");
+  private static final URI URI_2 = URI.create("http://test.qa2.com:2345");
+
+  private ScheduledExecutorService _hedgeScheduler;
+  private ExecutorService          _hedgeExecutor;
+  private RecordingClientFactory   _clientFactory;
+  private RoundRobinStrategyFactory _roundRobinFactory;
+  private MockStore<ServiceProperties> _serviceRegistry;
+  private SimpleLoadBalancer       _loadBalancer;
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    _hedgeScheduler = Executors.newSingleThreadScheduledExecutor();
+    _hedgeExecutor = Executors.newCachedThreadPool();
+    _clientFactory = new RecordingClientFactory();
+    _roundRobinFactory = new RoundRobinStrategyFactory();
+
+    Map<String, LoadBalancerStrategyFactory<? extends LoadBalancerStrategy>> loadBalancerStrategyFactories =
+        new HashMap<String, LoadBalancerStrategyFactory<? extends LoadBalancerStrategy>>();
+    loadBalancerStrategyFactories.put("roundRobin", _roundRobinFactory);
+    loadBalancerStrategyFactories.put("sticky", new StickyStrategyFactory());
+    Map<String, TransportClientFactory> clientFactories = new HashMap<String, TransportClientFactory>();
+    clientFactories.put("http", _clientFactory);
+
+    _serviceRegistry = new MockStore<ServiceProperties>();
+    MockStore<ClusterProperties> clusterRegistry = new MockStore<ClusterProperties>();
+    MockStore<UriProperties> uriRegistry = new MockStore<UriProperties>();
+
+    SimpleLoadBalancerState state = new SimpleLoadBalancerState(new SynchronousExecutorService(),
+                                                                uriRegistry,
+                                                                clusterRegistry,
+                                                                _serviceRegistry,
+                                                                clientFactories,
+                                                                loadBalancerStrategyFactories);
+    _loadBalancer = new SimpleLoadBalancer(state, new Stats(1000), new Stats(1000), 5, TimeUnit.SECONDS,
+                                           _hedgeScheduler, _hedgeExecutor);
+
+    FutureCallback<None> balancerCallback = new FutureCallback<None>();
+    _loadBalancer.start(balancerCallback);
+    balancerCallback.get();
+
+    Map<Integer, PartitionData> partitionData = new HashMap<Integer, PartitionData>(1);
+    partitionData.put(DefaultPartitionAccessor.DEFAULT_PARTITION_ID, new PartitionData(1d));
+    Map<URI, Map<Integer, PartitionData>> uriData = new HashMap<URI, Map<Integer, PartitionData>>(2);
+    uriData.put(URI_1, partitionData);
+    uriData.put(URI_2, partitionData);
+
+    clusterRegistry.put("cluster-1", new ClusterProperties("cluster-1", Collections.singletonList("http")));
+    uriRegistry.put("cluster-1", new UriProperties("cluster-1", uriData));
+    putService(true);
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    _hedgeScheduler.shutdownNow();
+    _hedgeExecutor.shutdownNow();
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testHedgedGet() throws Exception
+  {
+    RecordingCallback callback = new RecordingCallback();
+    send("GET", callback);
+
+    RecordedRequest primary = _clientFactory.take();
+    RecordedRequest backup = _clientFactory.take();
+    assertFalse(primary.request.getURI().getHost().equals(backup.request.getURI().getHost()));
+    assertEquals(primary.request.getURI().getPath(), "/foo/52");
+    assertEquals(backup.request.getURI().getPath(), "/foo/52");
+
+    RestResponse response = new RestResponseBuilder().build();
+    backup.callback.onResponse(TransportResponseImpl.success(response));
+    primary.callback.onResponse(TransportResponseImpl.<RestResponse>error(new RuntimeException("too late")));
+
+    assertEquals(callback.responses.size(), 1);
+    assertTrue(callback.responses.get(0).getResponse() == response);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testErrorWaitsForOtherAttempt() throws Exception
+  {
+    RecordingCallback callback = new RecordingCallback();
+    send("GET", callback);
+
+    RecordedRequest primary = _clientFactory.take();
+    RecordedRequest backup = _clientFactory.take();
+
+    primary.callback.onResponse(TransportResponseImpl.<RestResponse>error(new RuntimeException("primary")));
+    assertTrue(callback.responses.isEmpty());
+
+    Throwable error = new RuntimeException("backup");
+    backup.callback.onResponse(TransportResponseImpl.<RestResponse>error(error));
+    assertEquals(callback.responses.size(), 1);
+    assertTrue(callback.responses.get(0).getError() == error);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testNoBackupChosenWithoutHedge() throws Exception
+  {
+    putService("roundRobin", true, "500", "1");
+
+    RecordingCallback callback = new RecordingCallback();
+    send("GET", callback);
+
+    RecordedRequest primary = _clientFactory.take();
+    primary.callback.onResponse(TransportResponseImpl.success(new RestResponseBuilder().build()));
+    assertEquals(callback.responses.size(), 1);
+
+    assertNull(_clientFactory.poll(700));
+    // the strategy was only asked for the primary client
+    assertEquals(_roundRobinFactory._calls.get(), 1);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testPostIsNotHedged() throws Exception
+  {
+    RecordingCallback callback = new RecordingCallback();
+    send("POST", callback);
+
+    RecordedRequest primary = _clientFactory.take();
+    assertNull(_clientFactory.poll(200));
+
+    RestResponse response = new RestResponseBuilder().build();
+    primary.callback.onResponse(TransportResponseImpl.success(response));
+    assertEquals(callback.responses.size(), 1);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testHedgingBudget() throws Exception
+  {
+    putService("roundRobin", true, "10", "0");
+
+    RecordingCallback callback = new RecordingCallback();
+    send("GET", callback);
+
+    _clientFactory.take();
+    assertNull(_clientFactory.poll(200));
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testStickyStrategyIsNotHedged() throws Exception
+  {
+    putService("sticky", true, "10", "1");
+
+    RecordingCallback callback = new RecordingCallback();
+    send("GET", callback);
+
+    _clientFactory.take();
+    assertNull(_clientFactory.poll(200));
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testMinHedgeDelay() throws Exception
+  {
+    putService("roundRobin", true, "0", "1");
+
+    TransportClient client =
+        _loadBalancer.getClient(new RestRequestBuilder(URI.create("d2://foo/52")).build(), new RequestContext());
+    assertEquals(((HedgedRequestClient) client).getHedgeDelay(), ServiceRoutingSnapshot.DEFAULT_HEDGING_MIN_DELAY_MS);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testHedgeBudget()
+  {
+    HedgeBudget budget = new HedgeBudget(0.5);
+    budget.onRequest();
+    assertFalse(budget.canHedge());
+    assertFalse(budget.tryHedge());
+    budget.onRequest();
+    assertTrue(budget.canHedge());
+    assertTrue(budget.tryHedge());
+    assertFalse(budget.tryHedge());
+
+    for (int i = 0; i < 100; i++)
+    {
+      budget.onRequest();
+    }
+    for (int i = 0; i < HedgeBudget.MAX_SAVED_HEDGES; i++)
+    {
+      assertTrue(budget.tryHedge());
+    }
+    assertFalse(budget.tryHedge());
+
+    HedgeBudget none = new HedgeBudget(0);
+    none.onRequest();
+    assertFalse(none.canHedge());
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testHedgingDisabled() throws Exception
+  {
+    putService(false);
+
+    TransportClient client =
+        _loadBalancer.getClient(new RestRequestBuilder(URI.create("d2://foo/52")).build(), new RequestContext());
+    assertTrue(client instanceof RewriteClient);
+  }
+
+  private void putService(boolean hedgingEnabled)
+  {
+    putService("roundRobin", hedgingEnabled, "10", "1");
+  }
+
+  private void putService(String strategy, boolean hedgingEnabled, String delay, String maxRatio)
+  {
+    Map<String, Object> strategyProperties = new HashMap<String, Object>();
+    strategyProperties.put(PropertyKeys.HTTP_LB_HEDGING_ENABLED, String.valueOf(hedgingEnabled));
+    strategyProperties.put(PropertyKeys.HTTP_LB_HEDGING_DELAY_MS, delay);
+    strategyProperties.put(PropertyKeys.HTTP_LB_HEDGING_MAX_RATIO, maxRatio);
+    _serviceRegistry.put("foo", new ServiceProperties("foo",
+                                                      "cluster-1",
+                                                      "/foo",
+                                                      strategy,
+                                                      strategyProperties));
+  }
+
+  private void send(String method, RecordingCallback callback) throws ServiceUnavailableException
+  {
+    RestRequest request = new RestRequestBuilder(URI.create("d2://foo/52")).setMethod(method).build();
+    TransportClient client = _loadBalancer.getClient(request, new RequestContext());
+    assertNotNull(client);
+    client.restRequest(request, new RequestContext(), new HashMap<String, String>(), callback);
+  }
+
+  /**
+   * Returns the tracker clients in turn, so that a hedged request always finds another client.
+   */
+  private static class RoundRobinStrategyFactory implements LoadBalancerStrategyFactory<LoadBalancerStrategy>
+  {
+    private final AtomicInteger _calls = new AtomicInteger();
+
+    @Override
+    public LoadBalancerStrategy newLoadBalancer(String serviceName, Map<String, Object> strategyProperties)
+    {
+      final AtomicInteger next = new AtomicInteger();
+      return new TestStrategy()
+      {
+        @Override
+        public TrackerClient getTrackerClient(Request request,
+                                              RequestContext requestContext,
+                                              long clusterGenerationId,
+                                              int partitionId,
+                                              List<TrackerClient> trackerClients)
+        {
+          _calls.incrementAndGet();
+          return trackerClients.get((next.getAndIncrement() & Integer.MAX_VALUE) % trackerClients.size());
+        }
+      };
+    }
+  }
+
+  /**
+   * Always returns the first tracker client.
+   */
+  private static class StickyStrategyFactory implements LoadBalancerStrategyFactory<LoadBalancerStrategy>
+  {
+    @Override
+    public LoadBalancerStrategy newLoadBalancer(String serviceName, Map<String, Object> strategyProperties)
+    {
+      return new TestStrategy()
+      {
+        @Override
+        public TrackerClient getTrackerClient(Request request,
+                                              RequestContext requestContext,
+                                              long clusterGenerationId,
+                                              int partitionId,
+                                              List<TrackerClient> trackerClients)
+        {
+          return trackerClients.get(0);
+        }
+      };
+    }
+  }
+
+  private static abstract class TestStrategy implements LoadBalancerStrategy
+  {
+    @Override
+    public Ring<URI> getRing(long clusterGenerationId, int partitionId, List<TrackerClient> trackerClients)
+    {
+      return null;
+    }
+  }
+
+  private static class RecordedRequest
+  {
+    private final RestRequest                     request;
+    private final TransportCallback<RestResponse> callback;
+
+    RecordedRequest(RestRequest request, TransportCallback<RestResponse> callback)
+    {
+      this.request = request;
+      this.callback = callback;
+    }
+  }
+
+  private static class RecordingCallback implements TransportCallback<RestResponse>
+  {
+    private final List<TransportResponse<RestResponse>> responses =
+        Collections.synchronizedList(new ArrayList<TransportResponse<RestResponse>>());
+
+    @Override
+    public void onResponse(TransportResponse<RestResponse> response)
+    {
+      responses.add(response);
+    }
+  }
+
+  private static class RecordingClientFactory implements TransportClientFactory
+  {
+    private final BlockingQueue<RecordedRequest> _requests = new LinkedBlockingQueue<RecordedRequest>();
+
+    RecordedRequest take() throws InterruptedException
+    {
+      RecordedRequest request = _requests.poll(5, TimeUnit.SECONDS);
+      assertNotNull(request, "no request was sent");
+      return request;
+    }
+
+    RecordedRequest poll(long timeoutMs) throws InterruptedException
+    {
+      return _requests.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public TransportClient getClient(Map<String, ? extends Object> properties)
+    {
+      return new TransportClient()
+      {
+        @Override
+        public void restRequest(RestRequest request,
+                                RequestContext requestContext,
+                                Map<String, String> wireAttrs,
+                                TransportCallback<RestResponse> callback)
+        {
+          _requests.add(new RecordedRequest(request, callback));
+        }
+
+        @Override
+        public void rpcRequest(RpcRequest request,
+                               RequestContext requestContext,
+                               Map<String, String> wireAttrs,
+                               TransportCallback<RpcResponse> callback)
+        {
+        }
+
+        @Override
+        public void shutdown(Callback<None> callback)
+        {
+          callback.onSuccess(None.none());
+        }
+      };
+    }
+
+    @Override
+    public void shutdown(Callback<None> callback)
+    {
+      callback.onSuccess(None.none());
+    }
+  }
+}
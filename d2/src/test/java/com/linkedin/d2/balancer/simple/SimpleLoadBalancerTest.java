@@ -19,6 +19,7 @@ package com.linkedin.d2.balancer.simple;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -220,6 +221,88 @@ public class SimpleLoadBalancerTest
     }
   }
 
+  @Test(groups = { "small", "back-end" })
+  public void testGetClientFollowsStateUpdates() throws URISyntaxException,
+          ServiceUnavailableException,
+          InterruptedException, ExecutionException
+  {
+    Map<String, LoadBalancerStrategyFactory<? extends LoadBalancerStrategy>> loadBalancerStrategyFactories =
+        new HashMap<String, LoadBalancerStrategyFactory<? extends LoadBalancerStrategy>>();
+    Map<String, TransportClientFactory> clientFactories =
+        new HashMap<String, TransportClientFactory>();
+    List<String> prioritizedSchemes = new ArrayList<String>();
+
+    MockStore<ServiceProperties> serviceRegistry = new MockStore<ServiceProperties>();
+    MockStore<ClusterProperties> clusterRegistry = new MockStore<ClusterProperties>();
+    MockStore<UriProperties> uriRegistry = new MockStore<UriProperties>();
+
+    ScheduledExecutorService executorService = new SynchronousExecutorService();
+
+    loadBalancerStrategyFactories.put("random", new RandomLoadBalancerStrategyFactory());
+    clientFactories.put("http", new DoNothingClientFactory());
+
+    SimpleLoadBalancerState state =
+        new SimpleLoadBalancerState(executorService,
+                                    uriRegistry,
+                                    clusterRegistry,
+                                    serviceRegistry,
+                                    clientFactories,
+                                    loadBalancerStrategyFactories);
+
+    SimpleLoadBalancer loadBalancer =
+        new SimpleLoadBalancer(state, 5, TimeUnit.SECONDS);
+
+    FutureCallback<None> balancerCallback = new FutureCallback<None>();
+    loadBalancer.start(balancerCallback);
+    balancerCallback.get();
+
+    URI uri1 = URI.create("http://test.qa1.com:1234");
+    URI uri2 = URI.create("http://test.qa2.com:2345");
+
+    Map<Integer, PartitionData> partitionData = new HashMap<Integer, PartitionData>(1);
+    partitionData.put(DefaultPartitionAccessor.DEFAULT_PARTITION_ID, new PartitionData(1d));
+    Map<URI, Map<Integer, PartitionData>> uriData = new HashMap<URI, Map<Integer, PartitionData>>(1);
+    uriData.put(uri1, partitionData);
+
+    prioritizedSchemes.add("http");
+
+    clusterRegistry.put("cluster-1", new ClusterProperties("cluster-1", prioritizedSchemes));
+    serviceRegistry.put("foo", new ServiceProperties("foo", "cluster-1", "/foo", "random"));
+    uriRegistry.put("cluster-1", new UriProperties("cluster-1", uriData));
+
+    RewriteClient client =
+        (RewriteClient) loadBalancer.getClient(new URIRequest("d2://foo/52"), new RequestContext());
+    assertEquals(client.getUri(), URI.create("http://test.qa1.com:1234/foo"));
+    assertSame(client.getWrappedClient(), state.getClient("cluster-1", uri1));
+
+    // unchanged state hands out the same client
+    assertSame(loadBalancer.getClient(new URIRequest("d2://foo/53"), new RequestContext()), client);
+
+    // a uri update is picked up by the next request
+    uriData = new HashMap<URI, Map<Integer, PartitionData>>(1);
+    uriData.put(uri2, partitionData);
+    uriRegistry.put("cluster-1", new UriProperties("cluster-1", uriData));
+
+    client = (RewriteClient) loadBalancer.getClient(new URIRequest("d2://foo/52"), new RequestContext());
+    assertEquals(client.getUri(), URI.create("http://test.qa2.com:2345/foo"));
+    assertSame(client.getWrappedClient(), state.getClient("cluster-1", uri2));
+
+    // a cluster update replaces the tracker clients
+    clusterRegistry.put("cluster-1", new ClusterProperties("cluster-1", prioritizedSchemes));
+
+    RewriteClient newClient =
+        (RewriteClient) loadBalancer.getClient(new URIRequest("d2://foo/52"), new RequestContext());
+    assertEquals(newClient.getUri(), URI.create("http://test.qa2.com:2345/foo"));
+    assertTrue(newClient.getWrappedClient() != client.getWrappedClient());
+    assertSame(newClient.getWrappedClient(), state.getClient("cluster-1", uri2));
+
+    // a service update changes the path
+    serviceRegistry.put("foo", new ServiceProperties("foo", "cluster-1", "/bar", "random"));
+
+    client = (RewriteClient) loadBalancer.getClient(new URIRequest("d2://foo/52"), new RequestContext());
+    assertEquals(client.getUri(), URI.create("http://test.qa2.com:2345/bar"));
+  }
+
   // load balancer working with partitioned cluster
   @Test(groups = { "small", "back-end" })
   public void testLoadBalancerWithPartitionsSmoke() throws URISyntaxException,
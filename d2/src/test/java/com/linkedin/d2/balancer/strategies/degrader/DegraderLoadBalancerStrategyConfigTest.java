@@ -55,6 +55,7 @@ public class DegraderLoadBalancerStrategyConfigTest
     properties.put(PropertyKeys.LB_LOW_WATER_MARK, lowWaterMark);
     properties.put(PropertyKeys.LB_GLOBAL_STEP_DOWN, globalStepDown);
     properties.put(PropertyKeys.LB_GLOBAL_STEP_UP, globalStepUp);
+    properties.put(PropertyKeys.LB_UPDATE_ASYNC, "true");
 
     DegraderLoadBalancerStrategyConfig config =
         DegraderLoadBalancerStrategyConfig.configFromMap(properties);
@@ -71,6 +72,7 @@ public class DegraderLoadBalancerStrategyConfigTest
     assertEquals(config.getLowWaterMark(), lowWaterMark);
     assertEquals(config.getGlobalStepDown(), globalStepDown);
     assertEquals(config.getGlobalStepUp(), globalStepUp);
+    assertEquals(config.isUpdateAsync(), true);
   }
 
   @Test
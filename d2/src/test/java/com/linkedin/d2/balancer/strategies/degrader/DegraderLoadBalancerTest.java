@@ -27,6 +27,9 @@ import com.linkedin.d2.balancer.strategies.LoadBalancerStrategy;
 import com.linkedin.d2.balancer.util.URIRequest;
 import com.linkedin.d2.balancer.util.hashing.ConsistentHashRing;
 import com.linkedin.d2.balancer.util.hashing.ConsistentHashRing.Point;
+import com.linkedin.d2.balancer.util.hashing.DelegatingRingFactory;
+import com.linkedin.d2.balancer.util.hashing.MPConsistentHashRing;
+import com.linkedin.d2.balancer.util.hashing.MaglevRing;
 import com.linkedin.d2.balancer.util.hashing.Ring;
 import com.linkedin.d2.balancer.util.hashing.URIRegexHash;
 import com.linkedin.d2.balancer.util.partitions.DefaultPartitionAccessor;
@@ -58,6 +61,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.testng.Assert.assertEquals;
@@ -316,6 +324,198 @@ public class DegraderLoadBalancerTest
     }
   }
 
+  @Test(groups = { "small", "back-end" })
+  public void testHashRingAlgorithm() throws URISyntaxException
+  {
+    List<TrackerClient> clients = new ArrayList<TrackerClient>();
+    for (int i = 0; i < 5; ++i)
+    {
+      clients.add(getClient(URI.create("http://test.linkedin.com:" + (3000 + i) + "/fdsaf"), new TestClock()));
+    }
+
+    String[] algorithms = { DelegatingRingFactory.RING_MULTI_PROBE, DelegatingRingFactory.RING_MAGLEV };
+    Class<?>[] ringClasses = { MPConsistentHashRing.class, MaglevRing.class };
+
+    for (int i = 0; i < algorithms.length; ++i)
+    {
+      Map<String,Object> hashConfig = new HashMap<String, Object>();
+      hashConfig.put(DelegatingRingFactory.KEY_HASH_RING_ALGORITHM, algorithms[i]);
+      Map<String,Object> myMap = new HashMap<String, Object>();
+      myMap.put(PropertyKeys.HTTP_LB_HASH_CONFIG, hashConfig);
+      DegraderLoadBalancerStrategyV3 strategy = getStrategy(myMap);
+
+      Set<TrackerClient> picked = new HashSet<TrackerClient>();
+      for (int j = 0; j < 1000; ++j)
+      {
+        TrackerClient client = getTrackerClient(strategy, null, new RequestContext(), 0, clients);
+        assertTrue(clients.contains(client));
+        picked.add(client);
+      }
+
+      assertEquals(picked.size(), clients.size());
+      assertEquals(strategy.getRing(0, DEFAULT_PARTITION_ID, clients).getClass(), ringClasses[i]);
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testAsyncUpdate() throws Exception
+  {
+    Map<String,Object> myMap = new HashMap<String, Object>();
+    myMap.put(PropertyKeys.LB_UPDATE_ASYNC, "true");
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    final CountDownLatch blocker = new CountDownLatch(1);
+
+    try
+    {
+      DegraderLoadBalancerStrategyV3 strategy =
+          new DegraderLoadBalancerStrategyV3(DegraderLoadBalancerStrategyConfig.createHttpConfigFromMap(myMap),
+                                             "DegraderLoadBalancerTest", executor);
+      List<TrackerClient> clients = new ArrayList<TrackerClient>();
+      clients.add(getClient(URI.create("http://test.linkedin.com:3242/fdsaf"), new TestClock()));
+      clients.add(getClient(URI.create("http://test.linkedin.com:3243/fdsaf"), new TestClock()));
+
+      // keep the executor busy so the update can't run yet
+      executor.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            blocker.await();
+          }
+          catch (InterruptedException e)
+          {
+            // ignore
+          }
+        }
+      });
+
+      // request threads don't wait for the first update
+      for (int i = 0; i < 100; ++i)
+      {
+        assertTrue(clients.contains(getTrackerClient(strategy, null, new RequestContext(), 0, clients)));
+      }
+      assertFalse(strategy.getState().getPartitionState(DEFAULT_PARTITION_ID).isInitialized());
+
+      blocker.countDown();
+      waitForGeneration(strategy, 0);
+      assertTrue(strategy.getState().getPartitionState(DEFAULT_PARTITION_ID).isInitialized());
+      assertEquals(strategy.getState().getPartitionState(DEFAULT_PARTITION_ID).getPointsMap().size(), 2);
+
+      // a new cluster generation is picked up in the background too
+      assertTrue(clients.contains(getTrackerClient(strategy, null, new RequestContext(), 1, clients)));
+      waitForGeneration(strategy, 1);
+    }
+    finally
+    {
+      blocker.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testAsyncUpdateDropsCallsToDegradedClients() throws Exception
+  {
+    Map<String,Object> myMap = new HashMap<String, Object>();
+    myMap.put(PropertyKeys.LB_UPDATE_ASYNC, "true");
+    myMap.put(PropertyKeys.LB_STRATEGY_PROPERTIES_UPDATE_INTERVAL_MS, 5000L);
+    myMap.put(PropertyKeys.LB_STRATEGY_PROPERTIES_MAX_CLUSTER_LATENCY_WITHOUT_DEGRADING, 100.0);
+    myMap.put(PropertyKeys.LB_INITIAL_RECOVERY_LEVEL, 0.0);
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    try
+    {
+      DegraderLoadBalancerStrategyV3 strategy =
+          new DegraderLoadBalancerStrategyV3(DegraderLoadBalancerStrategyConfig.createHttpConfigFromMap(myMap),
+                                             "DegraderLoadBalancerTest", executor);
+      List<TrackerClient> clients = new ArrayList<TrackerClient>();
+      for (int port = 3242; port < 3244; port++)
+      {
+        TestClock clock = new TestClock();
+        TrackerClient client = getClient(URI.create("http://test.linkedin.com:" + port + "/fdsaf"), clock);
+        DegraderControl degraderControl = client.getDegraderControl(DEFAULT_PARTITION_ID);
+        degraderControl.setMinCallCount(1);
+        degraderControl.setOverrideMinCallCount(1);
+        degraderControl.setMaxDropRate(1d);
+        degraderControl.setUpStep(1d);
+        degraderControl.setHighErrorRate(0);
+        CallCompletion cc = client.getCallTracker().startCall();
+        clock.addMs(10000);
+        cc.endCallWithError();
+        clock.addMs(5000);
+        clients.add(client);
+      }
+
+      getTrackerClient(strategy, null, new RequestContext(), 0, clients);
+      waitForGeneration(strategy, 0);
+      assertTrue(strategy.getState().getPartitionState(DEFAULT_PARTITION_ID).isInitialized());
+
+      // every client is degraded, so the published state sheds the calls instead of
+      // them being spread over the clients without the hash ring
+      for (int i = 0; i < 1000; ++i)
+      {
+        assertNull(getTrackerClient(strategy, null, new RequestContext(), 0, clients));
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void waitForGeneration(DegraderLoadBalancerStrategyV3 strategy, long clusterGenerationId)
+      throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (strategy.getState().getPartitionState(DEFAULT_PARTITION_ID).getClusterGenerationId() != clusterGenerationId)
+    {
+      assertTrue(System.currentTimeMillis() < deadline, "partition state was not updated");
+      Thread.sleep(10);
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testTrackerClientsFromPassedInList() throws URISyntaxException
+  {
+    DegraderLoadBalancerStrategyV3 strategy = getStrategy();
+    List<TrackerClient> clients1 = new ArrayList<TrackerClient>();
+    List<TrackerClient> clients2 = new ArrayList<TrackerClient>();
+
+    for (int i = 0; i < 10; ++i)
+    {
+      URI uri = URI.create("http://test.linkedin.com:" + (3000 + i) + "/fdsaf");
+      clients1.add(getClient(uri, new TestClock()));
+      clients2.add(getClient(uri, new TestClock()));
+    }
+
+    // the ring is built from clients1, so lookups go through the state's index
+    for (int i = 0; i < 1000; ++i)
+    {
+      TrackerClient client = getTrackerClient(strategy, null, new RequestContext(), 0, clients1);
+      assertTrue(containsSame(clients1, client));
+    }
+
+    // same cluster generation and URIs, but a different list: the client must still come from it
+    for (int i = 0; i < 1000; ++i)
+    {
+      TrackerClient client = getTrackerClient(strategy, null, new RequestContext(), 0, clients2);
+      assertTrue(containsSame(clients2, client));
+    }
+  }
+
+  private static boolean containsSame(List<TrackerClient> clients, TrackerClient client)
+  {
+    for (TrackerClient trackerClient : clients)
+    {
+      if (trackerClient == client)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Test(groups = { "small", "back-end" })
   public void testOneTrackerClientForPartition() throws URISyntaxException
   {
@@ -0,0 +1,208 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.strategies.leastloaded;
+
+import com.linkedin.d2.balancer.clients.TrackerClient;
+import com.linkedin.d2.balancer.clients.TrackerClientTest.DeferredClient;
+import com.linkedin.d2.balancer.clients.TrackerClientTest.TestTransportCallback;
+import com.linkedin.d2.balancer.properties.PartitionData;
+import com.linkedin.d2.balancer.util.partitions.DefaultPartitionAccessor;
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestRequestBuilder;
+import com.linkedin.r2.message.rest.RestResponse;
+import com.linkedin.util.clock.SettableClock;
+import com.linkedin.util.degrader.DegraderControl;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class LeastLoadedLoadBalancerStrategyTest
+{
+  private static final int PARTITION_ID = DefaultPartitionAccessor.DEFAULT_PARTITION_ID;
+
+  @Test(groups = { "small", "back-end" })
+  public void testEmptyAndSingle()
+  {
+    LeastLoadedLoadBalancerStrategy strategy = new LeastLoadedLoadBalancerStrategy();
+    assertNull(getTrackerClient(strategy, Collections.<TrackerClient>emptyList()));
+
+    TrackerClient client = createClient("http://host1.com:1234/foo", new SettableClock(), new DeferredClient());
+    assertEquals(getTrackerClient(strategy, Collections.singletonList(client)), client);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testPrefersFewerOutstandingCalls()
+  {
+    SettableClock clock = new SettableClock();
+    DeferredClient busyTransport = new DeferredClient();
+    TrackerClient busy = createClient("http://host1.com:1234/foo", clock, busyTransport);
+    TrackerClient idle = createClient("http://host2.com:1234/foo", clock, new DeferredClient());
+    List<TrackerClient> clients = new ArrayList<TrackerClient>();
+    clients.add(busy);
+    clients.add(idle);
+
+    startCall(busy);
+    startCall(busy);
+
+    LeastLoadedLoadBalancerStrategy strategy = new LeastLoadedLoadBalancerStrategy();
+    for (int i = 0; i < 100; ++i)
+    {
+      assertEquals(getTrackerClient(strategy, clients), idle);
+    }
+
+    busyTransport.respond(null);
+    busyTransport.respond(null);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testPrefersLowerLatency()
+  {
+    SettableClock clock = new SettableClock();
+    DeferredClient slowTransport = new DeferredClient();
+    DeferredClient fastTransport = new DeferredClient();
+    TrackerClient slow = createClient("http://host1.com:1234/foo", clock, slowTransport);
+    TrackerClient fast = createClient("http://host2.com:1234/foo", clock, fastTransport);
+    List<TrackerClient> clients = new ArrayList<TrackerClient>();
+    clients.add(slow);
+    clients.add(fast);
+
+    startCall(slow);
+    startCall(fast);
+    clock.addDuration(10);
+    fastTransport.respond(null);
+    clock.addDuration(90);
+    slowTransport.respond(null);
+
+    LeastLoadedLoadBalancerStrategy strategy = new LeastLoadedLoadBalancerStrategy();
+    for (int i = 0; i < 100; ++i)
+    {
+      assertEquals(getTrackerClient(strategy, clients), fast);
+    }
+
+    // with enough calls outstanding, the fast client loses
+    for (int i = 0; i < 10; ++i)
+    {
+      startCall(fast);
+    }
+    for (int i = 0; i < 100; ++i)
+    {
+      assertEquals(getTrackerClient(strategy, clients), slow);
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testPrefersFewerErrors()
+  {
+    SettableClock clock = new SettableClock();
+    DeferredClient failingTransport = new DeferredClient();
+    DeferredClient healthyTransport = new DeferredClient();
+    TrackerClient failing = createClient("http://host1.com:1234/foo", clock, failingTransport);
+    TrackerClient healthy = createClient("http://host2.com:1234/foo", clock, healthyTransport);
+    List<TrackerClient> clients = new ArrayList<TrackerClient>();
+    clients.add(failing);
+    clients.add(healthy);
+
+    // the failing client answers at once, but with errors
+    startCall(healthy);
+    clock.addDuration(10);
+    healthyTransport.respond(null);
+    for (int i = 0; i < 5; ++i)
+    {
+      startCall(failing);
+      failingTransport.respond(new Exception("fail"));
+    }
+
+    LeastLoadedLoadBalancerStrategy strategy = new LeastLoadedLoadBalancerStrategy();
+    for (int i = 0; i < 100; ++i)
+    {
+      assertEquals(getTrackerClient(strategy, clients), healthy);
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testSkipsDroppedClients()
+  {
+    SettableClock clock = new SettableClock();
+    List<TrackerClient> clients = new ArrayList<TrackerClient>();
+    for (int i = 0; i < 4; ++i)
+    {
+      clients.add(createClient("http://host" + i + ".com:1234/foo", clock, new DeferredClient()));
+    }
+    TrackerClient live = clients.get(2);
+    for (TrackerClient client : clients)
+    {
+      if (client != live)
+      {
+        dropAllCalls(client, clock);
+      }
+    }
+    clock.addDuration(5000);
+    for (TrackerClient client : clients)
+    {
+      assertEquals(client.getDegraderControl(PARTITION_ID).getCurrentComputedDropRate(), client == live ? 0d : 1d);
+    }
+
+    LeastLoadedLoadBalancerStrategy strategy = new LeastLoadedLoadBalancerStrategy();
+    for (int i = 0; i < 100; ++i)
+    {
+      assertEquals(getTrackerClient(strategy, clients), live);
+    }
+
+    dropAllCalls(live, clock);
+    clock.addDuration(5000);
+    assertNull(getTrackerClient(strategy, clients));
+    assertNull(getTrackerClient(strategy, Collections.singletonList(live)));
+  }
+
+  private static void dropAllCalls(TrackerClient client, SettableClock clock)
+  {
+    DegraderControl degraderControl = client.getDegraderControl(PARTITION_ID);
+    degraderControl.setMinCallCount(1);
+    degraderControl.setOverrideMinCallCount(1);
+    degraderControl.setMaxDropRate(1d);
+    degraderControl.setUpStep(1d);
+    degraderControl.setHighErrorRate(0);
+    client.getCallTracker().startCall().endCallWithError();
+  }
+
+  private static TrackerClient getTrackerClient(LeastLoadedLoadBalancerStrategy strategy,
+                                                List<TrackerClient> clients)
+  {
+    return strategy.getTrackerClient(null, new RequestContext(), 0, PARTITION_ID, clients);
+  }
+
+  private static void startCall(TrackerClient client)
+  {
+    client.restRequest(new RestRequestBuilder(client.getUri()).build(), new RequestContext(),
+                       new HashMap<String, String>(), new TestTransportCallback<RestResponse>());
+  }
+
+  private static TrackerClient createClient(String uri, SettableClock clock, DeferredClient transport)
+  {
+    Map<Integer, PartitionData> partitionDataMap = new HashMap<Integer, PartitionData>(2);
+    partitionDataMap.put(PARTITION_ID, new PartitionData(1d));
+    return new TrackerClient(URI.create(uri), partitionDataMap, transport, clock, null);
+  }
+}
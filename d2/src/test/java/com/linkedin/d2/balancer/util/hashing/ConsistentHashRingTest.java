@@ -24,8 +24,10 @@ import static org.testng.Assert.assertTrue;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
@@ -164,4 +166,52 @@ public class ConsistentHashRingTest
     assertEquals(midURI, uri2);
 
   }
+
+  @Test(groups = { "small", "back-end" })
+  public void testLookupMatchesBinarySearch()
+  {
+    Map<String, Integer> many = new HashMap<String, Integer>();
+
+    for (int i = 0; i < 50; ++i)
+    {
+      many.put("test" + i, 100);
+    }
+
+    ConsistentHashRing<String> test = new ConsistentHashRing<String>(many);
+    int[] ring = test.getRing();
+    Object[] objects = test.getObjects();
+    Random random = new Random(42);
+
+    int[] edges = { Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, ring[0], ring[0] - 1, ring[0] + 1,
+        ring[ring.length - 1], ring[ring.length - 1] + 1 };
+
+    for (int key : edges)
+    {
+      assertEquals(test.get(key), binarySearchGet(ring, objects, key));
+    }
+
+    for (int i = 0; i < 100000; ++i)
+    {
+      int key = random.nextInt();
+      assertEquals(test.get(key), binarySearchGet(ring, objects, key));
+    }
+
+    for (int i = 0; i < ring.length; ++i)
+    {
+      assertEquals(test.get(ring[i]), objects[i]);
+      assertEquals(test.get(ring[i] - 1), binarySearchGet(ring, objects, ring[i] - 1));
+    }
+  }
+
+  private static Object binarySearchGet(int[] ring, Object[] objects, int key)
+  {
+    int index = Arrays.binarySearch(ring, key);
+
+    if (index < 0)
+    {
+      index = -(index + 1);
+    }
+
+    return objects[index % objects.length];
+  }
 }
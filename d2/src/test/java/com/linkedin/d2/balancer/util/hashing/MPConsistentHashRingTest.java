@@ -0,0 +1,189 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class MPConsistentHashRingTest
+{
+  @Test(groups = { "small", "back-end" })
+  public void testZeroItems()
+  {
+    Map<String, Integer> zero = new HashMap<String, Integer>();
+    assertNull(new MPConsistentHashRing<String>(zero).get(0));
+
+    zero.put("test", 0);
+    assertNull(new MPConsistentHashRing<String>(zero).get(100));
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testOneItem()
+  {
+    MPConsistentHashRing<String> ring =
+        new MPConsistentHashRing<String>(Collections.singletonMap("test", 100));
+
+    assertEquals(ring.get(0), "test");
+    assertEquals(ring.get(Integer.MIN_VALUE), "test");
+    assertEquals(ring.get(Integer.MAX_VALUE), "test");
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testDistribution()
+  {
+    Map<String, Integer> points = new HashMap<String, Integer>();
+    for (int i = 0; i < 10; ++i)
+    {
+      points.put("host" + i, 100);
+    }
+
+    Map<String, Integer> counts = count(new MPConsistentHashRing<String>(points), 100000);
+
+    for (int i = 0; i < 10; ++i)
+    {
+      double actual = counts.get("host" + i);
+      assertTrue(Math.abs(actual - 10000) / 10000 < 0.25, "host" + i + ": " + actual);
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testWeights()
+  {
+    Map<String, Integer> points = new HashMap<String, Integer>();
+    for (int i = 0; i < 10; ++i)
+    {
+      points.put("host" + i, i < 5 ? 100 : 25);
+    }
+
+    Map<String, Integer> counts = count(new MPConsistentHashRing<String>(points), 100000);
+    int heavy = 0;
+    int light = 0;
+
+    for (int i = 0; i < 10; ++i)
+    {
+      if (i < 5)
+      {
+        heavy += counts.get("host" + i);
+      }
+      else
+      {
+        light += counts.containsKey("host" + i) ? counts.get("host" + i) : 0;
+      }
+    }
+
+    assertTrue(heavy > 2 * light, heavy + " vs " + light);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testIndependentOfMapOrder()
+  {
+    Map<String, Integer> forward = new LinkedHashMap<String, Integer>();
+    Map<String, Integer> backward = new LinkedHashMap<String, Integer>();
+    for (int i = 0; i < 20; ++i)
+    {
+      forward.put("host" + i, 100);
+      backward.put("host" + (19 - i), 100);
+    }
+
+    MPConsistentHashRing<String> ring1 = new MPConsistentHashRing<String>(forward);
+    MPConsistentHashRing<String> ring2 = new MPConsistentHashRing<String>(backward);
+    Random random = new Random(42);
+
+    for (int i = 0; i < 10000; ++i)
+    {
+      int key = random.nextInt();
+      assertEquals(ring1.get(key), ring2.get(key));
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testRemoveHostOnlyMovesItsKeys()
+  {
+    Map<String, Integer> points = new HashMap<String, Integer>();
+    for (int i = 0; i < 20; ++i)
+    {
+      points.put("host" + i, 100);
+    }
+
+    MPConsistentHashRing<String> before = new MPConsistentHashRing<String>(points);
+    points.remove("host7");
+    MPConsistentHashRing<String> after = new MPConsistentHashRing<String>(points);
+    Random random = new Random(42);
+
+    for (int i = 0; i < 100000; ++i)
+    {
+      int key = random.nextInt();
+      String host = before.get(key);
+      if (!host.equals("host7"))
+      {
+        assertEquals(after.get(key), host);
+      }
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testRingFactory()
+  {
+    Map<String, Object> hashConfig = new HashMap<String, Object>();
+    Map<String, Integer> points = Collections.singletonMap("test", 100);
+
+    assertTrue(new DelegatingRingFactory<String>(hashConfig).createRing(points) instanceof ConsistentHashRing);
+
+    hashConfig.put(DelegatingRingFactory.KEY_HASH_RING_ALGORITHM, DelegatingRingFactory.RING_MULTI_PROBE);
+    hashConfig.put(DelegatingRingFactory.KEY_NUMBER_OF_PROBES, "5");
+    Ring<String> ring = new DelegatingRingFactory<String>(hashConfig).createRing(points);
+    assertTrue(ring instanceof MPConsistentHashRing);
+    assertEquals(((MPConsistentHashRing<String>) ring).getNumberOfProbes(), 5);
+
+    hashConfig.put(DelegatingRingFactory.KEY_HASH_RING_ALGORITHM, DelegatingRingFactory.RING_MAGLEV);
+    hashConfig.put(DelegatingRingFactory.KEY_MAGLEV_TABLE_SIZE, 1000);
+    ring = new DelegatingRingFactory<String>(hashConfig).createRing(points);
+    assertTrue(ring instanceof MaglevRing);
+    assertEquals(((MaglevRing<String>) ring).getTableSize(), 1009);
+  }
+
+  @Test(groups = { "small", "back-end" }, expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownRingAlgorithm()
+  {
+    new DelegatingRingFactory<String>(Collections.<String, Object>singletonMap(
+        DelegatingRingFactory.KEY_HASH_RING_ALGORITHM, "nope"));
+  }
+
+  private static Map<String, Integer> count(Ring<String> ring, int keys)
+  {
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < keys; ++i)
+    {
+      String host = ring.get(random.nextInt());
+      Integer count = counts.get(host);
+      counts.put(host, count == null ? 1 : count + 1);
+    }
+
+    return counts;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class MaglevRingTest
+{
+  @Test(groups = { "small", "back-end" })
+  public void testZeroItems()
+  {
+    Map<String, Integer> zero = new HashMap<String, Integer>();
+    assertNull(new MaglevRing<String>(zero).get(0));
+
+    zero.put("test", 0);
+    assertNull(new MaglevRing<String>(zero).get(100));
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testOneItem()
+  {
+    Map<String, Integer> one = new HashMap<String, Integer>();
+    one.put("test", 100);
+    MaglevRing<String> ring = new MaglevRing<String>(one, 101);
+
+    assertEquals(ring.getTableSize(), 101);
+    assertEquals(ring.get(0), "test");
+    assertEquals(ring.get(Integer.MIN_VALUE), "test");
+    assertEquals(ring.get(Integer.MAX_VALUE), "test");
+    assertEquals(ring.get(-1), "test");
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testTableSizeIsPrime()
+  {
+    Map<String, Integer> one = new HashMap<String, Integer>();
+    one.put("test", 100);
+
+    assertEquals(new MaglevRing<String>(one, 100).getTableSize(), 101);
+    assertEquals(new MaglevRing<String>(one).getTableSize(), MaglevRing.DEFAULT_TABLE_SIZE);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testWeightedDistribution()
+  {
+    Map<String, Integer> points = new HashMap<String, Integer>();
+    for (int i = 0; i < 10; ++i)
+    {
+      points.put("host" + i, i < 5 ? 100 : 50);
+    }
+
+    MaglevRing<String> ring = new MaglevRing<String>(points);
+    Map<String, Integer> counts = count(ring, 300000);
+
+    // full weight hosts get 2/15 of the keys and half weight hosts 1/15
+    for (int i = 0; i < 10; ++i)
+    {
+      double expected = 300000 * (i < 5 ? 2.0 : 1.0) / 15;
+      double actual = counts.get("host" + i);
+      assertTrue(Math.abs(actual - expected) / expected < 0.05, "host" + i + ": " + actual + " vs " + expected);
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testIndependentOfMapOrder()
+  {
+    Map<String, Integer> forward = new LinkedHashMap<String, Integer>();
+    Map<String, Integer> backward = new LinkedHashMap<String, Integer>();
+    for (int i = 0; i < 20; ++i)
+    {
+      forward.put("host" + i, 100);
+      backward.put("host" + (19 - i), 100);
+    }
+
+    MaglevRing<String> ring1 = new MaglevRing<String>(forward);
+    MaglevRing<String> ring2 = new MaglevRing<String>(backward);
+    Random random = new Random(42);
+
+    for (int i = 0; i < 10000; ++i)
+    {
+      int key = random.nextInt();
+      assertEquals(ring1.get(key), ring2.get(key));
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testRemoveHostMovesFewKeys()
+  {
+    Map<String, Integer> points = new HashMap<String, Integer>();
+    for (int i = 0; i < 20; ++i)
+    {
+      points.put("host" + i, 100);
+    }
+
+    MaglevRing<String> before = new MaglevRing<String>(points);
+    points.remove("host7");
+    MaglevRing<String> after = new MaglevRing<String>(points);
+
+    Random random = new Random(42);
+    int moved = 0;
+    int keys = 100000;
+
+    for (int i = 0; i < keys; ++i)
+    {
+      int key = random.nextInt();
+      String host = before.get(key);
+      if (!host.equals("host7") && !host.equals(after.get(key)))
+      {
+        ++moved;
+      }
+    }
+
+    // keys of the remaining hosts should mostly stay put
+    assertTrue(moved < keys * 0.05, "moved " + moved);
+  }
+
+  private static Map<String, Integer> count(Ring<String> ring, int keys)
+  {
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < keys; ++i)
+    {
+      String host = ring.get(random.nextInt());
+      Integer count = counts.get(host);
+      counts.put(host, count == null ? 1 : count + 1);
+    }
+
+    return counts;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.hashing;
+
+import static org.testng.Assert.assertEquals;
+
+import java.nio.charset.Charset;
+
+import org.testng.annotations.Test;
+
+public class Murmur3HashTest
+{
+  private static final Charset UTF8 = Charset.forName("UTF8");
+
+  @Test(groups = { "small", "back-end" })
+  public void testKnownValues()
+  {
+    assertEquals(Murmur3Hash.hash64(new byte[0], 0), 0L);
+
+    byte[] fox = "The quick brown fox jumps over the lazy dog".getBytes(UTF8);
+    assertEquals(Murmur3Hash.hash64(fox, fox.length), 0xe34bbc7bbc071b6cL);
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testTokensAreSeparated()
+  {
+    Murmur3Hash hash = new Murmur3Hash();
+    byte[] separated = "ab\0".getBytes(UTF8);
+    assertEquals(hash.hashLong(new String[] { "ab" }), Murmur3Hash.hash64(separated, separated.length));
+    assertEquals(hash.hash(new String[] { "ab" }), (int) hash.hashLong(new String[] { "ab" }));
+
+    byte[] twoTokens = "a\0b\0".getBytes(UTF8);
+    assertEquals(hash.hashLong(new String[] { "a", "b" }), Murmur3Hash.hash64(twoTokens, twoTokens.length));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.d2.balancer.util.partitions;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+import com.linkedin.d2.balancer.properties.HashBasedPartitionProperties;
+import com.linkedin.d2.balancer.properties.HashBasedPartitionProperties.HashAlgorithm;
+
+public class HashBasedPartitionAccessorTest
+{
+  private static final String[] URIS = {
+      "d2://profiles?id=12&id=34",
+      "d2://profiles?fid=&id=56x",
+      "d2://profiles?ids=1&id=",
+      "d2://profiles/789/connections/10",
+      "d2://profiles/abc%2Fdef?id=",
+      "d2://profiles",
+  };
+
+  @Test(groups = { "small", "back-end" })
+  public void testKeyExtractionMatchesRegex() throws PartitionAccessException
+  {
+    String[] regexes = {
+        "id=(\\d+)",
+        "id=([0-9]+)",
+        "profiles/([^/]+)",
+        "\\?id=(\\d+)",
+        "(\\d+)",
+        // not handled by the literal prefix path
+        "profiles/(\\d+)/",
+        "(?:ids|id)=(\\d+)",
+    };
+    for (String regex : regexes)
+    {
+      KeyRecordingAccessor accessor = new KeyRecordingAccessor(regex);
+      for (String uri : URIS)
+      {
+        Matcher matcher = Pattern.compile(regex).matcher(uri);
+        accessor._key = null;
+        try
+        {
+          accessor.getPartitionId(URI.create(uri));
+          assertTrue(matcher.find(), regex + " " + uri);
+          assertEquals(accessor._key, matcher.group(matcher.groupCount()), regex + " " + uri);
+        }
+        catch (PartitionAccessException e)
+        {
+          assertTrue(!matcher.find(), regex + " " + uri);
+          assertNull(accessor._key);
+        }
+      }
+    }
+  }
+
+  @Test(groups = { "small", "back-end" })
+  public void testHashAlgorithms() throws PartitionAccessException
+  {
+    HashBasedPartitionAccessor modulo =
+        new HashBasedPartitionAccessor(new HashBasedPartitionProperties("id=(\\d+)", 10, HashAlgorithm.MODULO));
+    assertEquals(modulo.getPartitionId(URI.create("d2://profiles?id=123")), 3);
+    try
+    {
+      modulo.getPartitionId("abc");
+      fail("MODULO requires numeric keys");
+    }
+    catch (PartitionAccessException e)
+    {
+      // expected
+    }
+
+    for (HashAlgorithm algorithm : new HashAlgorithm[] { HashAlgorithm.MD5, HashAlgorithm.MURMUR3 })
+    {
+      HashBasedPartitionAccessor accessor =
+          new HashBasedPartitionAccessor(new HashBasedPartitionProperties("id=(\\d+)", 10, algorithm));
+      int[] counts = new int[10];
+      for (int i = 0; i < 10000; i++)
+      {
+        counts[accessor.getPartitionId(String.valueOf(i))]++;
+      }
+      for (int count : counts)
+      {
+        assertTrue(count > 800 && count < 1200, algorithm + " " + count);
+      }
+
+      // cached and uncached results agree
+      HashBasedPartitionAccessor fresh =
+          new HashBasedPartitionAccessor(new HashBasedPartitionProperties("id=(\\d+)", 10, algorithm));
+      for (int i = 0; i < 10000; i += 7)
+      {
+        String key = String.valueOf(i);
+        assertEquals(accessor.getPartitionId(key), fresh.getPartitionId(key));
+        assertEquals(accessor.getPartitionId(key), fresh.getPartitionId(key));
+      }
+    }
+  }
+
+  private static class KeyRecordingAccessor extends AbstractPartitionAccessor
+  {
+    private String _key;
+
+    private KeyRecordingAccessor(String regex)
+    {
+      super(regex, 0);
+    }
+
+    @Override
+    public int getPartitionId(String key)
+    {
+      _key = key;
+      return 0;
+    }
+  }
+}
@@ -25,19 +25,34 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * An immutable sequence of bytes.
  *
+ * <p>
+ * A {@link ByteString} is usually backed by a single byte array that it owns. The {@code unsafeWrap}
+ * methods and {@link #slice(int, int)} create {@link ByteString}s that are views of existing bytes
+ * instead, possibly spanning several non-contiguous {@link ByteBuffer}s, so that bytes received from or
+ * sent to the transport do not have to be copied.
+ *
  * @author Chris Pettitt
  * @version $Revision$
  */
 public final class ByteString
 {
   private static final ByteString EMPTY = new ByteString(new byte[0]);
+  private static final int WRITE_CHUNK_SIZE = 8192;
 
-  private final byte[] _bytes;
+  /**
+   * The bytes of this {@link ByteString}, in order. Each segment is positioned at zero, is not empty
+   * unless this is the empty {@link ByteString}, and is never handed out without being made read only.
+   */
+  private final ByteBuffer[] _segments;
+  private final int _length;
 
   /**
    * Returns an empty {@link ByteString}.
@@ -167,10 +182,107 @@ public final class ByteString
     return new ByteString(bytes);
   }
 
+  /**
+   * Returns a new {@link ByteString} that wraps the supplied bytes without copying them.
+   *
+   * The caller must not modify the supplied bytes afterwards, otherwise the change will be
+   * visible through the returned {@link ByteString}, which is supposed to be immutable.
+   *
+   * @param bytes the bytes to wrap
+   * @return a {@link ByteString} that wraps the supplied bytes
+   * @throws NullPointerException if {@code bytes} is {@code null}.
+   */
+  public static ByteString unsafeWrap(byte[] bytes)
+  {
+    ArgumentUtil.notNull(bytes, "bytes");
+    return unsafeWrap(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Returns a new {@link ByteString} that wraps the specified range of the supplied bytes without
+   * copying them.
+   *
+   * The caller must not modify the supplied bytes afterwards, otherwise the change will be
+   * visible through the returned {@link ByteString}, which is supposed to be immutable.
+   *
+   * @param bytes the bytes to wrap
+   * @param offset of the first byte to wrap
+   * @param length provides the number of bytes to wrap
+   * @return a {@link ByteString} that wraps the specified range of the supplied bytes
+   * @throws NullPointerException if {@code bytes} is {@code null}.
+   * @throws IndexOutOfBoundsException if the range is not within {@code bytes}.
+   */
+  public static ByteString unsafeWrap(byte[] bytes, int offset, int length)
+  {
+    ArgumentUtil.notNull(bytes, "bytes");
+    if (offset < 0 || length < 0 || offset > bytes.length - length)
+    {
+      throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+    }
+    if (length == 0)
+    {
+      return empty();
+    }
+    return new ByteString(new ByteBuffer[] { ByteBuffer.wrap(bytes, offset, length).slice() }, length);
+  }
+
+  /**
+   * Returns a new {@link ByteString} that wraps the remaining bytes of the supplied {@link ByteBuffer}
+   * without copying them. The {@link ByteBuffer} may be read only or direct. Its position is not changed.
+   *
+   * The caller must not modify the bytes of the supplied {@link ByteBuffer} afterwards, otherwise
+   * the change will be visible through the returned {@link ByteString}, which is supposed to be immutable.
+   *
+   * @param byteBuffer the {@link ByteBuffer} to wrap
+   * @return a {@link ByteString} that wraps the remaining bytes of the supplied {@link ByteBuffer}
+   * @throws NullPointerException if {@code byteBuffer} is {@code null}.
+   */
+  public static ByteString unsafeWrap(ByteBuffer byteBuffer)
+  {
+    ArgumentUtil.notNull(byteBuffer, "byteBuffer");
+    return unsafeWrap(Collections.singletonList(byteBuffer));
+  }
+
+  /**
+   * Returns a new {@link ByteString} that is the concatenation of the remaining bytes of the supplied
+   * {@link ByteBuffer}s, without copying them. The {@link ByteBuffer}s may be read only or direct.
+   * Their positions are not changed.
+   *
+   * The caller must not modify the bytes of the supplied {@link ByteBuffer}s afterwards, otherwise
+   * the change will be visible through the returned {@link ByteString}, which is supposed to be immutable.
+   *
+   * @param byteBuffers the {@link ByteBuffer}s to wrap
+   * @return a {@link ByteString} that wraps the remaining bytes of the supplied {@link ByteBuffer}s
+   * @throws NullPointerException if {@code byteBuffers} or any of its elements is {@code null}.
+   */
+  public static ByteString unsafeWrap(List<ByteBuffer> byteBuffers)
+  {
+    ArgumentUtil.notNull(byteBuffers, "byteBuffers");
+    List<ByteBuffer> segments = new ArrayList<ByteBuffer>(byteBuffers.size());
+    int length = 0;
+    for (ByteBuffer byteBuffer : byteBuffers)
+    {
+      ArgumentUtil.notNull(byteBuffer, "byteBuffer");
+      int remaining = byteBuffer.remaining();
+      if (remaining > 0)
+      {
+        segments.add(byteBuffer.slice());
+        length += remaining;
+      }
+    }
+    return length == 0 ? empty() : new ByteString(segments.toArray(new ByteBuffer[segments.size()]), length);
+  }
+
   private ByteString(byte[] bytes)
   {
-    assert bytes != null;
-    _bytes = bytes;
+    this(new ByteBuffer[] { ByteBuffer.wrap(bytes) }, bytes.length);
+  }
+
+  private ByteString(ByteBuffer[] segments, int length)
+  {
+    assert segments.length > 0;
+    _segments = segments;
+    _length = length;
   }
 
   /**
@@ -180,7 +292,56 @@ public final class ByteString
    */
   public int length()
   {
-    return _bytes.length;
+    return _length;
+  }
+
+  /**
+   * Returns a {@link ByteString} view of the specified range of this {@link ByteString}.
+   * This method makes no copy.
+   *
+   * @param offset of the first byte of the range
+   * @param length provides the number of bytes in the range
+   * @return a {@link ByteString} view of the specified range of this {@link ByteString}
+   * @throws IndexOutOfBoundsException if the range is not within this {@link ByteString}.
+   */
+  public ByteString slice(int offset, int length)
+  {
+    if (offset < 0 || length < 0 || offset > _length - length)
+    {
+      throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + _length);
+    }
+    if (length == 0)
+    {
+      return empty();
+    }
+    if (length == _length)
+    {
+      return this;
+    }
+
+    List<ByteBuffer> segments = new ArrayList<ByteBuffer>(_segments.length);
+    int start = offset;
+    int more = length;
+    for (ByteBuffer segment : _segments)
+    {
+      int limit = segment.limit();
+      if (start >= limit)
+      {
+        start -= limit;
+        continue;
+      }
+      int count = Math.min(limit - start, more);
+      ByteBuffer slice = segment.duplicate();
+      slice.position(start).limit(start + count);
+      segments.add(slice.slice());
+      more -= count;
+      start = 0;
+      if (more == 0)
+      {
+        break;
+      }
+    }
+    return new ByteString(segments.toArray(new ByteBuffer[segments.size()]), length);
   }
 
   /**
@@ -196,7 +357,9 @@ public final class ByteString
    */
   public byte[] copyBytes()
   {
-    return Arrays.copyOf(_bytes, _bytes.length);
+    byte[] bytes = new byte[_length];
+    copyBytes(bytes, 0);
+    return bytes;
   }
 
   /**
@@ -212,17 +375,55 @@ public final class ByteString
    */
   public void copyBytes(byte[] dest, int offset)
   {
-    System.arraycopy(_bytes, 0, dest, offset, _bytes.length);
+    for (ByteBuffer segment : _segments)
+    {
+      int length = segment.limit();
+      if (segment.hasArray())
+      {
+        System.arraycopy(segment.array(), segment.arrayOffset(), dest, offset, length);
+      }
+      else
+      {
+        segment.duplicate().get(dest, offset, length);
+      }
+      offset += length;
+    }
   }
 
   /**
-   * Returns a read only {@link ByteBuffer} view of this {@link ByteString}. This method makes no copy.
+   * Returns a read only {@link ByteBuffer} view of this {@link ByteString}. This method makes no copy,
+   * unless this {@link ByteString} is made of more than one segment, see {@link #asByteBuffers()}.
    *
    * @return read only {@link ByteBuffer} view of this {@link ByteString}.
    */
   public ByteBuffer asByteBuffer()
   {
-    return ByteBuffer.wrap(_bytes).asReadOnlyBuffer();
+    if (_segments.length == 1)
+    {
+      return _segments[0].asReadOnlyBuffer();
+    }
+    return ByteBuffer.wrap(copyBytes()).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns read only {@link ByteBuffer} views of the segments of this {@link ByteString}, in order.
+   * This method makes no copy. The returned list has a single element unless this {@link ByteString}
+   * was built from non-contiguous bytes, e.g. by {@link #unsafeWrap(List)}.
+   *
+   * @return read only {@link ByteBuffer} views of the segments of this {@link ByteString}.
+   */
+  public List<ByteBuffer> asByteBuffers()
+  {
+    if (_segments.length == 1)
+    {
+      return Collections.singletonList(_segments[0].asReadOnlyBuffer());
+    }
+    List<ByteBuffer> byteBuffers = new ArrayList<ByteBuffer>(_segments.length);
+    for (ByteBuffer segment : _segments)
+    {
+      byteBuffers.add(segment.asReadOnlyBuffer());
+    }
+    return byteBuffers;
   }
 
   /**
@@ -246,7 +447,12 @@ public final class ByteString
    */
   public String asString(Charset charset)
   {
-    return new String(_bytes, charset);
+    if (_segments.length == 1 && _segments[0].hasArray())
+    {
+      ByteBuffer segment = _segments[0];
+      return new String(segment.array(), segment.arrayOffset(), _length, charset);
+    }
+    return new String(copyBytes(), charset);
   }
 
   /**
@@ -256,17 +462,31 @@ public final class ByteString
    */
   public String asAvroString()
   {
-    return Data.bytesToString(_bytes);
+    char[] charArray = new char[_length];
+    int i = 0;
+    for (ByteBuffer segment : _segments)
+    {
+      for (int j = 0; j < segment.limit(); j++)
+      {
+        charArray[i++] = (char) (((char) segment.get(j)) & 0x00ff);
+      }
+    }
+    return new String(charArray);
   }
 
   /**
-   * Return an {@link InputStream} view of the bytes in this {@link ByteString}.
+   * Return an {@link InputStream} view of the bytes in this {@link ByteString}. This method makes no copy.
    *
    * @return an {@link InputStream} view of the bytes in this {@link ByteString}
    */
   public InputStream asInputStream()
   {
-    return new ByteArrayInputStream(_bytes);
+    if (_segments.length == 1 && _segments[0].hasArray())
+    {
+      ByteBuffer segment = _segments[0];
+      return new ByteArrayInputStream(segment.array(), segment.arrayOffset(), _length);
+    }
+    return new SegmentInputStream(_segments);
   }
 
   /**
@@ -278,7 +498,29 @@ public final class ByteString
    */
   public void write(OutputStream out) throws IOException
   {
-    out.write(_bytes);
+    byte[] chunk = null;
+    for (ByteBuffer segment : _segments)
+    {
+      if (segment.hasArray())
+      {
+        out.write(segment.array(), segment.arrayOffset(), segment.limit());
+      }
+      else
+      {
+        // bytes that are not on the heap have to go through an intermediate array
+        if (chunk == null)
+        {
+          chunk = new byte[Math.min(WRITE_CHUNK_SIZE, _length)];
+        }
+        ByteBuffer source = segment.duplicate();
+        while (source.hasRemaining())
+        {
+          int count = Math.min(chunk.length, source.remaining());
+          source.get(chunk, 0, count);
+          out.write(chunk, 0, count);
+        }
+      }
+    }
   }
 
   @Override
@@ -295,13 +537,80 @@ public final class ByteString
     }
 
     ByteString that = (ByteString) o;
-    return Arrays.equals(_bytes, that._bytes);
+    if (_length != that._length)
+    {
+      return false;
+    }
+
+    if (_segments.length == 1 && that._segments.length == 1)
+    {
+      ByteBuffer segment = _segments[0];
+      ByteBuffer thatSegment = that._segments[0];
+      if (segment.hasArray() && thatSegment.hasArray())
+      {
+        byte[] bytes = segment.array();
+        byte[] thatBytes = thatSegment.array();
+        int offset = segment.arrayOffset();
+        int thatOffset = thatSegment.arrayOffset();
+        for (int i = 0; i < _length; i++)
+        {
+          if (bytes[offset + i] != thatBytes[thatOffset + i])
+          {
+            return false;
+          }
+        }
+        return true;
+      }
+      return segment.equals(thatSegment);
+    }
+
+    int thatIndex = 0;
+    int thatPosition = 0;
+    ByteBuffer thatSegment = that._segments[0];
+    for (ByteBuffer segment : _segments)
+    {
+      for (int i = 0; i < segment.limit(); i++)
+      {
+        while (thatPosition == thatSegment.limit())
+        {
+          thatSegment = that._segments[++thatIndex];
+          thatPosition = 0;
+        }
+        if (segment.get(i) != thatSegment.get(thatPosition++))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
   }
 
+  /**
+   * Returns the same hash code as {@link Arrays#hashCode(byte[])} of the bytes in this {@link ByteString}.
+   */
   @Override
   public int hashCode()
   {
-    return Arrays.hashCode(_bytes);
+    int result = 1;
+    for (ByteBuffer segment : _segments)
+    {
+      if (segment.hasArray())
+      {
+        byte[] bytes = segment.array();
+        for (int i = segment.arrayOffset(), end = i + segment.limit(); i < end; i++)
+        {
+          result = 31 * result + bytes[i];
+        }
+      }
+      else
+      {
+        for (int i = 0; i < segment.limit(); i++)
+        {
+          result = 31 * result + segment.get(i);
+        }
+      }
+    }
+    return result;
   }
 
   /**
@@ -317,23 +626,141 @@ public final class ByteString
     StringBuilder sb = new StringBuilder();
     sb.append("ByteString(length=");
     sb.append(length());
-    if (_bytes.length > 0)
+    if (_length > 0)
     {
       sb.append(",bytes=");
-      for (int i = 0; i < Math.min(_bytes.length, NUM_BYTES); i++)
+      for (int i = 0; i < Math.min(_length, NUM_BYTES); i++)
       {
-        sb.append(String.format("%02x", (int) _bytes[i] & 0xff));
+        sb.append(String.format("%02x", (int) byteAt(i) & 0xff));
       }
-      if (_bytes.length > NUM_BYTES * 2)
+      if (_length > NUM_BYTES * 2)
       {
         sb.append("...");
       }
-      for (int i = Math.max(NUM_BYTES, _bytes.length - NUM_BYTES); i < _bytes.length; i++)
+      for (int i = Math.max(NUM_BYTES, _length - NUM_BYTES); i < _length; i++)
       {
-        sb.append(String.format("%02x", (int)_bytes[i] & 0xff));
+        sb.append(String.format("%02x", (int) byteAt(i) & 0xff));
       }
     }
     sb.append(")");
     return sb.toString();
   }
+
+  private byte byteAt(int index)
+  {
+    for (ByteBuffer segment : _segments)
+    {
+      int limit = segment.limit();
+      if (index < limit)
+      {
+        return segment.get(index);
+      }
+      index -= limit;
+    }
+    throw new IndexOutOfBoundsException();
+  }
+
+  /**
+   * An {@link InputStream} over the segments of a {@link ByteString}.
+   */
+  private static class SegmentInputStream extends InputStream
+  {
+    private final ByteBuffer[] _segments;
+    private int _index;
+    private ByteBuffer _current;
+    private int _markIndex;
+    private int _markPosition;
+
+    private SegmentInputStream(ByteBuffer[] segments)
+    {
+      _segments = segments;
+      _index = 0;
+      _current = segments[0].duplicate();
+    }
+
+    @Override
+    public int read()
+    {
+      if (!advance())
+      {
+        return -1;
+      }
+      return _current.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] dst, int offset, int length)
+    {
+      if (length == 0)
+      {
+        return 0;
+      }
+      int read = 0;
+      while (read < length && advance())
+      {
+        int count = Math.min(length - read, _current.remaining());
+        _current.get(dst, offset + read, count);
+        read += count;
+      }
+      return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public long skip(long n)
+    {
+      long skipped = 0;
+      while (skipped < n && advance())
+      {
+        int count = (int) Math.min(n - skipped, _current.remaining());
+        _current.position(_current.position() + count);
+        skipped += count;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available()
+    {
+      int available = _current.remaining();
+      for (int i = _index + 1; i < _segments.length; i++)
+      {
+        available += _segments[i].limit();
+      }
+      return available;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit)
+    {
+      _markIndex = _index;
+      _markPosition = _current.position();
+    }
+
+    @Override
+    public void reset()
+    {
+      _index = _markIndex;
+      _current = _segments[_index].duplicate();
+      _current.position(_markPosition);
+    }
+
+    private boolean advance()
+    {
+      while (!_current.hasRemaining())
+      {
+        if (_index == _segments.length - 1)
+        {
+          return false;
+        }
+        _current = _segments[++_index].duplicate();
+      }
+      return true;
+    }
+  }
 }
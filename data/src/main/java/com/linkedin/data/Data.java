@@ -314,12 +314,41 @@ public class Data
       else
       {
         callback.startList(list);
-        int index = 0;
-        for (Object o : list)
+        Class<?> primitiveClass = list.getPrimitiveClass();
+        int size = list.size();
+        if (primitiveClass == Integer.class)
         {
-          callback.index(index);
-          ++index;
-          traverse(o, callback);
+          for (int index = 0; index < size; ++index)
+          {
+            callback.index(index);
+            callback.integerValue(list.getInt(index));
+          }
+        }
+        else if (primitiveClass == Long.class)
+        {
+          for (int index = 0; index < size; ++index)
+          {
+            callback.index(index);
+            callback.longValue(list.getLong(index));
+          }
+        }
+        else if (primitiveClass == Double.class)
+        {
+          for (int index = 0; index < size; ++index)
+          {
+            callback.index(index);
+            callback.doubleValue(list.getDouble(index));
+          }
+        }
+        else
+        {
+          int index = 0;
+          for (Object o : list)
+          {
+            callback.index(index);
+            ++index;
+            traverse(o, callback);
+          }
         }
         callback.endList();
       }
@@ -51,6 +51,13 @@ import java.util.Map;
  * is lazy and may be delayed until the {@link DataList} is about to be modified.
  * <p>
  *
+ * {@link Integer}, {@link Long} and {@link Double} elements can be added and read
+ * without boxing using {@link #addInt(int)}, {@link #getInt(int)} and their
+ * {@code long} and {@code double} counterparts. A {@link DataList} that is filled
+ * only through one of these methods stores its elements in an array of the
+ * primitive type, which is what the codecs do when parsing homogeneous numeric arrays.
+ * <p>
+ *
  * @author slim
  */
 public final class DataList extends CheckedList<Object> implements DataComplex
@@ -90,6 +97,66 @@ public final class DataList extends CheckedList<Object> implements DataComplex
     return super.get(index);
   }
 
+  /**
+   * Append an {@link Integer} to the list without boxing it.
+   *
+   * @param value provides the value to append.
+   * @return true.
+   */
+  public boolean addInt(int value)
+  {
+    return addIntWithoutChecking(value);
+  }
+
+  /**
+   * Append a {@link Long} to the list without boxing it.
+   *
+   * @param value provides the value to append.
+   * @return true.
+   */
+  public boolean addLong(long value)
+  {
+    return addLongWithoutChecking(value);
+  }
+
+  /**
+   * Append a {@link Double} to the list without boxing it.
+   *
+   * @param value provides the value to append.
+   * @return true.
+   */
+  public boolean addDouble(double value)
+  {
+    return addDoubleWithoutChecking(value);
+  }
+
+  @Override
+  public int getInt(int index)
+  {
+    instrumentAccess(index);
+    return super.getInt(index);
+  }
+
+  @Override
+  public long getLong(int index)
+  {
+    instrumentAccess(index);
+    return super.getLong(index);
+  }
+
+  @Override
+  public double getDouble(int index)
+  {
+    instrumentAccess(index);
+    return super.getDouble(index);
+  }
+
+  @Override
+  public Class<?> getPrimitiveClass()
+  {
+    return super.getPrimitiveClass();
+  }
+
   @Override
   public DataList clone() throws CloneNotSupportedException
   {
@@ -109,6 +176,10 @@ public final class DataList extends CheckedList<Object> implements DataComplex
   @Override
   public void copyReferencedObjects(IdentityHashMap<DataComplex, DataComplex> alreadyCopied) throws CloneNotSupportedException
   {
+    if (getPrimitiveClass() != null)
+    {
+      return;
+    }
     int count = size();
     for (int i = 0; i < count; ++i)
     {
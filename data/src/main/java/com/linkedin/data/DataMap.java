@@ -53,6 +53,10 @@ import java.util.Map;
  *
  * Since {@link DataMap} extends {@link CheckedMap}, copying of the {@link DataMap} is lazy and may be
  * delayed until the {@link DataMap} is about to be modified.
+ * <p>
+ *
+ * {@link #compact()} switches the {@link DataMap} and the {@link DataMap}s it contains to
+ * compact storage, intended for {@link DataMap}s that are held in memory for a long time.
  *
  * @author slim
  */
@@ -173,6 +177,22 @@ public final class DataMap extends CheckedMap<String,Object> implements DataComp
     return _madeReadOnly;
   }
 
+  /**
+   * Switch this {@link DataMap} and the {@link DataMap}s it contains, directly or through
+   * {@link DataList}s, to compact storage.
+   *
+   * @see CheckedMap#compact()
+   */
+  @Override
+  public void compact()
+  {
+    super.compact();
+    for (Object value : values())
+    {
+      compactValue(value);
+    }
+  }
+
   /**
    * Returns the value to which the specified key is mapped and cast to {@link Boolean},
    * or {@code null} if this map contains no mapping for the key.
@@ -391,6 +411,21 @@ public final class DataMap extends CheckedMap<String,Object> implements DataComp
     return getObject();
   }
 
+  private static void compactValue(Object value)
+  {
+    if (value instanceof DataMap)
+    {
+      ((DataMap) value).compact();
+    }
+    else if (value instanceof DataList)
+    {
+      for (Object item : (DataList) value)
+      {
+        compactValue(item);
+      }
+    }
+  }
+
   private void instrumentAccess(Object key)
   {
     if (_instrumented)
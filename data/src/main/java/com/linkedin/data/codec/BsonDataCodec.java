@@ -36,7 +36,7 @@ import java.util.Map;
  *
  * @author slim
  */
-public class BsonDataCodec implements DataCodec
+public class BsonDataCodec implements ByteStringDataCodec
 {
   private static final String UTF_8 = "UTF-8";
   private Integer _bufferSize;
@@ -190,6 +190,34 @@ public class BsonDataCodec implements DataCodec
     return readComplex(in, DataList.class);
   }
 
+  protected <T extends DataComplex> T byteStringToComplex(ByteString input, Class<T> clazz) throws IOException
+  {
+    try
+    {
+      BufferChain buffer = new BufferChain(ByteOrder.LITTLE_ENDIAN, input);
+      BsonParser bsonParser = new BsonParser(buffer);
+      return bsonParser.parseComplex(clazz);
+    }
+    catch (RuntimeException exc)
+    {
+      // do not want RuntimeException from BufferChain propagating
+      // as RuntimeException to client code.
+      throw new IOException("Unexpected RuntimeException", exc);
+    }
+  }
+
+  @Override
+  public DataMap readMap(ByteString in) throws IOException
+  {
+    return byteStringToComplex(in, DataMap.class);
+  }
+
+  @Override
+  public DataList readList(ByteString in) throws IOException
+  {
+    return byteStringToComplex(in, DataList.class);
+  }
+
   static final byte ZERO_BYTE = 0;
   static final byte ONE_BYTE = 1;
 
@@ -451,10 +479,24 @@ public class BsonDataCodec implements DataCodec
             break;
 
           case BSON_32BIT_INTEGER:
-            o = _buffer.getInt();
+            if (list != null)
+            {
+              list.addInt(_buffer.getInt());
+            }
+            else
+            {
+              o = _buffer.getInt();
+            }
             break;
           case BSON_DOUBLE:
-            o = _buffer.getDouble();
+            if (list != null)
+            {
+              list.addDouble(_buffer.getDouble());
+            }
+            else
+            {
+              o = _buffer.getDouble();
+            }
             break;
           case BSON_STRING:
             o = getString();
@@ -464,7 +506,14 @@ public class BsonDataCodec implements DataCodec
             o = new Boolean(b != ZERO_BYTE);
             break;
           case BSON_64BIT_INTEGER:
-            o = _buffer.getLong();
+            if (list != null)
+            {
+              list.addLong(_buffer.getLong());
+            }
+            else
+            {
+              o = _buffer.getLong();
+            }
             break;
 
           case BSON_BINARY:
@@ -68,13 +68,39 @@ public class BufferChain
 
   private static final Charset _charset = Charset.forName("UTF-8");
 
+  // Coders are expensive to create and are only used within a single method call,
+  // so they are shared by all the buffer chains used by a thread.
+  private static final ThreadLocal<CharsetDecoder> _decoder = new ThreadLocal<CharsetDecoder>()
+  {
+    @Override
+    protected CharsetDecoder initialValue()
+    {
+      CharsetDecoder decoder = _charset.newDecoder();
+      decoder.onMalformedInput(CodingErrorAction.REPLACE);
+      decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+      return decoder;
+    }
+  };
+  private static final ThreadLocal<CharsetEncoder> _encoder = new ThreadLocal<CharsetEncoder>()
+  {
+    @Override
+    protected CharsetEncoder initialValue()
+    {
+      CharsetEncoder encoder = _charset.newEncoder();
+      encoder.onMalformedInput(CodingErrorAction.REPLACE);
+      encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+      return encoder;
+    }
+  };
+
   private int _currentIndex;
   private ByteBuffer _currentBuffer;
   private ArrayList<ByteBuffer> _bufferList = new ArrayList<ByteBuffer>();
   private int _bufferSize;
   private ByteOrder _order;
-  private CharsetDecoder _decoder;
-  private CharsetEncoder _encoder;
+  private boolean _ownsBuffers;
+  private boolean _shared;
+  private ArrayList<ByteBuffer> _spareBuffers;
   private BufferChainInputStream _inputStream;
   private BufferChainOutputStream _outputStream;
 
@@ -127,9 +153,9 @@ public class BufferChain
     }
     _bufferSize = bufferSize;
     _order = order;
+    _ownsBuffers = true;
     _currentBuffer = allocateByteBuffer(_bufferSize);
     _currentIndex = 0;
-    initCoders();
   }
 
   /**
@@ -161,7 +187,30 @@ public class BufferChain
     _currentBuffer.order(_order);
     _currentIndex = 0;
     _bufferList.add(_currentBuffer);
-    initCoders();
+  }
+
+  /**
+   * Construct a {@link BufferChain} with the specified byte order and the bytes of the specified
+   * {@link ByteString}.
+   *
+   * The {@link BufferChain} directly references the read only segments of the provided
+   * {@link ByteString}, i.e. it does not copy the data. Data may only be read from the
+   * new {@link BufferChain}.
+   *
+   * @param order provides the byte order of the provided data.
+   * @param bytes provides the data of the new {@link BufferChain}.
+   */
+  public BufferChain(ByteOrder order, ByteString bytes)
+  {
+    _bufferSize = DEFAULT_BUFFER_SIZE;
+    _order = order;
+    for (ByteBuffer buffer : bytes.asByteBuffers())
+    {
+      buffer.order(_order);
+      _bufferList.add(buffer);
+    }
+    _currentBuffer = _bufferList.get(0);
+    _currentIndex = 0;
   }
 
   private BufferChain(ByteOrder order, ArrayList<ByteBuffer> byteBuffers, int bufferSize)
@@ -170,7 +219,6 @@ public class BufferChain
     _currentBuffer = byteBuffers.get(0);
     _currentIndex = 0;
     _bufferList = byteBuffers;
-    initCoders();
   }
 
   // testing use
@@ -179,6 +227,7 @@ public class BufferChain
     // dump(out, bytes, 0, bytes.length); out.println(); out.println("-------");
     _bufferSize = bufferSize;
     _order = order;
+    _ownsBuffers = true;
     int more = bytes.length;
     int offset = 0;
     while (more > 0)
@@ -192,7 +241,6 @@ public class BufferChain
       more -= length;
     }
     rewind();
-    initCoders();
   }
 
   /**
@@ -477,10 +525,41 @@ public class BufferChain
   public int getVarInt() throws BufferUnderflowException
   {
     int v = getVarUnsignedInt();
-    int result = (v >> 1) ^ (-(v & 1));
+    int result = (v >>> 1) ^ (-(v & 1));
     return result;
   }
 
+  /**
+   * Get the next ZigZag variable length encoded signed long.
+   * <p>
+   * Longs are encoded like integers, see {@link #getVarInt()}.
+   * <p>
+   * @return the next ZigZag variable length encoded signed long.
+   * @throws BufferUnderflowException if the buffer chain is exhausted.
+   */
+  public long getVarLong() throws BufferUnderflowException
+  {
+    long v = 0;
+    int shift = 0;
+    while (true)
+    {
+      byte b = get();
+      if ((b & (byte) 0x80) == 0)
+      {
+        // there are more more significant bits
+        v = v | ((long) b << shift);
+        shift += 7;
+      }
+      else
+      {
+        // there are no more more significant bits
+        v = v | ((long) (b & 0x7f) << shift);
+        break;
+      }
+    }
+    return (v >>> 1) ^ (-(v & 1));
+  }
+
   /**
    * Get the next byte order encoded short.
    *
@@ -552,19 +631,32 @@ public class BufferChain
     while (foundZeroByte == false && advanceBufferIfCurrentBufferHasNoRemaining())
     {
       int position = _currentBuffer.position();
-      byte[] array = _currentBuffer.array();
-      int arrayOffset = _currentBuffer.arrayOffset();
       int limit = _currentBuffer.limit();
-      int arrayLimit = arrayOffset + limit;
-      int arrayStart = arrayOffset + position;
-      int arrayIndex = arrayStart;
-      while (arrayIndex < arrayLimit && array[arrayIndex] != ZERO_BYTE)
+      int index;
+      if (_currentBuffer.hasArray())
+      {
+        byte[] array = _currentBuffer.array();
+        int arrayOffset = _currentBuffer.arrayOffset();
+        int arrayLimit = arrayOffset + limit;
+        int arrayIndex = arrayOffset + position;
+        while (arrayIndex < arrayLimit && array[arrayIndex] != ZERO_BYTE)
+        {
+          arrayIndex++;
+        }
+        index = arrayIndex - arrayOffset;
+      }
+      else
       {
-        arrayIndex++;
+        // read only or direct buffers, e.g. from a ByteString
+        index = position;
+        while (index < limit && _currentBuffer.get(index) != ZERO_BYTE)
+        {
+          index++;
+        }
       }
 
-      foundZeroByte = (arrayIndex < arrayLimit);
-      int bytesInCurrentBuffer = arrayIndex - arrayStart;
+      foundZeroByte = (index < limit);
+      int bytesInCurrentBuffer = index - position;
       numBytes += bytesInCurrentBuffer;
       if (foundZeroByte == false || numBytes != bytesInCurrentBuffer)
       {
@@ -579,6 +671,52 @@ public class BufferChain
     return bufferToUtf8CString(numBytes, bufferList);
   }
 
+  /**
+   * Get the next UTF-8 encoded string, returning the provided candidate
+   * instead of a new {@link String} if the next string is equal to the candidate.
+   *
+   * This avoids creating new {@link String}s for strings that are expected to
+   * repeat, e.g. the keys of similar messages. Only ASCII candidates are compared.
+   *
+   * @param candidate provides the expected string, may be {@code null}.
+   * @return the next UTF-8 encoded string.
+   * @throws BufferUnderflowException if the buffer chain is exhausted.
+   */
+  public String getUtf8CString(String candidate) throws IOException
+  {
+    if (candidate != null && matchAsciiCString(candidate))
+    {
+      return candidate;
+    }
+    return getUtf8CString();
+  }
+
+  private boolean matchAsciiCString(String candidate)
+  {
+    int startIndex = _currentIndex;
+    int startPosition = _currentBuffer.position();
+    int length = candidate.length();
+    for (int i = 0; i <= length; i++)
+    {
+      int expected = (i < length ? candidate.charAt(i) : ZERO_BYTE);
+      if (expected >= 0x80 ||
+          advanceBufferIfCurrentBufferHasNoRemaining() == false ||
+          _currentBuffer.get() != (byte) expected)
+      {
+        // not a match, restore the position
+        for (int index = startIndex + 1; index <= _currentIndex; index++)
+        {
+          _bufferList.get(index).rewind();
+        }
+        _currentIndex = startIndex;
+        _currentBuffer = _bufferList.get(startIndex);
+        _currentBuffer.position(startPosition);
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Get the next UTF-8 encoded null-terminated string.
    *
@@ -625,13 +763,11 @@ public class BufferChain
 
   private ArrayList<ByteBuffer> accummulateByteBuffers(ArrayList<ByteBuffer> bufferList, int bytesInCurrentBuffer)
   {
-    byte[] array = _currentBuffer.array();
     int position = _currentBuffer.position();
-    int arrayOffset = _currentBuffer.arrayOffset();
-    int arrayStart = arrayOffset + position;
     int newPosition = position + bytesInCurrentBuffer;
 
-    ByteBuffer byteBuffer = ByteBuffer.wrap(array, arrayStart, bytesInCurrentBuffer);
+    ByteBuffer byteBuffer = _currentBuffer.slice();
+    byteBuffer.limit(bytesInCurrentBuffer);
     byteBuffer.order(_order);
     _currentBuffer.position(newPosition);
     if (bufferList == null)
@@ -649,13 +785,14 @@ public class BufferChain
     }
     else if (bufferList == null)
     {
-      _decoder.reset();
+      CharsetDecoder decoder = _decoder.get();
+      decoder.reset();
       CharBuffer charBuffer = CharBuffer.allocate(numBytes); // char should be smaller than # of bytes in buffer.
       int limit = _currentBuffer.limit();
       _currentBuffer.limit(_currentBuffer.position() + numBytes);
-      checkCoderResult(_decoder.decode(_currentBuffer, charBuffer, true));
+      checkCoderResult(decoder.decode(_currentBuffer, charBuffer, true));
       _currentBuffer.limit(limit);
-      _decoder.flush(charBuffer);
+      decoder.flush(charBuffer);
       charBuffer.flip();
       result = charBuffer.toString();
     }
@@ -814,7 +951,7 @@ public class BufferChain
       {
         // there are more more significant bits
         put((byte) (z & 0x7f));
-        z = z >> 7;
+        z = z >>> 7;
         continue;
       }
       else
@@ -844,6 +981,29 @@ public class BufferChain
     return this;
   }
 
+  /**
+   * Put ZigZag variable length encoded signed long.
+   * <p>
+   * Longs are encoded like integers, see {@link #putVarInt(int)}.
+   * <p>
+   * @param value provides the long to put.
+   * @return {@code this}.
+   */
+  public BufferChain putVarLong(long value)
+  {
+    long z = (value << 1) ^ (value >> 63);
+    reserve(SIZE_LONG + 2);
+    while ((z & 0xffffffffffffff80L) != 0)
+    {
+      // there are more more significant bits
+      put((byte) (z & 0x7f));
+      z = z >>> 7;
+    }
+    // no more more significant bits
+    put((byte) ((z & 0x7f) | 0x80));
+    return this;
+  }
+
   /**
    * Put byte order encoded short.
    *
@@ -913,13 +1073,14 @@ public class BufferChain
   public BufferChain putUtf8CString(String value) throws CharacterCodingException
   {
     reserve(value.length() * 4);
-    _encoder.reset();
-    CoderResult result = _encoder.encode(CharBuffer.wrap(value), _currentBuffer, true);
+    CharsetEncoder encoder = _encoder.get();
+    encoder.reset();
+    CoderResult result = encoder.encode(CharBuffer.wrap(value), _currentBuffer, true);
     if (result.isError())
     {
       result.throwException();
     }
-    _encoder.flush(_currentBuffer);
+    encoder.flush(_currentBuffer);
     put(ZERO_BYTE);
     return this;
   }
@@ -933,7 +1094,10 @@ public class BufferChain
   public BufferChain putByteString(ByteString value)
   {
     reserve(value.length());
-    _currentBuffer.put(value.asByteBuffer());
+    for (ByteBuffer buffer : value.asByteBuffers())
+    {
+      _currentBuffer.put(buffer);
+    }
     return this;
   }
 
@@ -967,6 +1131,94 @@ public class BufferChain
     return bytes;
   }
 
+  /**
+   * Return the bytes in the buffer chain as a {@link ByteString} that shares
+   * the buffers of the buffer chain, i.e. without copying the bytes.
+   *
+   * The buffer chain must not be modified after this method is called.
+   *
+   * @return the bytes in the buffer chain.
+   */
+  public ByteString toByteString()
+  {
+    if (_currentBuffer.remaining() > 0)
+    {
+      _currentBuffer.limit(_currentBuffer.position());
+    }
+    rewind();
+    _shared = true;
+    return ByteString.unsafeWrap(_bufferList);
+  }
+
+  /**
+   * Empty the buffer chain so that it can be written again, keeping its buffers
+   * for reuse instead of allocating new ones.
+   *
+   * Buffers that have been shared by {@link #toByteString()} are not reused.
+   *
+   * @return {@code this}.
+   * @throws IllegalStateException if the buffer chain was constructed over provided data.
+   */
+  public BufferChain clear()
+  {
+    if (_ownsBuffers == false)
+    {
+      throw new IllegalStateException("BufferChain constructed over provided data cannot be cleared");
+    }
+    if (_spareBuffers == null)
+    {
+      _spareBuffers = new ArrayList<ByteBuffer>(_bufferList.size());
+    }
+    if (_shared == false)
+    {
+      _spareBuffers.addAll(_bufferList);
+    }
+    _shared = false;
+    _bufferList.clear();
+    _currentBuffer = allocateByteBuffer(_bufferSize);
+    _currentIndex = 0;
+    return this;
+  }
+
+  /**
+   * Return an upper bound of the number of bytes that can be read
+   * from the current position of the buffer chain.
+   *
+   * @return the sum of the remaining bytes of the current and following buffers.
+   */
+  public int remaining()
+  {
+    long remaining = 0;
+    for (int index = _currentIndex; index < _bufferList.size(); index++)
+    {
+      remaining += _bufferList.get(index).remaining();
+    }
+    return (int) Math.min(remaining, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Return the total capacity of the buffers held by the buffer chain,
+   * including the buffers kept for reuse by {@link #clear()}.
+   *
+   * @return the total capacity of the buffers held by the buffer chain.
+   */
+  public int capacity()
+  {
+    int capacity = 0;
+    for (ByteBuffer buffer : _bufferList)
+    {
+      capacity += buffer.capacity();
+    }
+    if (_spareBuffers != null)
+    {
+      for (ByteBuffer buffer : _spareBuffers)
+      {
+        capacity += buffer.capacity();
+      }
+    }
+    return capacity;
+  }
+
   /**
    * Rewind the buffer chain, i.e. set the current position to
    * the beginning of the buffer chain.
@@ -1038,11 +1290,29 @@ public class BufferChain
       _currentBuffer.limit(_currentBuffer.position());
     }
     rewind();
+    byte[] bytes = null;
     for (ByteBuffer buffer : _bufferList)
     {
-      outputStream.write(buffer.array(),
-                         buffer.arrayOffset(),
-                         buffer.remaining());
+      if (buffer.hasArray())
+      {
+        outputStream.write(buffer.array(),
+                           buffer.arrayOffset(),
+                           buffer.remaining());
+      }
+      else
+      {
+        if (bytes == null)
+        {
+          bytes = new byte[DEFAULT_BUFFER_SIZE];
+        }
+        while (buffer.hasRemaining())
+        {
+          int length = Math.min(bytes.length, buffer.remaining());
+          buffer.get(bytes, 0, length);
+          outputStream.write(bytes, 0, length);
+        }
+        buffer.rewind();
+      }
     }
     return this;
   }
@@ -1171,17 +1441,6 @@ public class BufferChain
     dump(os, buffer.array(), buffer.arrayOffset(), buffer.limit());
   }
 
-  private void initCoders()
-  {
-    _decoder = _charset.newDecoder();
-    _decoder.onMalformedInput(CodingErrorAction.REPLACE);
-    _decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
-
-    _encoder = _charset.newEncoder();
-    _encoder.onMalformedInput(CodingErrorAction.REPLACE);
-    _encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
-  }
-
   private final boolean advanceBufferIfCurrentBufferHasNoRemaining()
   {
     int remaining = _currentBuffer.remaining();
@@ -1213,13 +1472,12 @@ public class BufferChain
     if (remaining < length)
     {
       // out.println("remaining(" + length + ") " + remaining);
+      // the value may span more than two buffers if they are small, e.g. segments of a ByteString
       byte[] bytes = new byte[length];
-      _currentBuffer.get(bytes, 0, remaining);
-      if (advanceBufferIfCurrentBufferHasNoRemaining() == false)
+      if (read(bytes, 0, length) < length)
       {
         throw new BufferUnderflowException();
       }
-      _currentBuffer.get(bytes, remaining, length - remaining);
       buffer = ByteBuffer.wrap(bytes);
       buffer.order(_order);
     }
@@ -1243,9 +1501,32 @@ public class BufferChain
 
   private ByteBuffer allocateByteBuffer(int size)
   {
-    ByteBuffer byteBuffer = ByteBuffer.allocate(size > _bufferSize ? size : _bufferSize);
-    byteBuffer.order(_order);
+    int capacity = (size > _bufferSize ? size : _bufferSize);
+    ByteBuffer byteBuffer = takeSpareBuffer(capacity);
+    if (byteBuffer == null)
+    {
+      byteBuffer = ByteBuffer.allocate(capacity);
+      byteBuffer.order(_order);
+    }
     _bufferList.add(byteBuffer);
     return byteBuffer;
   }
+
+  private ByteBuffer takeSpareBuffer(int capacity)
+  {
+    if (_spareBuffers != null)
+    {
+      for (int i = _spareBuffers.size() - 1; i >= 0; i--)
+      {
+        ByteBuffer byteBuffer = _spareBuffers.get(i);
+        if (byteBuffer.capacity() >= capacity)
+        {
+          _spareBuffers.remove(i);
+          byteBuffer.clear();
+          return byteBuffer;
+        }
+      }
+    }
+    return null;
+  }
 }
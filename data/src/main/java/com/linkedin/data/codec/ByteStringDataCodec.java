@@ -0,0 +1,57 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.data.codec;
+
+
+import com.linkedin.data.ByteString;
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import java.io.IOException;
+
+/**
+ * Optional extension of {@link DataCodec} for codecs that can de-serialize
+ * the bytes of a {@link ByteString} in place, without first copying them into
+ * a byte array or reading them through an {@link java.io.InputStream}.
+ *
+ * Callers that are given an arbitrary {@link DataCodec} should check for this
+ * interface with {@code instanceof} and otherwise fall back to
+ * {@link DataCodec#readMap(java.io.InputStream)} or {@link DataCodec#readList(java.io.InputStream)}.
+ */
+public interface ByteStringDataCodec extends DataCodec
+{
+  /**
+   * Returns a {@link DataMap} de-serialized from the bytes of the given {@link ByteString}.
+   *
+   * Implementations should read the bytes in place instead of copying them.
+   *
+   * @param in the {@link ByteString} from which to read.
+   * @return a {@link DataMap} representation of the {@link ByteString}.
+   * @throws IOException if there is an error during de-serialization.
+   */
+  DataMap readMap(ByteString in) throws IOException;
+
+  /**
+   * Returns a {@link DataList} de-serialized from the bytes of the given {@link ByteString}.
+   *
+   * Implementations should read the bytes in place instead of copying them.
+   *
+   * @param in the {@link ByteString} from which to read.
+   * @return a {@link DataList} representation of the {@link ByteString}.
+   * @throws IOException if there is an error during de-serialization.
+   */
+  DataList readList(ByteString in) throws IOException;
+}
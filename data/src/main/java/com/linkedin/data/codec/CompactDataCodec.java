@@ -0,0 +1,638 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.data.codec;
+
+
+import com.linkedin.data.ByteString;
+import com.linkedin.data.Data;
+import com.linkedin.data.DataComplex;
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.schema.ArrayDataSchema;
+import com.linkedin.data.schema.DataSchema;
+import com.linkedin.data.schema.MapDataSchema;
+import com.linkedin.data.schema.RecordDataSchema;
+import com.linkedin.data.schema.UnionDataSchema;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary codec that encodes the fields of records and the members of unions
+ * by their position in the schema instead of by name.
+ *
+ * <p>
+ * The encoded bytes start with a header and the fingerprint of the {@link RecordDataSchema}
+ * used to encode the top level {@link DataMap}, or 0 if no schema was used. The key of each
+ * map entry is encoded as a variable length unsigned integer. If the map is a record or
+ * a union, a key {@code n} greater than 0 identifies the field or member at position
+ * {@code n - 1} in the schema. A key of 0 is followed by the key as a string, which is used
+ * for maps whose schema is not known, for map values, and for fields that are not in
+ * the schema.
+ *
+ * <p>
+ * Strings, including string keys, are encoded as a variable length unsigned integer
+ * holding the number of UTF-8 bytes plus one, followed by the UTF-8 bytes and a zero byte.
+ * Strings may therefore contain the character {@code '\u0000'}.
+ *
+ * <p>
+ * A {@link DataMap} encoded with a schema can only be decoded by a codec with a schema
+ * that has the same fingerprint. A {@link DataMap} encoded without a schema can be decoded
+ * by any {@link CompactDataCodec}, so an encoder that does not know which schema the decoder
+ * has should use {@link #getFingerprint()} to negotiate it, and encode without a schema
+ * when the fingerprints differ.
+ */
+public class CompactDataCodec implements ByteStringDataCodec
+{
+  private static final byte[] HEADER = { 0x23, 0x21, 0x43, 0x32 };  // #!C2
+
+  /**
+   * Fingerprint of data encoded without a schema.
+   */
+  public static final long NO_SCHEMA_FINGERPRINT = 0L;
+
+  private final RecordDataSchema _schema;
+  private final long _fingerprint;
+  private final int _bufferSize;
+
+  /**
+   * Construct a codec that encodes all keys as strings.
+   */
+  public CompactDataCodec()
+  {
+    this(null);
+  }
+
+  /**
+   * Construct a codec that encodes the top level {@link DataMap} using the provided schema.
+   *
+   * @param schema provides the schema of the top level {@link DataMap}, may be {@code null}.
+   */
+  public CompactDataCodec(RecordDataSchema schema)
+  {
+    this(schema, BufferChain.DEFAULT_BUFFER_SIZE);
+  }
+
+  public CompactDataCodec(RecordDataSchema schema, int bufferSize)
+  {
+    _schema = schema;
+    _fingerprint = (schema == null ? NO_SCHEMA_FINGERPRINT : fingerprint(schema));
+    _bufferSize = bufferSize;
+  }
+
+  public RecordDataSchema getSchema()
+  {
+    return _schema;
+  }
+
+  public long getFingerprint()
+  {
+    return _fingerprint;
+  }
+
+  /**
+   * Compute the fingerprint of a schema from its JSON representation.
+   *
+   * @param schema provides the schema.
+   * @return the fingerprint of the schema, never {@link #NO_SCHEMA_FINGERPRINT}.
+   */
+  public static long fingerprint(DataSchema schema)
+  {
+    MessageDigest digest;
+    try
+    {
+      digest = MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException(e);
+    }
+    byte[] hash = digest.digest(schema.toString().getBytes(Data.UTF_8_CHARSET));
+    long fingerprint = 0;
+    for (int i = 0; i < 8; i++)
+    {
+      fingerprint = (fingerprint << 8) | (hash[i] & 0xff);
+    }
+    return fingerprint == NO_SCHEMA_FINGERPRINT ? 1L : fingerprint;
+  }
+
+  protected byte[] complexToBytes(DataComplex complex) throws IOException
+  {
+    return serialize(complex).toBytes();
+  }
+
+  @Override
+  public byte[] mapToBytes(DataMap map) throws IOException
+  {
+    return complexToBytes(map);
+  }
+
+  @Override
+  public byte[] listToBytes(DataList list) throws IOException
+  {
+    return complexToBytes(list);
+  }
+
+  protected <T extends DataComplex> T bytesToComplex(byte[] input, Class<T> clazz) throws IOException
+  {
+    return parse(new BufferChain(ByteOrder.LITTLE_ENDIAN, input), clazz);
+  }
+
+  @Override
+  public DataMap bytesToMap(byte[] input) throws IOException
+  {
+    return bytesToComplex(input, DataMap.class);
+  }
+
+  @Override
+  public DataList bytesToList(byte[] input) throws IOException
+  {
+    return bytesToComplex(input, DataList.class);
+  }
+
+  protected void writeComplex(DataComplex complex, OutputStream out) throws IOException
+  {
+    serialize(complex).writeToOutputStream(out);
+  }
+
+  @Override
+  public void writeMap(DataMap map, OutputStream out) throws IOException
+  {
+    writeComplex(map, out);
+  }
+
+  @Override
+  public void writeList(DataList list, OutputStream out) throws IOException
+  {
+    writeComplex(list, out);
+  }
+
+  protected <T extends DataComplex> T readComplex(InputStream in, Class<T> clazz) throws IOException
+  {
+    BufferChain buffer = new BufferChain(ByteOrder.LITTLE_ENDIAN, _bufferSize);
+    buffer.readFromInputStream(in);
+    buffer.rewind();
+    return parse(buffer, clazz);
+  }
+
+  @Override
+  public DataMap readMap(InputStream in) throws IOException
+  {
+    return readComplex(in, DataMap.class);
+  }
+
+  @Override
+  public DataList readList(InputStream in) throws IOException
+  {
+    return readComplex(in, DataList.class);
+  }
+
+  @Override
+  public DataMap readMap(ByteString in) throws IOException
+  {
+    return parse(new BufferChain(ByteOrder.LITTLE_ENDIAN, in), DataMap.class);
+  }
+
+  @Override
+  public DataList readList(ByteString in) throws IOException
+  {
+    return parse(new BufferChain(ByteOrder.LITTLE_ENDIAN, in), DataList.class);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "(" + (_schema == null ? "" : _schema.getFullName()) + ")";
+  }
+
+  private CompactSerializer serialize(DataComplex complex) throws IOException
+  {
+    CompactSerializer serializer = new CompactSerializer(new BufferChain(ByteOrder.LITTLE_ENDIAN, _bufferSize));
+    serializer.serialize(complex);
+    return serializer;
+  }
+
+  private <T extends DataComplex> T parse(BufferChain buffer, Class<T> clazz) throws IOException
+  {
+    try
+    {
+      CompactParser parser = new CompactParser(buffer);
+      return clazz.cast(parser.read(clazz));
+    }
+    catch (RuntimeException e)
+    {
+      // BufferUnderflowException, IndexOutOfBoundsException or ClassCastException on malformed input
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Return the schema of a child value of a complex value.
+   *
+   * @param schema provides the schema of the complex value, may be {@code null}.
+   * @param map true if the complex value is a {@link DataMap}.
+   * @return the schema of the values of a map or of the items of a list,
+   *         or {@code null} if the schema is not known, or the child values are keyed by position.
+   */
+  private static DataSchema childSchema(DataSchema schema, boolean map)
+  {
+    if (schema != null)
+    {
+      if (map && schema.getType() == DataSchema.Type.MAP)
+      {
+        return ((MapDataSchema) schema).getValues();
+      }
+      else if (map == false && schema.getType() == DataSchema.Type.ARRAY)
+      {
+        return ((ArrayDataSchema) schema).getItems();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Return the number of bytes of the UTF-8 encoding of a string.
+   */
+  private static int utf8Length(String s)
+  {
+    int length = s.length();
+    int utf8Length = length;
+    for (int i = 0; i < length; i++)
+    {
+      char c = s.charAt(i);
+      if (c >= 0x800)
+      {
+        if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1)))
+        {
+          // 4 bytes for 2 chars
+          utf8Length += 2;
+          i++;
+        }
+        else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+        {
+          // a lone surrogate is replaced by the 1 byte '?' by the encoder
+        }
+        else
+        {
+          utf8Length += 2;
+        }
+      }
+      else if (c >= 0x80)
+      {
+        utf8Length += 1;
+      }
+    }
+    return utf8Length;
+  }
+
+  private static DataSchema dereference(DataSchema schema)
+  {
+    return schema == null ? null : schema.getDereferencedDataSchema();
+  }
+
+  final static byte COMPACT_NULL = 0;
+  final static byte COMPACT_FALSE = 1;
+  final static byte COMPACT_TRUE = 2;
+  final static byte COMPACT_INT = 3;
+  final static byte COMPACT_LONG = 4;
+  final static byte COMPACT_FLOAT = 5;
+  final static byte COMPACT_DOUBLE = 6;
+  final static byte COMPACT_STRING_EMPTY = 7;
+  final static byte COMPACT_STRING = 8;
+  final static byte COMPACT_BINARY = 9;
+  final static byte COMPACT_MAP = 10;
+  final static byte COMPACT_LIST = 11;
+
+  final static int COMPACT_STRING_KEY = 0;
+
+  private class CompactSerializer
+  {
+    private final BufferChain _buffer;
+
+    private CompactSerializer(BufferChain buffer)
+    {
+      _buffer = buffer;
+    }
+
+    private void serialize(DataComplex complex) throws IOException
+    {
+      _buffer.put(HEADER, 0, HEADER.length);
+      _buffer.putLong(complex instanceof DataMap ? _fingerprint : NO_SCHEMA_FINGERPRINT);
+      writeValue(complex, complex instanceof DataMap ? _schema : null);
+    }
+
+    private void writeValue(Object value, DataSchema schema) throws IOException
+    {
+      if (value instanceof String)
+      {
+        String s = (String) value;
+        if (s.isEmpty())
+        {
+          _buffer.put(COMPACT_STRING_EMPTY);
+        }
+        else
+        {
+          _buffer.put(COMPACT_STRING);
+          writeString(s);
+        }
+      }
+      else if (value instanceof Integer)
+      {
+        _buffer.put(COMPACT_INT);
+        _buffer.putVarInt((Integer) value);
+      }
+      else if (value instanceof DataMap)
+      {
+        writeMap((DataMap) value, dereference(schema));
+      }
+      else if (value instanceof DataList)
+      {
+        writeList((DataList) value, dereference(schema));
+      }
+      else if (value instanceof Long)
+      {
+        _buffer.put(COMPACT_LONG);
+        _buffer.putVarLong((Long) value);
+      }
+      else if (value instanceof Boolean)
+      {
+        _buffer.put((Boolean) value ? COMPACT_TRUE : COMPACT_FALSE);
+      }
+      else if (value instanceof Double)
+      {
+        _buffer.put(COMPACT_DOUBLE);
+        _buffer.putDouble((Double) value);
+      }
+      else if (value instanceof Float)
+      {
+        _buffer.put(COMPACT_FLOAT);
+        _buffer.putFloat((Float) value);
+      }
+      else if (value instanceof ByteString)
+      {
+        ByteString byteString = (ByteString) value;
+        _buffer.put(COMPACT_BINARY);
+        _buffer.putVarUnsignedInt(byteString.length());
+        _buffer.putByteString(byteString);
+      }
+      else if (value == Data.NULL)
+      {
+        _buffer.put(COMPACT_NULL);
+      }
+      else
+      {
+        throw new IOException("Illegal type encountered: " + (value == null ? null : value.getClass()));
+      }
+    }
+
+    private void writeMap(DataMap map, DataSchema schema) throws IOException
+    {
+      _buffer.put(COMPACT_MAP);
+      _buffer.putVarUnsignedInt(map.size());
+      DataSchema.Type type = (schema == null ? null : schema.getType());
+      for (Map.Entry<String, Object> entry : map.entrySet())
+      {
+        String key = entry.getKey();
+        DataSchema valueSchema = null;
+        int ordinal = -1;
+        if (type == DataSchema.Type.RECORD)
+        {
+          RecordDataSchema recordSchema = (RecordDataSchema) schema;
+          ordinal = recordSchema.index(key);
+          if (ordinal >= 0)
+          {
+            valueSchema = recordSchema.getFields().get(ordinal).getType();
+          }
+        }
+        else if (type == DataSchema.Type.UNION)
+        {
+          UnionDataSchema unionSchema = (UnionDataSchema) schema;
+          ordinal = unionSchema.index(key);
+          if (ordinal >= 0)
+          {
+            valueSchema = unionSchema.getTypes().get(ordinal);
+          }
+        }
+        else
+        {
+          valueSchema = childSchema(schema, true);
+        }
+
+        if (ordinal >= 0)
+        {
+          _buffer.putVarUnsignedInt(ordinal + 1);
+        }
+        else
+        {
+          _buffer.putVarUnsignedInt(COMPACT_STRING_KEY);
+          writeString(key);
+        }
+        writeValue(entry.getValue(), valueSchema);
+      }
+    }
+
+    private void writeString(String s) throws IOException
+    {
+      _buffer.putVarUnsignedInt(utf8Length(s) + 1);
+      _buffer.putUtf8CString(s);
+    }
+
+    private void writeList(DataList list, DataSchema schema) throws IOException
+    {
+      _buffer.put(COMPACT_LIST);
+      _buffer.putVarUnsignedInt(list.size());
+      DataSchema itemSchema = childSchema(schema, false);
+      for (Object item : list)
+      {
+        writeValue(item, itemSchema);
+      }
+    }
+
+    private byte[] toBytes()
+    {
+      return _buffer.toBytes();
+    }
+
+    private void writeToOutputStream(OutputStream out) throws IOException
+    {
+      _buffer.writeToOutputStream(out);
+    }
+  }
+
+  private class CompactParser
+  {
+    private final BufferChain _buffer;
+
+    private CompactParser(BufferChain buffer)
+    {
+      _buffer = buffer;
+    }
+
+    private Object read(Class<? extends DataComplex> clazz) throws IOException
+    {
+      byte header[] = new byte[HEADER.length];
+      _buffer.get(header, 0, header.length);
+      if (Arrays.equals(header, HEADER) == false)
+      {
+        throw new IOException("Expecting header " + Arrays.toString(HEADER) + " but got " + Arrays.toString(header));
+      }
+
+      long fingerprint = _buffer.getLong();
+      DataSchema schema;
+      if (fingerprint == NO_SCHEMA_FINGERPRINT)
+      {
+        schema = null;
+      }
+      else if (fingerprint == _fingerprint && clazz == DataMap.class)
+      {
+        schema = _schema;
+      }
+      else
+      {
+        throw new IOException("Data encoded with schema fingerprint " + Long.toHexString(fingerprint) +
+                              " cannot be decoded by " + CompactDataCodec.this +
+                              ", the encoder should only use a schema whose fingerprint was negotiated");
+      }
+      return parseValue(schema);
+    }
+
+    private Object parseValue(DataSchema schema) throws IOException
+    {
+      byte type = _buffer.get();
+      switch (type)
+      {
+        case COMPACT_NULL:
+          return Data.NULL;
+        case COMPACT_FALSE:
+          return Boolean.FALSE;
+        case COMPACT_TRUE:
+          return Boolean.TRUE;
+        case COMPACT_INT:
+          return _buffer.getVarInt();
+        case COMPACT_LONG:
+          return _buffer.getVarLong();
+        case COMPACT_FLOAT:
+          return _buffer.getFloat();
+        case COMPACT_DOUBLE:
+          return _buffer.getDouble();
+        case COMPACT_STRING_EMPTY:
+          return "";
+        case COMPACT_STRING:
+          return readString();
+        case COMPACT_BINARY:
+          int length = readSize(1);
+          return ByteString.read(_buffer.asInputStream(), length);
+        case COMPACT_MAP:
+          return parseMap(dereference(schema));
+        case COMPACT_LIST:
+          return parseList(dereference(schema));
+        default:
+          throw new IOException("Unknown type " + type);
+      }
+    }
+
+    private DataMap parseMap(DataSchema schema) throws IOException
+    {
+      // each entry has at least a key index and a type
+      int size = readSize(2);
+      DataMap map = new DataMap((int) ((size * 1.5) + 0.5));
+      DataSchema.Type type = (schema == null ? null : schema.getType());
+      for (int i = 0; i < size; i++)
+      {
+        int keyIndex = _buffer.getVarUnsignedInt();
+        String key;
+        DataSchema valueSchema;
+        if (keyIndex == COMPACT_STRING_KEY)
+        {
+          key = readString();
+          valueSchema = childSchema(schema, true);
+        }
+        else if (type == DataSchema.Type.RECORD)
+        {
+          RecordDataSchema.Field field = field(((RecordDataSchema) schema).getFields(), keyIndex - 1);
+          key = field.getName();
+          valueSchema = field.getType();
+        }
+        else if (type == DataSchema.Type.UNION)
+        {
+          DataSchema memberSchema = field(((UnionDataSchema) schema).getTypes(), keyIndex - 1);
+          key = memberSchema.getUnionMemberKey();
+          valueSchema = memberSchema;
+        }
+        else
+        {
+          throw new IOException("Received key index " + keyIndex + " for a map without a record or union schema");
+        }
+        map.put(key, parseValue(valueSchema));
+      }
+      return map;
+    }
+
+    private String readString() throws IOException
+    {
+      int length = readSize(1);
+      if (length == 0)
+      {
+        throw new IOException("String length must be at least 1");
+      }
+      return _buffer.getUtf8CString(length);
+    }
+
+    /**
+     * Read a size and check that the remaining input can hold that many elements.
+     *
+     * @param elementLength provides the minimum number of bytes of an element.
+     * @return the size.
+     */
+    private int readSize(int elementLength) throws IOException
+    {
+      int size = _buffer.getVarUnsignedInt();
+      if (size < 0 || size > _buffer.remaining() / elementLength)
+      {
+        throw new IOException("Size " + (size & 0xffffffffL) + " exceeds the remaining input");
+      }
+      return size;
+    }
+
+    private <E> E field(List<E> fields, int ordinal) throws IOException
+    {
+      if (ordinal >= fields.size())
+      {
+        throw new IOException("Received key index " + (ordinal + 1) + " but the schema has " + fields.size() + " entries");
+      }
+      return fields.get(ordinal);
+    }
+
+    private DataList parseList(DataSchema schema) throws IOException
+    {
+      int size = readSize(1);
+      DataList list = new DataList(size);
+      DataSchema itemSchema = childSchema(schema, false);
+      for (int i = 0; i < size; i++)
+      {
+        list.add(parseValue(itemSchema));
+      }
+      return list;
+    }
+  }
+}
@@ -28,6 +28,8 @@ import java.io.OutputStream;
  * {@link DataMap}'s or {@link DataList}'s to and from binary data.
  *
  * The input binary data may be a byte array or an {@link InputStream}.
+ * Codecs that can also read a {@link com.linkedin.data.ByteString} in place implement
+ * {@link ByteStringDataCodec}.
  * The output binary data may be a byte array or an {@link OutputStream}.
  *
  * @author slim
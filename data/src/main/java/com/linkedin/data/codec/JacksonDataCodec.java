@@ -51,7 +51,7 @@ import org.codehaus.jackson.PrettyPrinter;
  *
  * @author slim
  */
-public class JacksonDataCodec implements TextDataCodec
+public class JacksonDataCodec implements TextDataCodec, ByteStringDataCodec
 {
   public JacksonDataCodec()
   {
@@ -70,6 +70,27 @@ public class JacksonDataCodec implements TextDataCodec
     _allowComments = allowComments;
   }
 
+  /**
+   * Set whether the codec should reuse its output buffer across calls made by the same thread.
+   *
+   * Jackson already recycles its own internal buffers, so this only avoids
+   * growing a new output buffer for each serialized object. The bytes returned
+   * by {@link #mapToBytes(DataMap)} and {@link #listToBytes(DataList)} are still a
+   * copy of the buffer, which callers may wrap without copying them again.
+   * Only buffers of up to 64KB are kept.
+   *
+   * @param recycleBuffers true to reuse the output buffer.
+   */
+  public void setRecycleBuffers(boolean recycleBuffers)
+  {
+    _recycleBuffers = recycleBuffers;
+  }
+
+  public boolean getRecycleBuffers()
+  {
+    return _recycleBuffers;
+  }
+
   public PrettyPrinter getPrettyPrinter()
   {
     return _prettyPrinter;
@@ -112,9 +133,28 @@ public class JacksonDataCodec implements TextDataCodec
 
   protected byte[] objectToBytes(Object object) throws IOException
   {
-    ByteArrayOutputStream out = new ByteArrayOutputStream(_defaultBufferSize);
+    ByteArrayOutputStream out = null;
+    if (_recycleBuffers)
+    {
+      // the buffer is removed while in use, so that nested calls do not share it
+      out = _recycledOutput.get();
+      _recycledOutput.set(null);
+    }
+    if (out == null)
+    {
+      out = new ByteArrayOutputStream(_defaultBufferSize);
+    }
+    else
+    {
+      out.reset();
+    }
     writeObject(object, createJsonGenerator(out));
-    return out.toByteArray();
+    byte[] bytes = out.toByteArray();
+    if (_recycleBuffers && bytes.length <= MAX_RECYCLED_SIZE)
+    {
+      _recycledOutput.set(out);
+    }
+    return bytes;
   }
 
   protected String objectToString(Object object) throws IOException
@@ -233,6 +273,18 @@ public class JacksonDataCodec implements TextDataCodec
     return parser.parse(_jsonFactory.createJsonParser(in), DataList.class);
   }
 
+  @Override
+  public DataMap readMap(ByteString in) throws IOException
+  {
+    return readMap(in.asInputStream());
+  }
+
+  @Override
+  public DataList readList(ByteString in) throws IOException
+  {
+    return readList(in.asInputStream());
+  }
+
   @Deprecated
   public List<Object> parse(InputStream in, StringBuilder mesg) throws IOException
   {
@@ -761,7 +813,10 @@ public class JacksonDataCodec implements TextDataCodec
           _nameStack.addLast(index);
           index++;
         }
-        parse(list, null, null, token);
+        if (_locationMap != null || parseNumber(list, token) == false)
+        {
+          parse(list, null, null, token);
+        }
         if (_debug)
         {
           _nameStack.removeLast();
@@ -769,6 +824,41 @@ public class JacksonDataCodec implements TextDataCodec
       }
     }
 
+    /**
+     * Append an int, long or double value to the list without boxing it.
+     *
+     * @return true if the token is such a value and has been appended, else false.
+     */
+    private boolean parseNumber(DataList list, JsonToken token) throws JsonParseException, IOException
+    {
+      if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT)
+      {
+        return false;
+      }
+      switch (_parser.getNumberType())
+      {
+        case INT:
+          list.addInt(_parser.getIntValue());
+          return true;
+        case LONG:
+          long longValue = _parser.getLongValue();
+          if (JACKSON_230_WORKAROUND && MIN_INT <= longValue && longValue <= MAX_INT)
+          {
+            list.addInt((int) longValue);
+          }
+          else
+          {
+            list.addLong(longValue);
+          }
+          return true;
+        case DOUBLE:
+          list.addDouble(_parser.getDoubleValue());
+          return true;
+        default:
+          return false;
+      }
+    }
+
     private void error(JsonToken token, JsonParser.NumberType type) throws JsonParseException, IOException
     {
       if (_errorBuilder == null)
@@ -796,4 +886,11 @@ public class JacksonDataCodec implements TextDataCodec
   protected JsonFactory _jsonFactory;
   protected int _defaultBufferSize = 4096;
   protected JsonEncoding _jsonEncoding = JsonEncoding.UTF8;
+  protected boolean _recycleBuffers = false;
+
+  // the shared rest.li codecs recycle on every thread that uses them, so only keep the output
+  // buffer of typical objects for reuse
+  private static final int MAX_RECYCLED_SIZE = 64 * 1024;
+
+  private final ThreadLocal<ByteArrayOutputStream> _recycledOutput = new ThreadLocal<ByteArrayOutputStream>();
 }
@@ -58,12 +58,19 @@ import java.util.Map;
  *
  * @author slim
  */
-public class PsonDataCodec implements DataCodec
+public class PsonDataCodec implements ByteStringDataCodec
 {
   private static final byte[] HEADER = { 0x23, 0x21, 0x50, 0x53, 0x4f, 0x4e, 0x31, 0x0a };  // #!PSON1\n
 
+  // the shared rest.li codecs recycle on every thread that uses them, so only keep the state
+  // of typical messages for reuse
+  private static final int MAX_RECYCLED_CAPACITY = 64 * 1024;
+  private static final int MAX_RECYCLED_KEYS = 1024;
+
   private boolean _testMode;
   private Options _options = new Options();
+  private final ThreadLocal<PsonSerializer> _recycledSerializer = new ThreadLocal<PsonSerializer>();
+  private final ThreadLocal<PsonParser> _recycledParser = new ThreadLocal<PsonParser>();
 
   public static class Options
   {
@@ -100,13 +107,32 @@ public class PsonDataCodec implements DataCodec
       return _bufferSize;
     }
 
+    /**
+     * Set whether the codec should reuse its serializer and parser state, including
+     * their buffers and key tables, across calls made by the same thread.
+     *
+     * @param value true to reuse the state.
+     * @return {@code this}.
+     */
+    public Options setRecycleBuffers(boolean value)
+    {
+      _recycleBuffers = value;
+      return this;
+    }
+
+    public boolean getRecycleBuffers()
+    {
+      return _recycleBuffers;
+    }
+
     @Override
     public String toString()
     {
       return
         "encodeCollectionCount=" + _encodeCollectionCount +
         ", encodeStringLength=" + _encodeStringLength +
-        (_bufferSize != null ? ", bufferSize=" + _bufferSize : "");
+        (_bufferSize != null ? ", bufferSize=" + _bufferSize : "") +
+        (_recycleBuffers ? ", recycleBuffers=true" : "");
     }
 
     @Override
@@ -122,6 +148,7 @@ public class PsonDataCodec implements DataCodec
       return
         (_encodeCollectionCount == other._encodeCollectionCount) &&
         (_encodeStringLength == other._encodeStringLength) &&
+        (_recycleBuffers == other._recycleBuffers) &&
         (_bufferSize == null ? _bufferSize == other._bufferSize : _bufferSize.equals(other._bufferSize));
     }
 
@@ -130,13 +157,15 @@ public class PsonDataCodec implements DataCodec
     {
       return
         ((_encodeCollectionCount ? 3131 : 0) +
-         (_encodeStringLength ? 31310000 : 0)) ^
+         (_encodeStringLength ? 31310000 : 0) +
+         (_recycleBuffers ? 313100 : 0)) ^
         (_bufferSize != null ? _bufferSize.hashCode() : 0);
     }
 
     private boolean _encodeStringLength = true;
     private boolean _encodeCollectionCount = false;
     private Integer _bufferSize = null;
+    private boolean _recycleBuffers = false;
   }
 
   public PsonDataCodec()
@@ -161,16 +190,68 @@ public class PsonDataCodec implements DataCodec
 
   private PsonSerializer serialize(DataComplex map) throws IOException
   {
-    PsonSerializer serializer = new PsonSerializer();
+    PsonSerializer serializer = acquireSerializer();
     serializer.serialize(map);
     return serializer;
   }
 
+  private PsonSerializer acquireSerializer()
+  {
+    if (_options.getRecycleBuffers())
+    {
+      // the serializer is removed while in use, so that nested calls do not share it
+      PsonSerializer serializer = _recycledSerializer.get();
+      if (serializer != null && serializer.hasOptions(_options))
+      {
+        _recycledSerializer.set(null);
+        serializer.reset();
+        return serializer;
+      }
+    }
+    return new PsonSerializer();
+  }
+
+  private void releaseSerializer(PsonSerializer serializer)
+  {
+    if (_options.getRecycleBuffers() && serializer.capacity() <= MAX_RECYCLED_CAPACITY &&
+        serializer.keyCount() <= MAX_RECYCLED_KEYS)
+    {
+      _recycledSerializer.set(serializer);
+    }
+  }
+
+  private PsonParser acquireParser(BufferChain buffer)
+  {
+    if (_options.getRecycleBuffers())
+    {
+      PsonParser parser = _recycledParser.get();
+      if (parser != null)
+      {
+        _recycledParser.set(null);
+        parser.reset(buffer);
+        return parser;
+      }
+    }
+    return new PsonParser(buffer);
+  }
+
+  private void releaseParser(PsonParser parser)
+  {
+    if (_options.getRecycleBuffers() && parser.keyCapacity() <= MAX_RECYCLED_KEYS)
+    {
+      // do not retain the input
+      parser.reset(null);
+      _recycledParser.set(parser);
+    }
+  }
+
   protected byte[] complexToBytes(DataComplex complex) throws IOException
   {
     try
     {
-      byte[] bytes = serialize(complex).toBytes();
+      PsonSerializer serializer = serialize(complex);
+      byte[] bytes = serializer.toBytes();
+      releaseSerializer(serializer);
       return bytes;
     }
     catch (RuntimeException exc)
@@ -189,8 +270,10 @@ public class PsonDataCodec implements DataCodec
         (_testMode && _options.getBufferSize() != null) ?
           new BufferChain(ByteOrder.LITTLE_ENDIAN, input, _options.getBufferSize()) :
           new BufferChain(ByteOrder.LITTLE_ENDIAN, input);
-      PsonParser psonParser = new PsonParser(buffer);
-      return clazz.cast(psonParser.read());
+      PsonParser psonParser = acquireParser(buffer);
+      T result = clazz.cast(psonParser.read());
+      releaseParser(psonParser);
+      return result;
     }
     catch (RuntimeException exc)
     {
@@ -228,7 +311,9 @@ public class PsonDataCodec implements DataCodec
   {
     try
     {
-      serialize(complex).writeToOutputStream(out);
+      PsonSerializer serializer = serialize(complex);
+      serializer.writeToOutputStream(out);
+      releaseSerializer(serializer);
     }
     catch (RuntimeException exc)
     {
@@ -254,14 +339,25 @@ public class PsonDataCodec implements DataCodec
   {
     try
     {
-      BufferChain buffer =
-        (_testMode && _options.getBufferSize() != null) ?
-          new BufferChain(ByteOrder.LITTLE_ENDIAN, _options.getBufferSize()) :
-          new BufferChain(ByteOrder.LITTLE_ENDIAN);
+      PsonParser psonParser = acquireParser(null);
+      BufferChain buffer = psonParser.inputBuffer();
+      if (buffer == null)
+      {
+        buffer =
+          (_testMode && _options.getBufferSize() != null) ?
+            new BufferChain(ByteOrder.LITTLE_ENDIAN, _options.getBufferSize()) :
+            new BufferChain(ByteOrder.LITTLE_ENDIAN);
+      }
       buffer.readFromInputStream(in);
       buffer.rewind();
-      PsonParser psonParser = new PsonParser(buffer);
-      return clazz.cast(psonParser.read());
+      psonParser.reset(buffer);
+      T result = clazz.cast(psonParser.read());
+      if (buffer.capacity() <= MAX_RECYCLED_CAPACITY)
+      {
+        psonParser.setInputBuffer(buffer);
+      }
+      releaseParser(psonParser);
+      return result;
     }
     catch (RuntimeException exc)
     {
@@ -283,6 +379,36 @@ public class PsonDataCodec implements DataCodec
     return readComplex(in, DataList.class);
   }
 
+  protected <T extends DataComplex> T byteStringToComplex(ByteString input, Class<T> clazz) throws IOException
+  {
+    try
+    {
+      BufferChain buffer = new BufferChain(ByteOrder.LITTLE_ENDIAN, input);
+      PsonParser psonParser = acquireParser(buffer);
+      T result = clazz.cast(psonParser.read());
+      releaseParser(psonParser);
+      return result;
+    }
+    catch (RuntimeException exc)
+    {
+      // do not want RuntimeException from BufferChain propagating
+      // as RuntimeException to client code.
+      throw new IOException("Unexpected RuntimeException", exc);
+    }
+  }
+
+  @Override
+  public DataMap readMap(ByteString in) throws IOException
+  {
+    return byteStringToComplex(in, DataMap.class);
+  }
+
+  @Override
+  public DataList readList(ByteString in) throws IOException
+  {
+    return byteStringToComplex(in, DataList.class);
+  }
+
   @Override
   public String toString()
   {
@@ -322,6 +448,7 @@ public class PsonDataCodec implements DataCodec
     private int _keyIndex = 1;
     private final boolean _encodeStringLength = _options.getEncodeStringLength();
     private final boolean _encodeCollectionCount = _options.getEncodeCollectionCount();
+    private final Integer _bufferSize = _options.getBufferSize();
 
     protected PsonSerializer()
     {
@@ -514,6 +641,31 @@ public class PsonDataCodec implements DataCodec
       }
     }
 
+    private boolean hasOptions(Options options)
+    {
+      return
+        _encodeStringLength == options.getEncodeStringLength() &&
+        _encodeCollectionCount == options.getEncodeCollectionCount() &&
+        (_bufferSize == null ? options.getBufferSize() == null : _bufferSize.equals(options.getBufferSize()));
+    }
+
+    private void reset()
+    {
+      _buffer.clear();
+      _keyMap.clear();
+      _keyIndex = 1;
+    }
+
+    private int capacity()
+    {
+      return _buffer.capacity();
+    }
+
+    private int keyCount()
+    {
+      return _keyIndex - 1;
+    }
+
     private void serialize(DataComplex map) throws IOException
     {
       _buffer.put(HEADER, 0, HEADER.length);
@@ -578,12 +730,28 @@ public class PsonDataCodec implements DataCodec
       int count = 0;
       for (count = 0; ; count++)
       {
-        Object item = parseValue();
-        if (item == null)
+        byte psonType = _buffer.get();
+        if (psonType == PSON_INT)
         {
-          break;
+          list.addInt(_buffer.getInt());
+        }
+        else if (psonType == PSON_LONG)
+        {
+          list.addLong(_buffer.getLong());
+        }
+        else if (psonType == PSON_DOUBLE)
+        {
+          list.addDouble(_buffer.getDouble());
+        }
+        else
+        {
+          Object item = parseValue(psonType);
+          if (item == null)
+          {
+            break;
+          }
+          list.add(item);
         }
-        list.add(item);
       }
 
       if (size >= 0 && count != size)
@@ -619,14 +787,17 @@ public class PsonDataCodec implements DataCodec
           {
             resizeKeyArray();
           }
-          assert(_keyArray[keyIndex] == null);
-          key = _buffer.getUtf8CString();
+          // a recycled parser has the keys of the previous message, which are likely the same
+          key = _buffer.getUtf8CString(_keyArray[keyIndex]);
           _keyArray[keyIndex] = key;
         }
         else
         {
+          if (keyIndex >= _expectedKeyIndex)
+          {
+            throw new IOException("Received key index " + keyIndex + " that has not been defined");
+          }
           key = _keyArray[keyIndex];
-          assert(key != null);
         }
         Object item = parseValue();
         if (item == null)
@@ -653,8 +824,11 @@ public class PsonDataCodec implements DataCodec
 
     Object parseValue() throws IOException
     {
-      byte psonType = _buffer.get();
+      return parseValue(_buffer.get());
+    }
 
+    private Object parseValue(byte psonType) throws IOException
+    {
       Object o = null;
       boolean valid = true;
       switch (psonType)
@@ -703,7 +877,7 @@ public class PsonDataCodec implements DataCodec
           break;
         case PSON_BOOLEAN:
           byte b = _buffer.get();
-          o = new Boolean(b != ZERO_BYTE);
+          o = Boolean.valueOf(b != ZERO_BYTE);
           break;
         case PSON_BINARY:
           int length = _buffer.getInt();
@@ -735,7 +909,31 @@ public class PsonDataCodec implements DataCodec
       return _buffer.getUtf8CString(length);
     }
 
-    private final BufferChain _buffer;
+    private void reset(BufferChain buffer)
+    {
+      _buffer = buffer;
+      _expectedKeyIndex = 1;
+    }
+
+    private BufferChain inputBuffer()
+    {
+      BufferChain inputBuffer = _inputBuffer;
+      _inputBuffer = null;
+      return inputBuffer == null ? null : inputBuffer.clear();
+    }
+
+    private void setInputBuffer(BufferChain inputBuffer)
+    {
+      _inputBuffer = inputBuffer;
+    }
+
+    private int keyCapacity()
+    {
+      return _keyArray.length;
+    }
+
+    private BufferChain _buffer;
+    private BufferChain _inputBuffer;
     private String _keyArray[] = new String[100];
     private int _expectedKeyIndex = 1;
   }
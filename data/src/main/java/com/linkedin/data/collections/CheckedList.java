@@ -35,6 +35,13 @@ import java.util.List;
  * with this {@link CheckedList}.
  * <p>
  *
+ * Sub-classes may add {@link Integer}, {@link Long} and {@link Double} elements
+ * without boxing, see {@link #addIntWithoutChecking(int)}. If such an element
+ * is the first element of the list, the underlying list stores the elements in
+ * an array of the primitive type until an element of another class is stored
+ * in the list.
+ * <p>
+ *
  * A {@link CheckedList} may be marked read-only to disable mutations,
  * and to avoid unintentional changes. It may also be invalidated to
  * release its reference and decrease the reference count on the underlying
@@ -120,6 +127,7 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   {
     check(e);
     checkMutability();
+    prepareToStore(e);
     return _list.add(e);
   }
 
@@ -128,6 +136,7 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   {
     check(element);
     checkMutability();
+    prepareToStore(element);
     _list.add(index, element);
   }
 
@@ -136,6 +145,7 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   {
     checkAll(c);
     checkMutability();
+    prepareToStoreAll(c);
     return _list.addAll(c);
   }
 
@@ -144,6 +154,7 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   {
     checkAll(c);
     checkMutability();
+    prepareToStoreAll(c);
     return _list.addAll(index, c);
   }
 
@@ -159,7 +170,14 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   public CheckedList<E> clone() throws CloneNotSupportedException
   {
     CheckedList<E> o = (CheckedList<E>) super.clone();
-    o._list = (InternalList<E>) _list.clone();
+    if (_list instanceof PrimitiveList)
+    {
+      o._list = ((PrimitiveList<E>) _list).clone();
+    }
+    else
+    {
+      o._list = (InternalList<E>) ((InternalList<E>) _list).clone();
+    }
     o._readOnly = false;
     return o;
   }
@@ -244,7 +262,14 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   public void removeRange(int fromIndex, int toIndex)
   {
     checkMutability();
-    _list.removeRange(fromIndex, toIndex);
+    if (_list instanceof PrimitiveList)
+    {
+      ((PrimitiveList<E>) _list).removeRange(fromIndex, toIndex);
+    }
+    else
+    {
+      ((InternalList<E>) _list).removeRange(fromIndex, toIndex);
+    }
   }
 
   @Override
@@ -252,6 +277,7 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   {
     check(element);
     checkMutability();
+    prepareToStore(element);
     return _list.set(index, element);
   }
 
@@ -309,6 +335,7 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   protected boolean addWithoutChecking(E element)
   {
     checkMutability();
+    prepareToStore(element);
     return _list.add(element);
   }
 
@@ -324,9 +351,142 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
   protected E setWithoutChecking(int index, E element)
   {
     checkMutability();
+    prepareToStore(element);
     return _list.set(index, element);
   }
 
+  /**
+   * Add an {@link Integer} without boxing it and without invoking the checker, use with caution.
+   *
+   * @param value provides the value of the element to be added to the list.
+   * @return true.
+   * @throws UnsupportedOperationException if the list is read-only.
+   */
+  @SuppressWarnings("unchecked")
+  protected boolean addIntWithoutChecking(int value)
+  {
+    checkMutability();
+    if (_list instanceof PrimitiveList.IntList == false && _list.isEmpty())
+    {
+      _list = new PrimitiveList.IntList<E>();
+    }
+    if (_list instanceof PrimitiveList.IntList)
+    {
+      ((PrimitiveList.IntList<E>) _list).addInt(value);
+      return true;
+    }
+    return addWithoutChecking((E) Integer.valueOf(value));
+  }
+
+  /**
+   * Add a {@link Long} without boxing it and without invoking the checker, use with caution.
+   *
+   * @param value provides the value of the element to be added to the list.
+   * @return true.
+   * @throws UnsupportedOperationException if the list is read-only.
+   */
+  @SuppressWarnings("unchecked")
+  protected boolean addLongWithoutChecking(long value)
+  {
+    checkMutability();
+    if (_list instanceof PrimitiveList.LongList == false && _list.isEmpty())
+    {
+      _list = new PrimitiveList.LongList<E>();
+    }
+    if (_list instanceof PrimitiveList.LongList)
+    {
+      ((PrimitiveList.LongList<E>) _list).addLong(value);
+      return true;
+    }
+    return addWithoutChecking((E) Long.valueOf(value));
+  }
+
+  /**
+   * Add a {@link Double} without boxing it and without invoking the checker, use with caution.
+   *
+   * @param value provides the value of the element to be added to the list.
+   * @return true.
+   * @throws UnsupportedOperationException if the list is read-only.
+   */
+  @SuppressWarnings("unchecked")
+  protected boolean addDoubleWithoutChecking(double value)
+  {
+    checkMutability();
+    if (_list instanceof PrimitiveList.DoubleList == false && _list.isEmpty())
+    {
+      _list = new PrimitiveList.DoubleList<E>();
+    }
+    if (_list instanceof PrimitiveList.DoubleList)
+    {
+      ((PrimitiveList.DoubleList<E>) _list).addDouble(value);
+      return true;
+    }
+    return addWithoutChecking((E) Double.valueOf(value));
+  }
+
+  /**
+   * Return the element at the specified position as an int.
+   *
+   * @param index of the element to return.
+   * @return the value of the element.
+   * @throws ClassCastException if the element is not an {@link Integer}.
+   */
+  @SuppressWarnings("unchecked")
+  protected int getInt(int index)
+  {
+    if (_list instanceof PrimitiveList.IntList)
+    {
+      return ((PrimitiveList.IntList<E>) _list).getInt(index);
+    }
+    return (Integer) _list.get(index);
+  }
+
+  /**
+   * Return the element at the specified position as a long.
+   *
+   * @param index of the element to return.
+   * @return the value of the element.
+   * @throws ClassCastException if the element is not a {@link Long}.
+   */
+  @SuppressWarnings("unchecked")
+  protected long getLong(int index)
+  {
+    if (_list instanceof PrimitiveList.LongList)
+    {
+      return ((PrimitiveList.LongList<E>) _list).getLong(index);
+    }
+    return (Long) _list.get(index);
+  }
+
+  /**
+   * Return the element at the specified position as a double.
+   *
+   * @param index of the element to return.
+   * @return the value of the element.
+   * @throws ClassCastException if the element is not a {@link Double}.
+   */
+  @SuppressWarnings("unchecked")
+  protected double getDouble(int index)
+  {
+    if (_list instanceof PrimitiveList.DoubleList)
+    {
+      return ((PrimitiveList.DoubleList<E>) _list).getDouble(index);
+    }
+    return (Double) _list.get(index);
+  }
+
+  /**
+   * Return the class of all elements if the elements are stored in an array of primitives.
+   *
+   * @return {@link Integer}, {@link Long} or {@link Double} if the underlying list stores
+   *         the elements in an array of the corresponding primitive type, else null.
+   */
+  @SuppressWarnings("unchecked")
+  protected Class<?> getPrimitiveClass()
+  {
+    return (_list instanceof PrimitiveList) ? ((PrimitiveList<E>) _list).elementClass() : null;
+  }
+
   private final void checkMutability()
   {
     if (_readOnly)
@@ -335,6 +495,35 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
     }
   }
 
+  /**
+   * Replace a primitive underlying list by an {@link ArrayList} if it cannot store the element.
+   */
+  @SuppressWarnings("unchecked")
+  private final void prepareToStore(E e)
+  {
+    if (_list instanceof PrimitiveList && ((PrimitiveList<E>) _list).accepts(e) == false)
+    {
+      _list = new InternalList<E>(_list);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private final void prepareToStoreAll(Collection<? extends E> c)
+  {
+    if (_list instanceof PrimitiveList)
+    {
+      PrimitiveList<E> list = (PrimitiveList<E>) _list;
+      for (E e : c)
+      {
+        if (list.accepts(e) == false)
+        {
+          _list = new InternalList<E>(_list);
+          break;
+        }
+      }
+    }
+  }
+
   private final void check(E e)
   {
     if (_checker != null)
@@ -387,5 +576,5 @@ public class CheckedList<E> extends AbstractList<E> implements CommonList<E>, Cl
 
   protected ListChecker<E> _checker;
   private boolean _readOnly = false;
-  private InternalList<E> _list;
+  private List<E> _list;
 }
\ No newline at end of file
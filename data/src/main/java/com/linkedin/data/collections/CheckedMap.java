@@ -32,7 +32,9 @@ import java.util.Set;
  *
  * The underlying map implementation is {@link HashMap}. It delegates
  * map operations to the underlying {@link HashMap} associated
- * with this {@link CheckedMap}.
+ * with this {@link CheckedMap}. {@link #compact()} replaces the
+ * underlying {@link HashMap} with an open addressing map that does
+ * not allocate an object per entry.
  * <P>
  *
  * A {@link CheckedMap} may be marked read-only to disable mutations,
@@ -164,11 +166,36 @@ public class CheckedMap<K,V> implements CommonMap<K,V>, Cloneable
   public CheckedMap<K,V> clone() throws CloneNotSupportedException
   {
     CheckedMap<K,V> o = (CheckedMap<K,V>) super.clone();
-    o._map = (HashMap<K,V>) _map.clone();
+    if (_map instanceof CompactHashMap)
+    {
+      o._map = ((CompactHashMap<K,V>) _map).clone();
+    }
+    else
+    {
+      o._map = (HashMap<K,V>) ((HashMap<K,V>) _map).clone();
+    }
     o._readOnly = false;
     return o;
   }
 
+  /**
+   * Replace the underlying map with a compact open addressing map sized for
+   * the current entries.
+   *
+   * The compact map stores keys and values in a single array instead of
+   * allocating an entry object per key, which substantially reduces the memory
+   * used by long-lived maps. Entries may be added and removed afterwards,
+   * and the {@link MapChecker} and read-only state are unchanged. Calling this
+   * method again trims the compact map to the current entries.
+   *
+   * The iteration order may change. This method may be called on a read-only map,
+   * but must not be called while the map is being accessed by other threads.
+   */
+  public void compact()
+  {
+    _map = new CompactHashMap<K,V>(_map);
+  }
+
   @Override
   public boolean containsKey(Object key)
   {
@@ -347,5 +374,5 @@ public class CheckedMap<K,V> implements CommonMap<K,V>, Cloneable
 
   private boolean _readOnly = false;
   protected MapChecker<K,V> _checker;
-  private HashMap<K,V> _map;
+  private Map<K,V> _map;
 }
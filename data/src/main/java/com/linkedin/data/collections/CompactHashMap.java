@@ -0,0 +1,470 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.data.collections;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Open addressing hash map.
+ * <p>
+ *
+ * Keys and values are stored next to each other in a single array and collisions
+ * are resolved by linear probing, so there is no per-entry object. Removal shifts
+ * back the entries following the removed entry instead of leaving tombstones.
+ * The load factor is at most 3/4.
+ * <p>
+ *
+ * The {@link #entrySet}, {@link #keySet} and {@link #values} views and their
+ * iterators do not support removal. Replacing the value of an existing key
+ * while iterating is not a structural modification.
+ *
+ * @see CheckedMap#compact()
+ */
+final class CompactHashMap<K,V> extends AbstractMap<K,V> implements Cloneable
+{
+  /**
+   * Construct an empty map that can hold the specified number of entries without resizing.
+   *
+   * @param expectedSize provides the expected number of entries.
+   */
+  CompactHashMap(int expectedSize)
+  {
+    _table = new Object[2 * capacityFor(expectedSize)];
+  }
+
+  /**
+   * Construct a map with the entries provided by the specified map.
+   *
+   * @param map provides the initial entries of the new map.
+   */
+  CompactHashMap(Map<? extends K, ? extends V> map)
+  {
+    this(map.size());
+    for (Map.Entry<? extends K, ? extends V> e : map.entrySet())
+    {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public int size()
+  {
+    return _size;
+  }
+
+  @Override
+  public boolean isEmpty()
+  {
+    return _size == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key)
+  {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public boolean containsValue(Object value)
+  {
+    Object[] table = _table;
+    for (int i = 0; i < table.length; i += 2)
+    {
+      if (table[i] != null && eq(value, table[i + 1]))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key)
+  {
+    int index = indexOf(key);
+    return index < 0 ? null : (V) _table[index + 1];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V put(K key, V value)
+  {
+    Object k = maskNull(key);
+    Object[] table = _table;
+    int length = table.length;
+    int i = hash(k, length);
+    Object item;
+    while ((item = table[i]) != null)
+    {
+      if (item == k || item.equals(k))
+      {
+        V previous = (V) table[i + 1];
+        table[i + 1] = value;
+        return previous;
+      }
+      i = nextKeyIndex(i, length);
+    }
+    _modCount++;
+    table[i] = k;
+    table[i + 1] = value;
+    _size++;
+    if (_size * 8 > length * 3)
+    {
+      resize(length * 2);
+    }
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(Object key)
+  {
+    int index = indexOf(key);
+    if (index < 0)
+    {
+      return null;
+    }
+    V previous = (V) _table[index + 1];
+    _modCount++;
+    _size--;
+    closeDeletion(index);
+    return previous;
+  }
+
+  @Override
+  public void clear()
+  {
+    _modCount++;
+    Arrays.fill(_table, null);
+    _size = 0;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    int code = 0;
+    Object[] table = _table;
+    for (int i = 0; i < table.length; i += 2)
+    {
+      Object key = table[i];
+      if (key != null)
+      {
+        Object value = table[i + 1];
+        code += (key == NULL_KEY ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+      }
+    }
+    return code;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public CompactHashMap<K,V> clone()
+  {
+    try
+    {
+      CompactHashMap<K,V> o = (CompactHashMap<K,V>) super.clone();
+      o._table = _table.clone();
+      o._modCount = 0;
+      return o;
+    }
+    catch (CloneNotSupportedException e)
+    {
+      throw new InternalError();
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<K,V>> entrySet()
+  {
+    return new AbstractSet<Map.Entry<K,V>>()
+    {
+      @Override
+      public Iterator<Map.Entry<K,V>> iterator()
+      {
+        return new TableIterator<Map.Entry<K,V>>()
+        {
+          @Override
+          protected Map.Entry<K,V> item(int index)
+          {
+            return new Entry(index);
+          }
+        };
+      }
+
+      @Override
+      public int size()
+      {
+        return _size;
+      }
+    };
+  }
+
+  @Override
+  public Set<K> keySet()
+  {
+    return new AbstractSet<K>()
+    {
+      @Override
+      public Iterator<K> iterator()
+      {
+        return new TableIterator<K>()
+        {
+          @Override
+          @SuppressWarnings("unchecked")
+          protected K item(int index)
+          {
+            return (K) unmaskNull(_table[index]);
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object o)
+      {
+        return containsKey(o);
+      }
+
+      @Override
+      public int size()
+      {
+        return _size;
+      }
+    };
+  }
+
+  @Override
+  public Collection<V> values()
+  {
+    return new AbstractCollection<V>()
+    {
+      @Override
+      public Iterator<V> iterator()
+      {
+        return new TableIterator<V>()
+        {
+          @Override
+          @SuppressWarnings("unchecked")
+          protected V item(int index)
+          {
+            return (V) _table[index + 1];
+          }
+        };
+      }
+
+      @Override
+      public int size()
+      {
+        return _size;
+      }
+    };
+  }
+
+  /**
+   * Iterates over the key indexes of occupied slots of the table.
+   */
+  private abstract class TableIterator<T> implements Iterator<T>
+  {
+    private TableIterator()
+    {
+      advance();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return _next < _table.length;
+    }
+
+    @Override
+    public T next()
+    {
+      if (_expectedModCount != _modCount)
+      {
+        throw new ConcurrentModificationException();
+      }
+      if (_next >= _table.length)
+      {
+        throw new NoSuchElementException();
+      }
+      T item = item(_next);
+      _next += 2;
+      advance();
+      return item;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    protected abstract T item(int index);
+
+    private void advance()
+    {
+      Object[] table = _table;
+      while (_next < table.length && table[_next] == null)
+      {
+        _next += 2;
+      }
+    }
+
+    private int _next = 0;
+    private final int _expectedModCount = _modCount;
+  }
+
+  @SuppressWarnings("serial")
+  private final class Entry extends AbstractMap.SimpleEntry<K,V>
+  {
+    @SuppressWarnings("unchecked")
+    private Entry(int index)
+    {
+      super((K) unmaskNull(_table[index]), (V) _table[index + 1]);
+      _index = index;
+    }
+
+    @Override
+    public V setValue(V value)
+    {
+      _table[_index + 1] = value;
+      return super.setValue(value);
+    }
+
+    private final int _index;
+  }
+
+  private int indexOf(Object key)
+  {
+    Object k = maskNull(key);
+    Object[] table = _table;
+    int length = table.length;
+    int i = hash(k, length);
+    Object item;
+    while ((item = table[i]) != null)
+    {
+      if (item == k || item.equals(k))
+      {
+        return i;
+      }
+      i = nextKeyIndex(i, length);
+    }
+    return -1;
+  }
+
+  private void resize(int newLength)
+  {
+    Object[] oldTable = _table;
+    Object[] newTable = new Object[newLength];
+    for (int j = 0; j < oldTable.length; j += 2)
+    {
+      Object key = oldTable[j];
+      if (key != null)
+      {
+        int i = hash(key, newLength);
+        while (newTable[i] != null)
+        {
+          i = nextKeyIndex(i, newLength);
+        }
+        newTable[i] = key;
+        newTable[i + 1] = oldTable[j + 1];
+      }
+    }
+    _table = newTable;
+  }
+
+  /**
+   * Remove the entry at the specified index and move back the entries that follow it
+   * in the same probe sequence so that lookups do not stop at the emptied slot.
+   */
+  private void closeDeletion(int d)
+  {
+    Object[] table = _table;
+    int length = table.length;
+    table[d] = null;
+    table[d + 1] = null;
+    Object item;
+    for (int i = nextKeyIndex(d, length); (item = table[i]) != null; i = nextKeyIndex(i, length))
+    {
+      int r = hash(item, length);
+      // move the entry if its home slot r is not cyclically within (d, i]
+      if ((i < r && (r <= d || d <= i)) || (r <= d && d <= i))
+      {
+        table[d] = item;
+        table[d + 1] = table[i + 1];
+        table[i] = null;
+        table[i + 1] = null;
+        d = i;
+      }
+    }
+  }
+
+  private static int capacityFor(int expectedSize)
+  {
+    int capacity = MINIMUM_CAPACITY;
+    while (capacity < MAXIMUM_CAPACITY && capacity * 3 < expectedSize * 4)
+    {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private static int hash(Object key, int length)
+  {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return (h << 1) & (length - 1);
+  }
+
+  private static int nextKeyIndex(int i, int length)
+  {
+    return (i + 2 < length ? i + 2 : 0);
+  }
+
+  private static Object maskNull(Object key)
+  {
+    return (key == null ? NULL_KEY : key);
+  }
+
+  private static Object unmaskNull(Object key)
+  {
+    return (key == NULL_KEY ? null : key);
+  }
+
+  private static boolean eq(Object o1, Object o2)
+  {
+    return (o1 == null ? o2 == null : o1.equals(o2));
+  }
+
+  private static final Object NULL_KEY = new Object();
+  private static final int MINIMUM_CAPACITY = 4;
+  private static final int MAXIMUM_CAPACITY = 1 << 29;
+
+  private Object[] _table;
+  private int _size = 0;
+  private int _modCount = 0;
+}
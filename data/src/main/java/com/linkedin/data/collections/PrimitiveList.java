@@ -0,0 +1,381 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.data.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * List that stores boxed numbers of a single class in an array of the corresponding primitive type.
+ * <p>
+ *
+ * Elements are boxed when they are returned by {@link #get(int)}, {@link #set(int, Object)}
+ * and {@link #remove(int)}. The element class specific sub-classes provide methods
+ * to add and get elements without boxing.
+ * <p>
+ *
+ * A {@link PrimitiveList} only accepts elements of its element class,
+ * see {@link #accepts(Object)}. It is up to the owner of the list to replace it by a general
+ * purpose list before storing other elements.
+ *
+ * @see CheckedList
+ */
+abstract class PrimitiveList<E> extends AbstractList<E> implements RandomAccess, Cloneable
+{
+  /**
+   * Return whether the specified element can be stored in this list.
+   *
+   * @param element provides the element to be stored.
+   * @return true if the class of the element is the element class of this list.
+   */
+  final boolean accepts(Object element)
+  {
+    return element != null && element.getClass() == elementClass();
+  }
+
+  /**
+   * Return the class of the boxed elements of this list.
+   *
+   * @return {@link Integer}, {@link Long} or {@link Double}.
+   */
+  abstract Class<?> elementClass();
+
+  @Override
+  public int size()
+  {
+    return _size;
+  }
+
+  @Override
+  public E get(int index)
+  {
+    checkIndex(index);
+    return box(index);
+  }
+
+  @Override
+  public E set(int index, E element)
+  {
+    checkIndex(index);
+    E previous = box(index);
+    store(index, element);
+    return previous;
+  }
+
+  @Override
+  public void add(int index, E element)
+  {
+    if (index < 0 || index > _size)
+    {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+    }
+    ensureCapacity(_size + 1);
+    System.arraycopy(array(), index, array(), index + 1, _size - index);
+    store(index, element);
+    _size++;
+    modCount++;
+  }
+
+  @Override
+  public E remove(int index)
+  {
+    checkIndex(index);
+    E previous = box(index);
+    System.arraycopy(array(), index + 1, array(), index, _size - index - 1);
+    _size--;
+    modCount++;
+    return previous;
+  }
+
+  @Override
+  public void removeRange(int fromIndex, int toIndex)
+  {
+    System.arraycopy(array(), toIndex, array(), fromIndex, _size - toIndex);
+    _size -= toIndex - fromIndex;
+    modCount++;
+  }
+
+  @Override
+  public void clear()
+  {
+    _size = 0;
+    modCount++;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public PrimitiveList<E> clone()
+  {
+    try
+    {
+      PrimitiveList<E> o = (PrimitiveList<E>) super.clone();
+      o.cloneArray();
+      o.modCount = 0;
+      return o;
+    }
+    catch (CloneNotSupportedException e)
+    {
+      throw new InternalError();
+    }
+  }
+
+  /**
+   * Make room for an element at the end of the list.
+   *
+   * @return the index of the new element.
+   */
+  protected final int append()
+  {
+    ensureCapacity(_size + 1);
+    modCount++;
+    return _size++;
+  }
+
+  protected final void checkIndex(int index)
+  {
+    if (index < 0 || index >= _size)
+    {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+    }
+  }
+
+  private void ensureCapacity(int minCapacity)
+  {
+    int capacity = capacity();
+    if (minCapacity > capacity)
+    {
+      resize(Math.max(capacity * 3 / 2 + 1, minCapacity));
+    }
+  }
+
+  protected abstract E box(int index);
+  protected abstract void store(int index, E element);
+  protected abstract Object array();
+  protected abstract int capacity();
+  protected abstract void resize(int capacity);
+  protected abstract void cloneArray();
+
+  protected static final int DEFAULT_CAPACITY = 10;
+
+  protected int _size = 0;
+
+  /**
+   * {@link PrimitiveList} of {@link Integer}s stored in an int array.
+   */
+  static final class IntList<E> extends PrimitiveList<E>
+  {
+    IntList()
+    {
+      _values = new int[DEFAULT_CAPACITY];
+    }
+
+    int getInt(int index)
+    {
+      checkIndex(index);
+      return _values[index];
+    }
+
+    void addInt(int value)
+    {
+      int index = append();
+      _values[index] = value;
+    }
+
+    @Override
+    Class<?> elementClass()
+    {
+      return Integer.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E box(int index)
+    {
+      return (E) Integer.valueOf(_values[index]);
+    }
+
+    @Override
+    protected void store(int index, E element)
+    {
+      _values[index] = (Integer) element;
+    }
+
+    @Override
+    protected Object array()
+    {
+      return _values;
+    }
+
+    @Override
+    protected int capacity()
+    {
+      return _values.length;
+    }
+
+    @Override
+    protected void resize(int capacity)
+    {
+      _values = Arrays.copyOf(_values, capacity);
+    }
+
+    @Override
+    protected void cloneArray()
+    {
+      _values = _values.clone();
+    }
+
+    private int[] _values;
+  }
+
+  /**
+   * {@link PrimitiveList} of {@link Long}s stored in a long array.
+   */
+  static final class LongList<E> extends PrimitiveList<E>
+  {
+    LongList()
+    {
+      _values = new long[DEFAULT_CAPACITY];
+    }
+
+    long getLong(int index)
+    {
+      checkIndex(index);
+      return _values[index];
+    }
+
+    void addLong(long value)
+    {
+      int index = append();
+      _values[index] = value;
+    }
+
+    @Override
+    Class<?> elementClass()
+    {
+      return Long.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E box(int index)
+    {
+      return (E) Long.valueOf(_values[index]);
+    }
+
+    @Override
+    protected void store(int index, E element)
+    {
+      _values[index] = (Long) element;
+    }
+
+    @Override
+    protected Object array()
+    {
+      return _values;
+    }
+
+    @Override
+    protected int capacity()
+    {
+      return _values.length;
+    }
+
+    @Override
+    protected void resize(int capacity)
+    {
+      _values = Arrays.copyOf(_values, capacity);
+    }
+
+    @Override
+    protected void cloneArray()
+    {
+      _values = _values.clone();
+    }
+
+    private long[] _values;
+  }
+
+  /**
+   * {@link PrimitiveList} of {@link Double}s stored in a double array.
+   */
+  static final class DoubleList<E> extends PrimitiveList<E>
+  {
+    DoubleList()
+    {
+      _values = new double[DEFAULT_CAPACITY];
+    }
+
+    double getDouble(int index)
+    {
+      checkIndex(index);
+      return _values[index];
+    }
+
+    void addDouble(double value)
+    {
+      int index = append();
+      _values[index] = value;
+    }
+
+    @Override
+    Class<?> elementClass()
+    {
+      return Double.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E box(int index)
+    {
+      return (E) Double.valueOf(_values[index]);
+    }
+
+    @Override
+    protected void store(int index, E element)
+    {
+      _values[index] = (Double) element;
+    }
+
+    @Override
+    protected Object array()
+    {
+      return _values;
+    }
+
+    @Override
+    protected int capacity()
+    {
+      return _values.length;
+    }
+
+    @Override
+    protected void resize(int capacity)
+    {
+      _values = Arrays.copyOf(_values, capacity);
+    }
+
+    @Override
+    protected void cloneArray()
+    {
+      _values = _values.clone();
+    }
+
+    private double[] _values;
+  }
+}
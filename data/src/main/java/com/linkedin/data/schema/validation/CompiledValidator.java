@@ -0,0 +1,700 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.data.schema.validation;
+
+
+import com.linkedin.data.ByteString;
+import com.linkedin.data.Data;
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.message.Message;
+import com.linkedin.data.schema.ArrayDataSchema;
+import com.linkedin.data.schema.DataSchema;
+import com.linkedin.data.schema.DataSchemaConstants;
+import com.linkedin.data.schema.EnumDataSchema;
+import com.linkedin.data.schema.FixedDataSchema;
+import com.linkedin.data.schema.MapDataSchema;
+import com.linkedin.data.schema.RecordDataSchema;
+import com.linkedin.data.schema.UnionDataSchema;
+import com.linkedin.util.ArgumentUtil;
+import com.linkedin.util.ClockCache;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A validator specialized for a {@link DataSchema} and a {@link ValidationOptions}.
+ *
+ * <p>
+ * Compilation resolves typerefs, precomputes which absent fields of each record are
+ * errors or should be fixed up with default values, and which primitive coercions
+ * apply. Validating Data that conforms to the schema does not allocate, apart from
+ * the returned {@link ValidationResult}, a small holder for coerced values and the
+ * iterators of map typed values. Values that need coercion are coerced only once.
+ * Data that only needs coercion or default values is fixed up in place by the
+ * compiled validator. Data with errors is handed to {@link ValidateDataAgainstSchema}
+ * so that the result, including its messages, is the same as without compilation.
+ *
+ * <p>
+ * Compiled validators are immutable and thread-safe. {@link #compile(DataSchema, ValidationOptions)}
+ * caches up to {@link #CACHE_SIZE} of them by schema identity and options, evicting the ones
+ * that were not used recently.
+ *
+ * <p>
+ * {@link com.linkedin.data.schema.validator.Validator}s are not supported, use
+ * {@link ValidateDataAgainstSchema} to validate with a {@link com.linkedin.data.schema.validator.Validator}.
+ */
+public final class CompiledValidator
+{
+  public static final int CACHE_SIZE = 1024;
+
+  /**
+   * Return the compiled validator for the specified schema and options.
+   *
+   * The options are copied, changing them afterwards does not affect the
+   * returned validator.
+   *
+   * @param schema provides the {@link DataSchema} to validate against.
+   * @param options provides the {@link ValidationOptions}.
+   * @return the compiled validator, shared with other callers using the same schema and options.
+   */
+  public static CompiledValidator compile(DataSchema schema, ValidationOptions options)
+  {
+    ArgumentUtil.notNull(schema, "schema");
+    ArgumentUtil.notNull(options, "options");
+    CompiledValidator validator = _cache.get(new Key(schema, options));
+    if (validator == null)
+    {
+      validator = new CompiledValidator(schema, options);
+      // the cached key holds the validator's copy of the options, not the caller's
+      validator = _cache.putIfAbsent(new Key(schema, validator._options), validator);
+    }
+    return validator;
+  }
+
+  private CompiledValidator(DataSchema schema, ValidationOptions options)
+  {
+    _schema = schema;
+    _options = new ValidationOptions(options);
+    _root = compile(schema, new IdentityHashMap<DataSchema, Node>());
+    // ValidateDataAgainstSchema does not return the fixed value of an Avro mode union at the root.
+    _fixRootInPlace = !(_options.isAvroUnionMode() && schema.getDereferencedType() == DataSchema.Type.UNION);
+  }
+
+  /**
+   * Validate and fix-up the Data object.
+   *
+   * @param object provides the Data object to validate.
+   * @return the {@link ValidationResult}.
+   */
+  public ValidationResult validate(Object object)
+  {
+    Coercions coercions = new Coercions();
+    int status = _root.check(object, coercions);
+    if (status == VALID)
+    {
+      return new Result(object, false);
+    }
+    if (status == FIX_IN_PLACE || (status == REPLACE && _fixRootInPlace))
+    {
+      return new Result(_root.fix(object, coercions), true);
+    }
+    return ValidateDataAgainstSchema.validate(object, _schema, _options);
+  }
+
+  /**
+   * Return the schema the validator was compiled for.
+   *
+   * @return the {@link DataSchema}.
+   */
+  public DataSchema getSchema()
+  {
+    return _schema;
+  }
+
+  private Node compile(DataSchema schema, IdentityHashMap<DataSchema, Node> compiled)
+  {
+    DataSchema dereferencedSchema = schema.getDereferencedDataSchema();
+    Node node = compiled.get(dereferencedSchema);
+    if (node != null)
+    {
+      return node;
+    }
+    switch (dereferencedSchema.getType())
+    {
+      case RECORD:
+        RecordNode recordNode = new RecordNode();
+        compiled.put(dereferencedSchema, recordNode);
+        recordNode.init((RecordDataSchema) dereferencedSchema, compiled);
+        return recordNode;
+      case ARRAY:
+        node = new ArrayNode(compile(((ArrayDataSchema) dereferencedSchema).getItems(), compiled));
+        break;
+      case MAP:
+        node = new MapNode(compile(((MapDataSchema) dereferencedSchema).getValues(), compiled));
+        break;
+      case UNION:
+        node = new UnionNode((UnionDataSchema) dereferencedSchema, compiled);
+        break;
+      case ENUM:
+        node = new EnumNode((EnumDataSchema) dereferencedSchema);
+        break;
+      case FIXED:
+        node = new BytesNode(((FixedDataSchema) dereferencedSchema).getSize(), _options.getCoercionMode());
+        break;
+      case BYTES:
+        node = new BytesNode(-1, _options.getCoercionMode());
+        break;
+      default:
+        node = new PrimitiveNode(dereferencedSchema.getType(), _options.getCoercionMode());
+        break;
+    }
+    compiled.put(dereferencedSchema, node);
+    return node;
+  }
+
+  // Status returned by Node.check, ordered by severity.
+  private static final int VALID = 0;
+  private static final int FIX_IN_PLACE = 1;
+  private static final int REPLACE = 2;
+  private static final int INVALID = 3;
+
+  /**
+   * Compute the status of a container from the status of one of its values.
+   */
+  private static int containerStatus(int status, int childStatus, boolean readOnly)
+  {
+    if (childStatus == REPLACE)
+    {
+      childStatus = readOnly ? INVALID : FIX_IN_PLACE;
+    }
+    return childStatus > status ? childStatus : status;
+  }
+
+  private static abstract class Node
+  {
+    /**
+     * Check the Data object without modifying it. Values that need to be replaced by a coerced
+     * value are coerced once, here, and the coerced value is added to the {@link Coercions}.
+     *
+     * @return {@link #VALID} if the object conforms to the schema,
+     *         {@link #FIX_IN_PLACE} if descendants of the object need to be fixed up,
+     *         {@link #REPLACE} if the object needs to be replaced by a coerced value, or
+     *         {@link #INVALID} if the object does not conform and cannot be fixed up.
+     */
+    abstract int check(Object object, Coercions coercions);
+
+    /**
+     * Fix-up an object for which {@link #check(Object, Coercions)} did not return {@link #INVALID}.
+     * The object is traversed in the same order as by the check, so that the coerced values are
+     * taken from the {@link Coercions} in the order in which they were added.
+     *
+     * @return the coerced value, or the input object if it has been fixed up in place.
+     */
+    abstract Object fix(Object object, Coercions coercions);
+  }
+
+  private static final class PrimitiveNode extends Node
+  {
+    private PrimitiveNode(DataSchema.Type type, CoercionMode coercionMode)
+    {
+      _type = type;
+      _class = ValidateDataAgainstSchema._primitiveTypeToClassMap.get(type);
+      _coercionMode = coercionMode;
+    }
+
+    @Override
+    int check(Object object, Coercions coercions)
+    {
+      if (object.getClass() == _class)
+      {
+        return VALID;
+      }
+      if (_coercionMode == CoercionMode.OFF)
+      {
+        return INVALID;
+      }
+      Object coerced = ValidateDataAgainstSchema.fixupPrimitive(_type, object, _coercionMode);
+      if (coerced == object)
+      {
+        return INVALID;
+      }
+      coercions.add(coerced);
+      return REPLACE;
+    }
+
+    @Override
+    Object fix(Object object, Coercions coercions)
+    {
+      return object.getClass() == _class ? object : coercions.next();
+    }
+
+    private final DataSchema.Type _type;
+    private final Class<?> _class;
+    private final CoercionMode _coercionMode;
+  }
+
+  /**
+   * Validates bytes, and fixed if the size is not negative.
+   */
+  private static final class BytesNode extends Node
+  {
+    private BytesNode(int size, CoercionMode coercionMode)
+    {
+      _size = size;
+      _coerce = coercionMode != CoercionMode.OFF;
+    }
+
+    @Override
+    int check(Object object, Coercions coercions)
+    {
+      Class<?> clazz = object.getClass();
+      if (clazz == ByteString.class)
+      {
+        return (_size < 0 || ((ByteString) object).length() == _size) ? VALID : INVALID;
+      }
+      if (clazz == String.class)
+      {
+        String str = (String) object;
+        if (_size >= 0 && str.length() != _size)
+        {
+          return INVALID;
+        }
+        if (_coerce == false)
+        {
+          return Data.validStringAsBytes(str) ? VALID : INVALID;
+        }
+        ByteString bytes = ByteString.copyAvroString(str, true);
+        if (bytes == null)
+        {
+          return INVALID;
+        }
+        coercions.add(bytes);
+        return REPLACE;
+      }
+      return INVALID;
+    }
+
+    @Override
+    Object fix(Object object, Coercions coercions)
+    {
+      return (_coerce && object.getClass() == String.class) ? coercions.next() : object;
+    }
+
+    private final int _size;
+    private final boolean _coerce;
+  }
+
+  private static final class EnumNode extends Node
+  {
+    private EnumNode(EnumDataSchema schema)
+    {
+      _schema = schema;
+    }
+
+    @Override
+    int check(Object object, Coercions coercions)
+    {
+      return (object instanceof String && _schema.contains((String) object)) ? VALID : INVALID;
+    }
+
+    @Override
+    Object fix(Object object, Coercions coercions)
+    {
+      return object;
+    }
+
+    private final EnumDataSchema _schema;
+  }
+
+  private static final class ArrayNode extends Node
+  {
+    private ArrayNode(Node items)
+    {
+      _items = items;
+    }
+
+    @Override
+    int check(Object object, Coercions coercions)
+    {
+      if (object instanceof DataList == false)
+      {
+        return INVALID;
+      }
+      DataList list = (DataList) object;
+      boolean readOnly = list.isReadOnly();
+      int status = VALID;
+      for (int i = 0, size = list.size(); i < size && status != INVALID; i++)
+      {
+        status = containerStatus(status, _items.check(list.get(i), coercions), readOnly);
+      }
+      return status;
+    }
+
+    @Override
+    Object fix(Object object, Coercions coercions)
+    {
+      DataList list = (DataList) object;
+      for (int i = 0, size = list.size(); i < size; i++)
+      {
+        Object value = list.get(i);
+        Object fixed = _items.fix(value, coercions);
+        if (fixed != value)
+        {
+          list.set(i, fixed);
+        }
+      }
+      return object;
+    }
+
+    private final Node _items;
+  }
+
+  private static final class MapNode extends Node
+  {
+    private MapNode(Node values)
+    {
+      _values = values;
+    }
+
+    @Override
+    int check(Object object, Coercions coercions)
+    {
+      if (object instanceof DataMap == false)
+      {
+        return INVALID;
+      }
+      DataMap map = (DataMap) object;
+      boolean readOnly = map.isReadOnly();
+      int status = VALID;
+      for (Object value : map.values())
+      {
+        status = containerStatus(status, _values.check(value, coercions), readOnly);
+        if (status == INVALID)
+        {
+          break;
+        }
+      }
+      return status;
+    }
+
+    @Override
+    Object fix(Object object, Coercions coercions)
+    {
+      DataMap map = (DataMap) object;
+      for (Map.Entry<String, Object> entry : map.entrySet())
+      {
+        Object value = entry.getValue();
+        Object fixed = _values.fix(value, coercions);
+        if (fixed != value)
+        {
+          map.put(entry.getKey(), fixed);
+        }
+      }
+      return object;
+    }
+
+    private final Node _values;
+  }
+
+  private final class RecordNode extends Node
+  {
+    private void init(RecordDataSchema schema, IdentityHashMap<DataSchema, Node> compiled)
+    {
+      List<RecordDataSchema.Field> fields = schema.getFields();
+      int count = fields.size();
+      _names = new String[count];
+      _nodes = new Node[count];
+      _absentInvalid = new boolean[count];
+      _absentDefaults = new Object[count];
+      RequiredMode requiredMode = _options.getRequiredMode();
+      for (int i = 0; i < count; i++)
+      {
+        RecordDataSchema.Field field = fields.get(i);
+        _names[i] = field.getName();
+        _nodes[i] = compile(field.getType(), compiled);
+        if (field.getOptional() == false && requiredMode != RequiredMode.IGNORE)
+        {
+          Object defaultValue = field.getDefault();
+          if (requiredMode == RequiredMode.MUST_BE_PRESENT || defaultValue == null)
+          {
+            _absentInvalid[i] = true;
+          }
+          else if (requiredMode == RequiredMode.FIXUP_ABSENT_WITH_DEFAULT)
+          {
+            _absentDefaults[i] = defaultValue;
+          }
+        }
+      }
+    }
+
+    @Override
+    int check(Object object, Coercions coercions)
+    {
+      if (object instanceof DataMap == false)
+      {
+        return INVALID;
+      }
+      DataMap map = (DataMap) object;
+      boolean readOnly = map.isReadOnly();
+      int status = VALID;
+      for (int i = 0; i < _names.length && status != INVALID; i++)
+      {
+        Object value = map.get(_names[i]);
+        if (value != null)
+        {
+          status = containerStatus(status, _nodes[i].check(value, coercions), readOnly);
+        }
+        else if (_absentInvalid[i] || (_absentDefaults[i] != null && readOnly))
+        {
+          status = INVALID;
+        }
+        else if (_absentDefaults[i] != null)
+        {
+          status = containerStatus(status, FIX_IN_PLACE, readOnly);
+        }
+      }
+      return status;
+    }
+
+    @Override
+    Object fix(Object object, Coercions coercions)
+    {
+      DataMap map = (DataMap) object;
+      for (int i = 0; i < _names.length; i++)
+      {
+        Object value = map.get(_names[i]);
+        if (value != null)
+        {
+          Object fixed = _nodes[i].fix(value, coercions);
+          if (fixed != value)
+          {
+            map.put(_names[i], fixed);
+          }
+        }
+        else if (_absentDefaults[i] != null)
+        {
+          map.put(_names[i], _absentDefaults[i]);
+        }
+      }
+      return object;
+    }
+
+    private String[] _names;
+    private Node[] _nodes;
+    private boolean[] _absentInvalid;
+    private Object[] _absentDefaults;
+  }
+
+  private final class UnionNode extends Node
+  {
+    private UnionNode(UnionDataSchema schema, IdentityHashMap<DataSchema, Node> compiled)
+    {
+      List<DataSchema> memberTypes = schema.getTypes();
+      int count = memberTypes.size();
+      _nullAllowed = schema.getType(DataSchemaConstants.NULL_TYPE) != null;
+      _avroUnionMode = _options.isAvroUnionMode();
+      _keys = new String[count];
+      _members = new Node[count];
+      for (int i = 0; i < count; i++)
+      {
+        DataSchema memberType = memberTypes.get(i);
+        _keys[i] = memberType.getUnionMemberKey();
+        _members[i] = compile(memberType, compiled);
+      }
+    }
+
+    @Override
+    int check(Object object, Coercions coercions)
+    {
+      if (object == Data.NULL)
+      {
+        return _nullAllowed ? VALID : INVALID;
+      }
+      if (_avroUnionMode)
+      {
+        // Avro union default value does not include member type discriminator
+        return _members.length == 0 ? INVALID : _members[0].check(object, coercions);
+      }
+      if (object instanceof DataMap == false || ((DataMap) object).size() != 1)
+      {
+        return INVALID;
+      }
+      DataMap map = (DataMap) object;
+      for (int i = 0; i < _keys.length; i++)
+      {
+        Object value = map.get(_keys[i]);
+        if (value != null)
+        {
+          return containerStatus(VALID, _members[i].check(value, coercions), map.isReadOnly());
+        }
+      }
+      return INVALID;
+    }
+
+    @Override
+    Object fix(Object object, Coercions coercions)
+    {
+      if (object == Data.NULL)
+      {
+        return object;
+      }
+      if (_avroUnionMode)
+      {
+        return _members[0].fix(object, coercions);
+      }
+      DataMap map = (DataMap) object;
+      for (int i = 0; i < _keys.length; i++)
+      {
+        Object value = map.get(_keys[i]);
+        if (value != null)
+        {
+          Object fixed = _members[i].fix(value, coercions);
+          if (fixed != value)
+          {
+            map.put(_keys[i], fixed);
+          }
+          break;
+        }
+      }
+      return object;
+    }
+
+    private final boolean _nullAllowed;
+    private final boolean _avroUnionMode;
+    private final String[] _keys;
+    private final Node[] _members;
+  }
+
+  /**
+   * The values coerced by {@link Node#check(Object, Coercions)}, in traversal order, for
+   * {@link Node#fix(Object, Coercions)} to use instead of coercing them again.
+   */
+  private static final class Coercions
+  {
+    private void add(Object value)
+    {
+      if (_values == null)
+      {
+        _values = new Object[4];
+      }
+      else if (_size == _values.length)
+      {
+        _values = Arrays.copyOf(_values, _size * 2);
+      }
+      _values[_size++] = value;
+    }
+
+    private Object next()
+    {
+      return _values[_next++];
+    }
+
+    private Object[] _values;
+    private int _size;
+    private int _next;
+  }
+
+  private static final class Result implements ValidationResult
+  {
+    private Result(Object fixed, boolean hasFix)
+    {
+      _fixed = fixed;
+      _hasFix = hasFix;
+    }
+
+    @Override
+    public boolean hasFix()
+    {
+      return _hasFix;
+    }
+
+    @Override
+    public boolean hasFixupReadOnlyError()
+    {
+      return false;
+    }
+
+    @Override
+    public Object getFixed()
+    {
+      return _fixed;
+    }
+
+    @Override
+    public boolean isValid()
+    {
+      return true;
+    }
+
+    @Override
+    public Collection<Message> getMessages()
+    {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public String toString()
+    {
+      return "hasFix=" + _hasFix + ", hasFixupReadOnlyError=false, valid=true\nfixed=" + _fixed + "\n";
+    }
+
+    private final Object _fixed;
+    private final boolean _hasFix;
+  }
+
+  private static final class Key
+  {
+    private Key(DataSchema schema, ValidationOptions options)
+    {
+      _schema = schema;
+      _options = options;
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+      if (object instanceof Key == false)
+      {
+        return false;
+      }
+      Key other = (Key) object;
+      return _schema == other._schema && _options.equals(other._options);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return System.identityHashCode(_schema) * 31 + _options.hashCode();
+    }
+
+    private final DataSchema _schema;
+    private final ValidationOptions _options;
+  }
+
+  private static final ClockCache<Key, CompiledValidator> _cache = new ClockCache<Key, CompiledValidator>(CACHE_SIZE);
+
+  private final DataSchema _schema;
+  private final ValidationOptions _options;
+  private final Node _root;
+  private final boolean _fixRootInPlace;
+}
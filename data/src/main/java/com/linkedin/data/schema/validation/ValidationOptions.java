@@ -101,6 +101,24 @@ public final class ValidationOptions
     _requiredMode = requiredMode;
   }
 
+  /**
+   * Copy constructor.
+   *
+   * The validator parameters are copied into a new map, the parameters themselves are shared.
+   *
+   * @param options provides the options to copy.
+   */
+  public ValidationOptions(ValidationOptions options)
+  {
+    _coercionMode = options._coercionMode;
+    _requiredMode = options._requiredMode;
+    _avroUnionMode = options._avroUnionMode;
+    if (options._validatorParameters != NO_VALIDATOR_PARAMETERS)
+    {
+      _validatorParameters = new HashMap<String, Object>(options._validatorParameters);
+    }
+  }
+
   /**
    * Return whether to fix-up is enabled.
    *
@@ -49,6 +49,34 @@ public final class DoubleArray extends DirectArrayTemplate<Double>
     super(list, SCHEMA, Double.class, Double.class);
   }
 
+  /**
+   * Return the element at the specified position as a {@code double}, without boxing it
+   * if the underlying {@link DataList} stores its elements in a {@code double} array.
+   *
+   * @param index of the element to return.
+   * @return the value of the element.
+   * @throws TemplateOutputCastException if the element cannot be coerced to a {@link Double}.
+   */
+  public double getDouble(int index) throws TemplateOutputCastException
+  {
+    if (_list.getPrimitiveClass() == Double.class)
+    {
+      return _list.getDouble(index);
+    }
+    return get(index);
+  }
+
+  /**
+   * Append a {@code double} to the array without boxing it.
+   *
+   * @param value provides the value to append.
+   * @return true.
+   */
+  public boolean addDouble(double value)
+  {
+    return _list.addDouble(value);
+  }
+
   @Override
   public DoubleArray clone() throws CloneNotSupportedException
   {
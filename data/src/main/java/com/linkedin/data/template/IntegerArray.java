@@ -49,6 +49,34 @@ public final class IntegerArray extends DirectArrayTemplate<Integer>
     super(list, SCHEMA, Integer.class, Integer.class);
   }
 
+  /**
+   * Return the element at the specified position as an {@code int}, without boxing it
+   * if the underlying {@link DataList} stores its elements in an {@code int} array.
+   *
+   * @param index of the element to return.
+   * @return the value of the element.
+   * @throws TemplateOutputCastException if the element cannot be coerced to an {@link Integer}.
+   */
+  public int getInt(int index) throws TemplateOutputCastException
+  {
+    if (_list.getPrimitiveClass() == Integer.class)
+    {
+      return _list.getInt(index);
+    }
+    return get(index);
+  }
+
+  /**
+   * Append an {@code int} to the array without boxing it.
+   *
+   * @param value provides the value to append.
+   * @return true.
+   */
+  public boolean addInt(int value)
+  {
+    return _list.addInt(value);
+  }
+
   @Override
   public IntegerArray clone() throws CloneNotSupportedException
   {
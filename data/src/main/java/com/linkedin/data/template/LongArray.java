@@ -49,6 +49,34 @@ public final class LongArray extends DirectArrayTemplate<Long>
     super(list, SCHEMA, Long.class, Long.class);
   }
 
+  /**
+   * Return the element at the specified position as a {@code long}, without boxing it
+   * if the underlying {@link DataList} stores its elements in a {@code long} array.
+   *
+   * @param index of the element to return.
+   * @return the value of the element.
+   * @throws TemplateOutputCastException if the element cannot be coerced to a {@link Long}.
+   */
+  public long getLong(int index) throws TemplateOutputCastException
+  {
+    if (_list.getPrimitiveClass() == Long.class)
+    {
+      return _list.getLong(index);
+    }
+    return get(index);
+  }
+
+  /**
+   * Append a {@code long} to the array without boxing it.
+   *
+   * @param value provides the value to append.
+   * @return true.
+   */
+  public boolean addLong(long value)
+  {
+    return _list.addLong(value);
+  }
+
   @Override
   public LongArray clone() throws CloneNotSupportedException
   {
@@ -0,0 +1,154 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.util;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe cache that holds up to a fixed number of entries and evicts them with
+ * the CLOCK approximation of least recently used.
+ *
+ * <p>
+ * Lookups do not lock. Each entry occupies a slot of a circular array and has a reference
+ * bit that is set when it is read. An entry that is added replaces the first entry at or
+ * after the clock hand whose reference bit is clear, clearing the bits it passes over.
+ *
+ * @param <K> type of the keys.
+ * @param <V> type of the values.
+ */
+public class ClockCache<K, V>
+{
+  private final ConcurrentMap<K, Entry<K, V>> _map;
+  private final AtomicReferenceArray<Entry<K, V>> _slots;
+  private final AtomicInteger _hand = new AtomicInteger();
+
+  /**
+   * Construct a cache.
+   *
+   * @param capacity provides the maximum number of entries.
+   */
+  public ClockCache(int capacity)
+  {
+    if (capacity <= 0)
+    {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    _map = new ConcurrentHashMap<K, Entry<K, V>>(capacity * 4 / 3 + 1);
+    _slots = new AtomicReferenceArray<Entry<K, V>>(capacity);
+  }
+
+  /**
+   * @param key provides the key.
+   * @return the value cached for the key, or {@code null} if there is none.
+   */
+  public V get(K key)
+  {
+    Entry<K, V> entry = _map.get(key);
+    if (entry == null)
+    {
+      return null;
+    }
+    entry.reference();
+    return entry._value;
+  }
+
+  /**
+   * Add a value unless a value is already cached for the key, evicting another entry
+   * if the cache is full.
+   *
+   * @param key provides the key.
+   * @param value provides the value.
+   * @return the value cached for the key, which is the provided value unless another
+   *         was added first.
+   */
+  public V putIfAbsent(K key, V value)
+  {
+    Entry<K, V> entry = new Entry<K, V>(key, value);
+    Entry<K, V> existing = _map.putIfAbsent(key, entry);
+    if (existing != null)
+    {
+      existing.reference();
+      return existing._value;
+    }
+
+    int capacity = _slots.length();
+    while (true)
+    {
+      int index = (_hand.getAndIncrement() & Integer.MAX_VALUE) % capacity;
+      Entry<K, V> slot = _slots.get(index);
+      if (slot == null)
+      {
+        if (_slots.compareAndSet(index, null, entry))
+        {
+          return value;
+        }
+      }
+      else if (slot._referenced)
+      {
+        slot._referenced = false;
+      }
+      else if (_slots.compareAndSet(index, slot, entry))
+      {
+        _map.remove(slot._key, slot);
+        return value;
+      }
+    }
+  }
+
+  /**
+   * @return the number of cached entries.
+   */
+  public int size()
+  {
+    return _map.size();
+  }
+
+  /**
+   * @return the maximum number of entries.
+   */
+  public int capacity()
+  {
+    return _slots.length();
+  }
+
+  private static class Entry<K, V>
+  {
+    private final K _key;
+    private final V _value;
+    private volatile boolean _referenced;
+
+    private Entry(K key, V value)
+    {
+      _key = key;
+      _value = value;
+    }
+
+    private void reference()
+    {
+      // avoid writing the shared flag of hot entries on every read
+      if (!_referenced)
+      {
+        _referenced = true;
+      }
+    }
+  }
+}
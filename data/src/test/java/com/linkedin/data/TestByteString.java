@@ -23,7 +23,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -117,6 +119,12 @@ public class TestByteString
                         ByteString.copy(new byte[] {1,2,3,4}));
     Assert.assertFalse(ByteString.copy(new byte[] {1,2,3,4}).equals(
                        ByteString.copy(new byte[] {5,6,7,8})));
+
+    final byte[] bytes = new byte[] {0,1,2,3,4,5,1,2,3,4};
+    Assert.assertEquals(ByteString.unsafeWrap(bytes, 1, 4), ByteString.unsafeWrap(bytes, 6, 4));
+    Assert.assertFalse(ByteString.unsafeWrap(bytes, 1, 4).equals(ByteString.unsafeWrap(bytes, 2, 4)));
+    Assert.assertEquals(ByteString.unsafeWrap(bytes, 1, 4),
+                        ByteString.unsafeWrap(ByteBuffer.wrap(bytes, 6, 4).asReadOnlyBuffer()));
   }
 
   @Test
@@ -124,6 +132,11 @@ public class TestByteString
   {
     Assert.assertEquals(ByteString.copy(new byte[] {1,2,3,4}).hashCode(),
                         ByteString.copy(new byte[] {1,2,3,4}).hashCode());
+
+    final byte[] bytes = new byte[] {0,1,2,3,4,5};
+    Assert.assertEquals(ByteString.unsafeWrap(bytes, 1, 4).hashCode(), Arrays.hashCode(new byte[] {1,2,3,4}));
+    Assert.assertEquals(ByteString.unsafeWrap(ByteBuffer.wrap(bytes, 1, 4).asReadOnlyBuffer()).hashCode(),
+                        Arrays.hashCode(new byte[] {1,2,3,4}));
   }
 
   @Test
@@ -211,4 +224,131 @@ public class TestByteString
     // large byte strings should have constant size toString()
     Assert.assertTrue(ByteString.copy(bytes).toString().length() < 100);
   }
+
+  @Test
+  public void testUnsafeWrap()
+  {
+    final byte[] bytes = "abcdef".getBytes();
+    final ByteString byteString = ByteString.unsafeWrap(bytes, 1, 4);
+
+    Assert.assertEquals(byteString.length(), 4);
+    Assert.assertEquals(byteString.copyBytes(), "bcde".getBytes());
+    Assert.assertEquals(byteString, ByteString.copy("bcde".getBytes()));
+    Assert.assertEquals(byteString.hashCode(), ByteString.copy("bcde".getBytes()).hashCode());
+    Assert.assertEquals(byteString.asString("UTF-8"), "bcde");
+
+    // no copy is made
+    bytes[1] = 'x';
+    Assert.assertEquals(byteString.asString("UTF-8"), "xcde");
+
+    Assert.assertSame(ByteString.unsafeWrap(bytes, 2, 0), ByteString.empty());
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testUnsafeWrapOutOfBounds()
+  {
+    ByteString.unsafeWrap(new byte[4], 2, 3);
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testUnsafeWrapEmptyOutOfBounds()
+  {
+    ByteString.unsafeWrap(new byte[4], 5, 0);
+  }
+
+  @Test
+  public void testUnsafeWrapByteBuffers() throws IOException
+  {
+    final byte[] bytes = "Hello, world!".getBytes();
+    final ByteString byteString = segmented(bytes, 4);
+    final ByteString copy = ByteString.copy(bytes);
+
+    Assert.assertEquals(byteString.length(), bytes.length);
+    Assert.assertEquals(byteString.asByteBuffers().size(), 4);
+    Assert.assertEquals(byteString.copyBytes(), bytes);
+    Assert.assertEquals(byteString, copy);
+    Assert.assertEquals(copy, byteString);
+    Assert.assertEquals(byteString.hashCode(), copy.hashCode());
+    Assert.assertEquals(byteString.asString("UTF-8"), "Hello, world!");
+    Assert.assertEquals(byteString.asAvroString(), copy.asAvroString());
+    Assert.assertEquals(byteString.toString(), copy.toString());
+    Assert.assertFalse(byteString.equals(segmented("Hello, World!".getBytes(), 5)));
+
+    final ByteBuffer byteBuffer = byteString.asByteBuffer();
+    Assert.assertTrue(byteBuffer.isReadOnly());
+    final byte[] bufferBytes = new byte[byteBuffer.remaining()];
+    byteBuffer.get(bufferBytes);
+    Assert.assertEquals(bufferBytes, bytes);
+
+    for (ByteBuffer segment : byteString.asByteBuffers())
+    {
+      Assert.assertTrue(segment.isReadOnly());
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byteString.write(out);
+    Assert.assertEquals(out.toByteArray(), bytes);
+
+    final InputStream in = byteString.asInputStream();
+    Assert.assertEquals(in.available(), bytes.length);
+    Assert.assertEquals(in.read(), 'H');
+    in.mark(bytes.length);
+    final byte[] readBytes = new byte[bytes.length];
+    Assert.assertEquals(in.read(readBytes, 0, readBytes.length), bytes.length - 1);
+    Assert.assertEquals(Arrays.copyOf(readBytes, bytes.length - 1), "ello, world!".getBytes());
+    Assert.assertEquals(in.read(), -1);
+    in.reset();
+    Assert.assertEquals(in.skip(5), 5);
+    Assert.assertEquals(in.read(), ' ');
+  }
+
+  @Test
+  public void testUnsafeWrapDirectByteBuffer() throws IOException
+  {
+    final byte[] bytes = "Hello, world!".getBytes();
+    final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes);
+    direct.flip();
+
+    final ByteString byteString = ByteString.unsafeWrap(direct);
+    Assert.assertEquals(direct.position(), 0);
+    Assert.assertEquals(byteString, ByteString.copy(bytes));
+    Assert.assertEquals(byteString.asString("UTF-8"), "Hello, world!");
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byteString.write(out);
+    Assert.assertEquals(out.toByteArray(), bytes);
+  }
+
+  @Test
+  public void testSlice()
+  {
+    final byte[] bytes = "Hello, world!".getBytes();
+    for (ByteString byteString : Arrays.asList(ByteString.copy(bytes), segmented(bytes, 3)))
+    {
+      Assert.assertSame(byteString.slice(0, bytes.length), byteString);
+      Assert.assertSame(byteString.slice(5, 0), ByteString.empty());
+      Assert.assertEquals(byteString.slice(0, 5).asString("UTF-8"), "Hello");
+      Assert.assertEquals(byteString.slice(7, 5).asString("UTF-8"), "world");
+      Assert.assertEquals(byteString.slice(4, 4), ByteString.copy("o, w".getBytes()));
+      Assert.assertEquals(byteString.slice(7, 5).slice(1, 3).asString("UTF-8"), "orl");
+    }
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testSliceOutOfBounds()
+  {
+    ByteString.copy(new byte[4]).slice(2, 3);
+  }
+
+  private static ByteString segmented(byte[] bytes, int segmentSize)
+  {
+    final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+    segments.add(ByteBuffer.allocate(0));
+    for (int offset = 0; offset < bytes.length; offset += segmentSize)
+    {
+      segments.add(ByteBuffer.wrap(bytes, offset, Math.min(segmentSize, bytes.length - offset)));
+    }
+    return ByteString.unsafeWrap(segments);
+  }
 }
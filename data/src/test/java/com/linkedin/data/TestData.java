@@ -18,6 +18,8 @@ package com.linkedin.data;
 
 
 import com.linkedin.data.codec.BsonDataCodec;
+import com.linkedin.data.codec.ByteStringDataCodec;
+import com.linkedin.data.codec.CompactDataCodec;
 import com.linkedin.data.codec.DataCodec;
 import com.linkedin.data.codec.DataDecodingException;
 import com.linkedin.data.codec.JacksonDataCodec;
@@ -33,6 +35,7 @@ import java.io.PrintStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -1167,6 +1170,17 @@ public class TestData
     assertEquivalent(map3, map);
     assertEquivalent(map3, map2);
 
+    // test readMap from ByteString, also with bytes split into small segments
+
+    if (codec instanceof ByteStringDataCodec)
+    {
+      ByteStringDataCodec byteStringCodec = (ByteStringDataCodec) codec;
+      DataMap map6 = byteStringCodec.readMap(ByteString.unsafeWrap(outputStreamBytes));
+      assertEquivalent(map6, map);
+      DataMap map7 = byteStringCodec.readMap(segmentedByteString(outputStreamBytes, 3));
+      assertEquivalent(map7, map);
+    }
+
     if (codec instanceof TextDataCodec)
     {
       TextDataCodec textCodec = (TextDataCodec) codec;
@@ -1234,6 +1248,20 @@ public class TestData
 
     assertEquals(sb3.toString(), sb1.toString());
 
+    // test readList from ByteString, also with bytes split into small segments
+
+    if (codec instanceof ByteStringDataCodec)
+    {
+      ByteStringDataCodec byteStringCodec = (ByteStringDataCodec) codec;
+      DataList list6 = byteStringCodec.readList(ByteString.unsafeWrap(outputStreamBytes));
+      StringBuilder sb6 = new StringBuilder();
+      Data.dump("list", list6, "", sb6);
+      assertEquals(sb6.toString(), sb1.toString());
+      DataList list7 = byteStringCodec.readList(segmentedByteString(outputStreamBytes, 3));
+      StringBuilder sb7 = new StringBuilder();
+      Data.dump("list", list7, "", sb7);
+      assertEquals(sb7.toString(), sb1.toString());
+    }
 
     if (codec instanceof TextDataCodec)
     {
@@ -1266,6 +1294,16 @@ public class TestData
     }
   }
 
+  private static ByteString segmentedByteString(byte[] bytes, int segmentSize)
+  {
+    List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+    for (int offset = 0; offset < bytes.length; offset += segmentSize)
+    {
+      segments.add(ByteBuffer.wrap(bytes, offset, Math.min(segmentSize, bytes.length - offset)));
+    }
+    return ByteString.unsafeWrap(segments);
+  }
+
   public void testDataCodec(DataCodec codec) throws IOException
   {
     // out.println(codec.getClass().getName());
@@ -1487,6 +1525,41 @@ public class TestData
     }
   }
 
+  @Test
+  public void testPsonDataCodecRecycleBuffers() throws IOException
+  {
+    int[] bufferSizesToTest = { 17, 47, 0 };
+    PsonDataCodec codec = new PsonDataCodec(true);
+    for (int bufferSize : bufferSizesToTest)
+    {
+      PsonDataCodec.Options option = new PsonDataCodec.Options().setRecycleBuffers(true);
+      if (bufferSize != 0)
+      {
+        option.setBufferSize(bufferSize);
+      }
+      codec.setOptions(option);
+      // repeat so that later round trips use the state left by earlier ones
+      testDataCodec(codec);
+      testDataCodec(codec);
+    }
+  }
+
+  @Test
+  public void testJacksonDataCodecRecycleBuffers() throws IOException
+  {
+    JacksonDataCodec codec = new JacksonDataCodec();
+    codec.setRecycleBuffers(true);
+    testDataCodec(codec);
+    testDataCodec(codec);
+  }
+
+  @Test
+  public void testCompactDataCodec() throws IOException
+  {
+    testDataCodec(new CompactDataCodec());
+    testDataCodec(new CompactDataCodec(null, 17));
+  }
+
   @Test
   public void testPsonCodecNumbers() throws IOException
   {
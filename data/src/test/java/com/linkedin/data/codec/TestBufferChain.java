@@ -16,8 +16,11 @@
 
 package com.linkedin.data.codec;
 
+import com.linkedin.data.ByteString;
 import com.linkedin.data.Data;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.testng.annotations.BeforeClass;
@@ -25,6 +28,7 @@ import org.testng.annotations.Test;
 
 import static com.linkedin.data.TestUtil.out;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 
 public class TestBufferChain
@@ -97,4 +101,171 @@ public class TestBufferChain
       }
     }
   }
+
+  @Test
+  public void testGetUTF8CStringFromByteString() throws Exception
+  {
+    for (Map.Entry<String, String> entry : _strings.entrySet())
+    {
+      String value = entry.getValue();
+      for (int bufferSize : _bufferSizes)
+      {
+        byte[] bytesFromString = value.getBytes(Data.UTF_8_CHARSET);
+        int bytes = bytesFromString.length + 1;
+        byte[] bytesInBuffer = new byte[bytes];
+        System.arraycopy(bytesFromString, 0, bytesInBuffer, 0, bytes - 1);
+        bytesInBuffer[bytes - 1] = 0;
+
+        // read only segments of a ByteString are not backed by accessible arrays
+        List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+        for (int offset = 0; offset < bytes; offset += bufferSize)
+        {
+          segments.add(ByteBuffer.wrap(bytesInBuffer, offset, Math.min(bufferSize, bytes - offset)));
+        }
+        BufferChain bufferChain = new BufferChain(BufferChain.DEFAULT_ORDER, ByteString.unsafeWrap(segments));
+
+        byte[] bytesFromBufferChain = new byte[bytes];
+        bufferChain.get(bytesFromBufferChain, 0, bytes);
+        assertEquals(bytesFromBufferChain, bytesInBuffer);
+
+        bufferChain.rewind();
+        String stringWithoutLength = bufferChain.getUtf8CString();
+        assertEquals(stringWithoutLength, value);
+
+        bufferChain.rewind();
+        String stringGetWithLength = bufferChain.getUtf8CString(bytes);
+        assertEquals(stringGetWithLength, value);
+      }
+    }
+  }
+
+  @Test
+  public void testGetAcrossSmallSegments() throws Exception
+  {
+    BufferChain bufferChain = new BufferChain(BufferChain.DEFAULT_ORDER);
+    bufferChain.putLong(0x0102030405060708L);
+    bufferChain.putInt(0x0a0b0c0d);
+    byte[] bytes = bufferChain.toBytes();
+
+    List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+    for (byte b : bytes)
+    {
+      segments.add(ByteBuffer.wrap(new byte[] { b }));
+    }
+    BufferChain readChain = new BufferChain(BufferChain.DEFAULT_ORDER, ByteString.unsafeWrap(segments));
+    assertEquals(readChain.getLong(), 0x0102030405060708L);
+    assertEquals(readChain.getInt(), 0x0a0b0c0d);
+  }
+
+  @Test
+  public void testToByteString() throws Exception
+  {
+    for (int bufferSize : _bufferSizes)
+    {
+      BufferChain bufferChain = new BufferChain(BufferChain.DEFAULT_ORDER, bufferSize);
+      byte[] expected = new byte[bufferSize * 3 + 5];
+      for (int i = 0; i < expected.length; i++)
+      {
+        expected[i] = (byte) i;
+      }
+      bufferChain.asOutputStream().write(expected);
+
+      ByteString byteString = bufferChain.toByteString();
+      assertEquals(byteString.length(), expected.length);
+      assertEquals(byteString.copyBytes(), expected);
+    }
+  }
+
+  @Test
+  public void testClear() throws Exception
+  {
+    for (int bufferSize : _bufferSizes)
+    {
+      BufferChain bufferChain = new BufferChain(BufferChain.DEFAULT_ORDER, bufferSize);
+      for (int round = 0; round < 3; round++)
+      {
+        byte[] expected = new byte[bufferSize * 2 + round];
+        for (int i = 0; i < expected.length; i++)
+        {
+          expected[i] = (byte) (i + round);
+        }
+        int capacity = bufferChain.capacity();
+        bufferChain.clear();
+        assertEquals(bufferChain.capacity(), capacity);
+        bufferChain.asOutputStream().write(expected);
+        bufferChain.rewind();
+        byte[] actual = new byte[expected.length];
+        bufferChain.get(actual, 0, actual.length);
+        assertEquals(actual, expected);
+      }
+
+      // buffers shared with a ByteString must not be written again
+      ByteString byteString = bufferChain.toByteString();
+      byte[] shared = byteString.copyBytes();
+      bufferChain.clear();
+      bufferChain.asOutputStream().write(new byte[shared.length]);
+      assertEquals(byteString.copyBytes(), shared);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testClearProvidedData() throws Exception
+  {
+    new BufferChain(BufferChain.DEFAULT_ORDER, new byte[] { 1, 2, 3 }).clear();
+  }
+
+  @Test
+  public void testGetUTF8CStringWithCandidate() throws Exception
+  {
+    String[] strings = { "key", "keyboard", "ke", "key", "\u00e9t\u00e9", "" };
+    for (int bufferSize : _bufferSizes)
+    {
+      BufferChain bufferChain = new BufferChain(BufferChain.DEFAULT_ORDER, bufferSize);
+      for (String s : strings)
+      {
+        bufferChain.putUtf8CString(s);
+      }
+      bufferChain.rewind();
+
+      // same candidate
+      String candidate = new String("key");
+      assertSame(bufferChain.getUtf8CString(candidate), candidate);
+      // candidate is a prefix, so is the string
+      assertEquals(bufferChain.getUtf8CString(candidate), "keyboard");
+      assertEquals(bufferChain.getUtf8CString(candidate), "ke");
+      // no candidate
+      assertEquals(bufferChain.getUtf8CString(null), "key");
+      // non-ASCII candidate is not compared
+      assertEquals(bufferChain.getUtf8CString("\u00e9t\u00e9"), "\u00e9t\u00e9");
+      assertEquals(bufferChain.getUtf8CString(candidate), "");
+    }
+  }
+
+  @Test
+  public void testVarIntAndVarLong() throws Exception
+  {
+    int[] ints = { 0, 1, -1, 63, -64, 64, Short.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE };
+    long[] longs = { 0L, 1L, -1L, Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L, Long.MAX_VALUE, Long.MIN_VALUE };
+    for (int bufferSize : _bufferSizes)
+    {
+      BufferChain bufferChain = new BufferChain(BufferChain.DEFAULT_ORDER, bufferSize);
+      for (int i : ints)
+      {
+        bufferChain.putVarInt(i);
+      }
+      for (long l : longs)
+      {
+        bufferChain.putVarLong(l);
+      }
+      bufferChain.rewind();
+      for (int i : ints)
+      {
+        assertEquals(bufferChain.getVarInt(), i);
+      }
+      for (long l : longs)
+      {
+        assertEquals(bufferChain.getVarLong(), l);
+      }
+    }
+  }
 }
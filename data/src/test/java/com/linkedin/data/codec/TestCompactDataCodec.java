@@ -0,0 +1,236 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.data.codec;
+
+
+import com.linkedin.data.ByteString;
+import com.linkedin.data.Data;
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.TestUtil;
+import com.linkedin.data.schema.RecordDataSchema;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestCompactDataCodec
+{
+  private static final String SCHEMA =
+    "{ \"type\" : \"record\", \"name\" : \"Foo\", \"fields\" : [ " +
+    "{ \"name\" : \"int\", \"type\" : \"int\" }, " +
+    "{ \"name\" : \"long\", \"type\" : \"long\" }, " +
+    "{ \"name\" : \"string\", \"type\" : \"string\" }, " +
+    "{ \"name\" : \"bytes\", \"type\" : \"bytes\" }, " +
+    "{ \"name\" : \"bar\", \"type\" : { \"type\" : \"record\", \"name\" : \"Bar\", \"fields\" : [ " +
+    "  { \"name\" : \"x\", \"type\" : \"double\" }, " +
+    "  { \"name\" : \"y\", \"type\" : \"float\" } ] } }, " +
+    "{ \"name\" : \"bars\", \"type\" : { \"type\" : \"array\", \"items\" : \"Bar\" } }, " +
+    "{ \"name\" : \"barMap\", \"type\" : { \"type\" : \"map\", \"values\" : \"Bar\" } }, " +
+    "{ \"name\" : \"union\", \"type\" : [ \"null\", \"int\", \"Bar\" ] }, " +
+    "{ \"name\" : \"ref\", \"type\" : { \"type\" : \"typeref\", \"name\" : \"BarRef\", \"ref\" : \"Bar\" } } " +
+    "] }";
+
+  private static RecordDataSchema schema(String schemaText) throws IOException
+  {
+    return (RecordDataSchema) TestUtil.dataSchemaFromString(schemaText);
+  }
+
+  private static DataMap bar(double x, float y)
+  {
+    DataMap bar = new DataMap();
+    bar.put("x", x);
+    bar.put("y", y);
+    return bar;
+  }
+
+  private static DataMap foo()
+  {
+    DataMap foo = new DataMap();
+    foo.put("int", Integer.MIN_VALUE);
+    foo.put("long", Long.MAX_VALUE);
+    foo.put("string", "caf\u00e9");
+    foo.put("bytes", ByteString.copy(new byte[] { 0, 1, 2, -1 }));
+    foo.put("bar", bar(1.5, 2.5f));
+    foo.put("bars", new DataList(Arrays.asList(bar(-1.0, 0.0f), new DataMap())));
+    DataMap barMap = new DataMap();
+    barMap.put("k1", bar(3.0, 4.0f));
+    barMap.put("", bar(5.0, 6.0f));
+    foo.put("barMap", barMap);
+    DataMap union = new DataMap();
+    union.put("Bar", bar(7.0, 8.0f));
+    foo.put("union", union);
+    foo.put("ref", bar(9.0, 10.0f));
+    // not in the schema
+    foo.put("extra", new DataList(Arrays.asList(Data.NULL, true, false, "", 1, -1L, Integer.MAX_VALUE)));
+    return foo;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException
+  {
+    DataMap foo = foo();
+    CompactDataCodec[] codecs =
+    {
+      new CompactDataCodec(),
+      new CompactDataCodec(schema(SCHEMA)),
+      new CompactDataCodec(schema(SCHEMA), 17)
+    };
+    for (CompactDataCodec codec : codecs)
+    {
+      byte[] bytes = codec.mapToBytes(foo);
+      assertEquals(codec.bytesToMap(bytes), foo);
+      assertEquals(codec.readMap(new ByteArrayInputStream(bytes)), foo);
+      assertEquals(codec.readMap(ByteString.copy(bytes)), foo);
+      ByteString byteString = ByteString.copy(bytes);
+      List<ByteBuffer> segments = new ArrayList<ByteBuffer>(byteString.slice(0, 5).asByteBuffers());
+      segments.addAll(byteString.slice(5, bytes.length - 5).asByteBuffers());
+      assertEquals(codec.readMap(ByteString.unsafeWrap(segments)), foo);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      codec.writeMap(foo, out);
+      assertEquals(out.toByteArray(), bytes);
+
+      DataList list = new DataList(Arrays.asList(foo, 1, "a"));
+      assertEquals(codec.bytesToList(codec.listToBytes(list)), list);
+    }
+  }
+
+  @Test
+  public void testSchemaShrinksEncoding() throws IOException
+  {
+    DataMap foo = foo();
+    int withSchema = new CompactDataCodec(schema(SCHEMA)).mapToBytes(foo).length;
+    int withoutSchema = new CompactDataCodec().mapToBytes(foo).length;
+    int pson = new PsonDataCodec().mapToBytes(foo).length;
+    assertTrue(withSchema < withoutSchema);
+    assertTrue(withSchema < pson);
+  }
+
+  @Test
+  public void testFingerprint() throws IOException
+  {
+    RecordDataSchema schema = schema(SCHEMA);
+    assertEquals(CompactDataCodec.fingerprint(schema), CompactDataCodec.fingerprint(schema(SCHEMA)));
+    RecordDataSchema other = schema("{ \"type\" : \"record\", \"name\" : \"Foo\", \"fields\" : [ { \"name\" : \"int\", \"type\" : \"int\" } ] }");
+    assertTrue(CompactDataCodec.fingerprint(schema) != CompactDataCodec.fingerprint(other));
+
+    // data encoded with a schema can only be decoded with the same schema
+    byte[] bytes = new CompactDataCodec(schema).mapToBytes(foo());
+    expectIOException(new CompactDataCodec(), bytes);
+    expectIOException(new CompactDataCodec(other), bytes);
+
+    // data encoded without a schema can be decoded by any codec
+    DataMap map = new DataMap();
+    map.put("int", 1);
+    assertEquals(new CompactDataCodec(other).bytesToMap(new CompactDataCodec().mapToBytes(map)), map);
+  }
+
+  @Test
+  public void testMalformedInput() throws IOException
+  {
+    byte[] bytes = new CompactDataCodec(schema(SCHEMA)).mapToBytes(foo());
+    CompactDataCodec codec = new CompactDataCodec(schema(SCHEMA));
+    expectIOException(codec, Arrays.copyOf(bytes, bytes.length / 2));
+    expectIOException(codec, "not compact".getBytes(Data.UTF_8_CHARSET));
+    try
+    {
+      codec.bytesToList(bytes);
+      fail("Expected IOException");
+    }
+    catch (IOException e)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testStringsWithZeroCharacters() throws IOException
+  {
+    DataMap map = new DataMap();
+    map.put("a\u0000b", "c\u0000d");
+    map.put("\u0000", "\u0000");
+    map.put("spans buffers", "0123456789\u00000123456789\u00000123456789\u00000123456789");
+    map.put("caf\u00e9 \u20ac \ud83d\ude00", new DataList(Arrays.asList("x\u0000", "\u0000\u0000y")));
+    CompactDataCodec[] codecs = { new CompactDataCodec(), new CompactDataCodec(null, 17) };
+    for (CompactDataCodec codec : codecs)
+    {
+      byte[] bytes = codec.mapToBytes(map);
+      assertEquals(codec.bytesToMap(bytes), map);
+      assertEquals(codec.readMap(ByteString.copy(bytes)), map);
+    }
+  }
+
+  @Test
+  public void testLoneSurrogates() throws IOException
+  {
+    DataMap map = new DataMap();
+    map.put("high \ud83d", "low \ude00 and pair \ud83d\ude00");
+    DataMap expected = new DataMap();
+    expected.put("high ?", "low ? and pair \ud83d\ude00");
+    CompactDataCodec codec = new CompactDataCodec();
+    assertEquals(codec.bytesToMap(codec.mapToBytes(map)), expected);
+  }
+
+  @Test
+  public void testSizeExceedsInput() throws IOException
+  {
+    CompactDataCodec codec = new CompactDataCodec();
+    // header, fingerprint and type of an empty map or list
+    byte[] map = codec.mapToBytes(new DataMap());
+    byte[] list = codec.listToBytes(new DataList());
+    for (byte[] bytes : Arrays.asList(map, list))
+    {
+      BufferChain buffer = new BufferChain(ByteOrder.LITTLE_ENDIAN);
+      buffer.put(bytes, 0, bytes.length - 1);
+      buffer.putVarUnsignedInt(Integer.MAX_VALUE);
+      buffer.put(new byte[16], 0, 16);
+      byte[] malicious = buffer.toBytes();
+      try
+      {
+        codec.readMap(ByteString.copy(malicious));
+        fail("Expected IOException");
+      }
+      catch (IOException e)
+      {
+        assertTrue(e.getMessage().contains("exceeds the remaining input"), e.getMessage());
+      }
+    }
+  }
+
+  private static void expectIOException(CompactDataCodec codec, byte[] bytes)
+  {
+    try
+    {
+      codec.bytesToMap(bytes);
+      fail("Expected IOException");
+    }
+    catch (IOException e)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.data.collections;
+
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestCompactHashMap
+{
+  @Test
+  public void testAgainstHashMap()
+  {
+    Random random = new Random(42);
+    Map<String,Integer> expected = new HashMap<String,Integer>();
+    CompactHashMap<String,Integer> map = new CompactHashMap<String,Integer>(0);
+    for (int i = 0; i < 20000; i++)
+    {
+      String key = String.valueOf(random.nextInt(200));
+      switch (random.nextInt(3))
+      {
+        case 0:
+          assertEquals(map.remove(key), expected.remove(key));
+          break;
+        default:
+          assertEquals(map.put(key, i), expected.put(key, i));
+          break;
+      }
+      if (i % 1000 == 0)
+      {
+        assertEquals(map, expected);
+        assertEquals(map.hashCode(), expected.hashCode());
+      }
+    }
+    assertEquals(map.size(), expected.size());
+    for (int i = 0; i < 200; i++)
+    {
+      String key = String.valueOf(i);
+      assertEquals(map.get(key), expected.get(key));
+      assertEquals(map.containsKey(key), expected.containsKey(key));
+    }
+    assertEquals(map, expected);
+    assertEquals(expected, map);
+    assertEquals(map.keySet(), expected.keySet());
+    assertEquals(map.entrySet(), expected.entrySet());
+    assertTrue(map.values().containsAll(expected.values()));
+    assertEquals(map.values().size(), expected.values().size());
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertEquals(map.get("1"), null);
+  }
+
+  @Test
+  public void testNullKeyAndValue()
+  {
+    CompactHashMap<String,String> map = new CompactHashMap<String,String>(0);
+    assertNull(map.get(null));
+    assertFalse(map.containsKey(null));
+    map.put(null, "n");
+    map.put("k", null);
+    assertEquals(map.get(null), "n");
+    assertTrue(map.containsKey("k"));
+    assertTrue(map.containsValue(null));
+    assertTrue(map.keySet().contains(null));
+
+    Map<String,String> expected = new HashMap<String,String>();
+    expected.put(null, "n");
+    expected.put("k", null);
+    assertEquals(map, expected);
+    assertEquals(map.hashCode(), expected.hashCode());
+
+    assertEquals(map.remove(null), "n");
+    assertFalse(map.containsKey(null));
+  }
+
+  @Test
+  public void testIteration()
+  {
+    CompactHashMap<String,String> map = new CompactHashMap<String,String>(TestCommonMap.referenceMap1);
+    for (Map.Entry<String,String> e : map.entrySet())
+    {
+      // replacing values is not a structural modification
+      map.put(e.getKey(), "X" + e.getValue());
+    }
+    for (Map.Entry<String,String> e : map.entrySet())
+    {
+      e.setValue(e.getValue() + "X");
+    }
+    for (Map.Entry<String,String> e : TestCommonMap.referenceMap1.entrySet())
+    {
+      assertEquals(map.get(e.getKey()), "X" + e.getValue() + "X");
+    }
+
+    Iterator<String> it = map.keySet().iterator();
+    it.next();
+    map.put("new", "new");
+    try
+    {
+      it.next();
+      fail("expected ConcurrentModificationException");
+    }
+    catch (ConcurrentModificationException e)
+    {
+    }
+  }
+
+  @Test
+  public void testClone()
+  {
+    CompactHashMap<String,String> map1 = new CompactHashMap<String,String>(TestCommonMap.referenceMap1);
+    CompactHashMap<String,String> map2 = map1.clone();
+    map2.put("k4", "4");
+    map2.remove("k1");
+    assertEquals(map1, TestCommonMap.referenceMap1);
+    assertEquals(map2.size(), 3);
+    assertEquals(map2.get("k4"), "4");
+  }
+
+  @Test
+  public void testCheckedMapCompact() throws CloneNotSupportedException
+  {
+    TestCommonMap.Checker<String,String> checker = new TestCommonMap.Checker<String,String>();
+    CheckedMap<String,String> map = new CheckedMap<String,String>(TestCommonMap.referenceMap1, checker);
+    map.compact();
+    assertTrue(map.getObject() instanceof CompactHashMap);
+    assertEquals(map, TestCommonMap.referenceMap1);
+    assertEquals(map.hashCode(), TestCommonMap.referenceMap1.hashCode());
+
+    int checkCount = checker.checkCount;
+    map.put("k4", "4");
+    assertEquals(checker.checkCount, checkCount + 1);
+    map.remove("k4");
+
+    CheckedMap<String,String> clone = map.clone();
+    assertTrue(clone.getObject() instanceof CompactHashMap);
+    clone.put("k4", "4");
+    assertFalse(map.containsKey("k4"));
+
+    map.setReadOnly();
+    map.compact();
+    TestCommonMap.verifyReadOnly(map);
+    assertEquals(map, TestCommonMap.referenceMap1);
+  }
+
+  @Test
+  public void testDataMapCompact()
+  {
+    DataMap child = new DataMap();
+    child.put("a", 1);
+    DataMap grandChild = new DataMap();
+    grandChild.put("b", "2");
+    DataList list = new DataList();
+    list.add(grandChild);
+    DataMap map = new DataMap();
+    map.put("child", child);
+    map.put("list", list);
+    map.makeReadOnly();
+
+    DataMap expected = new DataMap(map);
+    map.compact();
+    assertEquals(map, expected);
+    assertTrue(map.isReadOnly());
+    assertTrue(map.getObject() instanceof CompactHashMap);
+    assertTrue(child.getObject() instanceof CompactHashMap);
+    assertTrue(grandChild.getObject() instanceof CompactHashMap);
+  }
+}
@@ -0,0 +1,222 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.data.collections;
+
+import com.linkedin.data.Data;
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.BsonDataCodec;
+import com.linkedin.data.codec.DataCodec;
+import com.linkedin.data.codec.JacksonDataCodec;
+import com.linkedin.data.codec.PsonDataCodec;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestPrimitiveList
+{
+  @Test
+  public void testAddAndGet()
+  {
+    DataList ints = new DataList();
+    DataList longs = new DataList();
+    DataList doubles = new DataList();
+    List<Object> expectedInts = new ArrayList<Object>();
+    List<Object> expectedLongs = new ArrayList<Object>();
+    List<Object> expectedDoubles = new ArrayList<Object>();
+    for (int i = 0; i < 100; i++)
+    {
+      ints.addInt(i);
+      longs.addLong(i * 10000000000L);
+      doubles.addDouble(i / 3.0);
+      expectedInts.add(i);
+      expectedLongs.add(i * 10000000000L);
+      expectedDoubles.add(i / 3.0);
+    }
+
+    assertSame(ints.getPrimitiveClass(), Integer.class);
+    assertSame(longs.getPrimitiveClass(), Long.class);
+    assertSame(doubles.getPrimitiveClass(), Double.class);
+    for (int i = 0; i < 100; i++)
+    {
+      assertEquals(ints.getInt(i), i);
+      assertEquals(longs.getLong(i), i * 10000000000L);
+      assertEquals(doubles.getDouble(i), i / 3.0);
+    }
+    assertEquals(ints, expectedInts);
+    assertEquals(longs, expectedLongs);
+    assertEquals(doubles, expectedDoubles);
+    assertEquals(ints.hashCode(), expectedInts.hashCode());
+    assertEquals(longs.hashCode(), expectedLongs.hashCode());
+    assertEquals(doubles.hashCode(), expectedDoubles.hashCode());
+    assertEquals(ints.toString(), expectedInts.toString());
+  }
+
+  @Test
+  public void testMixedElements()
+  {
+    DataList list = new DataList();
+    list.addInt(1);
+    list.addInt(2);
+    assertSame(list.getPrimitiveClass(), Integer.class);
+
+    // element of the same class keeps the primitive storage
+    list.add(3);
+    list.add(0, 0);
+    list.set(1, 10);
+    assertSame(list.getPrimitiveClass(), Integer.class);
+    assertEquals(list, Arrays.asList(0, 10, 2, 3));
+
+    // element of another class switches to general purpose storage
+    list.addLong(4L);
+    assertNull(list.getPrimitiveClass());
+    list.addInt(5);
+    list.add("six");
+    assertEquals(list, Arrays.<Object>asList(0, 10, 2, 3, 4L, 5, "six"));
+    assertEquals(list.getInt(0), 0);
+    assertEquals(list.getLong(4), 4L);
+    try
+    {
+      list.getInt(4);
+      fail("Expected ClassCastException");
+    }
+    catch (ClassCastException e)
+    {
+    }
+
+    DataList doubles = new DataList();
+    doubles.addDouble(1.5);
+    doubles.set(0, 2);
+    assertNull(doubles.getPrimitiveClass());
+    assertEquals(doubles, Arrays.asList(2));
+
+    DataList longs = new DataList();
+    longs.addLong(1L);
+    longs.addAll(Arrays.asList(2L, 3));
+    assertNull(longs.getPrimitiveClass());
+    assertEquals(longs, Arrays.<Object>asList(1L, 2L, 3));
+  }
+
+  @Test
+  public void testRemove()
+  {
+    DataList list = new DataList();
+    List<Object> expected = new ArrayList<Object>();
+    for (int i = 0; i < 20; i++)
+    {
+      list.addLong(i);
+      expected.add((long) i);
+    }
+
+    assertEquals(list.remove(5), expected.remove(5));
+    assertEquals(list.remove(0), expected.remove(0));
+    assertEquals(list.remove(list.size() - 1), expected.remove(expected.size() - 1));
+    list.subList(3, 7).clear();
+    expected.subList(3, 7).clear();
+    assertTrue(list.remove(Long.valueOf(10L)));
+    assertTrue(expected.remove(Long.valueOf(10L)));
+    assertFalse(list.remove(Integer.valueOf(11)));
+    assertSame(list.getPrimitiveClass(), Long.class);
+    assertEquals(list, expected);
+
+    try
+    {
+      list.getLong(list.size());
+      fail("Expected IndexOutOfBoundsException");
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+    }
+
+    list.clear();
+    assertTrue(list.isEmpty());
+    list.addDouble(1.0);
+    assertSame(list.getPrimitiveClass(), Double.class);
+  }
+
+  @Test
+  public void testCloneAndReadOnly() throws CloneNotSupportedException
+  {
+    DataList list = new DataList();
+    list.addInt(1);
+    list.addInt(2);
+
+    DataList clone = list.clone();
+    clone.addInt(3);
+    list.set(0, 0);
+    assertEquals(list, Arrays.asList(0, 2));
+    assertEquals(clone, Arrays.asList(1, 2, 3));
+    assertSame(clone.getPrimitiveClass(), Integer.class);
+
+    DataList copy = list.copy();
+    assertEquals(copy, list);
+    assertSame(copy.getPrimitiveClass(), Integer.class);
+
+    list.makeReadOnly();
+    try
+    {
+      list.addInt(3);
+      fail("Expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException e)
+    {
+    }
+    assertEquals(list, Arrays.asList(0, 2));
+  }
+
+  @Test
+  public void testCodecs() throws IOException
+  {
+    DataList ints = new DataList();
+    DataList longs = new DataList();
+    DataList doubles = new DataList();
+    for (int i = 0; i < 50; i++)
+    {
+      ints.addInt(-i);
+      longs.addLong(Long.MAX_VALUE - i);
+      doubles.addDouble(i + 0.25);
+    }
+    DataList mixed = new DataList(Arrays.<Object>asList(1, "two", 3.5, Data.NULL, 5));
+    DataMap map = new DataMap();
+    map.put("ints", ints);
+    map.put("longs", longs);
+    map.put("doubles", doubles);
+    map.put("mixed", mixed);
+
+    DataCodec[] codecs = { new JacksonDataCodec(), new PsonDataCodec(), new BsonDataCodec() };
+    for (DataCodec codec : codecs)
+    {
+      DataMap decoded = codec.bytesToMap(codec.mapToBytes(map));
+      assertEquals(decoded, map, codec.getClass().getName());
+      assertSame(decoded.getDataList("ints").getPrimitiveClass(), Integer.class);
+      assertSame(decoded.getDataList("longs").getPrimitiveClass(), Long.class);
+      assertSame(decoded.getDataList("doubles").getPrimitiveClass(), Double.class);
+      assertNull(decoded.getDataList("mixed").getPrimitiveClass());
+      assertNotSame(decoded.getDataList("ints"), ints);
+    }
+  }
+}
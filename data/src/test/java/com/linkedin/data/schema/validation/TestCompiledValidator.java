@@ -0,0 +1,204 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.data.schema.validation;
+
+
+import com.linkedin.data.DataMap;
+import com.linkedin.data.message.Message;
+import com.linkedin.data.schema.DataSchema;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static com.linkedin.data.TestUtil.dataMapFromString;
+import static com.linkedin.data.TestUtil.dataSchemaFromString;
+import static org.testng.Assert.*;
+
+
+/**
+ * Test {@link CompiledValidator} produces the same results as {@link ValidateDataAgainstSchema}.
+ */
+public class TestCompiledValidator
+{
+  private static final String SCHEMA =
+    "{ \"type\" : \"record\", \"name\" : \"Foo\", \"fields\" : [\n" +
+    "  { \"name\" : \"int\", \"type\" : \"int\", \"optional\" : true },\n" +
+    "  { \"name\" : \"long\", \"type\" : \"long\", \"optional\" : true },\n" +
+    "  { \"name\" : \"float\", \"type\" : \"float\", \"optional\" : true },\n" +
+    "  { \"name\" : \"double\", \"type\" : \"double\", \"optional\" : true },\n" +
+    "  { \"name\" : \"boolean\", \"type\" : \"boolean\", \"optional\" : true },\n" +
+    "  { \"name\" : \"string\", \"type\" : \"string\", \"optional\" : true },\n" +
+    "  { \"name\" : \"bytes\", \"type\" : \"bytes\", \"optional\" : true },\n" +
+    "  { \"name\" : \"fixed\", \"type\" : { \"type\" : \"fixed\", \"name\" : \"Fixed3\", \"size\" : 3 }, \"optional\" : true },\n" +
+    "  { \"name\" : \"enum\", \"type\" : { \"type\" : \"enum\", \"name\" : \"Fruits\", \"symbols\" : [ \"APPLE\", \"ORANGE\" ] }, \"optional\" : true },\n" +
+    "  { \"name\" : \"ref\", \"type\" : { \"type\" : \"typeref\", \"name\" : \"IntRef\", \"ref\" : \"int\" }, \"optional\" : true },\n" +
+    "  { \"name\" : \"array\", \"type\" : { \"type\" : \"array\", \"items\" : \"int\" }, \"optional\" : true },\n" +
+    "  { \"name\" : \"map\", \"type\" : { \"type\" : \"map\", \"values\" : \"long\" }, \"optional\" : true },\n" +
+    "  { \"name\" : \"union\", \"type\" : [ \"null\", \"int\", \"string\", \"Foo\" ], \"optional\" : true },\n" +
+    "  { \"name\" : \"child\", \"type\" : \"Foo\", \"optional\" : true },\n" +
+    "  { \"name\" : \"required\", \"type\" : \"int\" },\n" +
+    "  { \"name\" : \"withDefault\", \"type\" : \"string\", \"default\" : \"x\" }\n" +
+    "] }";
+
+  private static final String[] INPUTS =
+  {
+    "{ \"required\" : 1, \"withDefault\" : \"y\" }",
+    "{ \"required\" : 1 }",
+    "{ \"withDefault\" : \"y\" }",
+    "{ }",
+    "{ \"required\" : 1, \"unknown\" : { \"a\" : [ 1, 2 ] } }",
+    "{ \"required\" : \"1\" }",
+    "{ \"required\" : \"one\" }",
+    "{ \"required\" : 1, \"int\" : 2, \"long\" : 3, \"float\" : 4.5, \"double\" : 5, \"boolean\" : true, \"string\" : \"s\" }",
+    "{ \"required\" : 1, \"long\" : \"3\", \"float\" : \"4.5\", \"double\" : \"5\", \"boolean\" : \"TRUE\" }",
+    "{ \"required\" : 1, \"boolean\" : \"maybe\" }",
+    "{ \"required\" : 1, \"string\" : 1 }",
+    "{ \"required\" : 1, \"bytes\" : \"abc\", \"fixed\" : \"xyz\" }",
+    "{ \"required\" : 1, \"bytes\" : \"\\u0100\" }",
+    "{ \"required\" : 1, \"fixed\" : \"ab\" }",
+    "{ \"required\" : 1, \"enum\" : \"APPLE\" }",
+    "{ \"required\" : 1, \"enum\" : \"BANANA\" }",
+    "{ \"required\" : 1, \"ref\" : 7 }",
+    "{ \"required\" : 1, \"ref\" : \"7\" }",
+    "{ \"required\" : 1, \"array\" : [ 1, 2, 3 ] }",
+    "{ \"required\" : 1, \"array\" : [ 1, \"2\", 3 ] }",
+    "{ \"required\" : 1, \"array\" : [ 1, \"two\" ] }",
+    "{ \"required\" : 1, \"array\" : { } }",
+    "{ \"required\" : 1, \"map\" : { \"a\" : 1, \"b\" : 2 } }",
+    "{ \"required\" : 1, \"map\" : { \"a\" : \"1\" } }",
+    "{ \"required\" : 1, \"map\" : [ ] }",
+    "{ \"required\" : 1, \"union\" : null }",
+    "{ \"required\" : 1, \"union\" : { \"int\" : 1 } }",
+    "{ \"required\" : 1, \"union\" : { \"int\" : \"1\" } }",
+    "{ \"required\" : 1, \"union\" : { \"string\" : \"s\" } }",
+    "{ \"required\" : 1, \"union\" : { \"long\" : 1 } }",
+    "{ \"required\" : 1, \"union\" : { \"int\" : 1, \"string\" : \"s\" } }",
+    "{ \"required\" : 1, \"union\" : { \"Foo\" : { \"required\" : \"2\" } } }",
+    "{ \"required\" : 1, \"union\" : 1 }",
+    "{ \"required\" : 1, \"child\" : { \"required\" : 2, \"child\" : { \"required\" : \"3\" } } }",
+    "{ \"required\" : 1, \"child\" : { \"child\" : { \"required\" : 3 } } }",
+    "{ \"required\" : 1, \"child\" : 2 }",
+    "{ \"required\" : \"1\", \"long\" : \"2\", \"bytes\" : \"abc\", \"array\" : [ \"3\", 4, \"5\" ], " +
+      "\"map\" : { \"a\" : \"6\", \"b\" : 7, \"c\" : 8.0 }, \"union\" : { \"int\" : \"9\" }, " +
+      "\"child\" : { \"required\" : \"10\", \"fixed\" : \"xyz\", \"double\" : 11 } }"
+  };
+
+  @DataProvider
+  public Object[][] inputs()
+  {
+    List<Object[]> rows = new ArrayList<Object[]>();
+    for (String input : INPUTS)
+    {
+      for (RequiredMode requiredMode : RequiredMode.values())
+      {
+        for (CoercionMode coercionMode : CoercionMode.values())
+        {
+          for (boolean readOnly : new boolean[] { false, true })
+          {
+            rows.add(new Object[] { input, new ValidationOptions(requiredMode, coercionMode), readOnly });
+          }
+        }
+      }
+    }
+    return rows.toArray(new Object[rows.size()][]);
+  }
+
+  @Test(dataProvider = "inputs")
+  public void testSameAsValidateDataAgainstSchema(String input, ValidationOptions options, boolean readOnly) throws IOException
+  {
+    DataSchema schema = dataSchemaFromString(SCHEMA);
+    DataMap expected = dataMapFromString(input);
+    DataMap actual = dataMapFromString(input);
+    if (readOnly)
+    {
+      expected.makeReadOnly();
+      actual.makeReadOnly();
+    }
+
+    ValidationResult expectedResult = ValidateDataAgainstSchema.validate(expected, schema, options);
+    ValidationResult actualResult = CompiledValidator.compile(schema, options).validate(actual);
+
+    assertEquals(actualResult.isValid(), expectedResult.isValid());
+    assertEquals(actualResult.hasFix(), expectedResult.hasFix());
+    assertEquals(actualResult.hasFixupReadOnlyError(), expectedResult.hasFixupReadOnlyError());
+    assertEquals(messages(actualResult), messages(expectedResult));
+    assertSame(actualResult.getFixed(), actual);
+    assertEquals(actual, expected);
+  }
+
+  private static List<String> messages(ValidationResult result)
+  {
+    List<String> messages = new ArrayList<String>();
+    for (Message message : result.getMessages())
+    {
+      messages.add(message.toString());
+    }
+    return messages;
+  }
+
+  @Test
+  public void testAvroUnionMode() throws IOException
+  {
+    DataSchema schema = dataSchemaFromString(
+      "{ \"type\" : \"record\", \"name\" : \"Bar\", \"fields\" : [ { \"name\" : \"u\", \"type\" : [ \"long\", \"string\" ] } ] }");
+    ValidationOptions options = new ValidationOptions();
+    options.setAvroUnionMode(true);
+
+    for (String input : new String[] { "{ \"u\" : 1 }", "{ \"u\" : 1.5 }", "{ \"u\" : \"s\" }", "{ \"u\" : null }" })
+    {
+      DataMap expected = dataMapFromString(input);
+      DataMap actual = dataMapFromString(input);
+      ValidationResult expectedResult = ValidateDataAgainstSchema.validate(expected, schema, options);
+      ValidationResult actualResult = CompiledValidator.compile(schema, options).validate(actual);
+      assertEquals(actualResult.isValid(), expectedResult.isValid(), input);
+      assertEquals(actualResult.hasFix(), expectedResult.hasFix(), input);
+      assertEquals(actual, expected, input);
+    }
+  }
+
+  @Test
+  public void testCompileIsCached() throws IOException
+  {
+    DataSchema schema = dataSchemaFromString(SCHEMA);
+    ValidationOptions options = new ValidationOptions(RequiredMode.IGNORE, CoercionMode.NORMAL);
+    CompiledValidator validator = CompiledValidator.compile(schema, options);
+
+    assertSame(CompiledValidator.compile(schema, new ValidationOptions(RequiredMode.IGNORE, CoercionMode.NORMAL)), validator);
+    assertNotSame(CompiledValidator.compile(schema, new ValidationOptions(RequiredMode.IGNORE, CoercionMode.OFF)), validator);
+    assertNotSame(CompiledValidator.compile(dataSchemaFromString(SCHEMA), options), validator);
+    ValidationOptions withParameter = new ValidationOptions(RequiredMode.IGNORE, CoercionMode.NORMAL);
+    withParameter.setValidatorParameter("key", "value");
+    CompiledValidator parameterValidator = CompiledValidator.compile(schema, withParameter);
+    assertNotSame(parameterValidator, validator);
+    // the cache holds a copy of the options, so changing them does not change the cached key
+    withParameter.setValidatorParameter("key", "other");
+    ValidationOptions sameParameter = new ValidationOptions(RequiredMode.IGNORE, CoercionMode.NORMAL);
+    sameParameter.setValidatorParameter("key", "value");
+    assertSame(CompiledValidator.compile(schema, sameParameter), parameterValidator);
+
+    // the compiled validator keeps the options it was compiled with
+    options.setCoercionMode(CoercionMode.OFF);
+    DataMap map = dataMapFromString("{ \"int\" : 1.5 }");
+    ValidationResult result = validator.validate(map);
+    assertTrue(result.isValid());
+    assertTrue(result.hasFix());
+    assertEquals(map.get("int"), 1);
+  }
+}
@@ -786,6 +786,36 @@ public class TestArrayTemplate
     testNumberArray(DoubleArray.class, schema, input, castFrom);
   }
 
+  @Test
+  public void testPrimitiveAccessors()
+  {
+    DataList ints = new DataList();
+    ints.addInt(1);
+    ints.addInt(3);
+    IntegerArray integerArray = new IntegerArray(ints);
+    integerArray.addInt(5);
+    assertEquals(ints.getPrimitiveClass(), Integer.class);
+    assertEquals(integerArray.getInt(2), 5);
+    assertEquals(integerArray, new IntegerArray(Arrays.asList(1, 3, 5)));
+    // elements stored as another number class are coerced
+    assertEquals(new IntegerArray(new DataList(asList(1L, 3L))).getInt(1), 3);
+
+    LongArray longArray = new LongArray();
+    longArray.addLong(1L);
+    longArray.addLong(Long.MAX_VALUE);
+    assertEquals(longArray.data().getPrimitiveClass(), Long.class);
+    assertEquals(longArray.getLong(1), Long.MAX_VALUE);
+    assertEquals(new LongArray(new DataList(asList(1, 3))).getLong(1), 3L);
+
+    DoubleArray doubleArray = new DoubleArray();
+    doubleArray.addDouble(0.5);
+    assertEquals(doubleArray.data().getPrimitiveClass(), Double.class);
+    assertEquals(doubleArray.getDouble(0), 0.5);
+    doubleArray.add(1.5);
+    assertEquals(doubleArray.getDouble(1), 1.5);
+    assertEquals(new DoubleArray(new DataList(asList(1, 2L))).getDouble(1), 2.0);
+  }
+
   @Test
   public void testStringArray() throws InstantiationException, IllegalAccessException
   {
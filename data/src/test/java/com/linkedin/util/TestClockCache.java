@@ -0,0 +1,101 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.util;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestClockCache
+{
+  @Test
+  public void testPutIfAbsent()
+  {
+    ClockCache<String, Integer> cache = new ClockCache<String, Integer>(4);
+    Assert.assertNull(cache.get("a"));
+    Assert.assertEquals(cache.putIfAbsent("a", 1), Integer.valueOf(1));
+    Assert.assertEquals(cache.putIfAbsent("a", 2), Integer.valueOf(1));
+    Assert.assertEquals(cache.get("a"), Integer.valueOf(1));
+    Assert.assertEquals(cache.size(), 1);
+    Assert.assertEquals(cache.capacity(), 4);
+  }
+
+  @Test
+  public void testEvictsUnreferencedEntries()
+  {
+    ClockCache<Integer, Integer> cache = new ClockCache<Integer, Integer>(4);
+    for (int i = 0; i < 4; i++)
+    {
+      cache.putIfAbsent(i, i);
+    }
+    // 0 is read, so the new entries replace the others
+    for (int i = 4; i < 10; i++)
+    {
+      cache.get(0);
+      cache.putIfAbsent(i, i);
+      Assert.assertEquals(cache.size(), 4);
+    }
+    Assert.assertEquals(cache.get(0), Integer.valueOf(0));
+    Assert.assertNull(cache.get(1));
+    Assert.assertEquals(cache.get(9), Integer.valueOf(9));
+  }
+
+  @Test
+  public void testConcurrentPuts() throws InterruptedException
+  {
+    final ClockCache<Integer, Integer> cache = new ClockCache<Integer, Integer>(16);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++)
+    {
+      final int offset = t * 1000;
+      Thread thread = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            start.await();
+          }
+          catch (InterruptedException e)
+          {
+            return;
+          }
+          for (int i = 0; i < 1000; i++)
+          {
+            Integer key = offset + i;
+            Assert.assertEquals(cache.putIfAbsent(key, key), key);
+            cache.get(offset);
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads)
+    {
+      thread.join();
+    }
+    Assert.assertEquals(cache.size(), 16);
+  }
+}
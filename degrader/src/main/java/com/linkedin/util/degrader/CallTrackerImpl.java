@@ -26,7 +26,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.linkedin.common.stats.LongHistogramTracking;
 import com.linkedin.common.stats.LongStats;
+import com.linkedin.common.stats.LongTracker;
 import com.linkedin.common.stats.LongTracking;
 import com.linkedin.util.clock.Clock;
 import com.linkedin.util.clock.SystemClock;
@@ -40,7 +42,8 @@ import com.linkedin.util.clock.SystemClock;
  * periodically.
  * 3.) CallTrackerImpl.CallTrackerStats is the actual data that is being moved around. You can think of
  * CallTrackerStats as an immutable DTO.
- * 4.) LongTracking is used in CallTrackerImpl.Tracker to calculate the statistics of the call.
+ * 4.) LongTracking, or LongHistogramTracking, is used in CallTrackerImpl.Tracker to calculate the statistics
+ * of the call.
  *
  * @author Dave Messink
  * @author Chris Pettitt
@@ -81,6 +84,16 @@ public class CallTrackerImpl implements CallTracker
   }
 
   public CallTrackerImpl(long interval, Clock clock)
+  {
+    this(interval, clock, false);
+  }
+
+  /**
+   * @param latencyHistogram if true, call times are tracked by a {@link LongHistogramTracking},
+   *          whose memory use and rollover cost do not grow with the number of calls, instead
+   *          of a {@link LongTracking}.
+   */
+  public CallTrackerImpl(long interval, Clock clock, boolean latencyHistogram)
   {
     _clock = clock;
     _interval = interval;
@@ -88,7 +101,7 @@ public class CallTrackerImpl implements CallTracker
     _lastResetTime = _clock.currentTimeMillis();
     _errorTypeCountsTotal = new HashMap<ErrorType, Integer>();
     /* create trackers for each resolution */
-    _tracker = new Tracker();
+    _tracker = new Tracker(latencyHistogram);
   }
 
   @Override
@@ -419,7 +432,7 @@ public class CallTrackerImpl implements CallTracker
    * Tracker is used to track the statistics of calls in one interval. Notice that this class is an inner class
    * of CallTrackerImpl. This means some instance variables like totalCall refers to the outer class. This is
    * because CallTrackerImpl keeps track of total call whereas Tracker keeps track of call in one interval.
-   * Tracker uses the helper class LongTracking for keeping track of statistics like percentage error rate,
+   * Tracker uses the helper class LongTracking or LongHistogramTracking for keeping track of statistics like percentage error rate,
    * 95 percentile, max value, etc.
    * Tracker also rollover the call stats every interval to listeners.
    */
@@ -431,13 +444,13 @@ public class CallTrackerImpl implements CallTracker
     private int _callStartCount;
     private int _errorCount;
     private int _concurrentMax;
-    private final LongTracking _callTimeTracking;
+    private final LongTracker _callTimeTracking;
     //this map is used to store the number of specific errors that happened in one interval only
     private final Map<ErrorType, Integer> _errorTypeCounts;
 
-    private Tracker()
+    private Tracker(boolean latencyHistogram)
     {
-      _callTimeTracking = new LongTracking();
+      _callTimeTracking = latencyHistogram ? new LongHistogramTracking() : new LongTracking();
       _errorTypeCounts = new HashMap<ErrorType, Integer>();
       reset();
     }
@@ -540,7 +553,10 @@ public class CallTrackerImpl implements CallTracker
     }
   }
 
-  private static class Pending
+  /**
+   * Rollover events waiting to be delivered; also used by {@link StripedCallTrackerImpl}.
+   */
+  static class Pending
   {
     private static class PendingEvent implements StatsRolloverEvent
     {
@@ -569,18 +585,18 @@ public class CallTrackerImpl implements CallTracker
     private final List<PendingEvent> _pendingEvents;
     private final List<StatsRolloverEventListener> _listeners;
 
-    private Pending(List<StatsRolloverEventListener> listeners)
+    Pending(List<StatsRolloverEventListener> listeners)
     {
       _pendingEvents = new ArrayList<PendingEvent>(4);
       _listeners = listeners;
     }
 
-    private void add(CallStats stats, boolean reset)
+    void add(CallStats stats, boolean reset)
     {
       _pendingEvents.add(new PendingEvent(stats, reset));
     }
 
-    private void deliver()
+    void deliver()
     {
       for (PendingEvent event : _pendingEvents)
       {
@@ -117,6 +117,10 @@ import com.linkedin.common.util.ConfigHelper;
  * The latency metric from CallTracker that compared against highLatency and lowLatency
  * is determined by the latencyToUse configuration parameter. It can be the average,
  * 50, 90, 95, 99th percentile latency.
+ *
+ * The latencyHistogram configuration parameter is not used by the degrader itself; it tells
+ * whoever creates the CallTracker to track call times in a fixed-size histogram rather than a
+ * sample of the call times, see {@link CallTrackerImpl#CallTrackerImpl(long, Clock, boolean)}.
  */
 
 public class DegraderImpl implements Degrader
@@ -141,6 +145,7 @@ public class DegraderImpl implements Degrader
   public static final long     DEFAULT_LOW_OUTSTANDING  = Time.milliseconds(  500);
   public static final Integer  DEFAULT_MIN_OUTSTANDING_COUNT = 5;
   public static final Integer  DEFAULT_OVERRIDE_MIN_CALL_COUNT = -1;
+  public static final Boolean  DEFAULT_LATENCY_HISTOGRAM = false;
 
   private ImmutableConfig _config;
   private String _name;
@@ -603,6 +608,7 @@ public class DegraderImpl implements Degrader
     protected long _lowOutstanding = DEFAULT_LOW_OUTSTANDING;
     protected int _minOutstandingCount = DEFAULT_MIN_OUTSTANDING_COUNT;
     protected int _overrideMinCallCount = DEFAULT_OVERRIDE_MIN_CALL_COUNT;
+    protected boolean _latencyHistogram = DEFAULT_LATENCY_HISTOGRAM;
 
     public ImmutableConfig()
     {
@@ -629,6 +635,7 @@ public class DegraderImpl implements Degrader
       this._lowOutstanding = config._lowOutstanding;
       this._minOutstandingCount = config._minOutstandingCount;
       this._overrideMinCallCount = config._overrideMinCallCount;
+      this._latencyHistogram = config._latencyHistogram;
     }
 
     public String getName()
@@ -725,6 +732,11 @@ public class DegraderImpl implements Degrader
     {
       return _overrideMinCallCount;
     }
+
+    public boolean isLatencyHistogram()
+    {
+      return _latencyHistogram;
+    }
   }
 
   public static class Config extends ImmutableConfig
@@ -833,5 +845,10 @@ public class DegraderImpl implements Degrader
     {
       _overrideMinCallCount = overrideMinCallCount;
     }
+
+    public void setLatencyHistogram(Boolean latencyHistogram)
+    {
+      _latencyHistogram = latencyHistogram;
+    }
   }
 }
@@ -0,0 +1,589 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.util.degrader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.linkedin.common.stats.LongHistogramTracking;
+import com.linkedin.common.stats.LongTracker;
+import com.linkedin.common.stats.LongTracking;
+import com.linkedin.util.clock.Clock;
+import com.linkedin.util.clock.SystemClock;
+
+
+/**
+ * A {@link CallTracker} for trackers shared by many threads. It produces the same statistics
+ * and rollover events as {@link CallTrackerImpl}, but calls do not all synchronize on one lock.
+ *
+ * Each thread records its calls into one of several cells, chosen by thread id. The counters
+ * of a cell are atomic; only its {@link LongTracker} of call times is guarded by the cell's
+ * monitor, which is shared by the threads mapped to the cell and by rollover. The concurrency
+ * and outstanding start times are atomic counters too. The cells are only merged at interval
+ * rollover, or when the totals are read.
+ *
+ * Unlike {@link CallTrackerImpl}, a call which ends while another thread is rolling over the
+ * interval in which it ended may be counted in the following interval.
+ */
+public class StripedCallTrackerImpl implements CallTracker
+{
+  private static final Clock DEFAULT_CLOCK = SystemClock.instance();
+  private static final int MAX_STRIPES = 64;
+  private static final int CELL_MAX_CAPACITY = 1000;
+  private static final int CELL_INITIAL_CAPACITY = 32;
+  private static final double CELL_GROWTH_FACTOR = 2.0;
+  private static final ErrorType[] ERROR_TYPES = ErrorType.values();
+
+  // Protects the interval state, _pending and writes to _listeners.
+  private final Object _lock = new Object();
+
+  private final Clock _clock;
+  private final long _interval;
+  private final boolean _latencyHistogram;
+
+  // Cells are created when a thread mapped to them first records a call.
+  private final AtomicReferenceArray<Cell> _cells;
+  private final int _mask;
+
+  private volatile long _lastStartTime;
+  private volatile long _lastResetTime;
+  private final AtomicInteger _concurrency = new AtomicInteger();
+  private final AtomicInteger _concurrentMax = new AtomicInteger();
+  private final AtomicLong _sumOfOutstandingStartTimes = new AtomicLong();
+
+  private volatile CallStats _stats;
+  private long _startTime;
+  private CallTrackerImpl.Pending _pending = null;
+
+  // This CallTrackerListener list is immutable and copy-on-write.
+  private volatile List<StatsRolloverEventListener> _listeners = new ArrayList<StatsRolloverEventListener>();
+
+  public StripedCallTrackerImpl(long interval)
+  {
+    this(interval, DEFAULT_CLOCK);
+  }
+
+  public StripedCallTrackerImpl(long interval, Clock clock)
+  {
+    this(interval, clock, false);
+  }
+
+  public StripedCallTrackerImpl(long interval, Clock clock, boolean latencyHistogram)
+  {
+    this(interval, clock, Runtime.getRuntime().availableProcessors(), latencyHistogram);
+  }
+
+  /**
+   * @param interval the interval of the rolled over statistics.
+   * @param clock the clock.
+   * @param stripes the number of cells into which calls are recorded; rounded up to a power
+   *          of two, at most {@value #MAX_STRIPES}.
+   * @param latencyHistogram if true, call times are tracked by {@link LongHistogramTracking}s
+   *          instead of {@link LongTracking}s.
+   */
+  public StripedCallTrackerImpl(long interval, Clock clock, int stripes, boolean latencyHistogram)
+  {
+    int size = 1;
+    while (size < stripes && size < MAX_STRIPES)
+    {
+      size <<= 1;
+    }
+    _cells = new AtomicReferenceArray<Cell>(size);
+    _mask = size - 1;
+    _clock = clock;
+    _interval = interval;
+    _latencyHistogram = latencyHistogram;
+    _lastStartTime = -1;
+    _lastResetTime = _clock.currentTimeMillis();
+    _startTime = _lastResetTime - _interval;
+    rolloverStats(_lastResetTime, true);
+  }
+
+  @Override
+  public CallCompletion startCall()
+  {
+    long currentTime = _clock.currentTimeMillis();
+    rolloverIfStale(currentTime);
+
+    Cell cell = getCell();
+    cell._callStartCount.incrementAndGet();
+    cell._callStartCountTotal.incrementAndGet();
+    int concurrency = _concurrency.incrementAndGet();
+    for (int max = _concurrentMax.get(); concurrency > max; max = _concurrentMax.get())
+    {
+      if (_concurrentMax.compareAndSet(max, concurrency))
+      {
+        break;
+      }
+    }
+    _lastStartTime = currentTime;
+    _sumOfOutstandingStartTimes.addAndGet(currentTime);
+    return new CallCompletionImpl(currentTime);
+  }
+
+  @Override
+  public CallStats getCallStats()
+  {
+    return rolloverIfStale(_clock.currentTimeMillis());
+  }
+
+  @Override
+  public long getInterval()
+  {
+    return _interval;
+  }
+
+  @Override
+  public void addStatsRolloverEventListener(StatsRolloverEventListener listener)
+  {
+    synchronized (_lock)
+    {
+      List<StatsRolloverEventListener> copy = new ArrayList<StatsRolloverEventListener>(_listeners);
+      copy.add(listener);
+      _listeners = Collections.unmodifiableList(copy);
+    }
+  }
+
+  @Override
+  public boolean removeStatsRolloverEventListener(StatsRolloverEventListener listener)
+  {
+    boolean removed = false;
+    synchronized (_lock)
+    {
+      if (_listeners.contains(listener))
+      {
+        List<StatsRolloverEventListener> copy = new ArrayList<StatsRolloverEventListener>(_listeners);
+        removed = copy.remove(listener);
+        _listeners = Collections.unmodifiableList(copy);
+      }
+    }
+    return removed;
+  }
+
+  @Override
+  public long getCurrentCallCountTotal()
+  {
+    long total = 0;
+    for (int i = 0; i < _cells.length(); i++)
+    {
+      Cell cell = _cells.get(i);
+      if (cell != null)
+      {
+        total += cell._callCountTotal.get();
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public long getCurrentCallStartCountTotal()
+  {
+    long total = 0;
+    for (int i = 0; i < _cells.length(); i++)
+    {
+      Cell cell = _cells.get(i);
+      if (cell != null)
+      {
+        total += cell._callStartCountTotal.get();
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public long getCurrentErrorCountTotal()
+  {
+    long total = 0;
+    for (int i = 0; i < _cells.length(); i++)
+    {
+      Cell cell = _cells.get(i);
+      if (cell != null)
+      {
+        total += cell._errorCountTotal.get();
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public Map<ErrorType, Integer> getCurrentErrorTypeCountsTotal()
+  {
+    Map<ErrorType, Integer> total = new HashMap<ErrorType, Integer>();
+    for (int i = 0; i < _cells.length(); i++)
+    {
+      Cell cell = _cells.get(i);
+      if (cell != null)
+      {
+        addCounts(total, cell._errorTypeCountsTotal, false);
+      }
+    }
+    return Collections.unmodifiableMap(total);
+  }
+
+  @Override
+  public int getCurrentConcurrency()
+  {
+    return _concurrency.get();
+  }
+
+  @Override
+  public long getTimeSinceLastCallStart()
+  {
+    long lastStartTime = _lastStartTime;
+    return lastStartTime == -1 ? -1 : _clock.currentTimeMillis() - lastStartTime;
+  }
+
+  @Override
+  public long getLastResetTime()
+  {
+    return _lastResetTime;
+  }
+
+  @Override
+  public void reset()
+  {
+    CallTrackerImpl.Pending pending;
+    synchronized (_lock)
+    {
+      _lastStartTime = -1;
+      _lastResetTime = _clock.currentTimeMillis();
+      for (int i = 0; i < _cells.length(); i++)
+      {
+        Cell cell = _cells.get(i);
+        if (cell != null)
+        {
+          cell.resetInterval();
+          cell.resetTotals();
+        }
+      }
+      _startTime = _lastResetTime - _interval;
+      _concurrentMax.set(_concurrency.get());
+      rolloverStats(_lastResetTime, true);
+      pending = checkForPending();
+    }
+    // Always deliver pending events without holding _lock to avoid deadlocks.
+    if (pending != null)
+    {
+      pending.deliver();
+    }
+  }
+
+  @Override
+  public void trackCall(long duration)
+  {
+    trackCall(duration, false);
+  }
+
+  @Override
+  public void trackCallWithError(long duration)
+  {
+    trackCall(duration, true);
+  }
+
+  private void trackCall(long duration, boolean hasError)
+  {
+    rolloverIfStale(_clock.currentTimeMillis());
+    addCallData(duration, hasError, null);
+  }
+
+  private void addCallData(long duration, boolean hasError, ErrorType errorType)
+  {
+    Cell cell = getCell();
+    synchronized (cell)
+    {
+      cell._callTimeTracking.addValue(duration);
+    }
+    cell._callCountTotal.incrementAndGet();
+    if (hasError)
+    {
+      cell._errorCount.incrementAndGet();
+      cell._errorCountTotal.incrementAndGet();
+    }
+    if (errorType != null)
+    {
+      cell._errorTypeCounts.incrementAndGet(errorType.ordinal());
+      if (hasError)
+      {
+        cell._errorTypeCountsTotal.incrementAndGet(errorType.ordinal());
+      }
+    }
+  }
+
+  private Cell getCell()
+  {
+    int index = (int) Thread.currentThread().getId() & _mask;
+    Cell cell = _cells.get(index);
+    if (cell == null)
+    {
+      LongTracker callTimeTracking = _latencyHistogram
+          ? new LongHistogramTracking()
+          : new LongTracking(CELL_MAX_CAPACITY, CELL_INITIAL_CAPACITY, CELL_GROWTH_FACTOR);
+      _cells.compareAndSet(index, null, new Cell(callTimeTracking));
+      cell = _cells.get(index);
+    }
+    return cell;
+  }
+
+  /**
+   * Rolls over the statistics if the current interval has elapsed, and delivers the resulting
+   * events.
+   *
+   * @return the most recent statistics.
+   */
+  private CallStats rolloverIfStale(long currentTime)
+  {
+    CallStats stats = _stats;
+    if (stats.stale(currentTime))
+    {
+      CallTrackerImpl.Pending pending;
+      synchronized (_lock)
+      {
+        stats = getStatsWithCurrentTime(currentTime);
+        pending = checkForPending();
+      }
+      // Always deliver events without holding _lock to avoid deadlocks.
+      if (pending != null)
+      {
+        pending.deliver();
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * Must be called while holding _lock.
+   */
+  private CallStats getStatsWithCurrentTime(long currentTime)
+  {
+    if (_stats.stale(currentTime))
+    {
+      long offset = currentTime - _lastResetTime;
+      long currentStartOffset = ((offset / _interval) * _interval);
+      long lastEnd = _lastResetTime + currentStartOffset;
+      long lastStart = lastEnd - _interval;
+      if (_startTime == lastStart)
+      {
+        // Current interval has elapsed.
+        // Emit stats and start new current interval.
+        rolloverStats(lastEnd, false);
+      }
+      else if (_startTime < lastStart)
+      {
+        // Current interval is stale, emit stale accumulated stats.
+        rolloverStats(_startTime + _interval, false);
+        // Start new interval.
+        _startTime = lastStart;
+        rolloverStats(lastEnd, false);
+      }
+    }
+    return _stats;
+  }
+
+  /**
+   * Merges and resets the interval statistics of all cells, and adds the rollover event.
+   * Must be called while holding _lock.
+   */
+  private void rolloverStats(long endTime, boolean reset)
+  {
+    LongTracker callTimeTracking = _latencyHistogram ? new LongHistogramTracking() : new LongTracking();
+    int callStartCount = 0;
+    int errorCount = 0;
+    long callCountTotal = 0;
+    long callStartCountTotal = 0;
+    long errorCountTotal = 0;
+    Map<ErrorType, Integer> errorTypeCounts = new HashMap<ErrorType, Integer>();
+    Map<ErrorType, Integer> errorTypeCountsTotal = new HashMap<ErrorType, Integer>();
+    for (int i = 0; i < _cells.length(); i++)
+    {
+      Cell cell = _cells.get(i);
+      if (cell != null)
+      {
+        synchronized (cell)
+        {
+          callTimeTracking.merge(cell._callTimeTracking);
+          cell._callTimeTracking.reset();
+        }
+        callStartCount += cell._callStartCount.getAndSet(0);
+        errorCount += cell._errorCount.getAndSet(0);
+        addCounts(errorTypeCounts, cell._errorTypeCounts, true);
+        callCountTotal += cell._callCountTotal.get();
+        callStartCountTotal += cell._callStartCountTotal.get();
+        errorCountTotal += cell._errorCountTotal.get();
+        addCounts(errorTypeCountsTotal, cell._errorTypeCountsTotal, false);
+      }
+    }
+
+    int concurrency = _concurrency.get();
+    long sumOfOutstandingStartTimes = _sumOfOutstandingStartTimes.get();
+    _stats = new CallTrackerImpl.CallTrackerStats(
+      _interval,
+      _startTime,
+      endTime,
+      callCountTotal,
+      callStartCount,
+      callStartCountTotal,
+      errorCount,
+      errorCountTotal,
+      _concurrentMax.getAndSet(concurrency),
+      concurrency == 0 ? 0 : (sumOfOutstandingStartTimes / concurrency),
+      concurrency,
+      callTimeTracking.getStats(), errorTypeCounts, errorTypeCountsTotal);
+
+    _startTime = endTime;
+
+    if (!_listeners.isEmpty())
+    {
+      if (_pending == null)
+      {
+        _pending = new CallTrackerImpl.Pending(_listeners);
+      }
+      _pending.add(_stats, reset);
+    }
+  }
+
+  /**
+   * Must be called while holding _lock.
+   *
+   * @return pending events, which the caller must deliver after releasing _lock
+   */
+  private CallTrackerImpl.Pending checkForPending()
+  {
+    CallTrackerImpl.Pending pending = _pending;
+    _pending = null;
+    return pending;
+  }
+
+  /**
+   * Adds the non-zero counts of a cell, indexed by {@link ErrorType} ordinal, to the map.
+   *
+   * @param reset if true, the counts of the cell are reset to zero.
+   */
+  private static void addCounts(Map<ErrorType, Integer> counts, AtomicIntegerArray added, boolean reset)
+  {
+    for (int i = 0; i < ERROR_TYPES.length; i++)
+    {
+      int value = reset ? added.getAndSet(i, 0) : added.get(i);
+      if (value != 0)
+      {
+        Integer count = counts.get(ERROR_TYPES[i]);
+        counts.put(ERROR_TYPES[i], count == null ? value : count + value);
+      }
+    }
+  }
+
+  private class CallCompletionImpl implements CallCompletion
+  {
+    private final AtomicBoolean _done = new AtomicBoolean();
+    private final long _start;
+
+    private CallCompletionImpl(long currentTime)
+    {
+      _start = currentTime;
+    }
+
+    @Override
+    public void endCall()
+    {
+      endCall(false, null);
+    }
+
+    @Override
+    public void endCallWithError()
+    {
+      endCall(true, null);
+    }
+
+    @Override
+    public void endCallWithError(ErrorType errorType)
+    {
+      endCall(true, errorType);
+    }
+
+    private void endCall(boolean hasError, ErrorType errorType)
+    {
+      if (_done.compareAndSet(false, true))
+      {
+        long currentTime = _clock.currentTimeMillis();
+        rolloverIfStale(currentTime);
+
+        if (_start >= _lastResetTime)
+        {
+          addCallData(currentTime - _start, hasError, errorType);
+        }
+
+        // Concurrency and the sum of outstanding start times are not reset
+        _concurrency.decrementAndGet();
+        _sumOfOutstandingStartTimes.addAndGet(-_start);
+      }
+    }
+  }
+
+  /**
+   * The calls recorded by the threads mapped to one stripe. The call time tracker is protected
+   * by the cell's monitor, the counters are atomic.
+   */
+  private static class Cell
+  {
+    private final AtomicInteger _callStartCount = new AtomicInteger();
+    private final AtomicInteger _errorCount = new AtomicInteger();
+    private final LongTracker _callTimeTracking;
+    private final AtomicIntegerArray _errorTypeCounts = new AtomicIntegerArray(ERROR_TYPES.length);
+
+    private final AtomicLong _callCountTotal = new AtomicLong();
+    private final AtomicLong _callStartCountTotal = new AtomicLong();
+    private final AtomicLong _errorCountTotal = new AtomicLong();
+    private final AtomicIntegerArray _errorTypeCountsTotal = new AtomicIntegerArray(ERROR_TYPES.length);
+
+    private Cell(LongTracker callTimeTracking)
+    {
+      _callTimeTracking = callTimeTracking;
+    }
+
+    private void resetInterval()
+    {
+      _callStartCount.set(0);
+      _errorCount.set(0);
+      synchronized (this)
+      {
+        _callTimeTracking.reset();
+      }
+      for (int i = 0; i < ERROR_TYPES.length; i++)
+      {
+        _errorTypeCounts.set(i, 0);
+      }
+    }
+
+    private void resetTotals()
+    {
+      _callCountTotal.set(0);
+      _callStartCountTotal.set(0);
+      _errorCountTotal.set(0);
+      for (int i = 0; i < ERROR_TYPES.length; i++)
+      {
+        _errorTypeCountsTotal.set(i, 0);
+      }
+    }
+  }
+}
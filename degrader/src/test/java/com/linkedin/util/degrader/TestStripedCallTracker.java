@@ -0,0 +1,106 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.util.degrader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.util.clock.Clock;
+import com.linkedin.util.clock.SettableClock;
+import com.linkedin.util.clock.Time;
+
+/**
+ * Runs the {@link TestCallTracker} tests against {@link StripedCallTrackerImpl}.
+ */
+public class TestStripedCallTracker extends TestCallTracker
+{
+  @Override
+  protected CallTracker createCallTracker(long interval, Clock clock)
+  {
+    return new StripedCallTrackerImpl(interval, clock, 4, false);
+  }
+
+  @Test
+  public void testConcurrentCalls() throws Exception
+  {
+    final int threads = 8;
+    final int calls = 1000;
+    final SettableClock clock = new SettableClock();
+    final CallTracker callTracker = createCallTracker(Time.minutes(1), clock);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    List<Thread> workers = new ArrayList<Thread>();
+    for (int i = 0; i < threads; i++)
+    {
+      final boolean withError = i % 2 == 0;
+      Thread worker = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            start.await();
+          }
+          catch (InterruptedException e)
+          {
+            return;
+          }
+          for (int j = 0; j < calls; j++)
+          {
+            CallCompletion done = callTracker.startCall();
+            if (withError)
+            {
+              done.endCallWithError(ErrorType.HTTP_500_ERROR);
+            }
+            else
+            {
+              done.endCall();
+            }
+          }
+        }
+      };
+      worker.start();
+      workers.add(worker);
+    }
+    start.countDown();
+    for (Thread worker : workers)
+    {
+      worker.join();
+    }
+
+    Assert.assertEquals(callTracker.getCurrentConcurrency(), 0);
+    Assert.assertEquals(callTracker.getCurrentCallCountTotal(), threads * calls);
+    Assert.assertEquals(callTracker.getCurrentCallStartCountTotal(), threads * calls);
+    Assert.assertEquals(callTracker.getCurrentErrorCountTotal(), threads / 2 * calls);
+    Assert.assertEquals(callTracker.getCurrentErrorTypeCountsTotal().get(ErrorType.HTTP_500_ERROR).intValue(),
+                        threads / 2 * calls);
+
+    // The calls of all threads are merged into the interval statistics
+    clock.addDuration(Time.minutes(1));
+    CallTracker.CallStats stats = callTracker.getCallStats();
+    Assert.assertEquals(stats.getCallCount(), threads * calls);
+    Assert.assertEquals(stats.getCallStartCount(), threads * calls);
+    Assert.assertEquals(stats.getErrorCount(), threads / 2 * calls);
+    Assert.assertEquals(stats.getErrorRate(), 0.5);
+    Assert.assertEquals(stats.getCallTimeStats().getMaximum(), 0);
+  }
+}
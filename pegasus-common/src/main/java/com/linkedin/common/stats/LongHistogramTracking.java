@@ -0,0 +1,247 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.common.stats;
+
+import java.util.Arrays;
+
+
+/**
+ * Maintain a histogram of values and provide the count, average, standard deviation,
+ * minimum, maximum, percentile values for the collection.
+ *
+ * Unlike {@link LongTracking}, which keeps a sample of the values and sorts it to compute
+ * the percentiles, the memory used and the cost of computing the percentiles are constant.
+ * Values are counted in buckets whose width grows with the magnitude of the values: values
+ * below 2^precisionBits are counted exactly, and larger values in buckets whose width is at
+ * most 1/2^(precisionBits-1) of their lowest value.  A percentile is the middle of the bucket
+ * holding it.  Values of 2^{@value #MAX_VALUE_BITS} and above are counted in the highest
+ * bucket.  The count, average, standard deviation, minimum and maximum are exact.
+ *
+ * This class implementation is not synchronized. If concurrent access is required, it
+ * must be synchronized externally.
+ */
+public class LongHistogramTracking implements LongTracker
+{
+  public static final int DEFAULT_PRECISION_BITS = 6;
+  private static final int MAX_VALUE_BITS = 40;
+  private static final double[] PERCENTILES = { 0.50, 0.90, 0.95, 0.99 };
+
+  private final int           _precisionBits;
+  private final int           _linearCount;
+  private final int           _halfCount;
+  private final int[]         _counts;
+  private int                 _maxIndex;
+
+  private int                 _count;
+  private long                _min;
+  private long                _max;
+  private long                _sum;
+  private long                _sumOfSquares;
+
+  public LongHistogramTracking()
+  {
+    this(DEFAULT_PRECISION_BITS);
+  }
+
+  /**
+   * @param precisionBits the number of significant bits of the tracked values, between 2
+   *          and 16.
+   */
+  public LongHistogramTracking(int precisionBits)
+  {
+    if (precisionBits < 2 || precisionBits > 16)
+    {
+      throw new IllegalArgumentException("precisionBits must be between 2 and 16: " + precisionBits);
+    }
+    _precisionBits = precisionBits;
+    _linearCount = 1 << precisionBits;
+    _halfCount = _linearCount >> 1;
+    _counts = new int[_linearCount + (MAX_VALUE_BITS - precisionBits) * _halfCount];
+    reset();
+  }
+
+  @Override
+  public void reset()
+  {
+    Arrays.fill(_counts, 0, _maxIndex + 1, 0);
+    _maxIndex = -1;
+
+    _count = 0;
+    _min = 0;
+    _max = 0;
+    _sum = 0;
+    _sumOfSquares = 0;
+  }
+
+  @Override
+  public void addValue(long value)
+  {
+    if (_count == 0)
+    {
+      _min = _max = value;
+    }
+    else if (value < _min)
+    {
+      _min = value;
+    }
+    else if (value > _max)
+    {
+      _max = value;
+    }
+    _sum += value;
+    _sumOfSquares += value * value;
+    _count++;
+
+    int index = index(value);
+    _counts[index]++;
+    if (index > _maxIndex)
+    {
+      _maxIndex = index;
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if other is not a {@link LongHistogramTracking} with the
+   *           same precision.
+   */
+  @Override
+  public void merge(LongTracker other)
+  {
+    if (!(other instanceof LongHistogramTracking)
+        || ((LongHistogramTracking) other)._precisionBits != _precisionBits)
+    {
+      throw new IllegalArgumentException("Cannot merge " + other.getClass().getName()
+                                             + " into LongHistogramTracking with precision " + _precisionBits);
+    }
+    LongHistogramTracking histogram = (LongHistogramTracking) other;
+    if (histogram._count == 0)
+    {
+      return;
+    }
+    if (_count == 0)
+    {
+      _min = histogram._min;
+      _max = histogram._max;
+    }
+    else
+    {
+      _min = Math.min(_min, histogram._min);
+      _max = Math.max(_max, histogram._max);
+    }
+    _sum += histogram._sum;
+    _sumOfSquares += histogram._sumOfSquares;
+    _count += histogram._count;
+
+    for (int i = 0; i <= histogram._maxIndex; i++)
+    {
+      _counts[i] += histogram._counts[i];
+    }
+    _maxIndex = Math.max(_maxIndex, histogram._maxIndex);
+  }
+
+  @Override
+  public LongStats getStats()
+  {
+    long[] percentiles = new long[PERCENTILES.length];
+    if (_count > 0)
+    {
+      int next = 0;
+      long rank = rank(PERCENTILES[next]);
+      long cumulative = 0;
+      for (int i = 0; i <= _maxIndex && next < PERCENTILES.length; i++)
+      {
+        cumulative += _counts[i];
+        while (cumulative > rank)
+        {
+          percentiles[next++] = valueOf(i);
+          if (next == PERCENTILES.length)
+          {
+            break;
+          }
+          rank = rank(PERCENTILES[next]);
+        }
+      }
+    }
+    return new LongStats(_count, getAverage(), getStandardDeviation(), _min, _max,
+                         percentiles[0], percentiles[1], percentiles[2], percentiles[3]);
+  }
+
+  public int getPrecisionBits()
+  {
+    return _precisionBits;
+  }
+
+  private double getAverage()
+  {
+    return safeDivide(_sum, _count);
+  }
+
+  private double getStandardDeviation()
+  {
+    double variation;
+    variation = safeDivide(_sumOfSquares - _sum * getAverage(), _count);
+    return Math.sqrt(variation);
+  }
+
+  /**
+   * @return the index of the value in the sorted values, as used by {@link LongTracking}.
+   */
+  private long rank(double pct)
+  {
+    return Math.round(pct * (_count - 1));
+  }
+
+  private int index(long value)
+  {
+    if (value < _linearCount)
+    {
+      return value < 0 ? 0 : (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent >= MAX_VALUE_BITS)
+    {
+      return _counts.length - 1;
+    }
+    int mantissa = (int) (value >>> (exponent - _precisionBits + 1));
+    return _linearCount + (exponent - _precisionBits) * _halfCount + (mantissa - _halfCount);
+  }
+
+  /**
+   * @return the middle of the bucket, within the range of tracked values.
+   */
+  private long valueOf(int index)
+  {
+    long value;
+    if (index < _linearCount)
+    {
+      value = index;
+    }
+    else
+    {
+      int offset = index - _linearCount;
+      int shift = offset / _halfCount + 1;
+      long lowest = ((long) (_halfCount + offset % _halfCount)) << shift;
+      value = lowest + ((1L << shift) - 1) / 2;
+    }
+    return Math.max(_min, Math.min(_max, value));
+  }
+
+  private static double safeDivide(final double numerator, final double denominator)
+  {
+    return denominator != 0 ? numerator / denominator : 0;
+  }
+}
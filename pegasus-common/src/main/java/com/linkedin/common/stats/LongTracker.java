@@ -0,0 +1,42 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.common.stats;
+
+
+/**
+ * Tracks a collection of values and provides the count, average, standard deviation,
+ * minimum, maximum, percentile values for the collection.
+ *
+ * Implementations are not synchronized. If concurrent access is required, they must be
+ * synchronized externally.
+ */
+public interface LongTracker
+{
+  void addValue(long value);
+
+  /**
+   * Add the values of another tracker to this tracker.
+   *
+   * @param other a tracker of the same type and configuration, which is not modified.
+   * @throws IllegalArgumentException if the other tracker cannot be merged into this one.
+   */
+  void merge(LongTracker other);
+
+  void reset();
+
+  LongStats getStats();
+}
@@ -36,7 +36,7 @@ import com.linkedin.common.util.ConfigHelper;
  * This class implementation is not synchronized. If concurrent access is required, it
  * must be synchronized externally.
  */
-public class LongTracking
+public class LongTracking implements LongTracker
 {
   private static final int    DEFAULT_INITIAL_CAPACITY = 1000;
   private static final double DEFAULT_GROWTH_FACTOR    = 2.0;
@@ -124,6 +124,61 @@ public class LongTracking
       return;
     }
 
+    keepValue(value);
+  }
+
+  /**
+   * Add the values of another instance to this instance. The count, average, standard
+   * deviation, minimum and maximum are the same as if the values had been added one by one.
+   * Each kept value stands for as many added values as the keep ratio of its instance, so the
+   * kept values of the instance with the lower ratio are thinned to the higher ratio before
+   * the percentiles are computed from the values kept by both instances.
+   *
+   * @param other the instance whose values are added, which is not modified.
+   * @throws IllegalArgumentException if other is not a {@link LongTracking}.
+   */
+  public void merge(LongTracker other)
+  {
+    if (!(other instanceof LongTracking))
+    {
+      throw new IllegalArgumentException("Cannot merge " + other.getClass().getName() + " into LongTracking");
+    }
+    merge((LongTracking) other);
+  }
+
+  private void merge(LongTracking other)
+  {
+    if (other._count == 0)
+    {
+      return;
+    }
+    if (_count == 0)
+    {
+      _min = other._min;
+      _max = other._max;
+    }
+    else
+    {
+      _min = Math.min(_min, other._min);
+      _max = Math.max(_max, other._max);
+    }
+    _sum += other._sum;
+    _sumOfSquares += other._sumOfSquares;
+    _count += other._count;
+
+    while (_keepRatio < other._keepRatio)
+    {
+      dropHalf();
+    }
+    // keepValue may double _keepRatio, after which fewer of the other values are kept
+    for (int i = 0; i < other._nextIndex; i += _keepRatio / other._keepRatio)
+    {
+      keepValue(other._buffer[i]);
+    }
+  }
+
+  private void keepValue(long value)
+  {
     if (_nextIndex >= _bufferSize)
     {
       if (_bufferSize < _maxCapacity)
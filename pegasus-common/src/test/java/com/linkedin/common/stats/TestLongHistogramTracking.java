@@ -0,0 +1,137 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.common.stats;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class TestLongHistogramTracking
+{
+  @Test
+  public void testEmpty()
+  {
+    LongStats stats = new LongHistogramTracking().getStats();
+    Assert.assertEquals(stats.getCount(), 0);
+    Assert.assertEquals(stats.getAverage(), 0.0);
+    Assert.assertEquals(stats.getMinimum(), 0);
+    Assert.assertEquals(stats.get50Pct(), 0);
+    Assert.assertEquals(stats.get99Pct(), 0);
+  }
+
+  @Test
+  public void testSmallValuesAreExact()
+  {
+    LongHistogramTracking histogram = new LongHistogramTracking();
+    LongTracking tracking = new LongTracking();
+    for (long i = 0; i < 64; ++i)
+    {
+      histogram.addValue(i);
+      tracking.addValue(i);
+    }
+    LongStats stats = histogram.getStats();
+    LongStats expected = tracking.getStats();
+    Assert.assertEquals(stats.getCount(), expected.getCount(), "Count is incorrect");
+    Assert.assertEquals(stats.getAverage(), expected.getAverage(), 0.0001, "Average is incorrect");
+    Assert.assertEquals(stats.getStandardDeviation(), expected.getStandardDeviation(), 0.0001,
+                        "Standard deviation is incorrect");
+    Assert.assertEquals(stats.getMinimum(), 0, "Minimum is incorrect");
+    Assert.assertEquals(stats.getMaximum(), 63, "Maximum is incorrect");
+    Assert.assertEquals(stats.get50Pct(), expected.get50Pct(), "50 percentile is incorrect");
+    Assert.assertEquals(stats.get90Pct(), expected.get90Pct(), "90 percentile is incorrect");
+    Assert.assertEquals(stats.get95Pct(), expected.get95Pct(), "95 percentile is incorrect");
+    Assert.assertEquals(stats.get99Pct(), expected.get99Pct(), "99 percentile is incorrect");
+  }
+
+  @Test
+  public void testRelativeError()
+  {
+    LongHistogramTracking histogram = new LongHistogramTracking();
+    long begin = 1000;
+    long count = 1000000;
+    for (long i = begin; i < begin + count; ++i)
+    {
+      histogram.addValue(i);
+    }
+    LongStats stats = histogram.getStats();
+    // Buckets are at most 1/32 of their lowest value wide
+    double error = 1.0 / 32;
+    Assert.assertEquals(stats.getCount(), count, "Count is incorrect");
+    Assert.assertEquals(stats.getMinimum(), begin, "Minimum is incorrect");
+    Assert.assertEquals(stats.getMaximum(), begin + count - 1, "Maximum is incorrect");
+    Assert.assertEquals(stats.getAverage(), begin + (count - 1) / 2.0, 0.0001, "Average is incorrect");
+    assertWithin(stats.get50Pct(), begin + count * 0.50, error, "50 percentile is incorrect");
+    assertWithin(stats.get90Pct(), begin + count * 0.90, error, "90 percentile is incorrect");
+    assertWithin(stats.get95Pct(), begin + count * 0.95, error, "95 percentile is incorrect");
+    assertWithin(stats.get99Pct(), begin + count * 0.99, error, "99 percentile is incorrect");
+  }
+
+  @Test
+  public void testLargeValues()
+  {
+    LongHistogramTracking histogram = new LongHistogramTracking();
+    histogram.addValue(-5);
+    histogram.addValue(-5);
+    histogram.addValue(Long.MAX_VALUE / 4);
+    LongStats stats = histogram.getStats();
+    Assert.assertEquals(stats.getMinimum(), -5, "Minimum is incorrect");
+    Assert.assertEquals(stats.getMaximum(), Long.MAX_VALUE / 4, "Maximum is incorrect");
+    // Negative values are counted as 0
+    Assert.assertEquals(stats.get50Pct(), 0, "50 percentile is incorrect");
+    Assert.assertTrue(stats.get99Pct() > 0 && stats.get99Pct() <= Long.MAX_VALUE / 4, "99 percentile is incorrect");
+  }
+
+  @Test
+  public void testMergeAndReset()
+  {
+    LongHistogramTracking odd = new LongHistogramTracking();
+    LongHistogramTracking even = new LongHistogramTracking();
+    LongHistogramTracking all = new LongHistogramTracking();
+    for (long i = 1; i <= 10000; ++i)
+    {
+      (i % 2 == 0 ? even : odd).addValue(i);
+      all.addValue(i);
+    }
+    odd.merge(even);
+    LongStats stats = odd.getStats();
+    LongStats expected = all.getStats();
+    Assert.assertEquals(stats.getCount(), expected.getCount(), "Count is incorrect");
+    Assert.assertEquals(stats.getAverage(), expected.getAverage(), 0.0001, "Average is incorrect");
+    Assert.assertEquals(stats.getMinimum(), 1, "Minimum is incorrect");
+    Assert.assertEquals(stats.getMaximum(), 10000, "Maximum is incorrect");
+    Assert.assertEquals(stats.get50Pct(), expected.get50Pct(), "50 percentile is incorrect");
+    Assert.assertEquals(stats.get99Pct(), expected.get99Pct(), "99 percentile is incorrect");
+
+    odd.reset();
+    odd.addValue(7);
+    stats = odd.getStats();
+    Assert.assertEquals(stats.getCount(), 1, "Count is incorrect");
+    Assert.assertEquals(stats.get99Pct(), 7, "99 percentile is incorrect");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testMergeIncompatible()
+  {
+    new LongHistogramTracking().merge(new LongHistogramTracking(7));
+  }
+
+  private static void assertWithin(long actual, double expected, double relativeError, String message)
+  {
+    Assert.assertTrue(Math.abs(actual - expected) <= expected * relativeError,
+                      message + ": expected " + expected + " but was " + actual);
+  }
+}
@@ -74,6 +74,62 @@ public class TestLongTrackingAndLongStats
     assertEquals(begin + count * 0.99, stats.get99Pct(), 1000.0, "99 percentile is incorrect");
   }
 
+  @Test
+  public void testMerge()
+  {
+    LongTracking other = new LongTracking();
+    LongTracking all = new LongTracking();
+    for (long i = 1; i <= 1000; ++i)
+    {
+      (i % 3 == 0 ? other : _tracking).addValue(i);
+      all.addValue(i);
+    }
+    _tracking.merge(other);
+    _tracking.merge(new LongTracking());
+
+    LongStats stats = _tracking.getStats();
+    LongStats expected = all.getStats();
+    Assert.assertEquals(stats.getCount(), expected.getCount(), "Count is incorrect");
+    assertEquals(stats.getAverage(), expected.getAverage(), 0.0001, "Average is incorrect");
+    assertEquals(stats.getStandardDeviation(), expected.getStandardDeviation(), 0.0001,
+                 "Standard deviation is incorrect");
+    Assert.assertEquals(stats.getMinimum(), 1, "Minimum is incorrect");
+    Assert.assertEquals(stats.getMaximum(), 1000, "Maximum is incorrect");
+    Assert.assertEquals(stats.get50Pct(), expected.get50Pct(), "50 percentile is incorrect");
+    Assert.assertEquals(stats.get99Pct(), expected.get99Pct(), "99 percentile is incorrect");
+
+    // Merging into an empty instance copies the values
+    LongTracking empty = new LongTracking();
+    empty.merge(other);
+    Assert.assertEquals(empty.getStats().getMinimum(), 3, "Minimum is incorrect");
+    Assert.assertEquals(empty.getStats().getMaximum(), 999, "Maximum is incorrect");
+  }
+
+  @Test
+  public void testMergeDifferentKeepRatios()
+  {
+    // 10000 fast calls are thinned by their tracker, 1000 slow calls are all kept by theirs
+    LongTracking fast = new LongTracking(1000, 32, 2.0);
+    LongTracking slow = new LongTracking(1000, 32, 2.0);
+    for (int i = 0; i < 10000; ++i)
+    {
+      fast.addValue(1);
+    }
+    for (int i = 0; i < 1000; ++i)
+    {
+      slow.addValue(1000);
+    }
+    LongTracking merged = new LongTracking();
+    merged.merge(fast);
+    merged.merge(slow);
+
+    LongStats stats = merged.getStats();
+    Assert.assertEquals(stats.getCount(), 11000, "Count is incorrect");
+    Assert.assertEquals(stats.get50Pct(), 1, "50 percentile is incorrect");
+    Assert.assertEquals(stats.get90Pct(), 1, "90 percentile is incorrect");
+    Assert.assertEquals(stats.get99Pct(), 1000, "99 percentile is incorrect");
+  }
+
   @Test public void testDecreasingLinearly()
   {
     long begin = 2000000;
@@ -0,0 +1,117 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.data.ByteString;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.BsonDataCodec;
+import com.linkedin.data.codec.ByteStringDataCodec;
+import com.linkedin.data.codec.DataCodec;
+import com.linkedin.data.codec.JacksonDataCodec;
+import com.linkedin.data.codec.PsonDataCodec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encode and decode throughput of the {@link DataCodec} implementations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark
+{
+  private static final int SEGMENT_SIZE = 4096;
+
+  @Param({"json", "pson", "bson"})
+  public String codec;
+
+  @Param({PerfData.RECORD, PerfData.DEEP_RECORD, PerfData.BATCH_1K})
+  public String payload;
+
+  private DataCodec _codec;
+  private DataMap _map;
+  private byte[] _bytes;
+  private ByteString _entity;
+
+  @Setup
+  public void setup() throws IOException
+  {
+    _codec = newCodec(codec);
+    _map = PerfData.payload(payload);
+    _bytes = _codec.mapToBytes(_map);
+
+    // mimic an entity received in several transport buffers
+    List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+    for (int offset = 0; offset < _bytes.length; offset += SEGMENT_SIZE)
+    {
+      segments.add(ByteBuffer.wrap(_bytes, offset, Math.min(SEGMENT_SIZE, _bytes.length - offset)));
+    }
+    _entity = ByteString.unsafeWrap(segments);
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException
+  {
+    return _codec.mapToBytes(_map);
+  }
+
+  @Benchmark
+  public DataMap decode() throws IOException
+  {
+    return _codec.bytesToMap(_bytes);
+  }
+
+  @Benchmark
+  public DataMap decodeByteString() throws IOException
+  {
+    if (_codec instanceof ByteStringDataCodec)
+    {
+      return ((ByteStringDataCodec) _codec).readMap(_entity);
+    }
+    return _codec.readMap(_entity.asInputStream());
+  }
+
+  static DataCodec newCodec(String name)
+  {
+    if ("json".equals(name))
+    {
+      return new JacksonDataCodec();
+    }
+    else if ("pson".equals(name))
+    {
+      return new PsonDataCodec();
+    }
+    else if ("bson".equals(name))
+    {
+      return new BsonDataCodec();
+    }
+    throw new IllegalArgumentException("Unknown codec " + name);
+  }
+}
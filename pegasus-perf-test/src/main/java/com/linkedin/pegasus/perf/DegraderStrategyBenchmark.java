@@ -0,0 +1,147 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.common.util.None;
+import com.linkedin.d2.balancer.clients.TrackerClient;
+import com.linkedin.d2.balancer.properties.PartitionData;
+import com.linkedin.d2.balancer.strategies.degrader.DegraderLoadBalancerStrategyConfig;
+import com.linkedin.d2.balancer.strategies.degrader.DegraderLoadBalancerStrategyV3;
+import com.linkedin.d2.balancer.util.hashing.URIRegexHash;
+import com.linkedin.d2.balancer.util.partitions.DefaultPartitionAccessor;
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestRequest;
+import com.linkedin.r2.message.rest.RestRequestBuilder;
+import com.linkedin.r2.message.rest.RestResponse;
+import com.linkedin.r2.message.rpc.RpcRequest;
+import com.linkedin.r2.message.rpc.RpcResponse;
+import com.linkedin.r2.transport.common.bridge.client.TransportClient;
+import com.linkedin.r2.transport.common.bridge.common.TransportCallback;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of {@link DegraderLoadBalancerStrategyV3#getTrackerClient} once the partition state is initialized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DegraderStrategyBenchmark
+{
+  private static final long CLUSTER_GENERATION_ID = 1L;
+  private static final int PARTITION_ID = DefaultPartitionAccessor.DEFAULT_PARTITION_ID;
+
+  @Param({"10", "100", "500"})
+  public int hosts;
+
+  @Param({DegraderLoadBalancerStrategyV3.HASH_METHOD_NONE, DegraderLoadBalancerStrategyV3.HASH_METHOD_URI_REGEX})
+  public String hashMethod;
+
+  private DegraderLoadBalancerStrategyV3 _strategy;
+  private List<TrackerClient> _trackerClients;
+  private RestRequest _request;
+
+  @Setup
+  public void setup()
+  {
+    Map<String, Object> hashConfig = new HashMap<String, Object>();
+    hashConfig.put(URIRegexHash.KEY_REGEXES, Collections.singletonList("/records/(\\d+)"));
+
+    // the update interval is large enough that no update happens during a measurement
+    DegraderLoadBalancerStrategyConfig defaults = new DegraderLoadBalancerStrategyConfig(TimeUnit.DAYS.toMillis(1), 0d);
+    DegraderLoadBalancerStrategyConfig config =
+        new DegraderLoadBalancerStrategyConfig(defaults.getUpdateIntervalMs(),
+                                               defaults.getMaxClusterLatencyWithoutDegrading(),
+                                               defaults.getDefaultSuccessfulTransmissionWeight(),
+                                               defaults.getPointsPerWeight(),
+                                               hashMethod,
+                                               hashConfig,
+                                               defaults.getClock(),
+                                               defaults.getInitialRecoveryLevel(),
+                                               defaults.getRingRampFactor(),
+                                               defaults.getHighWaterMark(),
+                                               defaults.getLowWaterMark(),
+                                               defaults.getGlobalStepUp(),
+                                               defaults.getGlobalStepDown());
+    _strategy = new DegraderLoadBalancerStrategyV3(config, "benchmarkService");
+
+    _trackerClients = new ArrayList<TrackerClient>(hosts);
+    for (int i = 0; i < hosts; i++)
+    {
+      URI uri = URI.create("http://host" + i + ".example.com:1234/service");
+      Map<Integer, PartitionData> partitionDataMap = new HashMap<Integer, PartitionData>(2);
+      partitionDataMap.put(PARTITION_ID, new PartitionData(1d));
+      _trackerClients.add(new TrackerClient(uri, partitionDataMap, new NoopTransportClient()));
+    }
+
+    _request = new RestRequestBuilder(URI.create("/records/12345")).setMethod("GET").build();
+
+    // initialize the partition state outside of the measurement
+    _strategy.getTrackerClient(_request, new RequestContext(), CLUSTER_GENERATION_ID, PARTITION_ID, _trackerClients);
+  }
+
+  @Benchmark
+  public TrackerClient getTrackerClient()
+  {
+    return _strategy.getTrackerClient(_request,
+                                      new RequestContext(),
+                                      CLUSTER_GENERATION_ID,
+                                      PARTITION_ID,
+                                      _trackerClients);
+  }
+
+  private static class NoopTransportClient implements TransportClient
+  {
+    @Override
+    public void restRequest(RestRequest request,
+                            RequestContext requestContext,
+                            Map<String, String> wireAttrs,
+                            TransportCallback<RestResponse> callback)
+    {
+    }
+
+    @Override
+    public void rpcRequest(RpcRequest request,
+                           RequestContext requestContext,
+                           Map<String, String> wireAttrs,
+                           TransportCallback<RpcResponse> callback)
+    {
+    }
+
+    @Override
+    public void shutdown(Callback<None> callback)
+    {
+      callback.onSuccess(None.none());
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.data.DataMap;
+import com.linkedin.data.transform.DataMapProcessor;
+import com.linkedin.data.transform.DataProcessingException;
+import com.linkedin.data.transform.filter.Filter;
+import com.linkedin.data.transform.filter.FilterConstants;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of projecting a response with the {@link Filter} interpreter. The response is copied
+ * before every projection, as the server does, so that each invocation sees the same input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterBenchmark
+{
+  @Param({PerfData.RECORD, PerfData.BATCH_1K})
+  public String payload;
+
+  private DataMap _data;
+  private DataMap _mask;
+
+  @Setup
+  public void setup()
+  {
+    _data = PerfData.payload(payload);
+
+    DataMap recordMask = new DataMap();
+    recordMask.put("id", FilterConstants.POSITIVE);
+    recordMask.put("message", FilterConstants.POSITIVE);
+    recordMask.put("tone", FilterConstants.POSITIVE);
+
+    if (PerfData.BATCH_1K.equals(payload))
+    {
+      DataMap wildcard = new DataMap();
+      wildcard.put(FilterConstants.WILDCARD, recordMask);
+      _mask = new DataMap();
+      _mask.put("results", wildcard);
+    }
+    else
+    {
+      _mask = recordMask;
+    }
+  }
+
+  @Benchmark
+  public DataMap cloneAndFilter() throws CloneNotSupportedException, DataProcessingException
+  {
+    DataMap data = _data.copy();
+    new DataMapProcessor(new Filter(), _mask, data).run(false);
+    return data;
+  }
+}
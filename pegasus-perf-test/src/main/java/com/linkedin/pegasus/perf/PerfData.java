@@ -0,0 +1,137 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.data.ByteString;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.template.StringArray;
+import com.linkedin.data.template.StringMap;
+
+/**
+ * Builds the representative payloads shared by the micro benchmarks.
+ */
+public final class PerfData
+{
+  public static final String RECORD = "record";
+  public static final String DEEP_RECORD = "deepRecord";
+  public static final String BATCH_1K = "batch1k";
+
+  public static final int DEEP_RECORD_DEPTH = 20;
+  public static final int BATCH_SIZE = 1000;
+
+  private PerfData()
+  {
+  }
+
+  /**
+   * Returns the payload for one of the {@link #RECORD}, {@link #DEEP_RECORD} or {@link #BATCH_1K} names.
+   *
+   * @param name of the payload.
+   * @return a new {@link DataMap} for the payload.
+   */
+  public static DataMap payload(String name)
+  {
+    if (RECORD.equals(name))
+    {
+      return newRecord(1L).data();
+    }
+    else if (DEEP_RECORD.equals(name))
+    {
+      return newDeepRecord(DEEP_RECORD_DEPTH).data();
+    }
+    else if (BATCH_1K.equals(name))
+    {
+      return newBatchResponse(BATCH_SIZE);
+    }
+    throw new IllegalArgumentException("Unknown payload " + name);
+  }
+
+  /**
+   * Returns a flat {@link PerfRecord} with every field populated, except for the child.
+   *
+   * @param id of the record.
+   * @return a new {@link PerfRecord}.
+   */
+  public static PerfRecord newRecord(long id)
+  {
+    StringArray tags = new StringArray();
+    StringMap attributes = new StringMap();
+    for (int i = 0; i < 10; i++)
+    {
+      tags.add("tag" + i);
+      attributes.put("attribute" + i, "value of attribute " + i);
+    }
+
+    byte[] payload = new byte[64];
+    for (int i = 0; i < payload.length; i++)
+    {
+      payload[i] = (byte) i;
+    }
+
+    return new PerfRecord()
+      .setId(id)
+      .setMessage("Hello, this is benchmark record number " + id)
+      .setTone(Tone.FRIENDLY)
+      .setScore(id * 1.5)
+      .setCount((int) id)
+      .setActive(id % 2 == 0)
+      .setTags(tags)
+      .setAttributes(attributes)
+      .setPayload(ByteString.copy(payload));
+  }
+
+  /**
+   * Returns a {@link PerfRecord} nested {@code depth} levels deep through its child field.
+   *
+   * @param depth of the record, a depth of 1 is a flat record.
+   * @return a new {@link PerfRecord}.
+   */
+  public static PerfRecord newDeepRecord(int depth)
+  {
+    PerfRecord root = newRecord(0L);
+    PerfRecord current = root;
+    for (int i = 1; i < depth; i++)
+    {
+      PerfRecord child = newRecord(i);
+      current.setChild(child);
+      current = child;
+    }
+    return root;
+  }
+
+  /**
+   * Returns a {@link DataMap} shaped like a batch get response with {@code size} entries.
+   *
+   * @param size of the batch.
+   * @return a new {@link DataMap}.
+   */
+  public static DataMap newBatchResponse(int size)
+  {
+    DataMap results = new DataMap(size * 2);
+    for (int i = 0; i < size; i++)
+    {
+      results.put(Integer.toString(i), newRecord(i).data());
+    }
+
+    DataMap batch = new DataMap();
+    batch.put("results", results);
+    batch.put("errors", new DataMap());
+    return batch;
+  }
+}
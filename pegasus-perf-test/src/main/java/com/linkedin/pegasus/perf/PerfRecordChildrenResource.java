@@ -0,0 +1,35 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.restli.server.annotations.RestLiCollection;
+import com.linkedin.restli.server.resources.CollectionResourceTemplate;
+
+/**
+ * Sub-resource of {@link PerfRecordsResource} so that routing benchmarks descend more than one level.
+ */
+@RestLiCollection(parent = PerfRecordsResource.class, name = "children", keyName = "childId")
+public class PerfRecordChildrenResource extends CollectionResourceTemplate<Long, PerfRecord>
+{
+  @Override
+  public PerfRecord get(Long key)
+  {
+    return PerfData.newRecord(key);
+  }
+}
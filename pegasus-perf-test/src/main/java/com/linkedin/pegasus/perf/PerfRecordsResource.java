@@ -0,0 +1,66 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.restli.server.PagingContext;
+import com.linkedin.restli.server.annotations.Context;
+import com.linkedin.restli.server.annotations.Finder;
+import com.linkedin.restli.server.annotations.QueryParam;
+import com.linkedin.restli.server.annotations.RestLiCollection;
+import com.linkedin.restli.server.resources.CollectionResourceTemplate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Root collection routed to by the rest.li benchmarks.
+ */
+@RestLiCollection(name = "records", namespace = "com.linkedin.pegasus.perf", keyName = "recordId")
+public class PerfRecordsResource extends CollectionResourceTemplate<Long, PerfRecord>
+{
+  @Override
+  public PerfRecord get(Long key)
+  {
+    return PerfData.newRecord(key);
+  }
+
+  @Override
+  public Map<Long, PerfRecord> batchGet(Set<Long> ids)
+  {
+    Map<Long, PerfRecord> result = new HashMap<Long, PerfRecord>();
+    for (Long id : ids)
+    {
+      result.put(id, PerfData.newRecord(id));
+    }
+    return result;
+  }
+
+  @Finder("search")
+  public List<PerfRecord> search(@QueryParam("message") String message, @Context PagingContext pagingContext)
+  {
+    List<PerfRecord> result = new ArrayList<PerfRecord>(pagingContext.getCount());
+    for (int i = 0; i < pagingContext.getCount(); i++)
+    {
+      result.add(PerfData.newRecord(pagingContext.getStart() + i).setMessage(message));
+    }
+    return result;
+  }
+}
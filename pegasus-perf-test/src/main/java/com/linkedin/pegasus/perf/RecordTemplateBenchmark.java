@@ -0,0 +1,102 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.data.template.RecordTemplate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Field access cost of generated {@link RecordTemplate}s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecordTemplateBenchmark
+{
+  private PerfRecord _record;
+  private PerfRecord _deepRecord;
+  private long _counter;
+
+  @Setup
+  public void setup()
+  {
+    _record = PerfData.newRecord(1L);
+    _deepRecord = PerfData.newDeepRecord(PerfData.DEEP_RECORD_DEPTH);
+  }
+
+  @Benchmark
+  public long getPrimitive()
+  {
+    return _record.getId() + _record.getCount();
+  }
+
+  @Benchmark
+  public Object getString()
+  {
+    return _record.getMessage();
+  }
+
+  @Benchmark
+  public Object getEnum()
+  {
+    return _record.getTone();
+  }
+
+  @Benchmark
+  public Object getWrapped()
+  {
+    return _record.getTags();
+  }
+
+  @Benchmark
+  public Object getDeep()
+  {
+    PerfRecord current = _deepRecord;
+    while (current.hasChild())
+    {
+      current = current.getChild();
+    }
+    return current.getMessage();
+  }
+
+  @Benchmark
+  public Object putPrimitive()
+  {
+    return _record.setId(++_counter);
+  }
+
+  @Benchmark
+  public Object putString()
+  {
+    return _record.setMessage("message");
+  }
+
+  @Benchmark
+  public Object newRecord()
+  {
+    return new PerfRecord().setId(1L).setMessage("message").setTone(Tone.SINCERE).setScore(1.5);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+
+package com.linkedin.pegasus.perf;
+
+
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestRequest;
+import com.linkedin.r2.message.rest.RestRequestBuilder;
+import com.linkedin.restli.internal.server.RestLiRouter;
+import com.linkedin.restli.internal.server.RoutingResult;
+import com.linkedin.restli.internal.server.model.ResourceModel;
+import com.linkedin.restli.internal.server.model.RestLiApiBuilder;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of {@link RestLiRouter#process(RestRequest, RequestContext)} for common request shapes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RestLiRouterBenchmark
+{
+  private RestLiRouter _router;
+  private RestRequest _get;
+  private RestRequest _subResourceGet;
+  private RestRequest _batchGet;
+  private RestRequest _finder;
+
+  @Setup
+  public void setup()
+  {
+    Set<Class<?>> resourceClasses = new HashSet<Class<?>>();
+    resourceClasses.add(PerfRecordsResource.class);
+    resourceClasses.add(PerfRecordChildrenResource.class);
+    Map<String, ResourceModel> rootResources = RestLiApiBuilder.buildResourceModels(resourceClasses);
+    _router = new RestLiRouter(rootResources);
+
+    _get = newGet("/records/1");
+    _subResourceGet = newGet("/records/1/children/2");
+    _batchGet = newGet("/records?ids=1&ids=2&ids=3&ids=4&ids=5");
+    _finder = newGet("/records?q=search&message=hello&start=0&count=10");
+  }
+
+  @Benchmark
+  public RoutingResult get()
+  {
+    return _router.process(_get, new RequestContext());
+  }
+
+  @Benchmark
+  public RoutingResult subResourceGet()
+  {
+    return _router.process(_subResourceGet, new RequestContext());
+  }
+
+  @Benchmark
+  public RoutingResult batchGet()
+  {
+    return _router.process(_batchGet, new RequestContext());
+  }
+
+  @Benchmark
+  public RoutingResult finder()
+  {
+    return _router.process(_finder, new RequestContext());
+  }
+
+  private static RestRequest newGet(String uri)
+  {
+    return new RestRequestBuilder(URI.create(uri)).setMethod("GET").build();
+  }
+}
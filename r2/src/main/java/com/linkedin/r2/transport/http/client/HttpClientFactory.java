@@ -81,12 +81,15 @@ public class HttpClientFactory implements TransportClientFactory
   public static final String HTTP_SHUTDOWN_TIMEOUT = "http.shutdownTimeout";
   public static final String HTTP_SSL_CONTEXT = "http.sslContext";
   public static final String HTTP_SSL_PARAMS = "http.sslParams";
+  public static final String HTTP_LOCK_FREE_POOL = "http.lockFreePool";
+  public static final String HTTP_PIPELINE_DEPTH = "http.pipelineDepth";
 
   public static final int DEFAULT_POOL_SIZE = 200;
   public static final int DEFAULT_REQUEST_TIMEOUT = 10000;
   public static final int DEFAULT_IDLE_TIMEOUT = 30000;
   public static final int DEFAULT_SHUTDOWN_TIMEOUT = 5000;
   public static final int DEFAULT_MAX_RESPONSE_SIZE = 1024 * 1024 * 2;
+  public static final int DEFAULT_PIPELINE_DEPTH = 1;
 
   /**
    * The string below this is deprecated so use the equivalent above.
@@ -306,6 +309,8 @@ public class HttpClientFactory implements TransportClientFactory
     Integer idleTimeout = getIntValue(properties, HTTP_IDLE_TIMEOUT, null);
     Integer shutdownTimeout = getIntValue(properties, HTTP_SHUTDOWN_TIMEOUT, null);
     Integer maxResponseSize = getIntValue(properties, HTTP_MAX_RESPONSE_SIZE, null);
+    boolean lockFreePool = properties != null && Boolean.parseBoolean(properties.get(HTTP_LOCK_FREE_POOL));
+    Integer pipelineDepth = getIntValue(properties, HTTP_PIPELINE_DEPTH, null);
 
     //TODO these can go away when we migrate all obsolete config to new ones
     Integer oldGetTimeout = getIntValue(properties, OLD_GET_TIMEOUT_KEY, HTTP_REQUEST_TIMEOUT);
@@ -325,6 +330,8 @@ public class HttpClientFactory implements TransportClientFactory
                                                   OLD_MAX_RESPONSE_SIZE, HTTP_MAX_RESPONSE_SIZE);
     queryPostThreshold = chooseNewOverOldWithDefault(queryPostThreshold, null, Integer.MAX_VALUE,
                                                      HTTP_QUERY_POST_THRESHOLD, null);
+    pipelineDepth = chooseNewOverOldWithDefault(pipelineDepth, null, DEFAULT_PIPELINE_DEPTH,
+                                                HTTP_PIPELINE_DEPTH, null);
     //we have the getTimeout, oldRequestTimeOut and requestTimeOut. RequestTimeout has the highest priority and
     //getTimeout has the lowest priority.
     if (requestTimeout != null && (oldRequestTimeout != null || oldGetTimeout != null))
@@ -365,7 +372,9 @@ public class HttpClientFactory implements TransportClientFactory
                                maxResponseSize,
                                sslContext,
                                sslParameters,
-                               queryPostThreshold);
+                               queryPostThreshold,
+                               lockFreePool,
+                               pipelineDepth);
   }
 
   /**
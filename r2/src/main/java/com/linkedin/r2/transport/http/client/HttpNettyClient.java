@@ -55,6 +55,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.common.callback.Callback;
+import com.linkedin.common.callback.Callbacks;
 import com.linkedin.common.util.None;
 import com.linkedin.r2.message.RequestContext;
 import com.linkedin.r2.message.rest.RestRequest;
@@ -83,11 +84,19 @@ import com.linkedin.r2.util.TimeoutRunnable;
   private static final int HTTP_DEFAULT_PORT = 80;
   private static final int HTTPS_DEFAULT_PORT = 443;
 
+  // A request timeout closes a pipelined connection, which fails the requests queued
+  // behind the request, so only requests which are safe to retry are pipelined
+  private static final Set<String> PIPELINED_METHODS = new HashSet<String>(Arrays.asList("GET", "HEAD", "OPTIONS"));
+
   private final ChannelPoolManager _channelPoolManager;
+  // Connections which carry one request at a time, for the requests which are not
+  // pipelined; null unless requests are pipelined
+  private final ChannelPoolManager _unpipelinedChannelPoolManager;
   private final ChannelGroup _allChannels = new DefaultChannelGroup("R2 client channels");
 
   private final ChannelPoolHandler _handler = new ChannelPoolHandler();
   private final RAPResponseHandler _responseHandler = new RAPResponseHandler();
+  private final RAPPipelinedResponseHandler _pipelinedResponseHandler = new RAPPipelinedResponseHandler();
   private final AtomicReference<State> _state = new AtomicReference<State>(State.RUNNING);
 
   private enum State { RUNNING, SHUTTING_DOWN, REQUESTS_STOPPING, SHUTDOWN }
@@ -100,6 +109,7 @@ import com.linkedin.r2.util.TimeoutRunnable;
 
   private final String _requestTimeoutMessage;
   private final int _queryPostThreshold;
+  private final int _pipelineDepth;
 
   /**
    * Creates a new HttpNettyClient with some default parameters
@@ -153,13 +163,107 @@ import com.linkedin.r2.util.TimeoutRunnable;
                          SSLParameters sslParameters,
                          int queryPostThreshold)
   {
+    this(factory,
+         executor,
+         poolSize,
+         requestTimeout,
+         idleTimeout,
+         shutdownTimeout,
+         maxResponseSize,
+         sslContext,
+         sslParameters,
+         queryPostThreshold,
+         false);
+  }
+
+  /**
+   * Creates a new HttpNettyClient
+   *
+   * @see #HttpNettyClient(ClientSocketChannelFactory,ScheduledExecutorService,int,int,int,int,int,SSLContext,SSLParameters,int,boolean,int)
+   */
+  public HttpNettyClient(ClientSocketChannelFactory factory,
+                         ScheduledExecutorService executor,
+                         int poolSize,
+                         int requestTimeout,
+                         int idleTimeout,
+                         int shutdownTimeout,
+                         int maxResponseSize,
+                         SSLContext sslContext,
+                         SSLParameters sslParameters,
+                         int queryPostThreshold,
+                         boolean lockFreePool)
+  {
+    this(factory,
+         executor,
+         poolSize,
+         requestTimeout,
+         idleTimeout,
+         shutdownTimeout,
+         maxResponseSize,
+         sslContext,
+         sslParameters,
+         queryPostThreshold,
+         lockFreePool,
+         1);
+  }
+
+  /**
+   * Creates a new HttpNettyClient
+   *
+   * @param factory The ClientSocketChannelFactory; it is the caller's responsibility to
+   *          shut it down
+   * @param executor an executor; it is the caller's responsibility to shut it down
+   * @param poolSize Maximum size of the underlying HTTP connection pool
+   * @param requestTimeout timeout, in ms, to get a connection from the pool or create one
+   * @param idleTimeout interval after which idle connections will be automatically closed
+   * @param shutdownTimeout timeout, in ms, the client should wait after shutdown is
+   *          initiated before terminating outstanding requests
+   * @param maxResponseSize
+   * @param sslContext {@link SSLContext}
+   * @param sslParameters {@link SSLParameters}with overloaded construct
+   * @param queryPostThreshold length of query params above which requests will be tunneled as POSTS
+   * @param lockFreePool if true, connections are pooled by a {@link LockFreeAsyncPool}
+   *          instead of an {@link AsyncPoolImpl}
+   * @param pipelineDepth maximum number of outstanding requests on a connection; if greater
+   *          than 1, GET, HEAD and OPTIONS requests are pipelined and a connection is only
+   *          opened once all others have this many outstanding requests; other requests use
+   *          a separate pool of connections of the same size, one request at a time
+   */
+  public HttpNettyClient(ClientSocketChannelFactory factory,
+                         ScheduledExecutorService executor,
+                         int poolSize,
+                         int requestTimeout,
+                         int idleTimeout,
+                         int shutdownTimeout,
+                         int maxResponseSize,
+                         SSLContext sslContext,
+                         SSLParameters sslParameters,
+                         int queryPostThreshold,
+                         boolean lockFreePool,
+                         int pipelineDepth)
+  {
+    if (pipelineDepth < 1)
+    {
+      throw new IllegalArgumentException("pipelineDepth must be positive: " + pipelineDepth);
+    }
+    _pipelineDepth = pipelineDepth;
     _maxResponseSize = maxResponseSize;
     _channelPoolManager =
         new ChannelPoolManager(new ChannelPoolFactoryImpl(new ClientBootstrap(factory),
                                                           poolSize,
                                                           idleTimeout,
                                                           sslContext,
-                                                          sslParameters));
+                                                          sslParameters,
+                                                          lockFreePool,
+                                                          pipelineDepth));
+    _unpipelinedChannelPoolManager = (pipelineDepth == 1) ? null :
+        new ChannelPoolManager(new ChannelPoolFactoryImpl(new ClientBootstrap(factory),
+                                                          poolSize,
+                                                          idleTimeout,
+                                                          sslContext,
+                                                          sslParameters,
+                                                          lockFreePool,
+                                                          1));
     _scheduler = executor;
     _requestTimeout = requestTimeout;
     _shutdownTimeout = shutdownTimeout;
@@ -175,11 +279,13 @@ import com.linkedin.r2.util.TimeoutRunnable;
   {
     _maxResponseSize = maxResponseSize;
     _channelPoolManager = new ChannelPoolManager(factory);
+    _unpipelinedChannelPoolManager = null;
     _scheduler = executor;
     _requestTimeout = requestTimeout;
     _shutdownTimeout = shutdownTimeout;
     _requestTimeoutMessage = "Exceeded request timeout of " + _requestTimeout + "ms";
     _queryPostThreshold = Integer.MAX_VALUE;
+    _pipelineDepth = 1;
   }
 
   @Override
@@ -225,10 +331,26 @@ import com.linkedin.r2.util.TimeoutRunnable;
           {
             callback.onError(new TimeoutException("Operation did not complete before shutdown"));
           }
+          if (_unpipelinedChannelPoolManager != null)
+          {
+            for (Callback<Channel> callback : _unpipelinedChannelPoolManager.cancelWaiters())
+            {
+              callback.onError(new TimeoutException("Operation did not complete before shutdown"));
+            }
+          }
 
           // Timeout any requests still pending response
           for (Channel c : _allChannels)
           {
+            if (c.getPipeline().get(RAPPipelinedResponseHandler.class) != null)
+            {
+              for (TransportCallback<RestResponse> callback : _pipelinedResponseHandler.getPendingCallbacks(c))
+              {
+                errorResponse(callback,
+                              new TimeoutException("Operation did not complete before shutdown"));
+              }
+              continue;
+            }
             @SuppressWarnings("unchecked")
             TransportCallback<RestResponse> callback = (TransportCallback<RestResponse>)c.getPipeline().getContext(RAPResponseHandler.class).getAttachment();
             if (callback != null)
@@ -279,7 +401,16 @@ import com.linkedin.r2.util.TimeoutRunnable;
           finishShutdown();
         }
       }, "Connection pool shutdown timeout exceeded (" + _shutdownTimeout + "ms)");
-      _channelPoolManager.shutdown(closeChannels);
+      if (_unpipelinedChannelPoolManager == null)
+      {
+        _channelPoolManager.shutdown(closeChannels);
+      }
+      else
+      {
+        Callback<None> poolsShutdown = Callbacks.countDown(closeChannels, 2);
+        _channelPoolManager.shutdown(poolsShutdown);
+        _unpipelinedChannelPoolManager.shutdown(poolsShutdown);
+      }
     }
   }
 
@@ -349,9 +480,20 @@ import com.linkedin.r2.util.TimeoutRunnable;
     // TODO investigate DNS resolution and timing
     SocketAddress address = new InetSocketAddress(host, port);
     final AsyncPool<Channel> pool;
+    final boolean pipelined;
     try
     {
-      pool = _channelPoolManager.getPoolForAddress(address);
+      // Use the original method: a tunneled GET is still safe to retry
+      if (_unpipelinedChannelPoolManager != null && !PIPELINED_METHODS.contains(request.getMethod()))
+      {
+        pool = _unpipelinedChannelPoolManager.getPoolForAddress(address);
+        pipelined = false;
+      }
+      else
+      {
+        pool = _channelPoolManager.getPoolForAddress(address);
+        pipelined = (_pipelineDepth > 1);
+      }
     }
     catch (IllegalStateException e)
     {
@@ -364,6 +506,12 @@ import com.linkedin.r2.util.TimeoutRunnable;
       @Override
       public void onSuccess(final Channel channel)
       {
+        if (pipelined)
+        {
+          writePipelinedRequest(channel, pool, callback, newRequest);
+          return;
+        }
+
         // This handler ensures the channel is returned to the pool at the end of the
         // Netty pipeline.
         channel.getPipeline().getContext(ChannelPoolHandler.class).setAttachment(pool);
@@ -414,6 +562,37 @@ import com.linkedin.r2.util.TimeoutRunnable;
     }
   }
 
+  private void writePipelinedRequest(final Channel channel,
+                                     AsyncPool<Channel> pool,
+                                     TimeoutTransportCallback<RestResponse> callback,
+                                     RestRequest request)
+  {
+    // The channel may carry other requests, so it cannot just be disposed of on timeout;
+    // closing it fails all of its requests, and the handler disposes of it for each.
+    callback.addTimeoutTask(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        channel.close();
+      }
+    });
+
+    final State state = _state.get();
+    if (state == State.REQUESTS_STOPPING || state == State.SHUTDOWN)
+    {
+      // See writeRequest
+      pool.put(channel);
+      errorResponse(callback,
+                    new TimeoutException("Operation did not complete before shutdown"));
+      return;
+    }
+
+    // This handler writes the request, invokes the callback with the response once it
+    // arrives, and then returns the channel to the pool.
+    _pipelinedResponseHandler.writeRequest(channel, pool, callback, request);
+  }
+
   static <T> void errorResponse(TransportCallback<T> callback, Throwable e)
   {
     callback.onResponse(TransportResponseImpl.<T>error(e));
@@ -433,6 +612,7 @@ import com.linkedin.r2.util.TimeoutRunnable;
   {
     private final SSLContext    _sslContext;
     private final SSLParameters _sslParameters;
+    private final boolean       _pipelined;
 
     /**
      * Creates new instance.
@@ -443,8 +623,9 @@ import com.linkedin.r2.util.TimeoutRunnable;
      *          SSLContext.getDefaultSSLParameters(), but those turned out to be
      *          exceedingly difficult to configure, so we can't pass all desired
      *          configuration in sslContext.
+     * @param pipelined true if the channels of the pool may have several outstanding requests.
      */
-    public HttpClientPipelineFactory(SSLContext sslContext, SSLParameters sslParameters)
+    public HttpClientPipelineFactory(SSLContext sslContext, SSLParameters sslParameters, boolean pipelined)
     {
       // Check if requested parameters are present in the supported params of the context.
       // Log warning for those not present. Throw an exception if none present.
@@ -473,6 +654,7 @@ import com.linkedin.r2.util.TimeoutRunnable;
       }
       _sslContext = sslContext;
       _sslParameters = sslParameters;
+      _pipelined = pipelined;
     }
 
     /**
@@ -518,7 +700,15 @@ import com.linkedin.r2.util.TimeoutRunnable;
       pipeline.addLast("rapiCodec", new RAPClientCodec());
       // Could introduce an ExecutionHandler here (before RAPResponseHandler)
       // to execute the response handling on a different thread.
-      pipeline.addLast("responseHandler", _responseHandler);
+      if (_pipelined)
+      {
+        // This handler also returns the channel to the pool at the end of each response
+        pipeline.addLast("responseHandler", _pipelinedResponseHandler);
+      }
+      else
+      {
+        pipeline.addLast("responseHandler", _responseHandler);
+      }
       // Add handler to dynamically configure SSL-related handlers depending on
       // the SSL configuration and request URI.
       if (_sslContext != null)
@@ -526,7 +716,10 @@ import com.linkedin.r2.util.TimeoutRunnable;
         pipeline.addLast("sslRequestHandler", new SslRequestHandler(_sslContext,
                                                                     _sslParameters));
       }
-      pipeline.addLast("channelManager", _handler);
+      if (!_pipelined)
+      {
+        pipeline.addLast("channelManager", _handler);
+      }
 
       return pipeline;
     }
@@ -537,32 +730,50 @@ import com.linkedin.r2.util.TimeoutRunnable;
     private final ClientBootstrap _bootstrap;
     private final int _maxPoolSize;
     private final int _idleTimeout;
+    private final boolean _lockFreePool;
+    private final int _maxUsers;
 
     private ChannelPoolFactoryImpl(ClientBootstrap bootstrap,
                                    int maxPoolSize,
                                    int idleTimeout,
                                    SSLContext sslContext,
-                                   SSLParameters sslParameters)
+                                   SSLParameters sslParameters,
+                                   boolean lockFreePool,
+                                   int maxUsers)
     {
       _bootstrap = bootstrap;
       _bootstrap.setPipelineFactory(new HttpClientPipelineFactory(sslContext,
-                                                                  sslParameters));
+                                                                  sslParameters,
+                                                                  maxUsers > 1));
       _maxPoolSize = maxPoolSize;
       _idleTimeout = idleTimeout;
+      _lockFreePool = lockFreePool;
+      _maxUsers = maxUsers;
     }
 
     @Override
     public AsyncPool<Channel> getPool(SocketAddress address)
     {
-      return new AsyncPoolImpl<Channel>(address.toString() + " HTTP connection pool",
-                                        new ChannelPoolLifecycle(address,
-                                                                 _bootstrap,
-                                                                 _requestTimeout,
-                                                                 _scheduler,
-                                                                 _allChannels),
-                                        _maxPoolSize,
-                                        _idleTimeout,
-                                        _scheduler);
+      String name = address.toString() + " HTTP connection pool";
+      ChannelPoolLifecycle lifecycle = new ChannelPoolLifecycle(address,
+                                                                _bootstrap,
+                                                                _requestTimeout,
+                                                                _scheduler,
+                                                                _allChannels);
+      AsyncPool<Channel> pool;
+      if (_lockFreePool)
+      {
+        pool = new LockFreeAsyncPool<Channel>(name, lifecycle, _maxPoolSize, _idleTimeout, _scheduler);
+      }
+      else
+      {
+        pool = new AsyncPoolImpl<Channel>(name, lifecycle, _maxPoolSize, _idleTimeout, _scheduler);
+      }
+      if (_maxUsers > 1)
+      {
+        return new PipeliningAsyncPool<Channel>(name, pool, _maxUsers);
+      }
+      return pool;
     }
   }
 
@@ -582,4 +793,9 @@ import com.linkedin.r2.util.TimeoutRunnable;
   {
     return _maxResponseSize;
   }
+
+  public int getPipelineDepth()
+  {
+    return _pipelineDepth;
+  }
 }
@@ -0,0 +1,599 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.r2.transport.http.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.common.util.None;
+import com.linkedin.r2.util.Cancellable;
+
+/**
+ * An {@link AsyncPool} without locks, with the same semantics as {@link AsyncPoolImpl}.
+ *
+ * Idle objects are kept in a lock-free stack, so the most recently returned object is
+ * reused first, and waiters in a lock-free FIFO queue.  Every operation that adds to one
+ * of them hands idle objects to waiters until one of them is empty, so an object is never
+ * left idle while a callback waits for one.
+ */
+
+public class LockFreeAsyncPool<T> implements AsyncPool<T>
+{
+  private static final Logger LOG = LoggerFactory.getLogger(LockFreeAsyncPool.class);
+
+  // Configured
+  private final String _poolName;
+  private final Lifecycle<T> _lifecycle;
+  private final int _maxSize;
+  private final long _idleTimeout;
+  private final ScheduledExecutorService _timeoutExecutor;
+  private volatile ScheduledFuture<?> _objectTimeoutFuture;
+
+  private enum State { NOT_YET_STARTED, RUNNING, SHUTTING_DOWN, STOPPED }
+
+  private final AtomicReference<State> _state = new AtomicReference<State>(State.NOT_YET_STARTED);
+  private final AtomicReference<Callback<None>> _shutdownCallback = new AtomicReference<Callback<None>>();
+  // Including idle, checked out, and creations/destructions in progress
+  private final AtomicInteger _poolSize = new AtomicInteger();
+  // Checked out, and creations/destructions in progress
+  private final AtomicInteger _outstanding = new AtomicInteger();
+  // Unused objects live here, most recently used on top
+  private final AtomicReference<IdleNode<T>> _idle = new AtomicReference<IdleNode<T>>();
+  // When no unused objects are available, callbacks live here while they wait
+  // for a new object (either returned by another user, or newly created)
+  private final Queue<Waiter<T>> _waiters = new ConcurrentLinkedQueue<Waiter<T>>();
+  // Waiters that have not been served or cancelled yet
+  private final AtomicInteger _waiterCount = new AtomicInteger();
+  // Calls of get() in progress, which may still check out objects or add waiters
+  // after shutdown has been requested
+  private final AtomicInteger _activeGets = new AtomicInteger();
+
+  // Statistics only
+  private final AtomicInteger _totalCreated = new AtomicInteger();
+  private final AtomicInteger _totalDestroyed = new AtomicInteger();
+  private final AtomicInteger _createErrors = new AtomicInteger();
+  private final AtomicInteger _destroyErrors = new AtomicInteger();
+
+  public LockFreeAsyncPool(String name,
+                           Lifecycle<T> lifecycle,
+                           int maxSize,
+                           long idleTimeout,
+                           ScheduledExecutorService timeoutExecutor)
+  {
+    _poolName = name;
+    _lifecycle = lifecycle;
+    _maxSize = maxSize;
+    _idleTimeout = idleTimeout;
+    _timeoutExecutor = timeoutExecutor;
+  }
+
+  @Override
+  public void start()
+  {
+    if (!_state.compareAndSet(State.NOT_YET_STARTED, State.RUNNING))
+    {
+      throw new IllegalStateException(_poolName + " is " + _state.get());
+    }
+    if (_idleTimeout > 0)
+    {
+      long freq = Math.min(_idleTimeout / 10, 1000);
+      _objectTimeoutFuture = _timeoutExecutor.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run()
+        {
+          timeoutObjects();
+        }
+      }, freq, freq, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void shutdown(Callback<None> callback)
+  {
+    // the callback is published before the state, so that whoever completes the shutdown finds it
+    if (_state.get() == State.RUNNING && _shutdownCallback.compareAndSet(null, callback))
+    {
+      if (_state.compareAndSet(State.RUNNING, State.SHUTTING_DOWN))
+      {
+        LOG.info("{}: {}", _poolName, "shutdown requested");
+        shutdownIfNeeded();
+        return;
+      }
+      _shutdownCallback.compareAndSet(callback, null);
+    }
+    callback.onError(new IllegalStateException(_poolName + " is " + _state.get()));
+  }
+
+  @Override
+  public Collection<Callback<T>> cancelWaiters()
+  {
+    List<Callback<T>> cancelled = new ArrayList<Callback<T>>();
+    for (Waiter<T> waiter; (waiter = claimWaiter()) != null;)
+    {
+      cancelled.add(waiter._callback);
+    }
+    return cancelled;
+  }
+
+  @Override
+  public Cancellable get(final Callback<T> callback)
+  {
+    _activeGets.incrementAndGet();
+    try
+    {
+      return doGet(callback);
+    }
+    finally
+    {
+      _activeGets.decrementAndGet();
+      if (_state.get() == State.SHUTTING_DOWN)
+      {
+        shutdownIfNeeded();
+      }
+    }
+  }
+
+  private Cancellable doGet(final Callback<T> callback)
+  {
+    for (;;)
+    {
+      if (_state.get() != State.RUNNING)
+      {
+        callback.onError(new IllegalStateException(_poolName + " is " + _state.get()));
+        return null;
+      }
+      _outstanding.incrementAndGet();
+      IdleNode<T> node = popIdle();
+      if (node == null)
+      {
+        _outstanding.decrementAndGet();
+        break;
+      }
+      if (_state.get() != State.RUNNING)
+      {
+        // Shutdown was requested while the object was being checked out; leave it idle
+        pushIdle(node._obj, node._time);
+        _outstanding.decrementAndGet();
+        continue;
+      }
+      if (_lifecycle.validateGet(node._obj))
+      {
+        trc("dequeued an idle object");
+        // Valid object; done
+        callback.onSuccess(node._obj);
+        return null;
+      }
+      // Invalid object, discard it and keep trying
+      destroy(node._obj, true);
+      trc("dequeued and disposed an invalid idle object");
+    }
+
+    // No objects available; add to waiter list
+    final Waiter<T> waiter = new Waiter<T>(callback);
+    _waiterCount.incrementAndGet();
+    _waiters.offer(waiter);
+    trc("enqueued a waiter");
+    if (_state.get() != State.RUNNING && removeWaiter(waiter))
+    {
+      // Shutdown was requested while the waiter was being added
+      callback.onError(new IllegalStateException(_poolName + " is " + _state.get()));
+      return null;
+    }
+    if (shouldCreate())
+    {
+      create();
+    }
+    // An object may have been returned before the waiter was added
+    serveWaiters();
+    return new Cancellable()
+    {
+      @Override
+      public boolean cancel()
+      {
+        boolean cancelled = removeWaiter(waiter);
+        if (cancelled)
+        {
+          shutdownIfNeeded();
+        }
+        return cancelled;
+      }
+    };
+  }
+
+  @Override
+  public void put(T obj)
+  {
+    if (!_lifecycle.validatePut(obj))
+    {
+      destroy(obj, true);
+      return;
+    }
+    add(obj);
+  }
+
+  /**
+   * Hands an outstanding object to a waiter, or makes it idle.
+   */
+  private void add(T obj)
+  {
+    Waiter<T> waiter = claimWaiter();
+    if (waiter != null)
+    {
+      trc("dequeued a waiter");
+      waiter._callback.onSuccess(obj);
+    }
+    else
+    {
+      pushIdle(obj, System.currentTimeMillis());
+      _outstanding.decrementAndGet();
+      trc("enqueued an idle object");
+      // A waiter may have been added before the object was made idle
+      serveWaiters();
+    }
+    shutdownIfNeeded();
+  }
+
+  /**
+   * Hands idle objects to waiters until there are no more of either.
+   */
+  private void serveWaiters()
+  {
+    while (!_waiters.isEmpty())
+    {
+      _outstanding.incrementAndGet();
+      IdleNode<T> node = popIdle();
+      if (node == null)
+      {
+        _outstanding.decrementAndGet();
+        return;
+      }
+      if (!_lifecycle.validateGet(node._obj))
+      {
+        destroy(node._obj, true);
+        trc("dequeued and disposed an invalid idle object");
+        continue;
+      }
+      Waiter<T> waiter = claimWaiter();
+      if (waiter == null)
+      {
+        // The waiters were served or cancelled meanwhile; check again after making the object idle
+        pushIdle(node._obj, node._time);
+        _outstanding.decrementAndGet();
+        continue;
+      }
+      trc("dequeued a waiter for an idle object");
+      waiter._callback.onSuccess(node._obj);
+    }
+  }
+
+  @Override
+  public void dispose(T obj)
+  {
+    destroy(obj, true);
+  }
+
+  private void destroy(T obj, boolean bad)
+  {
+    trc("disposing a pooled object");
+    _lifecycle.destroy(obj, bad, new Callback<T>()
+    {
+      @Override
+      public void onSuccess(T t)
+      {
+        _totalDestroyed.incrementAndGet();
+        if (objectDestroyed())
+        {
+          create();
+        }
+      }
+
+      @Override
+      public void onError(Throwable e)
+      {
+        _destroyErrors.incrementAndGet();
+        if (objectDestroyed())
+        {
+          create();
+        }
+        LOG.error(_poolName + ": object destruction failed", e);
+      }
+    });
+  }
+
+  /**
+   * @return true if another object creation should be initiated
+   */
+  private boolean objectDestroyed()
+  {
+    _poolSize.decrementAndGet();
+    _outstanding.decrementAndGet();
+    boolean create = shouldCreate();
+    shutdownIfNeeded();
+    return create;
+  }
+
+  /**
+   * DO NOT call any callbacks in this method!
+   * @return true if another object creation should be initiated, in which case the pool
+   *         size has been reserved for it.
+   */
+  private boolean shouldCreate()
+  {
+    for (;;)
+    {
+      int poolSize = _poolSize.get();
+      if (_state.get() != State.RUNNING || poolSize >= _maxSize || _waiters.isEmpty())
+      {
+        return false;
+      }
+      if (_poolSize.compareAndSet(poolSize, poolSize + 1))
+      {
+        _outstanding.incrementAndGet();
+        return true;
+      }
+    }
+  }
+
+  private void create()
+  {
+    trc("initiating object creation");
+    _lifecycle.create(new Callback<T>() {
+      @Override
+      public void onSuccess(T t)
+      {
+        _totalCreated.incrementAndGet();
+        add(t);
+      }
+
+      @Override
+      public void onError(Throwable e)
+      {
+        _createErrors.incrementAndGet();
+        boolean create = objectDestroyed();
+        // Note we drain all waiters if a create fails.  When a create fails, rate-limiting
+        // logic may be applied.  In this case, we may be initiating creations at a lower rate
+        // than incoming requests.  While creations are suppressed, it is better to deny all
+        // waiters and let them see the real reason (this exception) rather than keep them around
+        // to eventually get an unhelpful timeout error
+        for (Callback<T> denied : cancelWaiters())
+        {
+          denied.onError(e);
+        }
+        if (create)
+        {
+          create();
+        }
+        LOG.error(_poolName + ": object creation failed", e);
+        shutdownIfNeeded();
+      }
+    });
+  }
+
+  private void timeoutObjects()
+  {
+    long target = System.currentTimeMillis() - _idleTimeout;
+
+    // Older objects are further down the stack, so the stack is cut below the live objects on
+    // top of the first one that timed out, and concurrent gets still find the live objects
+    IdleNode<T> expired;
+    for (;;)
+    {
+      IdleNode<T> head = _idle.get();
+      List<IdleNode<T>> live = new ArrayList<IdleNode<T>>();
+      expired = head;
+      while (expired != null && expired._time >= target)
+      {
+        live.add(expired);
+        expired = expired._next;
+      }
+      if (expired == null)
+      {
+        return;
+      }
+      IdleNode<T> top = null;
+      for (int i = live.size() - 1; i >= 0; i--)
+      {
+        top = new IdleNode<T>(live.get(i)._obj, live.get(i)._time, top);
+      }
+      if (_idle.compareAndSet(head, top))
+      {
+        break;
+      }
+    }
+
+    List<T> idle = new ArrayList<T>();
+    boolean pushed = false;
+    for (IdleNode<T> node = expired; node != null; node = node._next)
+    {
+      if (node._time < target)
+      {
+        idle.add(node._obj);
+      }
+      else
+      {
+        // An object that was checked out and made idle again with its old time
+        pushIdle(node._obj, node._time);
+        pushed = true;
+      }
+    }
+    if (pushed)
+    {
+      serveWaiters();
+    }
+
+    if (idle.size() > 0)
+    {
+      LOG.debug("{}: disposing {} objects due to idle timeout", _poolName, idle.size());
+      _outstanding.addAndGet(idle.size());
+      for (T obj : idle)
+      {
+        destroy(obj, false);
+      }
+    }
+    shutdownIfNeeded();
+  }
+
+  private IdleNode<T> popIdle()
+  {
+    for (;;)
+    {
+      IdleNode<T> head = _idle.get();
+      if (head == null || _idle.compareAndSet(head, head._next))
+      {
+        return head;
+      }
+    }
+  }
+
+  private void pushIdle(T obj, long time)
+  {
+    for (;;)
+    {
+      IdleNode<T> head = _idle.get();
+      if (_idle.compareAndSet(head, new IdleNode<T>(obj, time, head)))
+      {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the oldest waiter that was neither served nor cancelled, which is now served
+   *         by the caller, or null if there is none.
+   */
+  private Waiter<T> claimWaiter()
+  {
+    for (Waiter<T> waiter; (waiter = _waiters.poll()) != null;)
+    {
+      if (waiter.compareAndSet(false, true))
+      {
+        _waiterCount.decrementAndGet();
+        return waiter;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the waiter was neither served nor cancelled, and is now cancelled.
+   */
+  private boolean removeWaiter(Waiter<T> waiter)
+  {
+    if (waiter.compareAndSet(false, true))
+    {
+      _waiterCount.decrementAndGet();
+      _waiters.remove(waiter);
+      return true;
+    }
+    return false;
+  }
+
+  private void shutdownIfNeeded()
+  {
+    Callback<None> shutdown = checkShutdownComplete();
+    if (shutdown != null)
+    {
+      finishShutdown(shutdown);
+    }
+  }
+
+  private Callback<None> checkShutdownComplete()
+  {
+    if (_state.get() != State.SHUTTING_DOWN)
+    {
+      return null;
+    }
+
+    // The counters are read in this order so that they cannot all be zero unless the pool was
+    // idle at some point: once there are no gets in progress, nothing else adds waiters, and
+    // waiters are only served with objects that are already counted as outstanding
+    final int activeGets = _activeGets.get();
+    final int waiters = _waiterCount.get();
+    final int outstanding = _outstanding.get();
+    if (activeGets == 0 && waiters == 0 && outstanding == 0 &&
+        _state.compareAndSet(State.SHUTTING_DOWN, State.STOPPED))
+    {
+      return _shutdownCallback.getAndSet(null);
+    }
+    if (_state.get() == State.SHUTTING_DOWN)
+    {
+      LOG.info("{}: {} waiters and {} objects outstanding before shutdown", new Object[]{ _poolName, waiters, outstanding });
+    }
+    return null;
+  }
+
+  private void finishShutdown(Callback<None> shutdown)
+  {
+    ScheduledFuture<?> future = _objectTimeoutFuture;
+    if (future != null)
+    {
+      future.cancel(false);
+    }
+
+    LOG.info("{}: {}", _poolName, "shutdown complete");
+
+    shutdown.onSuccess(None.none());
+  }
+
+  private static class IdleNode<T>
+  {
+    private final T _obj;
+    private final long _time;
+    private final IdleNode<T> _next;
+
+    private IdleNode(T obj, long time, IdleNode<T> next)
+    {
+      _obj = obj;
+      _time = time;
+      _next = next;
+    }
+  }
+
+  /**
+   * A waiting callback, which is set once it is served or cancelled.
+   */
+  private static class Waiter<T> extends AtomicBoolean
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final Callback<T> _callback;
+
+    private Waiter(Callback<T> callback)
+    {
+      _callback = callback;
+    }
+  }
+
+  private void trc(Object toLog)
+  {
+    LOG.trace("{}: {}", _poolName, toLog);
+  }
+
+}
@@ -0,0 +1,372 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.r2.transport.http.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.common.util.None;
+import com.linkedin.r2.util.Cancellable;
+import com.linkedin.r2.util.LinkedDeque;
+
+/**
+ * An {@link AsyncPool} that lends each object of an underlying pool to several users at
+ * once, e.g. to pipeline several requests on one connection.
+ *
+ * An object is checked out from the underlying pool when all objects that are already
+ * checked out have the maximum number of users, and is returned to the underlying pool
+ * once it has no more users.  Every {@link #get(Callback)} must be matched by a
+ * {@link #put(Object)} or {@link #dispose(Object)}.  Disposing of an object disposes of it
+ * in the underlying pool, although other users may still have it; they must still return
+ * or dispose of it.
+ */
+public class PipeliningAsyncPool<T> implements AsyncPool<T>
+{
+  private static final Logger LOG = LoggerFactory.getLogger(PipeliningAsyncPool.class);
+
+  private final String _poolName;
+  private final AsyncPool<T> _pool;
+  private final int _maxUsers;
+
+  // All members below are protected by this lock
+  // Never call user code (callbacks) while holding this lock
+  private final Object _lock = new Object();
+  // Objects checked out from the underlying pool
+  private final Map<T, Lease<T>> _leases = new IdentityHashMap<T, Lease<T>>();
+  // Objects with fewer than the maximum number of users, in the order they were checked out
+  private final Set<Lease<T>> _available = new LinkedHashSet<Lease<T>>();
+  // Callbacks waiting for an object with fewer than the maximum number of users
+  private final LinkedDeque<Callback<T>> _waiters = new LinkedDeque<Callback<T>>();
+  // Gets from the underlying pool that are in progress
+  private int _pendingGets = 0;
+  private boolean _shutdown = false;
+
+  /**
+   * @param name the name of the pool, used in log messages.
+   * @param pool the underlying pool.
+   * @param maxUsers the maximum number of users of an object.
+   */
+  public PipeliningAsyncPool(String name, AsyncPool<T> pool, int maxUsers)
+  {
+    if (maxUsers < 1)
+    {
+      throw new IllegalArgumentException("maxUsers must be positive: " + maxUsers);
+    }
+    _poolName = name;
+    _pool = pool;
+    _maxUsers = maxUsers;
+  }
+
+  @Override
+  public void start()
+  {
+    _pool.start();
+  }
+
+  @Override
+  public void shutdown(Callback<None> callback)
+  {
+    synchronized (_lock)
+    {
+      _shutdown = true;
+    }
+    // The underlying pool completes the shutdown once all objects have been returned to it
+    _pool.shutdown(callback);
+  }
+
+  @Override
+  public Collection<Callback<T>> cancelWaiters()
+  {
+    List<Callback<T>> cancelled = new ArrayList<Callback<T>>();
+    synchronized (_lock)
+    {
+      for (Callback<T> item; (item = _waiters.poll()) != null;)
+      {
+        cancelled.add(item);
+      }
+    }
+    // Failing the pending gets of the underlying pool releases their reservations
+    cancelled.addAll(_pool.cancelWaiters());
+    return cancelled;
+  }
+
+  @Override
+  public Cancellable get(Callback<T> callback)
+  {
+    T obj = null;
+    final LinkedDeque.Node<Callback<T>> node;
+    final boolean request;
+    synchronized (_lock)
+    {
+      if (_shutdown)
+      {
+        node = null;
+        request = false;
+      }
+      else
+      {
+        Iterator<Lease<T>> it = _available.iterator();
+        if (it.hasNext())
+        {
+          Lease<T> lease = it.next();
+          lease._users++;
+          if (lease._users >= _maxUsers)
+          {
+            it.remove();
+          }
+          obj = lease._obj;
+          node = null;
+          request = false;
+        }
+        else
+        {
+          node = _waiters.addLastNode(callback);
+          request = shouldRequest();
+        }
+      }
+    }
+
+    if (obj != null)
+    {
+      trc("shared a checked out object");
+      callback.onSuccess(obj);
+      return null;
+    }
+    if (node == null)
+    {
+      callback.onError(new IllegalStateException(_poolName + " is shut down"));
+      return null;
+    }
+    if (request)
+    {
+      request();
+    }
+    return new Cancellable()
+    {
+      @Override
+      public boolean cancel()
+      {
+        synchronized (_lock)
+        {
+          return _waiters.removeNode(node) != null;
+        }
+      }
+    };
+  }
+
+  @Override
+  public void put(T obj)
+  {
+    Callback<T> waiter = null;
+    boolean release = false;
+    boolean request = false;
+    synchronized (_lock)
+    {
+      Lease<T> lease = _leases.get(obj);
+      if (lease == null)
+      {
+        LOG.warn("{}: returned an object that is not checked out", _poolName);
+        return;
+      }
+      if (!lease._disposed)
+      {
+        waiter = _waiters.poll();
+      }
+      if (waiter == null)
+      {
+        release = removeUser(lease);
+        request = shouldRequest();
+      }
+    }
+
+    if (waiter != null)
+    {
+      trc("passed a returned object to a waiter");
+      waiter.onSuccess(obj);
+    }
+    if (release)
+    {
+      trc("returned an unused object");
+      _pool.put(obj);
+    }
+    if (request)
+    {
+      request();
+    }
+  }
+
+  @Override
+  public void dispose(T obj)
+  {
+    boolean dispose;
+    boolean request;
+    synchronized (_lock)
+    {
+      Lease<T> lease = _leases.get(obj);
+      if (lease == null)
+      {
+        LOG.warn("{}: disposed an object that is not checked out", _poolName);
+        return;
+      }
+      dispose = !lease._disposed;
+      lease._disposed = true;
+      removeUser(lease);
+      request = shouldRequest();
+    }
+
+    if (dispose)
+    {
+      trc("disposing a shared object");
+      _pool.dispose(obj);
+    }
+    if (request)
+    {
+      request();
+    }
+  }
+
+  /**
+   * Must be called while holding the lock.
+   * @return true if the object has no more users and should be returned to the underlying pool
+   */
+  private boolean removeUser(Lease<T> lease)
+  {
+    lease._users--;
+    if (lease._users == 0)
+    {
+      _leases.remove(lease._obj);
+      _available.remove(lease);
+      return !lease._disposed;
+    }
+    if (!lease._disposed)
+    {
+      _available.add(lease);
+    }
+    else
+    {
+      _available.remove(lease);
+    }
+    return false;
+  }
+
+  /**
+   * Must be called while holding the lock.
+   * @return true if another object should be requested from the underlying pool, in which
+   *         case the request has been counted
+   */
+  private boolean shouldRequest()
+  {
+    if ((long) _pendingGets * _maxUsers < _waiters.size())
+    {
+      _pendingGets++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * DO NOT call this method while holding the lock!  It invokes user code.
+   */
+  private void request()
+  {
+    trc("requesting an object from the underlying pool");
+    _pool.get(new Callback<T>()
+    {
+      @Override
+      public void onSuccess(T obj)
+      {
+        List<Callback<T>> served = new ArrayList<Callback<T>>();
+        boolean release;
+        synchronized (_lock)
+        {
+          _pendingGets--;
+          Lease<T> lease = new Lease<T>(obj);
+          for (Callback<T> waiter; lease._users < _maxUsers && (waiter = _waiters.poll()) != null;)
+          {
+            served.add(waiter);
+            lease._users++;
+          }
+          release = served.isEmpty();
+          if (!release)
+          {
+            _leases.put(obj, lease);
+            if (lease._users < _maxUsers)
+            {
+              _available.add(lease);
+            }
+          }
+        }
+        for (Callback<T> waiter : served)
+        {
+          waiter.onSuccess(obj);
+        }
+        if (release)
+        {
+          // The waiters were served by returned objects, or cancelled, meanwhile
+          _pool.put(obj);
+        }
+      }
+
+      @Override
+      public void onError(Throwable e)
+      {
+        // Like the underlying pool, deny all waiters rather than keep them around to
+        // eventually get an unhelpful timeout error
+        List<Callback<T>> denied = new ArrayList<Callback<T>>();
+        synchronized (_lock)
+        {
+          _pendingGets--;
+          for (Callback<T> waiter; (waiter = _waiters.poll()) != null;)
+          {
+            denied.add(waiter);
+          }
+        }
+        for (Callback<T> waiter : denied)
+        {
+          waiter.onError(e);
+        }
+      }
+    });
+  }
+
+  private static class Lease<T>
+  {
+    private final T _obj;
+    private int _users;
+    private boolean _disposed;
+
+    private Lease(T obj)
+    {
+      _obj = obj;
+    }
+  }
+
+  private void trc(Object toLog)
+  {
+    LOG.trace("{}: {}", _poolName, toLog);
+  }
+}
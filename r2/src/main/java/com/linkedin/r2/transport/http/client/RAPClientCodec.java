@@ -21,6 +21,9 @@
 package com.linkedin.r2.transport.http.client;
 
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -94,7 +97,8 @@ class RAPClientCodec implements ChannelUpstreamHandler, ChannelDownstreamHandler
       }
 
       final ByteString entity = request.getEntity();
-      ChannelBuffer buf = ChannelBuffers.wrappedBuffer(entity.asByteBuffer());
+      List<ByteBuffer> byteBuffers = entity.asByteBuffers();
+      ChannelBuffer buf = ChannelBuffers.wrappedBuffer(byteBuffers.toArray(new ByteBuffer[byteBuffers.size()]));
       nettyRequest.setContent(buf);
       nettyRequest.setHeader(HttpHeaders.Names.CONTENT_LENGTH, entity.length());
 
@@ -121,9 +125,7 @@ class RAPClientCodec implements ChannelUpstreamHandler, ChannelDownstreamHandler
       }
 
       ChannelBuffer buf = nettyResponse.getContent();
-      byte[] array = new byte[buf.readableBytes()];
-      buf.readBytes(array);
-      builder.setEntity(array);
+      builder.setEntity(ByteString.unsafeWrap(Arrays.asList(buf.toByteBuffers())));
 
       return builder.build();
     }
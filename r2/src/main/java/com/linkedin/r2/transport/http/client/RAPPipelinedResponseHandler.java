@@ -0,0 +1,181 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.r2.transport.http.client;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+
+import com.linkedin.r2.message.rest.RestRequest;
+import com.linkedin.r2.message.rest.RestResponse;
+import com.linkedin.r2.transport.common.bridge.common.TransportCallback;
+import com.linkedin.r2.transport.common.bridge.common.TransportResponseImpl;
+
+import static com.linkedin.r2.transport.http.client.HttpNettyClient.LOG;
+
+/**
+ * Netty pipeline handler for channels which carry several outstanding requests at once.
+ * Responses arrive in the order the requests were written, so the callbacks of the
+ * outstanding requests are queued per channel, and each received response is passed to
+ * the oldest one.  Replaces both {@link RAPResponseHandler} and {@link ChannelPoolHandler}:
+ * the channel is returned to the pool once for every response, and disposed of once for
+ * every outstanding request when the channel fails.
+ */
+class RAPPipelinedResponseHandler extends SimpleChannelUpstreamHandler
+{
+  // Like RAPResponseHandler, an instance of this class is stateless; the per-channel state
+  // is stored in the ChannelHandlerContext attachment.  Unlike RAPResponseHandler, that
+  // state is shared by the threads writing requests and the I/O thread, so it is locked.
+
+  /**
+   * Writes a request to a channel checked out from a pool.  The response is passed to the
+   * callback, and the channel is then returned to the pool.
+   *
+   * @param channel the channel.
+   * @param pool the pool from which the channel has been checked out.
+   * @param callback the callback for the response.
+   * @param request the request.
+   */
+  void writeRequest(Channel channel,
+                    AsyncPool<Channel> pool,
+                    TransportCallback<RestResponse> callback,
+                    RestRequest request)
+  {
+    PendingResponses pending = getPendingResponses(channel.getPipeline().getContext(this));
+    synchronized (pending)
+    {
+      if (!pending._closed)
+      {
+        // The callback must be queued in the same order the requests are written
+        pending._pool = pool;
+        pending._callbacks.add(callback);
+        channel.write(request);
+        return;
+      }
+    }
+    HttpNettyClient.errorResponse(callback, new ClosedChannelException());
+    pool.dispose(channel);
+  }
+
+  /**
+   * @param channel a channel using this handler.
+   * @return the callbacks of the requests written to the channel which are awaiting a
+   *         response.
+   */
+  List<TransportCallback<RestResponse>> getPendingCallbacks(Channel channel)
+  {
+    PendingResponses pending = getPendingResponses(channel.getPipeline().getContext(this));
+    synchronized (pending)
+    {
+      return new ArrayList<TransportCallback<RestResponse>>(pending._callbacks);
+    }
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception
+  {
+    RestResponse response = (RestResponse)e.getMessage();
+    PendingResponses pending = getPendingResponses(ctx);
+    TransportCallback<RestResponse> callback;
+    AsyncPool<Channel> pool;
+    synchronized (pending)
+    {
+      callback = pending._callbacks.poll();
+      pool = pending._pool;
+    }
+
+    // There could be no callback if it has been removed by a previous exception or
+    // closure on the channel
+    if (callback != null)
+    {
+      LOG.debug("{}: handling a pipelined response", e.getChannel().getRemoteAddress());
+      callback.onResponse(RAPResponseHandler.toTransportResponse(response));
+      pool.put(e.getChannel());
+    }
+    else
+    {
+      LOG.debug("{}: dropped a response", e.getChannel().getRemoteAddress());
+    }
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception
+  {
+    LOG.debug(e.getChannel().getRemoteAddress() + ": exception on pipelined channel", e.getCause());
+    // The outstanding responses can no longer be matched to their requests, and neither
+    // can the responses to requests written later, so the channel must not be used again
+    failPending(ctx, e.getChannel(), HttpNettyClient.toException(e.getCause()));
+    e.getChannel().close();
+  }
+
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception
+  {
+    LOG.debug("{}: pipelined channel closed", e.getChannel().getRemoteAddress());
+    failPending(ctx, e.getChannel(), new ClosedChannelException());
+  }
+
+  private void failPending(ChannelHandlerContext ctx, Channel channel, Exception ex)
+  {
+    PendingResponses pending = getPendingResponses(ctx);
+    List<TransportCallback<RestResponse>> callbacks;
+    AsyncPool<Channel> pool;
+    synchronized (pending)
+    {
+      pending._closed = true;
+      callbacks = new ArrayList<TransportCallback<RestResponse>>(pending._callbacks);
+      pending._callbacks.clear();
+      pool = pending._pool;
+    }
+    for (TransportCallback<RestResponse> callback : callbacks)
+    {
+      callback.onResponse(TransportResponseImpl.<RestResponse>error(ex, Collections.<String, String>emptyMap()));
+      pool.dispose(channel);
+    }
+  }
+
+  private static PendingResponses getPendingResponses(ChannelHandlerContext ctx)
+  {
+    synchronized (ctx)
+    {
+      PendingResponses pending = (PendingResponses)ctx.getAttachment();
+      if (pending == null)
+      {
+        pending = new PendingResponses();
+        ctx.setAttachment(pending);
+      }
+      return pending;
+    }
+  }
+
+  private static class PendingResponses
+  {
+    private final LinkedList<TransportCallback<RestResponse>> _callbacks =
+        new LinkedList<TransportCallback<RestResponse>>();
+    private AsyncPool<Channel> _pool;
+    private boolean _closed;
+  }
+}
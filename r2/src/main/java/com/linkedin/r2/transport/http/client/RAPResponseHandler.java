@@ -24,6 +24,7 @@ import com.linkedin.r2.message.rest.RestResponse;
 import com.linkedin.r2.message.rest.RestResponseBuilder;
 import com.linkedin.r2.transport.common.WireAttributeHelper;
 import com.linkedin.r2.transport.common.bridge.common.TransportCallback;
+import com.linkedin.r2.transport.common.bridge.common.TransportResponse;
 import com.linkedin.r2.transport.common.bridge.common.TransportResponseImpl;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
@@ -68,15 +69,7 @@ class RAPResponseHandler extends UpstreamHandlerWithAttachment<TransportCallback
     if (callback != null)
     {
       LOG.debug("{}: handling a response", e.getChannel().getRemoteAddress());
-      final Map<String, String> headers = new HashMap<String, String>(response.getHeaders());
-      final Map<String, String> wireAttrs =
-            new HashMap<String, String>(WireAttributeHelper.removeWireAttributes(headers));
-
-      final RestResponse newResponse = new RestResponseBuilder(response)
-              .unsafeSetHeaders(headers)
-              .build();
-
-      callback.onResponse(TransportResponseImpl.success(newResponse, wireAttrs));
+      callback.onResponse(toTransportResponse(response));
     }
     else
     {
@@ -85,6 +78,25 @@ class RAPResponseHandler extends UpstreamHandlerWithAttachment<TransportCallback
     super.messageReceived(ctx, e);
   }
 
+  /**
+   * Moves the wire attributes of a received response out of its headers.
+   *
+   * @param response the received response.
+   * @return a successful {@link TransportResponse} for the response.
+   */
+  static TransportResponse<RestResponse> toTransportResponse(RestResponse response)
+  {
+    final Map<String, String> headers = new HashMap<String, String>(response.getHeaders());
+    final Map<String, String> wireAttrs =
+          new HashMap<String, String>(WireAttributeHelper.removeWireAttributes(headers));
+
+    final RestResponse newResponse = new RestResponseBuilder(response)
+            .unsafeSetHeaders(headers)
+            .build();
+
+    return TransportResponseImpl.success(newResponse, wireAttrs);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception
   {
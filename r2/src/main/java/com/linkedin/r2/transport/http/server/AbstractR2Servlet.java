@@ -175,7 +175,7 @@ public abstract class AbstractR2Servlet extends HttpServlet
       {
 
       }
-      rb.setEntity(buf);
+      rb.setEntity(ByteString.unsafeWrap(buf));
     }
     return QueryTunnelUtil.decode(rb.build());
   }
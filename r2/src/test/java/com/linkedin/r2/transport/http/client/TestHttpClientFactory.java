@@ -178,6 +178,7 @@ public class TestHttpClientFactory
     Assert.assertEquals(client.getMaxResponseSize(), HttpClientFactory.DEFAULT_MAX_RESPONSE_SIZE);
     Assert.assertEquals(client.getRequestTimeout(), HttpClientFactory.DEFAULT_REQUEST_TIMEOUT);
     Assert.assertEquals(client.getShutdownTimeout(), HttpClientFactory.DEFAULT_SHUTDOWN_TIMEOUT);
+    Assert.assertEquals(client.getPipelineDepth(), HttpClientFactory.DEFAULT_PIPELINE_DEPTH);
 
     //test creation using old config keys TODO remove this once we delete all the old config keys
     properties.put(HttpClientFactory.OLD_GET_TIMEOUT_KEY, oldGetTimeout);
@@ -223,6 +224,10 @@ public class TestHttpClientFactory
     Assert.assertEquals(client.getMaxResponseSize(), Integer.parseInt(maxResponse));
     Assert.assertEquals(client.getRequestTimeout(), Integer.parseInt(requestTimeout));
     Assert.assertEquals(client.getShutdownTimeout(), Integer.parseInt(shutdownTimeout));
+
+    properties.put(HttpClientFactory.HTTP_PIPELINE_DEPTH, "4");
+    client = factory.getRawClient(properties);
+    Assert.assertEquals(client.getPipelineDepth(), 4);
   }
 
   @Test
@@ -327,6 +332,36 @@ public class TestHttpClientFactory
     Assert.assertTrue(scheduler.awaitTermination(30, TimeUnit.SECONDS), "Failed to shut down scheduler");
   }
 
+  @Test
+  public void testPipelinedAndUnpipelinedRequests() throws ExecutionException, TimeoutException, InterruptedException
+  {
+    ExecutorService boss = Executors.newCachedThreadPool();
+    ExecutorService worker = Executors.newCachedThreadPool();
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    ClientSocketChannelFactory channelFactory = new NioClientSocketChannelFactory(boss, worker);
+    HttpClientFactory factory = new HttpClientFactory(FilterChains.empty(), channelFactory, true, scheduler, true);
+
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put(HttpClientFactory.HTTP_PIPELINE_DEPTH, "4");
+
+    // GET is pipelined, POST and PUT use connections of their own; the test server
+    // closes each connection after one response, so each request has its own client
+    for (String method : new String[] { "GET", "POST", "PUT" })
+    {
+      Client client = new TransportClientAdapter(factory.getClient(properties));
+      RestRequest r = new RestRequestBuilder(_testServer.getRequestURI()).setMethod(method).build();
+      client.restRequest(r).get(30, TimeUnit.SECONDS);
+    }
+
+    FutureCallback<None> factoryShutdown = new FutureCallback<None>();
+    factory.shutdown(factoryShutdown, 1, TimeUnit.SECONDS);
+    factoryShutdown.get(30, TimeUnit.SECONDS);
+
+    Assert.assertTrue(boss.awaitTermination(30, TimeUnit.SECONDS), "Failed to shut down boss");
+    Assert.assertTrue(worker.awaitTermination(30, TimeUnit.SECONDS), "Failed to shut down worker");
+    Assert.assertTrue(scheduler.awaitTermination(30, TimeUnit.SECONDS), "Failed to shut down scheduler");
+  }
+
   @Test
   public void testShutdownNoTimeout() throws ExecutionException, TimeoutException, InterruptedException
   {
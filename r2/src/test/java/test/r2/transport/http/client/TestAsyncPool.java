@@ -52,15 +52,24 @@ public class TestAsyncPool
     _executor.shutdown();
   }
 
+  protected AsyncPool<Object> createPool(String name,
+                                        AsyncPool.Lifecycle<Object> lifecycle,
+                                        int maxSize,
+                                        long idleTimeout,
+                                        ScheduledExecutorService timeoutExecutor)
+  {
+    return new AsyncPoolImpl<Object>(name, lifecycle, maxSize, idleTimeout, timeoutExecutor);
+  }
+
   @Test
   public void testMustStart() throws TimeoutException, InterruptedException
   {
-    AsyncPool<Object> pool = new AsyncPoolImpl<Object>("object pool",
-                                                       new SynchronousLifecycle(),
-                                                       1,
-                                                       100,
-                                                       _executor
-                                                       );
+    AsyncPool<Object> pool = createPool("object pool",
+                                        new SynchronousLifecycle(),
+                                        1,
+                                        100,
+                                        _executor
+                                        );
     FutureCallback<Object> cb = new FutureCallback<Object>();
     pool.get(cb);
     try
@@ -77,12 +86,12 @@ public class TestAsyncPool
   @Test
   public void testCreate()
   {
-    AsyncPool<Object> pool = new AsyncPoolImpl<Object>("object pool",
-                                                       new SynchronousLifecycle(),
-                                                       1,
-                                                       100,
-                                                       _executor
-                                                       );
+    AsyncPool<Object> pool = createPool("object pool",
+                                        new SynchronousLifecycle(),
+                                        1,
+                                        100,
+                                        _executor
+                                        );
     pool.start();
     FutureCallback<Object> cb = new FutureCallback<Object>();
     pool.get(cb);
@@ -106,12 +115,12 @@ public class TestAsyncPool
     final int POOL_SIZE = 25;
     final int DELAY = 1;
     SynchronousLifecycle lifecycle = new SynchronousLifecycle();
-    final AsyncPool<Object> pool = new AsyncPoolImpl<Object>("object pool",
-                                                             lifecycle,
-                                                             POOL_SIZE,
-                                                             100,
-                                                             _executor
-                                                             );
+    final AsyncPool<Object> pool = createPool("object pool",
+                                              lifecycle,
+                                              POOL_SIZE,
+                                              100,
+                                              _executor
+                                              );
     pool.start();
 
     Runnable r = new Runnable()
@@ -166,12 +175,12 @@ public class TestAsyncPool
     final int POOL_SIZE = 25;
     final int CHECKOUT = POOL_SIZE;
     SynchronousLifecycle lifecycle = new SynchronousLifecycle();
-    final AsyncPool<Object> pool = new AsyncPoolImpl<Object>("object pool",
-                                                             lifecycle,
-                                                             POOL_SIZE,
-                                                             100,
-                                                             _executor
-                                                             );
+    final AsyncPool<Object> pool = createPool("object pool",
+                                              lifecycle,
+                                              POOL_SIZE,
+                                              100,
+                                              _executor
+                                              );
     pool.start();
 
     List<Object> objects = new ArrayList<Object>(CHECKOUT);
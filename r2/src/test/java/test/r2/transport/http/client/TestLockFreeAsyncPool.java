@@ -0,0 +1,210 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package test.r2.transport.http.client;
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.common.callback.FutureCallback;
+import com.linkedin.common.util.None;
+import com.linkedin.r2.transport.http.client.AsyncPool;
+import com.linkedin.r2.transport.http.client.LockFreeAsyncPool;
+import com.linkedin.r2.util.Cancellable;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link TestAsyncPool} tests against {@link LockFreeAsyncPool}.
+ */
+public class TestLockFreeAsyncPool extends TestAsyncPool
+{
+  private ScheduledExecutorService _timeoutExecutor = Executors.newSingleThreadScheduledExecutor();
+
+  @AfterClass
+  public void stopTimeoutExecutor()
+  {
+    _timeoutExecutor.shutdown();
+  }
+
+  @Override
+  protected AsyncPool<Object> createPool(String name,
+                                        AsyncPool.Lifecycle<Object> lifecycle,
+                                        int maxSize,
+                                        long idleTimeout,
+                                        ScheduledExecutorService timeoutExecutor)
+  {
+    return new LockFreeAsyncPool<Object>(name, lifecycle, maxSize, idleTimeout, timeoutExecutor);
+  }
+
+  @Test
+  public void testCancelWaiter() throws Exception
+  {
+    SynchronousLifecycle lifecycle = new SynchronousLifecycle();
+    AsyncPool<Object> pool = createPool("object pool", lifecycle, 1, 0, _timeoutExecutor);
+    pool.start();
+
+    FutureCallback<Object> cb = new FutureCallback<Object>();
+    pool.get(cb);
+    Object o = cb.get(30, TimeUnit.SECONDS);
+
+    FutureCallback<Object> cancelled = new FutureCallback<Object>();
+    Cancellable cancellable = pool.get(cancelled);
+    Assert.assertNotNull(cancellable);
+    Assert.assertTrue(cancellable.cancel());
+    Assert.assertFalse(cancellable.cancel());
+
+    FutureCallback<Object> waiting = new FutureCallback<Object>();
+    Assert.assertNotNull(pool.get(waiting));
+    pool.put(o);
+    Assert.assertSame(waiting.get(30, TimeUnit.SECONDS), o);
+    Assert.assertFalse(cancelled.isDone());
+    Assert.assertEquals(lifecycle.getHighWaterMark(), 1);
+  }
+
+  @Test
+  public void testIdleTimeout() throws Exception
+  {
+    SynchronousLifecycle lifecycle = new SynchronousLifecycle();
+    AsyncPool<Object> pool = createPool("object pool", lifecycle, 5, 100, _timeoutExecutor);
+    pool.start();
+
+    Object[] objects = new Object[5];
+    for (int i = 0; i < objects.length; i++)
+    {
+      FutureCallback<Object> cb = new FutureCallback<Object>();
+      pool.get(cb);
+      objects[i] = cb.get(30, TimeUnit.SECONDS);
+    }
+    for (Object o : objects)
+    {
+      pool.put(o);
+    }
+    Assert.assertEquals(lifecycle.getLive(), 5);
+
+    for (int i = 0; i < 300 && lifecycle.getLive() > 0; i++)
+    {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(lifecycle.getLive(), 0);
+
+    FutureCallback<Object> cb = new FutureCallback<Object>();
+    pool.get(cb);
+    pool.put(cb.get(30, TimeUnit.SECONDS));
+    Assert.assertEquals(lifecycle.getLive(), 1);
+
+    FutureCallback<None> shutdown = new FutureCallback<None>();
+    pool.shutdown(shutdown);
+    shutdown.get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testIdleTimeoutKeepsRecentObjects() throws Exception
+  {
+    SynchronousLifecycle lifecycle = new SynchronousLifecycle();
+    AsyncPool<Object> pool = createPool("object pool", lifecycle, 2, 500, _timeoutExecutor);
+    pool.start();
+
+    FutureCallback<Object> cb = new FutureCallback<Object>();
+    pool.get(cb);
+    Object old = cb.get(30, TimeUnit.SECONDS);
+    cb = new FutureCallback<Object>();
+    pool.get(cb);
+    Object recent = cb.get(30, TimeUnit.SECONDS);
+
+    pool.put(old);
+    Thread.sleep(250);
+    pool.put(recent);
+    for (int i = 0; i < 300 && lifecycle.getLive() > 1; i++)
+    {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(lifecycle.getLive(), 1);
+
+    // Only the object that timed out was removed from the idle objects
+    cb = new FutureCallback<Object>();
+    pool.get(cb);
+    Assert.assertSame(cb.get(30, TimeUnit.SECONDS), recent);
+    pool.put(recent);
+
+    FutureCallback<None> shutdown = new FutureCallback<None>();
+    pool.shutdown(shutdown);
+    shutdown.get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testShutdownWithWaiters() throws Exception
+  {
+    AsyncPool<Object> pool = createPool("object pool", new SynchronousLifecycle(), 1, 0, _timeoutExecutor);
+    pool.start();
+
+    FutureCallback<Object> cb = new FutureCallback<Object>();
+    pool.get(cb);
+    Object o = cb.get(30, TimeUnit.SECONDS);
+    FutureCallback<Object> waiting = new FutureCallback<Object>();
+    pool.get(waiting);
+
+    FutureCallback<None> shutdown = new FutureCallback<None>();
+    pool.shutdown(shutdown);
+
+    FutureCallback<Object> rejected = new FutureCallback<Object>();
+    pool.get(rejected);
+    Assert.assertTrue(rejected.isDone());
+
+    // The waiter is still served while the pool shuts down
+    pool.put(o);
+    Assert.assertSame(waiting.get(30, TimeUnit.SECONDS), o);
+    Assert.assertFalse(shutdown.isDone(), "Pool shutdown with objects checked out");
+
+    pool.put(o);
+    shutdown.get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testCreateErrorDeniesWaiters() throws Exception
+  {
+    final Exception error = new Exception("create failed");
+    AsyncPool<Object> pool = createPool("object pool", new SynchronousLifecycle()
+    {
+      @Override
+      public void create(Callback<Object> callback)
+      {
+        callback.onError(error);
+      }
+    }, 1, 0, _timeoutExecutor);
+    pool.start();
+
+    FutureCallback<Object> cb = new FutureCallback<Object>();
+    pool.get(cb);
+    try
+    {
+      cb.get(30, TimeUnit.SECONDS);
+      Assert.fail("Get succeeded although creation failed");
+    }
+    catch (ExecutionException e)
+    {
+      Assert.assertSame(e.getCause(), error);
+    }
+
+    FutureCallback<None> shutdown = new FutureCallback<None>();
+    pool.shutdown(shutdown);
+    shutdown.get(30, TimeUnit.SECONDS);
+  }
+}
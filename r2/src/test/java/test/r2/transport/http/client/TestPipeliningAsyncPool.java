@@ -0,0 +1,152 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package test.r2.transport.http.client;
+
+import com.linkedin.common.callback.FutureCallback;
+import com.linkedin.common.util.None;
+import com.linkedin.r2.transport.http.client.AsyncPool;
+import com.linkedin.r2.transport.http.client.AsyncPoolImpl;
+import com.linkedin.r2.transport.http.client.PipeliningAsyncPool;
+import com.linkedin.r2.util.Cancellable;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link PipeliningAsyncPool}.
+ */
+public class TestPipeliningAsyncPool
+{
+  private ScheduledExecutorService _executor = Executors.newSingleThreadScheduledExecutor();
+
+  @AfterClass
+  public void stopExecutor()
+  {
+    _executor.shutdown();
+  }
+
+  private AsyncPool<Object> createPool(TestAsyncPool.SynchronousLifecycle lifecycle,
+                                       int maxSize,
+                                       int maxUsers)
+  {
+    AsyncPool<Object> pool = new PipeliningAsyncPool<Object>(
+        "object pool",
+        new AsyncPoolImpl<Object>("object pool", lifecycle, maxSize, 100000, _executor),
+        maxUsers);
+    pool.start();
+    return pool;
+  }
+
+  private static Object get(AsyncPool<Object> pool) throws Exception
+  {
+    FutureCallback<Object> cb = new FutureCallback<Object>();
+    pool.get(cb);
+    return cb.get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testShare() throws Exception
+  {
+    TestAsyncPool.SynchronousLifecycle lifecycle = new TestAsyncPool.SynchronousLifecycle();
+    AsyncPool<Object> pool = createPool(lifecycle, 2, 3);
+
+    Object o = get(pool);
+    Assert.assertSame(get(pool), o);
+    Assert.assertSame(get(pool), o);
+    Object o2 = get(pool);
+    Assert.assertNotSame(o2, o);
+    Assert.assertEquals(lifecycle.getHighWaterMark(), 2);
+
+    // Returned slots are reused before another object is created
+    pool.put(o);
+    pool.put(o2);
+    Object o3 = get(pool);
+    Object o4 = get(pool);
+    Assert.assertTrue((o3 == o && o4 == o2) || (o3 == o2 && o4 == o));
+    Assert.assertEquals(lifecycle.getHighWaterMark(), 2);
+  }
+
+  @Test
+  public void testWaiters() throws Exception
+  {
+    TestAsyncPool.SynchronousLifecycle lifecycle = new TestAsyncPool.SynchronousLifecycle();
+    AsyncPool<Object> pool = createPool(lifecycle, 1, 2);
+
+    Object o = get(pool);
+    Assert.assertSame(get(pool), o);
+
+    FutureCallback<Object> cancelled = new FutureCallback<Object>();
+    Cancellable cancellable = pool.get(cancelled);
+    Assert.assertNotNull(cancellable);
+    FutureCallback<Object> waiting = new FutureCallback<Object>();
+    Assert.assertNotNull(pool.get(waiting));
+    Assert.assertTrue(cancellable.cancel());
+    Assert.assertFalse(cancellable.cancel());
+
+    pool.put(o);
+    Assert.assertSame(waiting.get(30, TimeUnit.SECONDS), o);
+    Assert.assertFalse(cancelled.isDone());
+    Assert.assertEquals(lifecycle.getHighWaterMark(), 1);
+  }
+
+  @Test
+  public void testRelease() throws Exception
+  {
+    TestAsyncPool.SynchronousLifecycle lifecycle = new TestAsyncPool.SynchronousLifecycle();
+    AsyncPool<Object> pool = createPool(lifecycle, 1, 2);
+
+    Object o = get(pool);
+    Assert.assertSame(get(pool), o);
+
+    // The underlying pool only shuts down once the object has been returned to it,
+    // which happens once the object has no more users
+    FutureCallback<None> shutdown = new FutureCallback<None>();
+    pool.shutdown(shutdown);
+    pool.put(o);
+    Assert.assertFalse(shutdown.isDone());
+    pool.put(o);
+    shutdown.get(30, TimeUnit.SECONDS);
+    Assert.assertEquals(lifecycle.getHighWaterMark(), 1);
+  }
+
+  @Test
+  public void testDispose() throws Exception
+  {
+    TestAsyncPool.SynchronousLifecycle lifecycle = new TestAsyncPool.SynchronousLifecycle();
+    AsyncPool<Object> pool = createPool(lifecycle, 1, 2);
+
+    Object o = get(pool);
+    Assert.assertSame(get(pool), o);
+    pool.dispose(o);
+    Assert.assertEquals(lifecycle.getLive(), 0);
+
+    // A disposed object is not lent again, even though it still has a user
+    Object o2 = get(pool);
+    Assert.assertNotSame(o2, o);
+    pool.put(o);
+    Assert.assertEquals(lifecycle.getLive(), 1);
+
+    FutureCallback<None> shutdown = new FutureCallback<None>();
+    pool.shutdown(shutdown);
+    pool.put(o2);
+    shutdown.get(30, TimeUnit.SECONDS);
+  }
+}
@@ -20,7 +20,9 @@ import com.linkedin.common.callback.Callback;
 import com.linkedin.common.callback.CallbackAdapter;
 import com.linkedin.common.callback.FutureCallback;
 import com.linkedin.common.util.None;
+import com.linkedin.data.ByteString;
 import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.CompactDataCodec;
 import com.linkedin.data.codec.JacksonDataCodec;
 import com.linkedin.data.codec.PsonDataCodec;
 import com.linkedin.data.template.RecordTemplate;
@@ -94,10 +96,17 @@ import java.util.Map;
 public class RestClient
 {
   private static final JacksonDataCodec  JACKSON_DATA_CODEC = new JacksonDataCodec();
-  private static final PsonDataCodec     PSON_DATA_CODEC    = new PsonDataCodec();
+  private static final PsonDataCodec     PSON_DATA_CODEC    = new PsonDataCodec().setOptions(new PsonDataCodec.Options().setRecycleBuffers(true));
+  // request entities are encoded without a schema, so that they can be read by any resource method
+  private static final CompactDataCodec  COMPACT_DATA_CODEC = new CompactDataCodec();
   private static final List<AcceptType>  DEFAULT_ACCEPT_TYPES = Collections.emptyList();
   private static final ContentType DEFAULT_CONTENT_TYPE = ContentType.JSON;
 
+  static
+  {
+    JACKSON_DATA_CODEC.setRecycleBuffers(true);
+  }
+
   private final Client _client;
   private final String _uriPrefix;
   private final List<AcceptType> _acceptTypes;
@@ -175,9 +184,11 @@ public class RestClient
                               Callback<Response<T>> callback)
   {
     RecordTemplate input = request.getInput();
-    RestLiCallbackAdapter<T> adapter = new RestLiCallbackAdapter<T>(request.getResponseDecoder(), callback);
+    RestResponseDecoder<T> decoder = request.getResponseDecoder();
+    RestLiCallbackAdapter<T> adapter = new RestLiCallbackAdapter<T>(decoder, callback);
     sendRequestImpl(requestContext, request.getUri(), request.getMethod(),
-                    input != null ? input.data() : null, request.getHeaders(), adapter);
+                    input != null ? input.data() : null, request.getHeaders(),
+                    decoder.getCompactDataCodec().getFingerprint(), adapter);
   }
 
   private void addAcceptHeaders(RestRequestBuilder builder)
@@ -188,6 +199,20 @@ public class RestClient
     }
   }
 
+  /**
+   * Tell the server the fingerprint of the schema compact responses are decoded with, so that
+   * it only encodes a response with its schema if the client has the same one.
+   */
+  private void addSchemaFingerprintHeader(RestRequestBuilder builder, long fingerprint)
+  {
+    String accept = builder.getHeader(RestConstants.HEADER_ACCEPT);
+    if (fingerprint != CompactDataCodec.NO_SCHEMA_FINGERPRINT && accept != null &&
+        accept.contains(RestConstants.HEADER_VALUE_APPLICATION_COMPACT))
+    {
+      builder.setHeader(RestConstants.HEADER_RESTLI_SCHEMA_FINGERPRINT, Long.toString(fingerprint));
+    }
+  }
+
   private String createAcceptHeader()
   {
     if (_acceptTypes.size() == 1)
@@ -245,19 +270,27 @@ public class RestClient
         {
           type = ContentType.PSON;
         }
+        else if (contentType.getBaseType().equalsIgnoreCase(RestConstants.HEADER_VALUE_APPLICATION_COMPACT))
+        {
+          type = ContentType.COMPACT;
+        }
         else
         {
           throw new IllegalStateException("Unknown Content-Type: " + contentType.toString());
         }
       }
 
+      // the codecs return a new array, which is wrapped instead of copied again
       switch (type)
       {
         case PSON:
-          builder.setEntity(PSON_DATA_CODEC.mapToBytes(dataMap));
+          builder.setEntity(ByteString.unsafeWrap(PSON_DATA_CODEC.mapToBytes(dataMap)));
+          break;
+        case COMPACT:
+          builder.setEntity(ByteString.unsafeWrap(COMPACT_DATA_CODEC.mapToBytes(dataMap)));
           break;
         case JSON:
-          builder.setEntity(JACKSON_DATA_CODEC.mapToBytes(dataMap));
+          builder.setEntity(ByteString.unsafeWrap(JACKSON_DATA_CODEC.mapToBytes(dataMap)));
           break;
         default:
           throw new IllegalStateException("Unknown ContentType:" + type);
@@ -342,6 +375,7 @@ public class RestClient
    * @param uri for resource
    * @param method to perform
    * @param dataMap request body entity
+   * @param fingerprint fingerprint of the schema compact responses are decoded with
    * @param callback to call on request completion. In the event of an error, the callback
    *                 will receive a {@link com.linkedin.r2.RemoteInvocationException}. If a valid
    *                 error response was received from the remote server, the callback will receive
@@ -352,11 +386,12 @@ public class RestClient
                                    ResourceMethod method,
                                    DataMap dataMap,
                                    Map<String, String> headers,
+                                   long fingerprint,
                                    RestLiCallbackAdapter<T> callback)
   {
     try
     {
-      RestRequest request = buildRequest(uri, method, dataMap, headers);
+      RestRequest request = buildRequest(uri, method, dataMap, headers, fingerprint);
       _client.restRequest(request, requestContext, callback);
     }
     catch (Exception e)
@@ -368,7 +403,11 @@ public class RestClient
 
   // This throws Exception to remind the caller to deal with arbitrary exceptions including RuntimeException
   // in a way appropriate for the public method that was originally invoked.
-  private RestRequest buildRequest(URI uri, ResourceMethod method, DataMap dataMap, Map<String, String> headers) throws Exception
+  private RestRequest buildRequest(URI uri,
+                                   ResourceMethod method,
+                                   DataMap dataMap,
+                                   Map<String, String> headers,
+                                   long fingerprint) throws Exception
   {
     try
     {
@@ -384,6 +423,7 @@ public class RestClient
 
     requestBuilder.setHeaders(headers);
     addAcceptHeaders(requestBuilder);
+    addSchemaFingerprintHeader(requestBuilder, fingerprint);
     addEntityAndContentTypeHeaders(requestBuilder, dataMap);
 
     if (method.getHttpMethod() == HttpMethod.POST)
@@ -398,6 +438,7 @@ public class RestClient
   {
     PSON(RestConstants.HEADER_VALUE_APPLICATION_PSON),
     JSON(RestConstants.HEADER_VALUE_APPLICATION_JSON),
+    COMPACT(RestConstants.HEADER_VALUE_APPLICATION_COMPACT),
     ANY(RestConstants.HEADER_VALUE_ACCEPT_ANY);
 
     private String _headerKey;
@@ -416,7 +457,8 @@ public class RestClient
   public static enum ContentType
   {
     PSON(RestConstants.HEADER_VALUE_APPLICATION_PSON),
-    JSON(RestConstants.HEADER_VALUE_APPLICATION_JSON);
+    JSON(RestConstants.HEADER_VALUE_APPLICATION_JSON),
+    COMPACT(RestConstants.HEADER_VALUE_APPLICATION_COMPACT);
 
     private String _headerKey;
 
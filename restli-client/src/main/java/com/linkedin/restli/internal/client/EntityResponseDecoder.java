@@ -23,6 +23,7 @@ package com.linkedin.restli.internal.client;
 import java.lang.reflect.InvocationTargetException;
 
 import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.CompactDataCodec;
 import com.linkedin.data.template.RecordTemplate;
 
 /**
@@ -46,6 +47,12 @@ public class EntityResponseDecoder<T extends RecordTemplate> extends RestRespons
     return _entityClass;
   }
 
+  @Override
+  public CompactDataCodec getCompactDataCodec()
+  {
+    return getCompactDataCodec(_entityClass);
+  }
+
   @Override
   protected T wrapResponse(DataMap dataMap)
                   throws NoSuchMethodException, InvocationTargetException, InstantiationException, IllegalAccessException
@@ -21,13 +21,20 @@
 package com.linkedin.restli.internal.client;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.linkedin.data.ByteString;
 import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.CompactDataCodec;
 import com.linkedin.data.codec.JacksonDataCodec;
 import com.linkedin.data.codec.PsonDataCodec;
+import com.linkedin.data.schema.DataSchema;
+import com.linkedin.data.schema.RecordDataSchema;
+import com.linkedin.data.template.DataTemplateUtil;
+import com.linkedin.data.template.RecordTemplate;
+import com.linkedin.data.template.TemplateRuntimeException;
 import com.linkedin.r2.message.rest.RestResponse;
 import com.linkedin.restli.client.Response;
 import com.linkedin.restli.client.RestLiDecodingException;
@@ -43,7 +50,15 @@ import com.linkedin.restli.common.RestConstants;
 public abstract class RestResponseDecoder<T>
 {
   private static final JacksonDataCodec JACKSON_DATA_CODEC = new JacksonDataCodec();
-  private static final PsonDataCodec    PSON_DATA_CODEC    = new PsonDataCodec();
+  private static final PsonDataCodec    PSON_DATA_CODEC    = new PsonDataCodec().setOptions(new PsonDataCodec.Options().setRecycleBuffers(true));
+  private static final CompactDataCodec COMPACT_DATA_CODEC = new CompactDataCodec();
+  private static final ConcurrentMap<Class<?>, CompactDataCodec> COMPACT_DATA_CODECS =
+      new ConcurrentHashMap<Class<?>, CompactDataCodec>();
+
+  static
+  {
+    JACKSON_DATA_CODEC.setRecycleBuffers(true);
+  }
 
   public Response<T> decodeResponse(RestResponse restResponse) throws RestLiDecodingException
   {
@@ -55,19 +70,22 @@ public abstract class RestResponseDecoder<T>
       return response;
     }
 
-    InputStream inputStream = entity.asInputStream();
-
     try
     {
       DataMap dataMap;
       if ((RestConstants.HEADER_VALUE_APPLICATION_PSON)
               .equalsIgnoreCase(restResponse.getHeader(RestConstants.HEADER_CONTENT_TYPE)))
       {
-        dataMap = PSON_DATA_CODEC.readMap(inputStream);
+        dataMap = PSON_DATA_CODEC.readMap(entity);
+      }
+      else if ((RestConstants.HEADER_VALUE_APPLICATION_COMPACT)
+              .equalsIgnoreCase(restResponse.getHeader(RestConstants.HEADER_CONTENT_TYPE)))
+      {
+        dataMap = getCompactDataCodec().readMap(entity);
       }
       else
       {
-        dataMap = JACKSON_DATA_CODEC.readMap(inputStream);
+        dataMap = JACKSON_DATA_CODEC.readMap(entity);
       }
       response.setEntity(wrapResponse(dataMap));
       return response;
@@ -96,6 +114,44 @@ public abstract class RestResponseDecoder<T>
 
   public abstract Class<?> getEntityClass();
 
+  /**
+   * @return the {@link CompactDataCodec} used to decode compact responses. The default codec
+   *         only decodes responses encoded without a schema.
+   */
+  public CompactDataCodec getCompactDataCodec()
+  {
+    return COMPACT_DATA_CODEC;
+  }
+
+  /**
+   * @param recordClass provides the class of the top level record of responses.
+   * @return a shared {@link CompactDataCodec} for the schema of the record class.
+   */
+  protected static CompactDataCodec getCompactDataCodec(Class<? extends RecordTemplate> recordClass)
+  {
+    CompactDataCodec codec = COMPACT_DATA_CODECS.get(recordClass);
+    if (codec == null)
+    {
+      DataSchema schema;
+      try
+      {
+        schema = DataTemplateUtil.getSchema(recordClass);
+      }
+      catch (TemplateRuntimeException e)
+      {
+        // e.g. PatchRequest, which has no static schema
+        schema = null;
+      }
+      codec = (schema instanceof RecordDataSchema ? new CompactDataCodec((RecordDataSchema) schema) : COMPACT_DATA_CODEC);
+      CompactDataCodec existing = COMPACT_DATA_CODECS.putIfAbsent(recordClass, codec);
+      if (existing != null)
+      {
+        codec = existing;
+      }
+    }
+    return codec;
+  }
+
   protected abstract T wrapResponse(DataMap dataMap)
                   throws InstantiationException, IllegalAccessException, InvocationTargetException, NoSuchMethodException;
 }
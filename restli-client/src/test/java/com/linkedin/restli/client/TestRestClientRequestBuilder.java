@@ -6,12 +6,15 @@ package com.linkedin.restli.client;
 
 import com.linkedin.common.callback.Callback;
 import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.CompactDataCodec;
 import com.linkedin.data.template.RecordTemplate;
 import com.linkedin.r2.message.RequestContext;
 import com.linkedin.r2.message.rest.RestRequest;
 import com.linkedin.r2.message.rest.RestResponse;
 import com.linkedin.r2.transport.common.Client;
+import com.linkedin.restli.client.test.TestRecord;
 import com.linkedin.restli.common.ResourceMethod;
+import com.linkedin.restli.common.RestConstants;
 import com.linkedin.restli.internal.client.RestResponseDecoder;
 import junit.framework.Assert;
 import org.easymock.Capture;
@@ -36,6 +39,7 @@ public class TestRestClientRequestBuilder
   private static final DataMap ENTITY_BODY = new DataMap();
   private static final String  JSON_ENTITY_BODY = "{\"testFieldName\":\"testValue\",\"testInteger\":1}";
   private static final String  PSON_ENTITY_BODY = "#!PSON1\n!\u0081testFieldName\u0000\n\n\u0000\u0000\u0000testValue\u0000\u0083testInteger\u0000\u0002\u0001\u0000\u0000\u0000\u0080";
+  private static final String  COMPACT_ENTITY_BODY = "#!C2\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\n\u0082\u0080\u008etestFieldName\u0000\b\u008atestValue\u0000\u0080\u008ctestInteger\u0000\u0003\u0082";
   private static final String  CONTENT_TYPE_HEADER = "Content-Type";
   private static final String  ACCEPT_TYPE_HEADER = "Accept";
 
@@ -170,6 +174,24 @@ public class TestRestClientRequestBuilder
     Assert.assertEquals(expectedAcceptHeader, restRequest.getHeader(ACCEPT_TYPE_HEADER));
   }
 
+  @Test
+  public void testSchemaFingerprint() throws URISyntaxException
+  {
+    CompactDataCodec codec = new CompactDataCodec(new TestRecord().schema());
+    List<RestClient.AcceptType> compact = Arrays.asList(RestClient.AcceptType.COMPACT, RestClient.AcceptType.JSON);
+
+    RestRequest restRequest = clientGeneratedRequest(ResourceMethod.GET, null, null, compact, codec);
+    Assert.assertEquals(Long.toString(codec.getFingerprint()),
+                        restRequest.getHeader(RestConstants.HEADER_RESTLI_SCHEMA_FINGERPRINT));
+
+    // no fingerprint without a schema, or if compact responses are not accepted
+    restRequest = clientGeneratedRequest(ResourceMethod.GET, null, null, compact, new CompactDataCodec());
+    Assert.assertNull(restRequest.getHeader(RestConstants.HEADER_RESTLI_SCHEMA_FINGERPRINT));
+    restRequest = clientGeneratedRequest(ResourceMethod.GET, null, null,
+                                         Collections.singletonList(RestClient.AcceptType.JSON), codec);
+    Assert.assertNull(restRequest.getHeader(RestConstants.HEADER_RESTLI_SCHEMA_FINGERPRINT));
+  }
+
   @DataProvider(name = "data")
   public Object[][] contentTypeData()
   {
@@ -323,6 +345,20 @@ public class TestRestClientRequestBuilder
           Arrays.asList(RestClient.AcceptType.JSON, RestClient.AcceptType.PSON, RestClient.AcceptType.ANY),
           "application/json;q=1.0,application/x-pson;q=0.9,*/*;q=0.8"
         },
+        {
+          RestClient.ContentType.COMPACT,
+          "application/x-compact",
+          COMPACT_ENTITY_BODY,
+          Collections.singletonList(RestClient.AcceptType.COMPACT),
+          "application/x-compact"
+        },
+        {
+          RestClient.ContentType.COMPACT,
+          "application/x-compact",
+          COMPACT_ENTITY_BODY,
+          Arrays.asList(RestClient.AcceptType.COMPACT, RestClient.AcceptType.JSON),
+          "application/x-compact;q=1.0,application/json;q=0.9"
+        },
       };
   }
 
@@ -332,6 +368,17 @@ public class TestRestClientRequestBuilder
                                              RestClient.ContentType contentType,
                                              List<RestClient.AcceptType> acceptTypes)
     throws URISyntaxException
+  {
+    return clientGeneratedRequest(method, entityBody, contentType, acceptTypes, new CompactDataCodec());
+  }
+
+  @SuppressWarnings("unchecked")
+  private RestRequest clientGeneratedRequest(ResourceMethod method,
+                                             DataMap entityBody,
+                                             RestClient.ContentType contentType,
+                                             List<RestClient.AcceptType> acceptTypes,
+                                             CompactDataCodec compactDataCodec)
+    throws URISyntaxException
   {
     // massive setup...
     Client mockClient = EasyMock.createMock(Client.class);
@@ -346,6 +393,7 @@ public class TestRestClientRequestBuilder
     EasyMock.expect(mockRequest.getMethod()).andReturn(method).once();
     EasyMock.expect(mockRecordTemplate.data()).andReturn(entityBody).once();
     EasyMock.expect(mockRequest.getHeaders()).andReturn(Collections.<String, String>emptyMap()).once();
+    EasyMock.expect(restResponseDecoder.getCompactDataCodec()).andReturn(compactDataCodec).once();
 
     // sendRequestImpl
 
@@ -355,7 +403,7 @@ public class TestRestClientRequestBuilder
                            (Callback<RestResponse>) EasyMock.anyObject());
     EasyMock.expectLastCall().once();
 
-    EasyMock.replay(mockClient, mockRequest, mockRecordTemplate);
+    EasyMock.replay(mockClient, mockRequest, mockRecordTemplate, restResponseDecoder);
 
     // do work!
     String host = "host";
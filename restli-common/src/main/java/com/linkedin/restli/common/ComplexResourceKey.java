@@ -22,8 +22,8 @@ import java.util.Map;
 
 import com.linkedin.data.DataMap;
 import com.linkedin.data.schema.validation.CoercionMode;
+import com.linkedin.data.schema.validation.CompiledValidator;
 import com.linkedin.data.schema.validation.RequiredMode;
-import com.linkedin.data.schema.validation.ValidateDataAgainstSchema;
 import com.linkedin.data.schema.validation.ValidationOptions;
 import com.linkedin.data.template.DataTemplateUtil;
 import com.linkedin.data.template.RecordTemplate;
@@ -117,6 +117,8 @@ public class ComplexResourceKey<K extends RecordTemplate, P extends RecordTempla
   protected final P           params;
 
   private static final String COMPLEX_KEY_PARAMS = "$params";
+  private static final ValidationOptions _keyValidationOptions =
+      new ValidationOptions(RequiredMode.CAN_BE_ABSENT_IF_HAS_DEFAULT, CoercionMode.STRING_TO_PRIMITIVE);
 
   /**
    * Build complex key instance from an untyped datamap representing a complex key as
@@ -164,10 +166,8 @@ public class ComplexResourceKey<K extends RecordTemplate, P extends RecordTempla
     // Validate against the class schema with FixupMode.STRING_TO_PRIMITIVE to parse the
     // strings into the
     // corresponding primitive types.
-    ValidateDataAgainstSchema.validate(recordTemplate.data(),
-                                       recordTemplate.schema(),
-                                       new ValidationOptions(RequiredMode.CAN_BE_ABSENT_IF_HAS_DEFAULT,
-                                                             CoercionMode.STRING_TO_PRIMITIVE));
+    CompiledValidator.compile(recordTemplate.schema(), _keyValidationOptions)
+                     .validate(recordTemplate.data());
     return recordTemplate;
   }
 
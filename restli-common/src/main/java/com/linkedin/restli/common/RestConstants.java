@@ -29,6 +29,8 @@ public interface RestConstants
   String HEADER_LINKEDIN_TYPE = "X-LinkedIn-Type";
   String HEADER_LINKEDIN_SUB_TYPE = "X-LinkedIn-Sub-Type";
   String HEADER_RESTLI_REQUEST_METHOD = "X-RestLi-Method";
+  /** fingerprint of the schema a client decodes application/x-compact responses with */
+  String HEADER_RESTLI_SCHEMA_FINGERPRINT = "X-RestLi-Schema-Fingerprint";
   String HEADER_LINKEDIN_ERROR_RESPONSE = "X-LinkedIn-Error-Response";
   String HEADER_VALUE_ERROR_PREPROCESSING = "FWK-PRE";
   String HEADER_VALUE_ERROR_POSTPROCESSING = "FWK-POST";
@@ -39,9 +41,12 @@ public interface RestConstants
   String HEADER_CONTENT_TYPE = "Content-Type";
   String HEADER_VALUE_APPLICATION_JSON = "application/json";
   String HEADER_VALUE_APPLICATION_PSON = "application/x-pson";
+  String HEADER_VALUE_APPLICATION_COMPACT = "application/x-compact";
   String HEADER_VALUE_ACCEPT_ANY = "*/*";
 
-  List<String> SUPPORTED_MIME_TYPES = Arrays.asList(HEADER_VALUE_APPLICATION_PSON, HEADER_VALUE_APPLICATION_JSON);
+  List<String> SUPPORTED_MIME_TYPES = Arrays.asList(HEADER_VALUE_APPLICATION_COMPACT,
+                                                   HEADER_VALUE_APPLICATION_PSON,
+                                                   HEADER_VALUE_APPLICATION_JSON);
   
   String START_PARAM = "start";
   String COUNT_PARAM = "count";
@@ -0,0 +1,45 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.client;
+
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.data.template.RecordTemplate;
+import com.linkedin.restli.client.response.BatchKVResponse;
+
+
+/**
+ * Callback for a batch request executed by {@link ScatterGatherExecutor}.
+ *
+ * {@link #onPartialResponse(BatchKVResponse)} is invoked once for every sub-request as it completes,
+ * with the results and per-key errors of that sub-request only. {@link #onSuccess(Object)} is invoked
+ * exactly once after all sub-requests have completed, with the merged response. A failed sub-request
+ * is reported as per-key errors rather than through {@link #onError(Throwable)}, which is reserved for
+ * failures to assemble the merged response.
+ *
+ * @param <K> key type of the batch request
+ * @param <V> value type of the batch response
+ */
+public interface ScatterGatherCallback<K, V extends RecordTemplate> extends Callback<BatchKVResponse<K, V>>
+{
+  /**
+   * Called from the thread that completed a sub-request; implementations must be thread-safe.
+   *
+   * @param partialResponse results and errors for the keys of a single sub-request
+   */
+  void onPartialResponse(BatchKVResponse<K, V> partialResponse);
+}
@@ -0,0 +1,456 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.client;
+
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.d2.balancer.KeyMapper;
+import com.linkedin.d2.balancer.ServiceUnavailableException;
+import com.linkedin.d2.balancer.util.MapKeyResult;
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.template.RecordTemplate;
+import com.linkedin.jersey.api.uri.UriBuilder;
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.restli.client.response.BatchKVResponse;
+import com.linkedin.restli.common.ComplexResourceKey;
+import com.linkedin.restli.common.ErrorResponse;
+import com.linkedin.restli.common.HttpStatus;
+import com.linkedin.restli.common.PatchRequest;
+import com.linkedin.restli.common.ResourceMethod;
+import com.linkedin.restli.common.ResourceSpec;
+import com.linkedin.restli.common.RestConstants;
+import com.linkedin.restli.common.UpdateStatus;
+import com.linkedin.restli.internal.common.QueryParamsDataMap;
+
+/**
+ * Executes a batch request against a partitioned d2 service by splitting it into one sub-request per
+ * target host, sending the sub-requests concurrently and merging their responses into a single
+ * {@link BatchKVResponse}.
+ *
+ * Supports {@link BatchGetKVRequest} (see {@link BatchGetRequestBuilder#buildKV()}),
+ * {@link BatchUpdateRequest}, {@link BatchPartialUpdateRequest} and {@link BatchDeleteRequest}. Keys that
+ * cannot be mapped to a host, and keys of sub-requests that fail, are reported as per-key errors in the
+ * merged response.
+ */
+public class ScatterGatherExecutor
+{
+  /**
+   * Sub-requests are not split further unless a maximum batch size is given.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = Integer.MAX_VALUE;
+
+  private static final String D2_URI_PREFIX = "d2://";
+
+  private final RestClient _client;
+  private final KeyMapper  _mapper;
+  private final int        _maxBatchSize;
+
+  public ScatterGatherExecutor(RestClient client, KeyMapper mapper)
+  {
+    this(client, mapper, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * @param client the RestClient used to send the sub-requests
+   * @param mapper maps the keys of a request to the hosts serving them
+   * @param maxBatchSize the maximum number of keys sent to a host in a single sub-request
+   */
+  public ScatterGatherExecutor(RestClient client, KeyMapper mapper, int maxBatchSize)
+  {
+    if (maxBatchSize <= 0)
+    {
+      throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+    }
+    _client = client;
+    _mapper = mapper;
+    _maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Scatters the request over the hosts serving its keys and gathers the responses.
+   *
+   * @param request the batch request to execute
+   * @param requestContext the original request context; each sub-request gets a copy targeted at its host
+   * @param callback notified of every sub-request response and of the merged response
+   * @throws ServiceUnavailableException if the keys cannot be mapped for the service
+   */
+  public <K, V extends RecordTemplate> void sendRequests(BatchRequest<BatchKVResponse<K, V>> request,
+                                                         RequestContext requestContext,
+                                                         ScatterGatherCallback<K, V> callback)
+      throws ServiceUnavailableException
+  {
+    checkMethod(request);
+
+    ResourceSpec resourceSpec = request.getResourceSpec();
+    DataList idsList = (DataList) request.getQueryParams().get(RestConstants.QUERY_BATCH_IDS_PARAM);
+
+    // keyed on the string passed to the key mapper
+    Map<String, Object> ids = new LinkedHashMap<String, Object>();
+    Map<String, String> entityKeys = new LinkedHashMap<String, String>();
+    if (idsList != null)
+    {
+      for (Object id : idsList)
+      {
+        if (id instanceof DataMap)
+        {
+          ComplexResourceKey<RecordTemplate, RecordTemplate> key =
+              ComplexResourceKey.buildFromDataMap((DataMap) id,
+                                                  resourceSpec.getKeyKeyClass(),
+                                                  resourceSpec.getKeyParamsClass());
+          ids.put(key.toString(), id);
+          entityKeys.put(key.toString(), key.toStringFull());
+        }
+        else
+        {
+          ids.put(id.toString(), id);
+          entityKeys.put(id.toString(), id.toString());
+        }
+      }
+    }
+
+    URI serviceUri;
+    try
+    {
+      serviceUri = new URI(D2_URI_PREFIX + request.getUri().toString());
+    }
+    catch (URISyntaxException e)
+    {
+      throw new IllegalArgumentException(e);
+    }
+
+    MapKeyResult<URI, String> mapKeyResult = _mapper.mapKeysV2(serviceUri, ids.keySet());
+
+    List<Batch> batches = new ArrayList<Batch>();
+    for (Map.Entry<URI, Collection<String>> hostKeys : mapKeyResult.getMapResult().entrySet())
+    {
+      Batch batch = null;
+      for (String key : hostKeys.getValue())
+      {
+        if (batch == null || batch._ids.size() == _maxBatchSize)
+        {
+          batch = new Batch(hostKeys.getKey());
+          batches.add(batch);
+        }
+        batch._ids.add(ids.get(key));
+        batch._entityKeys.add(entityKeys.get(key));
+      }
+    }
+
+    GatherState<K, V> state = new GatherState<K, V>(request, batches.size(), callback);
+    for (MapKeyResult.UnmappedKey<String> unmappedKey : mapKeyResult.getUnmappedKeys())
+    {
+      ErrorResponse error = new ErrorResponse();
+      error.setStatus(HttpStatus.S_503_SERVICE_UNAVAILABLE.getCode());
+      error.setMessage("Unable to map key: " + unmappedKey.getErrorType());
+      state._errors.put(entityKeys.get(unmappedKey.getKey()), error.data());
+    }
+
+    if (batches.isEmpty())
+    {
+      state.complete();
+      return;
+    }
+
+    for (Batch batch : batches)
+    {
+      RequestContext context = requestContext.clone();
+      KeyMapper.TargetHostHints.setRequestContextTargetHost(context, batch._host);
+      _client.sendRequest(buildSubRequest(request, batch), context, new BatchCallback<K, V>(state, batch));
+    }
+  }
+
+  private static void checkMethod(BatchRequest<?> request)
+  {
+    switch (request.getMethod())
+    {
+      case BATCH_GET:
+      case BATCH_UPDATE:
+      case BATCH_PARTIAL_UPDATE:
+      case BATCH_DELETE:
+        return;
+      default:
+        throw new IllegalArgumentException("Unsupported method for scatter gather: " + request.getMethod());
+    }
+  }
+
+  // the sub-request is of the same class as the original request, so it has the same response type
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <K, V extends RecordTemplate> BatchRequest<BatchKVResponse<K, V>> buildSubRequest(
+      BatchRequest<BatchKVResponse<K, V>> request, Batch batch)
+  {
+    URI baseUri = getBaseURI(request);
+    DataMap queryParams = new DataMap(request.getQueryParams());
+    queryParams.put(RestConstants.QUERY_BATCH_IDS_PARAM, new DataList(batch._ids));
+
+    UriBuilder b = UriBuilder.fromUri(baseUri);
+    QueryParamsDataMap.addSortedParams(b, queryParams);
+    URI uri = b.build();
+
+    switch (request.getMethod())
+    {
+      case BATCH_GET:
+        return new BatchGetKVRequest<K, V>(uri,
+                                           request.getMethod(),
+                                           request.getHeaders(),
+                                           request.getResponseDecoder(),
+                                           baseUri,
+                                           queryParams,
+                                           request.getResourceSpec());
+      case BATCH_UPDATE:
+        return (BatchRequest) new BatchUpdateRequest<K, RecordTemplate>(uri,
+                                                                          request.getHeaders(),
+                                                                          baseUri,
+                                                                          subInput(request, batch, RecordTemplate.class),
+                                                                          queryParams,
+                                                                          request.getResourceSpec());
+      case BATCH_PARTIAL_UPDATE:
+        return (BatchRequest) new BatchPartialUpdateRequest<K, RecordTemplate>(uri,
+                                                                                 request.getHeaders(),
+                                                                                 baseUri,
+                                                                                 subInput(request, batch, (Class) PatchRequest.class),
+                                                                                 queryParams,
+                                                                                 request.getResourceSpec());
+      case BATCH_DELETE:
+        return (BatchRequest) new BatchDeleteRequest<K, RecordTemplate>(uri,
+                                                                          request.getHeaders(),
+                                                                          baseUri,
+                                                                          queryParams,
+                                                                          request.getResourceSpec());
+      default:
+        throw new IllegalArgumentException("Unsupported method for scatter gather: " + request.getMethod());
+    }
+  }
+
+  private static <T extends RecordTemplate> com.linkedin.restli.common.BatchRequest<T> subInput(BatchRequest<?> request,
+                                                                                                Batch batch,
+                                                                                                Class<T> valueClass)
+  {
+    DataMap entities = (DataMap) request.getInput().data().get(com.linkedin.restli.common.BatchRequest.ENTITIES);
+    DataMap subEntities = new DataMap();
+    for (String key : batch._entityKeys)
+    {
+      Object entity = entities.get(key);
+      if (entity != null)
+      {
+        subEntities.put(key, entity);
+      }
+    }
+    DataMap data = new DataMap();
+    data.put(com.linkedin.restli.common.BatchRequest.ENTITIES, subEntities);
+    return new com.linkedin.restli.common.BatchRequest<T>(data, valueClass);
+  }
+
+  private static URI getBaseURI(BatchRequest<?> request)
+  {
+    if (request instanceof BatchGetKVRequest)
+    {
+      return ((BatchGetKVRequest<?, ?>) request).getBaseURI();
+    }
+    if (request instanceof BatchUpdateRequest)
+    {
+      return ((BatchUpdateRequest<?, ?>) request).getBaseURI();
+    }
+    if (request instanceof BatchPartialUpdateRequest)
+    {
+      return ((BatchPartialUpdateRequest<?, ?>) request).getBaseURI();
+    }
+    if (request instanceof BatchDeleteRequest)
+    {
+      return ((BatchDeleteRequest<?, ?>) request).getBaseURI();
+    }
+    throw new IllegalArgumentException("Unsupported request type for scatter gather: " + request.getClass().getName());
+  }
+
+  private static ErrorResponse toErrorResponse(Throwable e)
+  {
+    ErrorResponse error = new ErrorResponse();
+    if (e instanceof RestLiResponseException)
+    {
+      RestLiResponseException restLiException = (RestLiResponseException) e;
+      error.setStatus(restLiException.getStatus());
+      if (restLiException.hasServiceErrorMessage())
+      {
+        error.setMessage(restLiException.getServiceErrorMessage());
+      }
+      if (restLiException.hasServiceExceptionClass())
+      {
+        error.setExceptionClass(restLiException.getServiceExceptionClass());
+      }
+    }
+    else
+    {
+      error.setStatus(HttpStatus.S_500_INTERNAL_SERVER_ERROR.getCode());
+      if (e.getMessage() != null)
+      {
+        error.setMessage(e.getMessage());
+      }
+      error.setExceptionClass(e.getClass().getName());
+    }
+    return error;
+  }
+
+  private static class Batch
+  {
+    private final URI          _host;
+    private final List<Object> _ids        = new ArrayList<Object>();
+    private final List<String> _entityKeys = new ArrayList<String>();
+
+    private Batch(URI host)
+    {
+      _host = host;
+    }
+  }
+
+  /**
+   * Accumulates the results and errors of all sub-requests of a single scatter gather.
+   */
+  private static class GatherState<K, V extends RecordTemplate>
+  {
+    private final ResourceSpec                _resourceSpec;
+    private final Class<K>                    _keyClass;
+    private final Class<V>                    _valueClass;
+    private final ScatterGatherCallback<K, V> _callback;
+    private final AtomicInteger               _remaining;
+    private final DataMap                     _results = new DataMap();
+    private final DataMap                     _errors  = new DataMap();
+
+    // the framework ensures that the resource spec matches the type parameters of the request
+    @SuppressWarnings("unchecked")
+    private GatherState(BatchRequest<BatchKVResponse<K, V>> request, int batches, ScatterGatherCallback<K, V> callback)
+    {
+      _resourceSpec = request.getResourceSpec();
+      _keyClass = (Class<K>) _resourceSpec.getKeyClass();
+      _valueClass = (Class<V>) (request.getMethod() == ResourceMethod.BATCH_GET
+          ? _resourceSpec.getValueClass() : UpdateStatus.class);
+      _callback = callback;
+      _remaining = new AtomicInteger(batches);
+    }
+
+    private BatchKVResponse<K, V> toResponse(DataMap results, DataMap errors)
+    {
+      DataMap data = new DataMap();
+      data.put(BatchKVResponse.RESULTS, results);
+      data.put(BatchKVResponse.ERRORS, errors);
+      return new BatchKVResponse<K, V>(data,
+                                       _keyClass,
+                                       _valueClass,
+                                       _resourceSpec.getKeyParts(),
+                                       _resourceSpec.getKeyKeyClass(),
+                                       _resourceSpec.getKeyParamsClass());
+    }
+
+    private void add(DataMap results, DataMap errors)
+    {
+      synchronized (this)
+      {
+        _results.putAll(results);
+        _errors.putAll(errors);
+      }
+      if (_remaining.decrementAndGet() == 0)
+      {
+        complete();
+      }
+    }
+
+    private void complete()
+    {
+      BatchKVResponse<K, V> response;
+      try
+      {
+        synchronized (this)
+        {
+          response = toResponse(_results, _errors);
+        }
+      }
+      catch (RuntimeException e)
+      {
+        _callback.onError(e);
+        return;
+      }
+      _callback.onSuccess(response);
+    }
+  }
+
+  private static class BatchCallback<K, V extends RecordTemplate> implements Callback<Response<BatchKVResponse<K, V>>>
+  {
+    private final GatherState<K, V> _state;
+    private final Batch             _batch;
+
+    private BatchCallback(GatherState<K, V> state, Batch batch)
+    {
+      _state = state;
+      _batch = batch;
+    }
+
+    @Override
+    public void onSuccess(Response<BatchKVResponse<K, V>> response)
+    {
+      BatchKVResponse<K, V> entity = response.getEntity();
+      DataMap results = (DataMap) entity.data().get(BatchKVResponse.RESULTS);
+      DataMap errors = (DataMap) entity.data().get(BatchKVResponse.ERRORS);
+      try
+      {
+        _state._callback.onPartialResponse(entity);
+      }
+      finally
+      {
+        _state.add(results, errors);
+      }
+    }
+
+    @Override
+    public void onError(Throwable e)
+    {
+      DataMap errors = new DataMap();
+      for (String key : _batch._entityKeys)
+      {
+        errors.put(key, toErrorResponse(e).data());
+      }
+
+      BatchKVResponse<K, V> partialResponse = null;
+      try
+      {
+        partialResponse = _state.toResponse(new DataMap(), errors);
+      }
+      catch (RuntimeException decodeError)
+      {
+        // reported through the merged response
+      }
+      try
+      {
+        if (partialResponse != null)
+        {
+          _state._callback.onPartialResponse(partialResponse);
+        }
+      }
+      finally
+      {
+        _state.add(new DataMap(), errors);
+      }
+    }
+  }
+}
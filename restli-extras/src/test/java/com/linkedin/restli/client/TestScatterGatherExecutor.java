@@ -0,0 +1,347 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.client;
+
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.common.callback.Callback;
+import com.linkedin.common.util.None;
+import com.linkedin.d2.balancer.KeyMapper;
+import com.linkedin.d2.balancer.ServiceUnavailableException;
+import com.linkedin.d2.balancer.util.AllPartitionsResult;
+import com.linkedin.d2.balancer.util.MapKeyResult;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.JacksonDataCodec;
+import com.linkedin.data.template.DynamicRecordMetadata;
+import com.linkedin.jersey.api.uri.UriComponent;
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestRequest;
+import com.linkedin.r2.message.rest.RestResponse;
+import com.linkedin.r2.message.rest.RestResponseBuilder;
+import com.linkedin.r2.message.rpc.RpcRequest;
+import com.linkedin.r2.message.rpc.RpcResponse;
+import com.linkedin.r2.transport.common.AbstractClient;
+import com.linkedin.r2.transport.common.bridge.client.TransportCallbackAdapter;
+import com.linkedin.r2.transport.common.bridge.common.TransportCallback;
+import com.linkedin.r2.transport.common.bridge.common.TransportResponseImpl;
+import com.linkedin.r2.transport.http.common.HttpBridge;
+import com.linkedin.restli.client.response.BatchKVResponse;
+import com.linkedin.restli.common.ErrorResponse;
+import com.linkedin.restli.common.ResourceMethod;
+import com.linkedin.restli.common.ResourceSpec;
+import com.linkedin.restli.common.ResourceSpecImpl;
+import com.linkedin.restli.common.RestConstants;
+import com.linkedin.restli.common.UpdateStatus;
+import com.linkedin.restli.examples.greetings.api.Greeting;
+
+public class TestScatterGatherExecutor
+{
+  private static final String TEST_URI = "test";
+  private static final URI HOST_A = URI.create("http://hostA:1338/");
+  private static final URI HOST_B = URI.create("http://hostB:1338/");
+  private static final JacksonDataCodec CODEC = new JacksonDataCodec();
+  private static final ResourceSpec _COLL_SPEC =
+      new ResourceSpecImpl(EnumSet.allOf(ResourceMethod.class),
+                           Collections.<String, DynamicRecordMetadata> emptyMap(),
+                           Collections.<String, DynamicRecordMetadata> emptyMap(),
+                           Long.class,
+                           null,
+                           null,
+                           Greeting.class,
+                           Collections.<String, Class<?>> emptyMap());
+
+  @Test
+  public void testBatchGet() throws ServiceUnavailableException
+  {
+    Map<String, URI> hosts = new HashMap<String, URI>();
+    hosts.put("1", HOST_A);
+    hosts.put("2", HOST_A);
+    hosts.put("3", HOST_A);
+    hosts.put("4", HOST_B);
+    RecordingClient client = new RecordingClient(Collections.<URI>emptySet());
+    ScatterGatherExecutor executor =
+        new ScatterGatherExecutor(new RestClient(client, "http://localhost/"), new StaticKeyMapper(hosts), 2);
+
+    BatchGetKVRequest<Long, Greeting> request =
+        new BatchGetRequestBuilder<Long, Greeting>(TEST_URI, Greeting.class, _COLL_SPEC).ids(1L, 2L, 3L, 4L, 5L).buildKV();
+    RecordingCallback<Long, Greeting> callback = new RecordingCallback<Long, Greeting>();
+    executor.sendRequests(request, new RequestContext(), callback);
+
+    // hostA's three keys are split into two sub-requests
+    Assert.assertEquals(client._requests.size(), 3);
+    Set<Long> sent = new HashSet<Long>();
+    for (RestRequest restRequest : client._requests)
+    {
+      List<Long> ids = ids(restRequest);
+      Assert.assertTrue(ids.size() <= 2);
+      sent.addAll(ids);
+    }
+    Assert.assertEquals(sent, new HashSet<Long>(Arrays.asList(1L, 2L, 3L, 4L)));
+    Assert.assertEquals(callback._partialResponses.size(), 3);
+
+    Assert.assertNull(callback._error);
+    BatchKVResponse<Long, Greeting> response = callback._response;
+    Assert.assertNotNull(response);
+    Assert.assertEquals(response.getResults().keySet(), new HashSet<Long>(Arrays.asList(1L, 2L, 3L, 4L)));
+    Assert.assertEquals(response.getResults().get(4L).getMessage(), "4");
+    Assert.assertEquals(response.getErrors().size(), 1);
+    Assert.assertEquals(response.getErrors().get(5L).getStatus(), 503);
+  }
+
+  @Test
+  public void testBatchUpdateWithFailedHost() throws ServiceUnavailableException, IOException
+  {
+    Map<String, URI> hosts = new HashMap<String, URI>();
+    hosts.put("1", HOST_A);
+    hosts.put("2", HOST_A);
+    hosts.put("3", HOST_B);
+    RecordingClient client = new RecordingClient(Collections.singleton(HOST_B));
+    ScatterGatherExecutor executor =
+        new ScatterGatherExecutor(new RestClient(client, "http://localhost/"), new StaticKeyMapper(hosts));
+
+    BatchUpdateRequestBuilder<Long, Greeting> builder = new BatchUpdateRequestBuilder<Long, Greeting>(TEST_URI, Greeting.class, _COLL_SPEC);
+    for (long i = 1; i <= 3; i++)
+    {
+      builder.input(i, new Greeting().setId(i).setMessage("update " + i));
+    }
+    RecordingCallback<Long, UpdateStatus> callback = new RecordingCallback<Long, UpdateStatus>();
+    executor.sendRequests(builder.build(), new RequestContext(), callback);
+
+    Assert.assertEquals(client._requests.size(), 2);
+    for (RestRequest restRequest : client._requests)
+    {
+      DataMap entities = CODEC.bytesToMap(restRequest.getEntity().copyBytes()).getDataMap("entities");
+      Set<String> expected = new HashSet<String>();
+      for (Long id : ids(restRequest))
+      {
+        expected.add(id.toString());
+      }
+      Assert.assertEquals(entities.keySet(), expected);
+    }
+
+    Assert.assertNull(callback._error);
+    BatchKVResponse<Long, UpdateStatus> response = callback._response;
+    Assert.assertEquals(response.getResults().keySet(), new HashSet<Long>(Arrays.asList(1L, 2L)));
+    Assert.assertEquals(response.getResults().get(1L).getStatus().intValue(), 204);
+    Assert.assertEquals(response.getErrors().keySet(), Collections.singleton(3L));
+    Assert.assertEquals(response.getErrors().get(3L).getStatus(), 500);
+    Assert.assertEquals(response.getErrors().get(3L).getMessage(), "host down");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidMaxBatchSize()
+  {
+    new ScatterGatherExecutor(new RestClient(new RecordingClient(Collections.<URI>emptySet()), "http://localhost/"),
+                              new StaticKeyMapper(Collections.<String, URI>emptyMap()),
+                              0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Long> ids(RestRequest request)
+  {
+    Map<String, List<String>> params = UriComponent.decodeQuery(request.getURI(), true);
+    List<Long> ids = new ArrayList<Long>();
+    for (Map.Entry<String, List<String>> param : params.entrySet())
+    {
+      if (param.getKey().startsWith(RestConstants.QUERY_BATCH_IDS_PARAM))
+      {
+        for (String id : param.getValue())
+        {
+          ids.add(Long.valueOf(id));
+        }
+      }
+    }
+    return ids;
+  }
+
+  private static class RecordingCallback<K, V extends com.linkedin.data.template.RecordTemplate>
+      implements ScatterGatherCallback<K, V>
+  {
+    private final List<BatchKVResponse<K, V>> _partialResponses = new ArrayList<BatchKVResponse<K, V>>();
+    private BatchKVResponse<K, V> _response;
+    private Throwable _error;
+
+    @Override
+    public void onPartialResponse(BatchKVResponse<K, V> partialResponse)
+    {
+      _partialResponses.add(partialResponse);
+    }
+
+    @Override
+    public void onError(Throwable e)
+    {
+      _error = e;
+    }
+
+    @Override
+    public void onSuccess(BatchKVResponse<K, V> result)
+    {
+      _response = result;
+    }
+  }
+
+  /**
+   * Answers batch gets with a greeting per key and batch updates with a 204 per key, except for
+   * requests targeted at one of the failing hosts, which get an error response.
+   */
+  private static class RecordingClient extends AbstractClient
+  {
+    private final List<RestRequest> _requests = new ArrayList<RestRequest>();
+    private final Set<URI> _failingHosts;
+
+    private RecordingClient(Set<URI> failingHosts)
+    {
+      _failingHosts = failingHosts;
+    }
+
+    @Override
+    public void restRequest(RestRequest request, RequestContext requestContext, Callback<RestResponse> callback)
+    {
+      _requests.add(request);
+      TransportCallback<RestResponse> adapter =
+          HttpBridge.restToHttpCallback(new TransportCallbackAdapter<RestResponse>(callback), request);
+
+      Map<String, String> headers = new HashMap<String, String>();
+      DataMap body;
+      int status;
+      if (_failingHosts.contains(KeyMapper.TargetHostHints.getRequestContextTargetHost(requestContext)))
+      {
+        ErrorResponse error = new ErrorResponse();
+        error.setStatus(500);
+        error.setMessage("host down");
+        body = error.data();
+        status = 500;
+        headers.put(RestConstants.HEADER_LINKEDIN_ERROR_RESPONSE, RestConstants.HEADER_VALUE_ERROR_APPLICATION);
+      }
+      else
+      {
+        DataMap results = new DataMap();
+        for (Long id : ids(request))
+        {
+          if (request.getMethod().equals("GET"))
+          {
+            results.put(id.toString(), new Greeting().setId(id).setMessage(id.toString()).data());
+          }
+          else
+          {
+            UpdateStatus updateStatus = new UpdateStatus();
+            updateStatus.setStatus(204);
+            results.put(id.toString(), updateStatus.data());
+          }
+        }
+        body = new DataMap();
+        body.put(BatchKVResponse.RESULTS, results);
+        body.put(BatchKVResponse.ERRORS, new DataMap());
+        status = 200;
+      }
+
+      byte[] entity;
+      try
+      {
+        entity = CODEC.mapToBytes(body);
+      }
+      catch (IOException e)
+      {
+        throw new RuntimeException(e);
+      }
+      RestResponse response = new RestResponseBuilder().setStatus(status).setHeaders(headers).setEntity(entity).build();
+      adapter.onResponse(TransportResponseImpl.success(response));
+    }
+
+    @Override
+    public void rpcRequest(RpcRequest request, RequestContext requestContext, Callback<RpcResponse> callback)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void shutdown(Callback<None> callback)
+    {
+      callback.onSuccess(None.none());
+    }
+  }
+
+  /**
+   * Maps each key to a fixed host; keys without a host are reported as unmapped.
+   */
+  private static class StaticKeyMapper implements KeyMapper
+  {
+    private final Map<String, URI> _hosts;
+
+    private StaticKeyMapper(Map<String, URI> hosts)
+    {
+      _hosts = hosts;
+    }
+
+    @Override
+    public <K> Map<URI, Collection<K>> mapKeys(URI serviceUri, Iterable<K> keys)
+    {
+      return mapKeysV2(serviceUri, keys).getMapResult();
+    }
+
+    @Override
+    public <K> Map<URI, Set<K>> mapKeys(URI serviceUri, Set<K> keys)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <K> MapKeyResult<URI, K> mapKeysV2(URI serviceUri, Iterable<K> keys)
+    {
+      Map<URI, Collection<K>> result = new HashMap<URI, Collection<K>>();
+      Collection<MapKeyResult.UnmappedKey<K>> unmapped = new ArrayList<MapKeyResult.UnmappedKey<K>>();
+      for (K key : keys)
+      {
+        URI host = _hosts.get(key.toString());
+        if (host == null)
+        {
+          unmapped.add(new MapKeyResult.UnmappedKey<K>(key, MapKeyResult.ErrorType.FAIL_TO_FIND_PARTITION));
+          continue;
+        }
+        Collection<K> hostKeys = result.get(host);
+        if (hostKeys == null)
+        {
+          hostKeys = new ArrayList<K>();
+          result.put(host, hostKeys);
+        }
+        hostKeys.add(key);
+      }
+      return new MapKeyResult<URI, K>(result, unmapped);
+    }
+
+    @Override
+    public AllPartitionsResult<URI> getAllPartitions(URI serviceUri)
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -36,6 +36,7 @@ import com.linkedin.restli.common.RestConstants;
 import com.linkedin.restli.internal.common.PathSegment.PathSegmentSyntaxException;
 import com.linkedin.restli.internal.common.QueryParamsDataMap;
 import com.linkedin.restli.internal.server.util.ArgumentUtils;
+import com.linkedin.restli.internal.server.util.CompiledProjection;
 import com.linkedin.restli.internal.server.util.RestLiSyntaxException;
 import com.linkedin.restli.server.RestLiServiceException;
 
@@ -49,7 +50,11 @@ public class ResourceContextImpl implements ServerResourceContext
   private final MutablePathKeys                     _pathKeys;
   private final RestRequest                         _request;
   private final DataMap                             _parameters;
-  private final MaskTree                            _projectionMask;
+  private final CompiledProjection                  _projection;
+  private MaskTree                                  _projectionMask;
+  // set when _projectionMask is handed to the resource, which may modify it
+  private boolean                                   _projectionMaskDirty;
+  private CompiledProjection                        _modifiedProjection;
   private final Map<String, String>                 _responseHeaders;
   private final Map<String, RestLiServiceException> _batchKeyErrors;
   private final RequestContext                      _requestContext;
@@ -96,13 +101,13 @@ public class ResourceContextImpl implements ServerResourceContext
 
     if (_parameters.containsKey(RestConstants.FIELDS_PARAM))
     {
-      _projectionMask =
-          ArgumentUtils.parseProjectionParameter(ArgumentUtils.argumentAsString(getParameter(RestConstants.FIELDS_PARAM),
-                                                                                RestConstants.FIELDS_PARAM));
+      _projection =
+          ArgumentUtils.compileProjection(ArgumentUtils.argumentAsString(getParameter(RestConstants.FIELDS_PARAM),
+                                                                         RestConstants.FIELDS_PARAM));
     }
     else
     {
-      _projectionMask = null;
+      _projection = null;
     }
     _responseHeaders = new HashMap<String, String>();
     _batchKeyErrors = new HashMap<String, RestLiServiceException>();
@@ -156,9 +161,35 @@ public class ResourceContextImpl implements ServerResourceContext
   @Override
   public MaskTree getProjectionMask()
   {
+    // the compiled projection is shared with other requests, so the resource gets its own copy of the mask
+    if (_projectionMask == null && _projection != null)
+    {
+      try
+      {
+        _projectionMask = new MaskTree(_projection.getMaskTree().getDataMap().copy());
+      }
+      catch (CloneNotSupportedException e)
+      {
+        throw new RestLiInternalException(e);
+      }
+    }
+    _projectionMaskDirty = (_projectionMask != null);
     return _projectionMask;
   }
 
+  @Override
+  public CompiledProjection getCompiledProjection()
+  {
+    if (_projectionMaskDirty)
+    {
+      // only compare the mask once each time the resource got it, not for every projected entity
+      _projectionMaskDirty = false;
+      _modifiedProjection = _projectionMask.getDataMap().equals(_projection.getMaskTree().getDataMap()) ?
+          null : new CompiledProjection(_projectionMask);
+    }
+    return _modifiedProjection == null ? _projection : _modifiedProjection;
+  }
+
   @Override
   public String getParameter(final String key)
   {
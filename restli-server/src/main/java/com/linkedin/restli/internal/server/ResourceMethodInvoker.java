@@ -0,0 +1,176 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.internal.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.sf.cglib.reflect.FastClass;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.restli.internal.server.model.ResourceMethodDescriptor;
+import com.linkedin.restli.internal.server.model.ResourceModel;
+
+/**
+ * Calls a resource method on an instance of its resource class.
+ *
+ * Invokers created by {@link #generate(Map)} call their method from a generated class,
+ * instead of through {@link Method#invoke(Object, Object...)}. The JIT can inline such
+ * a call, and the access checks and argument boxing of reflection are skipped.
+ */
+abstract class ResourceMethodInvoker
+{
+  private static final Logger log = LoggerFactory.getLogger(ResourceMethodInvoker.class);
+
+  /**
+   * Invoke the method.
+   *
+   * @param resource is the resource instance to invoke the method on.
+   * @param arguments provides the arguments of the method.
+   * @return the value returned by the method.
+   * @throws IllegalAccessException if the method is not accessible.
+   * @throws InvocationTargetException if the method throws an exception.
+   */
+  abstract Object invoke(Object resource, Object[] arguments) throws IllegalAccessException,
+      InvocationTargetException;
+
+  /**
+   * @return whether this invoker calls its method through reflection.
+   */
+  abstract boolean isReflective();
+
+  /**
+   * @param method is the method to invoke.
+   * @return an invoker that calls the method through reflection.
+   */
+  static ResourceMethodInvoker reflective(final Method method)
+  {
+    return new ReflectiveInvoker(method);
+  }
+
+  /**
+   * Generate an invoker for every resource method of the provided resources and their
+   * sub-resources. A reflective invoker is used for methods whose invoker cannot be
+   * generated, e.g. because the resource class is not accessible.
+   *
+   * @param rootResources provides the root resources by path.
+   * @return an immutable map of the invokers of the resource methods.
+   */
+  static Map<ResourceMethodDescriptor, ResourceMethodInvoker> generate(final Map<String, ResourceModel> rootResources)
+  {
+    Map<ResourceMethodDescriptor, ResourceMethodInvoker> invokers =
+        new IdentityHashMap<ResourceMethodDescriptor, ResourceMethodInvoker>();
+    Map<Class<?>, FastClass> fastClasses = new HashMap<Class<?>, FastClass>();
+    for (ResourceModel resource : rootResources.values())
+    {
+      generate(resource, fastClasses, invokers);
+    }
+    return invokers;
+  }
+
+  private static void generate(final ResourceModel resource,
+                               final Map<Class<?>, FastClass> fastClasses,
+                               final Map<ResourceMethodDescriptor, ResourceMethodInvoker> invokers)
+  {
+    Class<?> resourceClass = resource.getResourceClass();
+    for (ResourceMethodDescriptor descriptor : resource.getResourceMethodDescriptors())
+    {
+      Method method = descriptor.getMethod();
+      ResourceMethodInvoker invoker;
+      try
+      {
+        FastClass fastClass = fastClasses.get(resourceClass);
+        if (fastClass == null)
+        {
+          fastClass = FastClass.create(resourceClass);
+          fastClasses.put(resourceClass, fastClass);
+        }
+        int index = fastClass.getIndex(method.getName(), method.getParameterTypes());
+        invoker = (index < 0 ? new ReflectiveInvoker(method) : new GeneratedInvoker(fastClass, index));
+      }
+      catch (RuntimeException e)
+      {
+        log.warn("Unable to generate an invoker for " + method + ", using reflection instead", e);
+        invoker = new ReflectiveInvoker(method);
+      }
+      catch (LinkageError e)
+      {
+        log.warn("Unable to generate an invoker for " + method + ", using reflection instead", e);
+        invoker = new ReflectiveInvoker(method);
+      }
+      invokers.put(descriptor, invoker);
+    }
+
+    for (ResourceModel subResource : resource.getSubResources())
+    {
+      generate(subResource, fastClasses, invokers);
+    }
+  }
+
+  private static final class ReflectiveInvoker extends ResourceMethodInvoker
+  {
+    private final Method _method;
+
+    private ReflectiveInvoker(final Method method)
+    {
+      _method = method;
+    }
+
+    @Override
+    Object invoke(final Object resource, final Object[] arguments) throws IllegalAccessException,
+        InvocationTargetException
+    {
+      return _method.invoke(resource, arguments);
+    }
+
+    @Override
+    boolean isReflective()
+    {
+      return true;
+    }
+  }
+
+  private static final class GeneratedInvoker extends ResourceMethodInvoker
+  {
+    private final FastClass _fastClass;
+    private final int _index;
+
+    private GeneratedInvoker(final FastClass fastClass, final int index)
+    {
+      _fastClass = fastClass;
+      _index = index;
+    }
+
+    @Override
+    Object invoke(final Object resource, final Object[] arguments) throws InvocationTargetException
+    {
+      // dispatches through a switch on the index to a direct call of the method
+      return _fastClass.invoke(_index, resource, arguments);
+    }
+
+    @Override
+    boolean isReflective()
+    {
+      return false;
+    }
+  }
+}
@@ -20,6 +20,8 @@
 
 package com.linkedin.restli.internal.server;
 
+import com.linkedin.restli.common.ResourceMethod;
+
 /**
  * @author Josh Walker
  * @version $Revision: $
@@ -27,6 +29,14 @@ package com.linkedin.restli.internal.server;
 
 public class ResourceMethodMatchKey
 {
+  private static final String[] HTTP_METHODS = { "GET", "PUT", "POST", "DELETE" };
+  private static final ResourceMethod[] RESTLI_METHODS = ResourceMethod.values();
+
+  /**
+   * Number of distinct {@link #getIndex()} values.
+   */
+  static final int INDEX_COUNT = HTTP_METHODS.length * (RESTLI_METHODS.length + 1) * 16;
+
   private final String  _httpMethod;
   private final String  _restliMethod;
   private final boolean _hasActionParam;
@@ -52,6 +62,66 @@ public class ResourceMethodMatchKey
     _hasEntitySegment = hasEntitySegment;
   }
 
+  /**
+   * @return a distinct index of this key between 0 and {@link #INDEX_COUNT}, used to
+   *         look up keys in arrays, or -1 if the key has an unknown method.
+   */
+  int getIndex()
+  {
+    return index(_httpMethod, _restliMethod, _hasActionParam, _hasQueryParam, _hasBatchKeys, _hasEntitySegment);
+  }
+
+  /**
+   * Compute the {@link #getIndex()} of a key without constructing it. The methods are upper
+   * cased and then matched exactly, as the constructor does.
+   */
+  static int index(final String httpMethod,
+                   final String restliMethod,
+                   final boolean hasActionParam,
+                   final boolean hasQueryParam,
+                   final boolean hasBatchKeys,
+                   final boolean hasEntitySegment)
+  {
+    String upperHttpMethod = httpMethod.toUpperCase();
+    int httpIndex = -1;
+    for (int i = 0; i < HTTP_METHODS.length; i++)
+    {
+      if (HTTP_METHODS[i].equals(upperHttpMethod))
+      {
+        httpIndex = i;
+        break;
+      }
+    }
+
+    int restliIndex = -1;
+    if (restliMethod.isEmpty())
+    {
+      restliIndex = 0;
+    }
+    else
+    {
+      String upperRestliMethod = restliMethod.toUpperCase();
+      for (int i = 0; i < RESTLI_METHODS.length; i++)
+      {
+        if (RESTLI_METHODS[i].name().equals(upperRestliMethod))
+        {
+          restliIndex = i + 1;
+          break;
+        }
+      }
+    }
+
+    if (httpIndex < 0 || restliIndex < 0)
+    {
+      return -1;
+    }
+    return ((httpIndex * (RESTLI_METHODS.length + 1) + restliIndex) << 4) |
+           (hasActionParam ? 8 : 0) |
+           (hasQueryParam ? 4 : 0) |
+           (hasBatchKeys ? 2 : 0) |
+           (hasEntitySegment ? 1 : 0);
+  }
+
   @Override
   public boolean equals(final Object oref)
   {
@@ -17,7 +17,9 @@
 package com.linkedin.restli.internal.server;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.linkedin.common.callback.Callback;
 import com.linkedin.parseq.BaseTask;
@@ -33,6 +35,7 @@ import com.linkedin.restli.internal.server.methods.MethodAdapterRegistry;
 import com.linkedin.restli.internal.server.methods.arguments.RestLiArgumentBuilder;
 import com.linkedin.restli.internal.server.model.Parameter.ParamType;
 import com.linkedin.restli.internal.server.model.ResourceMethodDescriptor;
+import com.linkedin.restli.internal.server.model.ResourceModel;
 import com.linkedin.restli.server.RestLiCallback;
 import com.linkedin.restli.server.RestLiServiceException;
 import com.linkedin.restli.server.resources.BaseResource;
@@ -48,6 +51,8 @@ public class RestLiMethodInvoker
 {
   private final ResourceFactory _resourceFactory;
   private final Engine _engine;
+  // invokers are created once per resource method, reflective ones on first invocation
+  private final ConcurrentMap<ResourceMethodDescriptor, ResourceMethodInvoker> _invokers;
 
   /**
    * Constructor.
@@ -59,6 +64,26 @@ public class RestLiMethodInvoker
   {
     _resourceFactory = resourceFactory;
     _engine = engine;
+    _invokers = new ConcurrentHashMap<ResourceMethodDescriptor, ResourceMethodInvoker>();
+  }
+
+  /**
+   * Constructor that generates classes that invoke the resource methods of the provided
+   * resources directly, instead of through reflection. Methods of other resources are
+   * invoked through reflection.
+   *
+   * @param resourceFactory {@link ResourceFactory}
+   * @param engine {@link Engine}
+   * @param rootResources map of root resource paths to {@link ResourceModel}s
+   */
+  public RestLiMethodInvoker(final ResourceFactory resourceFactory,
+                             final Engine engine,
+                             final Map<String, ResourceModel> rootResources)
+  {
+    _resourceFactory = resourceFactory;
+    _engine = engine;
+    _invokers = new ConcurrentHashMap<ResourceMethodDescriptor, ResourceMethodInvoker>(
+        ResourceMethodInvoker.generate(rootResources));
   }
 
   /**
@@ -109,7 +134,16 @@ public class RestLiMethodInvoker
                         final Object resource,
                         final Object... arguments) throws IllegalAccessException
   {
-    Method method = descriptor.getMethod();
+    ResourceMethodInvoker invoker = _invokers.get(descriptor);
+    if (invoker == null)
+    {
+      invoker = ResourceMethodInvoker.reflective(descriptor.getMethod());
+      ResourceMethodInvoker existing = _invokers.putIfAbsent(descriptor, invoker);
+      if (existing != null)
+      {
+        invoker = existing;
+      }
+    }
     try
     {
       switch (descriptor.getInterfaceType())
@@ -117,12 +151,12 @@ public class RestLiMethodInvoker
       case CALLBACK:
         int callbackIndex = descriptor.indexOfParameterType(ParamType.CALLBACK);
         arguments[callbackIndex] = callback;
-        method.invoke(resource, arguments);
+        invoker.invoke(resource, arguments);
         // App code should use the callback
         break;
 
       case SYNC:
-        Object applicationResult = method.invoke(resource, arguments);
+        Object applicationResult = invoker.invoke(resource, arguments);
         callback.onSuccess(applicationResult);
         break;
 
@@ -135,7 +169,7 @@ public class RestLiMethodInvoker
             descriptor.indexOfParameterType(ParamType.PARSEQ_CONTEXT);
         // run through the engine to get the context
         Task<Object> restliTask =
-            new RestLiParSeqTask(arguments, contextIndex, method, resource);
+            new RestLiParSeqTask(arguments, contextIndex, invoker, resource);
         _engine.run(restliTask);
         // propagate the result to the callback
         restliTask.addListener(new CallbackPromiseAdapter<Object>(callback));
@@ -149,7 +183,7 @@ public class RestLiMethodInvoker
 
         //addListener requires Task<Object> in this case
         @SuppressWarnings("unchecked")
-        Task<Object> task = (Task<Object>) method.invoke(resource, arguments);
+        Task<Object> task = (Task<Object>) invoker.invoke(resource, arguments);
         if (task == null)
         {
             callback.onErrorApp(new RestLiServiceException(HttpStatus.S_500_INTERNAL_SERVER_ERROR,
@@ -214,17 +248,17 @@ public class RestLiMethodInvoker
   private static class RestLiParSeqTask extends BaseTask<Object> {
     private final Object[] _arguments;
     private final int _contextIndex;
-    private final Method _method;
+    private final ResourceMethodInvoker _invoker;
     private final Object _resource;
 
     public RestLiParSeqTask(final Object[] arguments,
                             final int contextIndex,
-                            final Method method,
+                            final ResourceMethodInvoker invoker,
                             final Object resource)
     {
       this._arguments = arguments;
       this._contextIndex = contextIndex;
-      this._method = method;
+      this._invoker = invoker;
       this._resource = resource;
     }
 
@@ -238,7 +272,7 @@ public class RestLiMethodInvoker
           // we can now supply the context
           _arguments[_contextIndex] = context;
         }
-        Object applicationResult = _method.invoke(_resource, _arguments);
+        Object applicationResult = _invoker.invoke(_resource, _arguments);
         if (applicationResult == null)
         {
           return Promises.error(new RestLiServiceException(HttpStatus.S_500_INTERNAL_SERVER_ERROR,
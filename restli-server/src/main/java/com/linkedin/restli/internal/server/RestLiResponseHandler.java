@@ -21,6 +21,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.CompactDataCodec;
+import com.linkedin.data.template.RecordTemplate;
 import com.linkedin.r2.message.rest.RestRequest;
 import com.linkedin.r2.message.rest.RestResponse;
 import com.linkedin.r2.message.rest.RestResponseBuilder;
@@ -115,25 +117,35 @@ public class RestLiResponseHandler
     {
       DataMap dataMap = partialResponse.getDataMap();
       String acceptTypes = request.getHeader(RestConstants.HEADER_ACCEPT);
-      builder = encodeResult(builder, dataMap, acceptTypes);
+      builder = encodeResult(builder, dataMap, acceptTypes, getRecordClass(routingResult, responseBuilder, partialResponse),
+                             request.getHeader(RestConstants.HEADER_RESTLI_SCHEMA_FINGERPRINT));
     }
 
     return builder.build();
   }
 
-  private RestResponseBuilder encodeResult(RestResponseBuilder builder, DataMap dataMap, String acceptTypes)
+  private RestResponseBuilder encodeResult(RestResponseBuilder builder,
+                                           DataMap dataMap,
+                                           String acceptTypes,
+                                           Class<? extends RecordTemplate> recordClass,
+                                           String fingerprint)
   {
     String bestType = RestUtils.pickBestEncoding(acceptTypes);
 
-    if (RestConstants.HEADER_VALUE_APPLICATION_PSON.equalsIgnoreCase(bestType))
+    if (RestConstants.HEADER_VALUE_APPLICATION_COMPACT.equalsIgnoreCase(bestType))
+    {
+      builder.setHeader(RestConstants.HEADER_CONTENT_TYPE, RestConstants.HEADER_VALUE_APPLICATION_COMPACT);
+      builder.setEntity(DataMapUtils.mapToCompactByteString(dataMap, recordClass, parseFingerprint(fingerprint)));
+    }
+    else if (RestConstants.HEADER_VALUE_APPLICATION_PSON.equalsIgnoreCase(bestType))
     {
       builder.setHeader(RestConstants.HEADER_CONTENT_TYPE, RestConstants.HEADER_VALUE_APPLICATION_PSON);
-      builder.setEntity(DataMapUtils.mapToPsonBytes(dataMap));
+      builder.setEntity(DataMapUtils.mapToPsonByteString(dataMap));
     }
     else if (RestConstants.HEADER_VALUE_APPLICATION_JSON.equalsIgnoreCase(bestType))
     {
       builder.setHeader(RestConstants.HEADER_CONTENT_TYPE, RestConstants.HEADER_VALUE_APPLICATION_JSON);
-      builder.setEntity(DataMapUtils.mapToBytes(dataMap));
+      builder.setEntity(DataMapUtils.mapToByteString(dataMap));
     }
     else
     {
@@ -142,6 +154,43 @@ public class RestLiResponseHandler
     return builder;
   }
 
+  /**
+   * @return the schema fingerprint sent by the client, or {@link CompactDataCodec#NO_SCHEMA_FINGERPRINT}
+   *         if the client did not send a valid one, in which case the response is encoded without a schema.
+   */
+  private static long parseFingerprint(String fingerprint)
+  {
+    if (fingerprint != null)
+    {
+      try
+      {
+        return Long.parseLong(fingerprint);
+      }
+      catch (NumberFormatException e)
+      {
+        // fall through
+      }
+    }
+    return CompactDataCodec.NO_SCHEMA_FINGERPRINT;
+  }
+
+  /**
+   * Only the successful response of a get is the resource value itself, so only it is encoded
+   * with the value schema by the compact encoding, all other responses are encoded without one.
+   */
+  private Class<? extends RecordTemplate> getRecordClass(final RoutingResult routingResult,
+                                                         final RestLiResponseBuilder responseBuilder,
+                                                         final PartialRestResponse partialResponse)
+  {
+    if (responseBuilder == ErrorResponseBuilder.getInstance() ||
+        routingResult.getResourceMethod().getType() != ResourceMethod.GET ||
+        partialResponse.getStatus().getCode() >= 300)
+    {
+      return null;
+    }
+    return routingResult.getResourceMethod().getResourceModel().getValueClass();
+  }
+
   private RestLiResponseBuilder chooseResponseBuilder(final Object responseObject,
                                                       final RoutingResult routingResult)
   {
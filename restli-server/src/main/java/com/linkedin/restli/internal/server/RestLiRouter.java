@@ -18,13 +18,9 @@ package com.linkedin.restli.internal.server;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,22 +53,52 @@ import com.linkedin.restli.server.resources.ComplexKeyResource;
 public class RestLiRouter
 {
   private static final Logger log = LoggerFactory.getLogger(RestLiRouter.class);
-  private static final Map<ResourceMethodMatchKey, ResourceMethod> _resourceMethodLookup = setupResourceMethodLookup();
-  private final Map<String, ResourceModel> _pathRootResourceMap;
+  private static final ResourceMethod[] _resourceMethodLookup = setupResourceMethodLookup();
+  private final RoutingTrie<ResourceNode> _rootResourceTrie;
 
   /**
    * Constructor.
    *
+   * The resource hierarchy is compiled into tries of path segments, so resources
+   * must not be added to it afterwards.
+   *
    * @param pathRootResourceMap a map of resource root paths to corresponding
    *          {@link ResourceModel}s
    */
   public RestLiRouter(final Map<String, ResourceModel> pathRootResourceMap)
   {
     super();
-    _pathRootResourceMap = pathRootResourceMap;
+    Map<String, ResourceNode> rootNodes = new HashMap<String, ResourceNode>();
+    for (Map.Entry<String, ResourceModel> entry : pathRootResourceMap.entrySet())
+    {
+      // root paths are matched without their leading slash
+      if (entry.getKey().startsWith("/"))
+      {
+        rootNodes.put(entry.getKey().substring(1), new ResourceNode(entry.getValue()));
+      }
+    }
+    _rootResourceTrie = RoutingTrie.compile(rootNodes);
   }
 
-  private static final Pattern SLASH_PATTERN = Pattern.compile(Pattern.quote("/"));
+  /**
+   * A {@link ResourceModel} with its sub-resources compiled into a trie.
+   */
+  private static final class ResourceNode
+  {
+    private final ResourceModel _resource;
+    private final RoutingTrie<ResourceNode> _subResourceTrie;
+
+    private ResourceNode(final ResourceModel resource)
+    {
+      _resource = resource;
+      Map<String, ResourceNode> subResourceNodes = new HashMap<String, ResourceNode>();
+      for (Map.Entry<String, ResourceModel> entry : resource.getSubResourceMap().entrySet())
+      {
+        subResourceNodes.put(entry.getKey(), new ResourceNode(entry.getValue()));
+      }
+      _subResourceTrie = RoutingTrie.compile(subResourceNodes);
+    }
+  }
 
   /**
    * Processes provided {@link RestRequest}.
@@ -88,32 +114,29 @@ public class RestLiRouter
       throw new RoutingException(HttpStatus.S_404_NOT_FOUND.getCode());
     }
 
-    if (path.charAt(0) == '/')
+    // the path is walked in place, one segment at a time; trailing slashes are ignored
+    int start = (path.charAt(0) == '/' ? 1 : 0);
+    int end = path.length();
+    while (end > start && path.charAt(end - 1) == '/')
     {
-      path = path.substring(1);
+      end--;
     }
+    int segmentEnd = segmentEnd(path, start, end);
 
-    Queue<String> remainingPath =
-        new LinkedList<String>(Arrays.asList(SLASH_PATTERN.split(path)));
-
-    String rootPath = "/" + remainingPath.poll();
-
-    ResourceModel currentResource;
-    try
-    {
-      currentResource =
-          _pathRootResourceMap.get(URLDecoder.decode(rootPath,
-                                                     RestConstants.DEFAULT_CHARSET_NAME));
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      throw new RestLiInternalException("UnsupportedEncodingException while trying to decode the root path",
-                                        e);
-    }
+    ResourceNode currentResource = _rootResourceTrie.getEncoded(path, start, segmentEnd);
     if (currentResource == null)
     {
-      throw new RoutingException(String.format("No root resource defined for path '%s'",
-                                               rootPath),
+      String rootPath;
+      try
+      {
+        rootPath = URLDecoder.decode("/" + path.substring(start, segmentEnd), RestConstants.DEFAULT_CHARSET_NAME);
+      }
+      catch (UnsupportedEncodingException e)
+      {
+        throw new RestLiInternalException("UnsupportedEncodingException while trying to decode the root path",
+                                          e);
+      }
+      throw new RoutingException(String.format("No root resource defined for path '%s'", rootPath),
                                  HttpStatus.S_404_NOT_FOUND.getCode());
     }
     ServerResourceContext context;
@@ -127,14 +150,31 @@ public class RestLiRouter
       throw new RoutingException(e.getMessage(), HttpStatus.S_400_BAD_REQUEST.getCode());
     }
 
-    return processResourceTree(currentResource, context, remainingPath);
+    return processResourceTree(currentResource, context, path, segmentEnd, end);
+  }
+
+  /** @return the index of the slash that ends the path segment starting at start, or end. */
+  private static int segmentEnd(final String path, final int start, final int end)
+  {
+    for (int i = start; i < end; i++)
+    {
+      if (path.charAt(i) == '/')
+      {
+        return i;
+      }
+    }
+    return end;
   }
 
-  private RoutingResult processResourceTree(final ResourceModel resource,
+  private RoutingResult processResourceTree(final ResourceNode resource,
                                             final ServerResourceContext context,
-                                            final Queue<String> remainingPath)
+                                            final String path,
+                                            final int start,
+                                            final int end)
   {
-    ResourceModel currentResource = resource;
+    ResourceNode currentNode = resource;
+    ResourceModel currentResource = resource._resource;
+    int segmentEnd = start;
 
     // iterate through all path segments, simultaneously descending the resource hierarchy
     // and parsing path keys
@@ -142,18 +182,20 @@ public class RestLiRouter
     // currentResource, and to parse the necessary information into the context
     ResourceLevel currentLevel = ResourceLevel.COLLECTION;
 
-    while (remainingPath.peek() != null)
+    while (segmentEnd < end)
     {
-      String currentPathSegment = remainingPath.poll();
+      int segmentStart = segmentEnd + 1;
+      segmentEnd = segmentEnd(path, segmentStart, end);
 
       if (currentLevel.equals(ResourceLevel.ENTITY))
       {
-        currentResource =
-            currentResource.getSubResource(parseSubresourceName(currentPathSegment));
+        currentNode = currentNode._subResourceTrie.getEncoded(path, segmentStart, segmentEnd);
+        currentResource = (currentNode == null ? null : currentNode._resource);
         currentLevel = ResourceLevel.COLLECTION;
       }
       else
       {
+        String currentPathSegment = path.substring(segmentStart, segmentEnd);
         ResourceModel currentCollectionResource = currentResource;
         if (currentResource.getKeys().isEmpty())
         {
@@ -199,19 +241,6 @@ public class RestLiRouter
     return findMethodDescriptor(currentResource, currentLevel, context);
   }
 
-  /** given path segment, parses subresource name out of it */
-  private static String parseSubresourceName(final String pathSegment)
-  {
-    try
-    {
-      return URLDecoder.decode(pathSegment, RestConstants.DEFAULT_CHARSET_NAME);
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      throw new RestLiInternalException("UnsupportedEncodingException while trying to decode the subresource name", e);
-    }
-  }
-
   private RoutingResult findMethodDescriptor(final ResourceModel resource,
                                              final ResourceLevel resourceLevel,
                                              final ServerResourceContext context)
@@ -261,9 +290,12 @@ public class RestLiRouter
   // Currently only POST requests set RMETHOD header (HEADER_RESTLI_REQUEST_METHOD), however we include
   // a table entry for GET methods as well to make sure the routing doesn't fail if the client sets the header
   // when it's not necessary, as long as it doesn't conflict with the rest of the parameters.
-  private static Map<ResourceMethodMatchKey, ResourceMethod> setupResourceMethodLookup()
+  //
+  // The table is compiled into an array indexed by ResourceMethodMatchKey.index(), so that requests
+  // are matched without allocating or hashing a key.
+  private static ResourceMethod[] setupResourceMethodLookup()
   {
-    HashMap<ResourceMethodMatchKey, ResourceMethod> result = new HashMap<ResourceMethodMatchKey, ResourceMethod>();
+    ResourceMethod[] result = new ResourceMethod[ResourceMethodMatchKey.INDEX_COUNT];
     //                                 METHOD    RMETHOD                    ACTION   QUERY   BATCH   ENTITY
     Object[] config =
     {
@@ -305,7 +337,8 @@ public class RestLiRouter
     {
       ResourceMethodMatchKey key = (ResourceMethodMatchKey) config[ii];
       ResourceMethod method = (ResourceMethod) config[ii + 1];
-      ResourceMethod prevValue = result.put(key, method);
+      ResourceMethod prevValue = result[key.getIndex()];
+      result[key.getIndex()] = method;
       if (prevValue != null)
       {
         throw new RestLiInternalException("Routing Configuration conflict: "
@@ -319,17 +352,17 @@ public class RestLiRouter
   private ResourceMethod mapResourceMethod(final ServerResourceContext context,
                                            final ResourceLevel resourceLevel)
   {
-    ResourceMethodMatchKey key =
-        new ResourceMethodMatchKey(context.getRequestMethod(),
-                                   context.getRestLiRequestMethod(),
-                                   context.getRequestActionName() != null,
-                                   context.getRequestFinderName() != null,
-                                   context.getPathKeys().getBatchKeys().size() > 0,
-                                   resourceLevel.equals(ResourceLevel.ENTITY));
-
-    if (_resourceMethodLookup.containsKey(key))
+    int index =
+        ResourceMethodMatchKey.index(context.getRequestMethod(),
+                                     context.getRestLiRequestMethod(),
+                                     context.getRequestActionName() != null,
+                                     context.getRequestFinderName() != null,
+                                     context.getPathKeys().getBatchKeys().size() > 0,
+                                     resourceLevel.equals(ResourceLevel.ENTITY));
+
+    if (index >= 0 && _resourceMethodLookup[index] != null)
     {
-      return _resourceMethodLookup.get(key);
+      return _resourceMethodLookup[index];
     }
 
     if (context.hasParameter(RestConstants.ACTION_PARAM)
@@ -463,11 +496,14 @@ public class RestLiRouter
   {
     try
     {
+      // most keys have no escapes, and do not need to be copied by the decoder
+      String key =
+          (pathSegment.indexOf('%') < 0 && pathSegment.indexOf('+') < 0) ?
+              pathSegment :
+              URLDecoder.decode(pathSegment, RestConstants.DEFAULT_CHARSET_NAME);
       context.getPathKeys()
              .append(resource.getKeyName(),
-                     ArgumentUtils.parseKeyIntoCorrectType(URLDecoder.decode(pathSegment,
-                                                                             RestConstants.DEFAULT_CHARSET_NAME),
-                                                           resource));
+                     ArgumentUtils.parseKeyIntoCorrectType(key, resource));
     }
     catch (UnsupportedEncodingException e)
     {
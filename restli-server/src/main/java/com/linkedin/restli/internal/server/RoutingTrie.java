@@ -0,0 +1,172 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.internal.server;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.linkedin.restli.common.RestConstants;
+
+/**
+ * Immutable character trie that maps path segments to values.
+ *
+ * Unlike a {@link Map}, a segment is looked up directly in the path that contains it,
+ * so no substring is created and no hash is computed.
+ *
+ * @param <V> is the type of the values.
+ */
+class RoutingTrie<V>
+{
+  private final char[] _chars;
+  private final RoutingTrie<V>[] _children;
+  private final V _value;
+
+  /**
+   * Compile a trie from the provided map.
+   *
+   * @param map provides the values by key.
+   * @param <V> is the type of the values.
+   * @return a trie with the same mappings as the provided map.
+   */
+  static <V> RoutingTrie<V> compile(Map<String, V> map)
+  {
+    return new RoutingTrie<V>(new TreeMap<String, V>(map), 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private RoutingTrie(TreeMap<String, V> sortedMap, int depth)
+  {
+    V value = null;
+    List<Character> chars = new ArrayList<Character>();
+    List<RoutingTrie<V>> children = new ArrayList<RoutingTrie<V>>();
+    TreeMap<String, V> group = null;
+    char groupChar = 0;
+    for (Map.Entry<String, V> entry : sortedMap.entrySet())
+    {
+      String key = entry.getKey();
+      if (key.length() == depth)
+      {
+        // sorts before all longer keys with the same prefix
+        value = entry.getValue();
+        continue;
+      }
+      char c = key.charAt(depth);
+      if (group == null || c != groupChar)
+      {
+        if (group != null)
+        {
+          chars.add(groupChar);
+          children.add(new RoutingTrie<V>(group, depth + 1));
+        }
+        group = new TreeMap<String, V>();
+        groupChar = c;
+      }
+      group.put(key, entry.getValue());
+    }
+    if (group != null)
+    {
+      chars.add(groupChar);
+      children.add(new RoutingTrie<V>(group, depth + 1));
+    }
+
+    _value = value;
+    _chars = new char[chars.size()];
+    for (int i = 0; i < _chars.length; i++)
+    {
+      _chars[i] = chars.get(i);
+    }
+    _children = (RoutingTrie<V>[]) children.toArray(new RoutingTrie<?>[children.size()]);
+  }
+
+  /**
+   * Get the value of the key that is equal to {@code path.subSequence(start, end)}.
+   *
+   * @param path provides the characters of the key.
+   * @param start is the index of the first character of the key.
+   * @param end is the index after the last character of the key.
+   * @return the value of the key, or {@code null} if there is none.
+   */
+  V get(CharSequence path, int start, int end)
+  {
+    RoutingTrie<V> node = this;
+    for (int i = start; i < end; i++)
+    {
+      node = node.child(path.charAt(i));
+      if (node == null)
+      {
+        return null;
+      }
+    }
+    return node._value;
+  }
+
+  /**
+   * Get the value of the key that is equal to the URL decoded {@code path.substring(start, end)}.
+   *
+   * The characters before the first escape are the same in the encoded and the decoded key,
+   * so only the rest of the key is decoded, and only if it has escapes.
+   *
+   * @param path provides the URL encoded characters of the key.
+   * @param start is the index of the first character of the key.
+   * @param end is the index after the last character of the key.
+   * @return the value of the key, or {@code null} if there is none.
+   */
+  V getEncoded(String path, int start, int end)
+  {
+    RoutingTrie<V> node = this;
+    for (int i = start; i < end; i++)
+    {
+      char c = path.charAt(i);
+      if (c == '%' || c == '+')
+      {
+        String decoded;
+        try
+        {
+          decoded = URLDecoder.decode(path.substring(i, end), RestConstants.DEFAULT_CHARSET_NAME);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+          throw new RestLiInternalException("UnsupportedEncodingException while trying to decode the path", e);
+        }
+        return node.get(decoded, 0, decoded.length());
+      }
+      node = node.child(c);
+      if (node == null)
+      {
+        return null;
+      }
+    }
+    return node._value;
+  }
+
+  private RoutingTrie<V> child(char c)
+  {
+    // nodes have few children, and the characters are sorted
+    for (int i = 0; i < _chars.length && _chars[i] <= c; i++)
+    {
+      if (_chars[i] == c)
+      {
+        return _children[i];
+      }
+    }
+    return null;
+  }
+}
@@ -24,6 +24,7 @@ import java.net.URI;
 import java.util.Map;
 
 import com.linkedin.data.DataMap;
+import com.linkedin.restli.internal.server.util.CompiledProjection;
 import com.linkedin.restli.server.ResourceContext;
 import com.linkedin.restli.server.RestLiServiceException;
 
@@ -73,4 +74,11 @@ public interface ServerResourceContext extends ResourceContext
    * @return rest.li request method
    */
   String getRestLiRequestMethod();
+
+  /**
+   * @return the compiled form of the projection mask, including changes made by the resource to the mask
+   *         returned by {@link #getProjectionMask()} before it last called that method and this one,
+   *         or null if the request has no projection
+   */
+  CompiledProjection getCompiledProjection();
 }
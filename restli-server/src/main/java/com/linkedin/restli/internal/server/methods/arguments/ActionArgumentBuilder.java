@@ -24,8 +24,8 @@ import java.util.List;
 
 import com.linkedin.data.DataMap;
 import com.linkedin.data.schema.validation.CoercionMode;
+import com.linkedin.data.schema.validation.CompiledValidator;
 import com.linkedin.data.schema.validation.RequiredMode;
-import com.linkedin.data.schema.validation.ValidateDataAgainstSchema;
 import com.linkedin.data.schema.validation.ValidationOptions;
 import com.linkedin.data.schema.validation.ValidationResult;
 import com.linkedin.data.template.DynamicRecordTemplate;
@@ -64,10 +64,7 @@ public class ActionArgumentBuilder implements RestLiArgumentBuilder
             new DynamicRecordTemplate(data, resourceMethodDescriptor.getRequestDataSchema());
 
     ValidationResult result =
-            ValidateDataAgainstSchema.validate(data,
-                                               template.schema(),
-                                               new ValidationOptions(RequiredMode.IGNORE,
-                                                                     CoercionMode.NORMAL));
+            CompiledValidator.compile(template.schema(), _actionParamValidationOptions).validate(data);
 
     if (!result.isValid())
     {
@@ -129,4 +126,7 @@ public class ActionArgumentBuilder implements RestLiArgumentBuilder
     }
     return arguments;
   }
+
+  private static final ValidationOptions _actionParamValidationOptions =
+      new ValidationOptions(RequiredMode.IGNORE, CoercionMode.NORMAL);
 }
@@ -28,8 +28,8 @@ import com.linkedin.data.schema.DataSchema;
 import com.linkedin.data.schema.DataSchemaUtil;
 import com.linkedin.data.schema.TyperefDataSchema;
 import com.linkedin.data.schema.validation.CoercionMode;
+import com.linkedin.data.schema.validation.CompiledValidator;
 import com.linkedin.data.schema.validation.RequiredMode;
-import com.linkedin.data.schema.validation.ValidateDataAgainstSchema;
 import com.linkedin.data.schema.validation.ValidationOptions;
 import com.linkedin.data.template.DataTemplate;
 import com.linkedin.data.template.DataTemplateUtil;
@@ -195,12 +195,13 @@ public class ArgumentBuilder
       final Class<? extends RecordTemplate> paramType = (Class<? extends RecordTemplate>) param.getType();
       paramRecordTemplate = DataTemplateUtil.wrap(paramValue, paramType);
     }
-    // Validate against the class schema with FixupMode.STRING_TO_PRIMITIVE to parse the
-    // strings into the corresponding primitive types.
-    ValidateDataAgainstSchema.validate(paramRecordTemplate.data(),
-                                       paramRecordTemplate.schema(),
-                                       new ValidationOptions(RequiredMode.CAN_BE_ABSENT_IF_HAS_DEFAULT,
-                                                             CoercionMode.STRING_TO_PRIMITIVE));
+    CompiledValidator.compile(paramRecordTemplate.schema(), _complexParamValidationOptions)
+                     .validate(paramRecordTemplate.data());
     return paramRecordTemplate;
   }
+
+  // Validate against the class schema with FixupMode.STRING_TO_PRIMITIVE to parse the
+  // strings into the corresponding primitive types.
+  private static final ValidationOptions _complexParamValidationOptions =
+      new ValidationOptions(RequiredMode.CAN_BE_ABSENT_IF_HAS_DEFAULT, CoercionMode.STRING_TO_PRIMITIVE);
 }
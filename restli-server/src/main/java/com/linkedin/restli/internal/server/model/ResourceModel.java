@@ -26,6 +26,7 @@ import com.linkedin.restli.server.ResourceLevel;
 import com.linkedin.restli.server.resources.ComplexKeyResource;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -269,6 +270,14 @@ public class ResourceModel
     return _pathSubResourceMap.values();
   }
 
+  /**
+   * @return an unmodifiable map of the sub-resource paths to their {@link ResourceModel}s
+   */
+  public Map<String, ResourceModel> getSubResourceMap()
+  {
+    return Collections.unmodifiableMap(_pathSubResourceMap);
+  }
+
   /**
    * @return true if this resource has sub-resources, false otherwise
    */
@@ -58,6 +58,7 @@ import com.linkedin.restli.internal.server.RestLiInternalException;
 import com.linkedin.restli.internal.server.RoutingResult;
 import com.linkedin.restli.internal.server.model.ResourceModel;
 import com.linkedin.restli.server.RoutingException;
+import com.linkedin.util.ClockCache;
 
 /**
  * @author Josh Walker
@@ -74,6 +75,14 @@ public class ArgumentUtils
           Pattern.compile(Pattern.quote(String.valueOf(RestConstants.KEY_VALUE_DELIMITER)));
   private static final Pattern LEGACY_KEY_VALUE_DELIMETER_PATTERN = Pattern.compile(Pattern.quote(":"));
 
+  /**
+   * Maximum number of distinct projection parameters kept by {@link #compileProjection(String)}.
+   */
+  public static final int PROJECTION_CACHE_SIZE = 1024;
+
+  private static final ClockCache<String, CompiledProjection> _projectionCache =
+      new ClockCache<String, CompiledProjection>(PROJECTION_CACHE_SIZE);
+
   /**
    * @param routingResult {@link RoutingResult}
    * @return key value of the resource addressed by this method
@@ -205,6 +214,29 @@ public class ArgumentUtils
     }
   }
 
+  /**
+   * Parse and compile a projection parameter. Clients tend to send the same few projections, so compiled
+   * projections are cached by parameter value, up to {@link #PROJECTION_CACHE_SIZE} of them, and shared
+   * between requests. Their masks are therefore read-only. The projections that were not used recently
+   * are evicted to make room for new ones.
+   *
+   * @param projectionParam projection parameter value, cannot be null
+   * @return {@link CompiledProjection} for the projection parameter
+   * @throws RestLiSyntaxException if projection parameter value is invalid
+   */
+  public static CompiledProjection compileProjection(final String projectionParam) throws
+          RestLiSyntaxException
+  {
+    CompiledProjection projection = _projectionCache.get(projectionParam);
+    if (projection == null)
+    {
+      MaskTree mask = decodeMaskUriFormat(projectionParam);
+      mask.getDataMap().makeReadOnly();
+      projection = _projectionCache.putIfAbsent(projectionParam, new CompiledProjection(mask));
+    }
+    return projection;
+  }
+
   /**
    * Same as {@link #parseProjectionParameter(String)} but assumes the uri param is not
    * null.
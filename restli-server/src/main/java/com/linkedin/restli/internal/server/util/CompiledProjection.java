@@ -0,0 +1,193 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.internal.server.util;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.collections.CommonUtil;
+import com.linkedin.data.transform.DataMapProcessor;
+import com.linkedin.data.transform.DataProcessingException;
+import com.linkedin.data.transform.filter.Filter;
+import com.linkedin.data.transform.filter.FilterConstants;
+import com.linkedin.data.transform.filter.request.MaskTree;
+import com.linkedin.restli.internal.server.RestLiInternalException;
+
+/**
+ * A projection mask prepared for applying to many records.
+ *
+ * A mask that only selects fields, which is what clients send, is compiled into a tree of field names that
+ * is applied by copying references to the selected fields into a new {@link DataMap}, so the cost is
+ * proportional to the size of the projection rather than of the record. Other masks are applied by the
+ * {@link Filter} to a copy of the record.
+ *
+ * Instances are immutable as long as the mask is not modified; the ones created by
+ * {@link ArgumentUtils#compileProjection(String)} hold a read-only mask and are shared between requests.
+ */
+public class CompiledProjection
+{
+  private final MaskTree  _maskTree;
+  private final Selection _selection;
+
+  public CompiledProjection(MaskTree maskTree)
+  {
+    _maskTree = maskTree;
+    _selection = Selection.compile(maskTree.getDataMap());
+  }
+
+  public MaskTree getMaskTree()
+  {
+    return _maskTree;
+  }
+
+  /**
+   * @return true if the mask only selects fields, possibly nested, and uses no wildcards, negative masks
+   *         or array ranges
+   */
+  public boolean isSelection()
+  {
+    return _selection != null;
+  }
+
+  /**
+   * Apply the projection to a record. The record is not modified, but the result may share values with it.
+   *
+   * @param dataMap the record to project
+   * @return the projected record
+   * @throws RestLiInternalException if the mask does not fit the record
+   */
+  public DataMap project(DataMap dataMap)
+  {
+    if (_selection != null)
+    {
+      DataMap data = _selection.select(dataMap);
+      if (data != null)
+      {
+        return data;
+      }
+    }
+
+    try
+    {
+      DataMap data = CommonUtil.unsafeClone(dataMap);
+      new DataMapProcessor(new Filter(), _maskTree.getDataMap(), data).run(false);
+      return data;
+    }
+    catch (DataProcessingException e)
+    {
+      throw new RestLiInternalException("Error projecting fields", e);
+    }
+  }
+
+  /**
+   * For a selection mask, {@link Filter} keeps exactly the selected fields of a record, the descendants of
+   * fields masked with 1, and whole arrays, as masks for array elements require a wildcard.
+   */
+  private static class Selection
+  {
+    private final String[]    _fields;
+    // null for fields whose whole value is selected
+    private final Selection[] _children;
+
+    private Selection(String[] fields, Selection[] children)
+    {
+      _fields = fields;
+      _children = children;
+    }
+
+    /**
+     * @return the compiled mask, or null if it is not a selection mask
+     */
+    private static Selection compile(DataMap mask)
+    {
+      List<String> fields = new ArrayList<String>(mask.size());
+      List<Selection> children = new ArrayList<Selection>(mask.size());
+      for (Map.Entry<String, Object> entry : mask.entrySet())
+      {
+        if (entry.getKey().indexOf('$') >= 0)
+        {
+          return null;
+        }
+        Object fieldMask = entry.getValue();
+        Selection child = null;
+        if (fieldMask.getClass() == DataMap.class)
+        {
+          // an empty nested mask does not select anything and hides the field
+          if (((DataMap) fieldMask).isEmpty())
+          {
+            return null;
+          }
+          child = compile((DataMap) fieldMask);
+          if (child == null)
+          {
+            return null;
+          }
+        }
+        else if (!FilterConstants.POSITIVE.equals(fieldMask))
+        {
+          return null;
+        }
+        fields.add(entry.getKey());
+        children.add(child);
+      }
+      return new Selection(fields.toArray(new String[fields.size()]), children.toArray(new Selection[children.size()]));
+    }
+
+    /**
+     * @return a new map with the selected fields of the data, or null if a nested mask is given for a field
+     *         that is not a record
+     */
+    private DataMap select(DataMap dataMap)
+    {
+      DataMap selected = new DataMap((int) Math.ceil(Math.min(_fields.length, dataMap.size()) / 0.75f));
+      for (int i = 0; i < _fields.length; i++)
+      {
+        String name = _fields[i];
+        Object value = dataMap.get(name);
+        if (value == null)
+        {
+          continue;
+        }
+
+        Selection child = _children[i];
+        if (child == null || value.getClass() == DataList.class)
+        {
+          selected.put(name, value);
+        }
+        else if (value.getClass() == DataMap.class)
+        {
+          DataMap selectedValue = child.select((DataMap) value);
+          if (selectedValue == null)
+          {
+            return null;
+          }
+          selected.put(name, selectedValue);
+        }
+        else
+        {
+          // let the Filter report the mismatch between mask and data
+          return null;
+        }
+      }
+      return selected;
+    }
+  }
+}
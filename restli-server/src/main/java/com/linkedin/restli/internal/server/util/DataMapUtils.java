@@ -17,16 +17,22 @@
 package com.linkedin.restli.internal.server.util;
 
 
+import com.linkedin.data.ByteString;
 import com.linkedin.data.DataComplex;
 import com.linkedin.data.DataList;
 import com.linkedin.data.DataMap;
+import com.linkedin.data.codec.BufferChain;
+import com.linkedin.data.codec.CompactDataCodec;
+import com.linkedin.data.codec.DataCodec;
 import com.linkedin.data.codec.JacksonDataCodec;
 import com.linkedin.data.codec.PsonDataCodec;
 import com.linkedin.data.schema.DataSchema;
+import com.linkedin.data.schema.RecordDataSchema;
 import com.linkedin.data.template.DataTemplate;
 import com.linkedin.data.template.DataTemplateUtil;
 import com.linkedin.data.template.JacksonDataTemplateCodec;
 import com.linkedin.data.template.RecordTemplate;
+import com.linkedin.data.template.TemplateRuntimeException;
 import com.linkedin.r2.message.rest.RestMessage;
 import com.linkedin.restli.common.CollectionResponse;
 import com.linkedin.restli.common.HttpStatus;
@@ -40,12 +46,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DataMapUtils
 {
   private static final JacksonDataCodec CODEC = new JacksonDataCodec();
-  private static final PsonDataCodec PSON_DATA_CODEC = new PsonDataCodec();
+  private static final PsonDataCodec PSON_DATA_CODEC = new PsonDataCodec().setOptions(new PsonDataCodec.Options().setRecycleBuffers(true));
+  private static final CompactDataCodec COMPACT_DATA_CODEC = new CompactDataCodec();
+  private static final ConcurrentMap<Class<?>, CompactDataCodec> COMPACT_DATA_CODECS =
+      new ConcurrentHashMap<Class<?>, CompactDataCodec>();
   private static final JacksonDataTemplateCodec TEMPLATE_CODEC = new JacksonDataTemplateCodec();
+  private static final int SMALL_ENTITY_SIZE = BufferChain.DEFAULT_BUFFER_SIZE / 2;
+
+  static
+  {
+    CODEC.setRecycleBuffers(true);
+  }
 
   /**
    * Read {@link DataMap} from InputStream.
@@ -94,7 +111,7 @@ public class DataMapUtils
   {
     try
     {
-      return readMapWithExceptions(message);
+      return readMapWithExceptions(message, null);
     }
     catch (IOException e)
     {
@@ -108,12 +125,13 @@ public class DataMapUtils
    *
    * @throws IOException if the message entity cannot be parsed.
    */
-  private static DataMap readMapWithExceptions(final RestMessage message) throws IOException
+  private static DataMap readMapWithExceptions(final RestMessage message,
+                                               final Class<? extends RecordTemplate> recordClass) throws IOException
   {
     String header = message.getHeader(RestConstants.HEADER_CONTENT_TYPE);
     if (header == null)
     {
-      return CODEC.readMap(message.getEntity().asInputStream());
+      return CODEC.readMap(message.getEntity());
     }
 
     ContentType contentType;
@@ -128,11 +146,15 @@ public class DataMapUtils
 
     if (contentType.getBaseType().equalsIgnoreCase(RestConstants.HEADER_VALUE_APPLICATION_JSON))
     {
-      return CODEC.readMap(message.getEntity().asInputStream());
+      return CODEC.readMap(message.getEntity());
     }
     else if (contentType.getBaseType().equalsIgnoreCase(RestConstants.HEADER_VALUE_APPLICATION_PSON))
     {
-      return PSON_DATA_CODEC.readMap(message.getEntity().asInputStream());
+      return PSON_DATA_CODEC.readMap(message.getEntity());
+    }
+    else if (contentType.getBaseType().equalsIgnoreCase(RestConstants.HEADER_VALUE_APPLICATION_COMPACT))
+    {
+      return getCompactDataCodec(recordClass).readMap(message.getEntity());
     }
     else
     {
@@ -223,7 +245,7 @@ public class DataMapUtils
   {
     try
     {
-      DataMap dataMap = readMapWithExceptions(message);
+      DataMap dataMap = readMapWithExceptions(message, recordClass);
       return DataTemplateUtil.wrap(dataMap, recordClass);
     }
     catch (IllegalArgumentException e)
@@ -382,4 +404,99 @@ public class DataMapUtils
       throw new RestLiInternalException(e);
     }
   }
+
+  /**
+   * Encode {@link DataMap} as a {@link ByteString} using {@link JacksonDataCodec}.
+   *
+   * The codec writes into a chain of buffers that the returned {@link ByteString}
+   * shares, so that no contiguous byte array of the whole encoding is allocated or copied.
+   * Encodings shorter than half a buffer are copied into an array of their own instead,
+   * so that small entities do not keep a whole buffer alive.
+   *
+   * @param dataMap input {@link DataMap}
+   * @return {@link ByteString}
+   */
+  public static ByteString mapToByteString(final DataMap dataMap)
+  {
+    return mapToByteString(CODEC, dataMap);
+  }
+
+  /**
+   * Encode {@link DataMap} as a {@link ByteString} using {@link PsonDataCodec}.
+   *
+   * @param dataMap input {@link DataMap}
+   * @return {@link ByteString}
+   * @see #mapToByteString(DataMap)
+   */
+  public static ByteString mapToPsonByteString(final DataMap dataMap)
+  {
+    return mapToByteString(PSON_DATA_CODEC, dataMap);
+  }
+
+  /**
+   * Encode {@link DataMap} as a {@link ByteString} using {@link CompactDataCodec}.
+   *
+   * @param dataMap input {@link DataMap}
+   * @param recordClass class of the record the {@link DataMap} holds, or null to encode
+   *                    without a schema
+   * @param fingerprint fingerprint of the schema the client decodes with. The schema of the
+   *                    record class is only used if it has the same fingerprint.
+   * @return {@link ByteString}
+   * @see #mapToByteString(DataMap)
+   */
+  public static ByteString mapToCompactByteString(final DataMap dataMap,
+                                                  final Class<? extends RecordTemplate> recordClass,
+                                                  final long fingerprint)
+  {
+    CompactDataCodec codec = getCompactDataCodec(recordClass);
+    if (codec.getFingerprint() != fingerprint)
+    {
+      codec = COMPACT_DATA_CODEC;
+    }
+    return mapToByteString(codec, dataMap);
+  }
+
+  private static CompactDataCodec getCompactDataCodec(final Class<? extends RecordTemplate> recordClass)
+  {
+    if (recordClass == null)
+    {
+      return COMPACT_DATA_CODEC;
+    }
+    CompactDataCodec codec = COMPACT_DATA_CODECS.get(recordClass);
+    if (codec == null)
+    {
+      DataSchema schema;
+      try
+      {
+        schema = DataTemplateUtil.getSchema(recordClass);
+      }
+      catch (TemplateRuntimeException e)
+      {
+        // e.g. PatchRequest, which has no static schema
+        schema = null;
+      }
+      codec = (schema instanceof RecordDataSchema ? new CompactDataCodec((RecordDataSchema) schema) : COMPACT_DATA_CODEC);
+      CompactDataCodec existing = COMPACT_DATA_CODECS.putIfAbsent(recordClass, codec);
+      if (existing != null)
+      {
+        codec = existing;
+      }
+    }
+    return codec;
+  }
+
+  private static ByteString mapToByteString(final DataCodec codec, final DataMap dataMap)
+  {
+    try
+    {
+      BufferChain buffer = new BufferChain();
+      codec.writeMap(dataMap, buffer.asOutputStream());
+      ByteString bytes = buffer.toByteString();
+      return bytes.length() < SMALL_ENTITY_SIZE ? ByteString.unsafeWrap(bytes.copyBytes()) : bytes;
+    }
+    catch (IOException e)
+    {
+      throw new RestLiInternalException(e);
+    }
+  }
 }
@@ -25,17 +25,13 @@ import com.linkedin.r2.message.rest.RestRequest;
 import org.apache.commons.lang.StringUtils;
 
 import com.linkedin.data.DataMap;
-import com.linkedin.data.collections.CommonUtil;
-import com.linkedin.data.transform.DataMapProcessor;
-import com.linkedin.data.transform.DataProcessingException;
-import com.linkedin.data.transform.filter.Filter;
 import com.linkedin.data.transform.filter.request.MaskTree;
 import com.linkedin.jersey.api.uri.UriBuilder;
 import com.linkedin.restli.common.CollectionMetadata;
 import com.linkedin.restli.common.Link;
 import com.linkedin.restli.common.LinkArray;
 import com.linkedin.restli.common.RestConstants;
-import com.linkedin.restli.internal.server.RestLiInternalException;
+import com.linkedin.restli.internal.server.ServerResourceContext;
 import com.linkedin.restli.internal.server.model.Parameter;
 import com.linkedin.restli.internal.server.model.ResourceMethodDescriptor;
 import com.linkedin.restli.server.CollectionResult.PageIncrement;
@@ -221,6 +217,8 @@ public class RestUtils
    * Filter input {@link DataMap} by the projection mask from the input
    * {@link ResourceContext}.
    *
+   * The mask is applied by the context's {@link CompiledProjection} when there is one.
+   *
    * @param dataMap {@link DataMap} to filter
    * @param resourceContext {@link ResourceContext} to get the projection mask from
    * @return filtered DataMap. Empty one if the projection mast specifies no fields.
@@ -228,26 +226,26 @@ public class RestUtils
   public static DataMap projectFields(final DataMap dataMap,
                                       final ResourceContext resourceContext)
   {
-    MaskTree filter = resourceContext.getProjectionMask();
-    if (filter == null)
+    CompiledProjection projection;
+    if (resourceContext instanceof ServerResourceContext)
     {
-      return dataMap;
+      projection = ((ServerResourceContext) resourceContext).getCompiledProjection();
     }
-    //Special-case: when present, an empty filter should not return any fields.
-    else if (filter.getDataMap().isEmpty())
+    else
     {
-      return EMPTY_DATAMAP;
+      MaskTree filter = resourceContext.getProjectionMask();
+      projection = filter == null ? null : new CompiledProjection(filter);
     }
 
-    try
+    if (projection == null)
     {
-      DataMap data = CommonUtil.unsafeClone(dataMap);
-      new DataMapProcessor(new Filter(), filter.getDataMap(), data).run(false);
-      return data;
+      return dataMap;
     }
-    catch (DataProcessingException e)
+    //Special-case: when present, an empty filter should not return any fields.
+    else if (projection.getMaskTree().getDataMap().isEmpty())
     {
-      throw new RestLiInternalException("Error projecting fields", e);
+      return EMPTY_DATAMAP;
     }
+    return projection.project(dataMap);
   }
 }
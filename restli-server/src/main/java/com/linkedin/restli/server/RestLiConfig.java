@@ -31,6 +31,7 @@ public class RestLiConfig
   private final Set<String> _resourcePackageNames = new HashSet<String>();
   private URI _serverNodeUri = URI.create("");
   private RestLiDocumentationRequestHandler _documentationRequestHandler = null;
+  private boolean _generateMethodInvokers = false;
 
   /**
    * Constructor.
@@ -107,4 +108,19 @@ public class RestLiConfig
   {
     _documentationRequestHandler = handler;
   }
+
+  public boolean isGenerateMethodInvokers()
+  {
+    return _generateMethodInvokers;
+  }
+
+  /**
+   * @param generateMethodInvokers whether classes that invoke resource methods directly are
+   *          generated when the server is constructed, instead of invoking the methods
+   *          through reflection
+   */
+  public void setGenerateMethodInvokers(final boolean generateMethodInvokers)
+  {
+    _generateMethodInvokers = generateMethodInvokers;
+  }
 }
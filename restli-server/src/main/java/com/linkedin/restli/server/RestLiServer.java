@@ -71,7 +71,10 @@ public class RestLiServer extends BaseRestServer
     _rootResources = new RestLiApiBuilder(config).build();
     _resourceFactory.setRootResources(_rootResources);
     _router = new RestLiRouter(_rootResources);
-    _methodInvoker = new RestLiMethodInvoker(_resourceFactory, engine);
+    _methodInvoker =
+        config.isGenerateMethodInvokers() ?
+            new RestLiMethodInvoker(_resourceFactory, engine, _rootResources) :
+            new RestLiMethodInvoker(_resourceFactory, engine);
     _responseHandler = new RestLiResponseHandler();
     _docRequestHandler = config.getDocumentationRequestHandler();
 
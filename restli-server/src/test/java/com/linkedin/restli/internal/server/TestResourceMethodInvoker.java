@@ -0,0 +1,97 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.internal.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.testng.annotations.Test;
+
+import com.linkedin.restli.common.HttpStatus;
+import com.linkedin.restli.common.ResourceMethod;
+import com.linkedin.restli.internal.server.model.ResourceMethodDescriptor;
+import com.linkedin.restli.internal.server.model.ResourceModel;
+import com.linkedin.restli.server.RestLiServiceException;
+import com.linkedin.restli.server.twitter.RepliesCollectionResource;
+import com.linkedin.restli.server.twitter.StatusCollectionResource;
+import com.linkedin.restli.server.twitter.TwitterTestDataModels.Status;
+
+import static com.linkedin.restli.server.test.RestLiTestHelper.buildResourceModels;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestResourceMethodInvoker
+{
+  @Test
+  public void testGenerate() throws Exception
+  {
+    Map<String, ResourceModel> resourceModels =
+        buildResourceModels(StatusCollectionResource.class, RepliesCollectionResource.class);
+    Map<ResourceMethodDescriptor, ResourceMethodInvoker> invokers = ResourceMethodInvoker.generate(resourceModels);
+
+    ResourceModel statusResourceModel = resourceModels.get("/statuses");
+    ResourceModel repliesResourceModel = statusResourceModel.getSubResource("replies");
+    for (ResourceMethodDescriptor descriptor : statusResourceModel.getResourceMethodDescriptors())
+    {
+      assertFalse(invokers.get(descriptor).isReflective(), descriptor.toString());
+    }
+    for (ResourceMethodDescriptor descriptor : repliesResourceModel.getResourceMethodDescriptors())
+    {
+      assertFalse(invokers.get(descriptor).isReflective(), descriptor.toString());
+    }
+
+    Status status = new Status();
+    StatusCollectionResource resource = EasyMock.createMock(StatusCollectionResource.class);
+    EasyMock.expect(resource.get(1L)).andReturn(status).once();
+    EasyMock.replay(resource);
+    ResourceMethodInvoker invoker = invokers.get(statusResourceModel.findMethod(ResourceMethod.GET));
+    assertSame(invoker.invoke(resource, new Object[] { 1L }), status);
+    EasyMock.verify(resource);
+  }
+
+  @Test
+  public void testGeneratedException() throws Exception
+  {
+    Map<String, ResourceModel> resourceModels = buildResourceModels(StatusCollectionResource.class);
+    Map<ResourceMethodDescriptor, ResourceMethodInvoker> invokers = ResourceMethodInvoker.generate(resourceModels);
+    ResourceMethodDescriptor descriptor = resourceModels.get("/statuses").findMethod(ResourceMethod.GET);
+
+    RestLiServiceException exception = new RestLiServiceException(HttpStatus.S_404_NOT_FOUND);
+    StatusCollectionResource resource = EasyMock.createMock(StatusCollectionResource.class);
+    EasyMock.expect(resource.get(1L)).andThrow(exception).times(2);
+    EasyMock.replay(resource);
+
+    for (ResourceMethodInvoker invoker : new ResourceMethodInvoker[] {
+        invokers.get(descriptor), ResourceMethodInvoker.reflective(descriptor.getMethod()) })
+    {
+      try
+      {
+        invoker.invoke(resource, new Object[] { 1L });
+        fail("expected InvocationTargetException");
+      }
+      catch (InvocationTargetException e)
+      {
+        assertSame(e.getCause(), exception);
+      }
+    }
+    assertTrue(ResourceMethodInvoker.reflective(descriptor.getMethod()).isReflective());
+    EasyMock.verify(resource);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.internal.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class TestRoutingTrie
+{
+  private static RoutingTrie<String> buildTrie()
+  {
+    Map<String, String> map = new HashMap<String, String>();
+    map.put("statuses", "a");
+    map.put("status", "b");
+    map.put("stats", "c");
+    map.put("follows", "d");
+    map.put("a b", "e");
+    map.put("", "f");
+    return RoutingTrie.compile(map);
+  }
+
+  @Test
+  public void testGet()
+  {
+    RoutingTrie<String> trie = buildTrie();
+
+    assertEquals(trie.get("statuses", 0, 8), "a");
+    assertEquals(trie.get("status", 0, 6), "b");
+    assertEquals(trie.get("/stats/1", 1, 6), "c");
+    assertEquals(trie.get("/statuses/1/follows", 12, 19), "d");
+    assertEquals(trie.get("x", 0, 0), "f");
+
+    assertNull(trie.get("stat", 0, 4));
+    assertNull(trie.get("statusesx", 0, 9));
+    assertNull(trie.get("foo", 0, 3));
+    assertNull(RoutingTrie.compile(new HashMap<String, String>()).get("", 0, 0));
+  }
+
+  @Test
+  public void testGetEncoded()
+  {
+    RoutingTrie<String> trie = buildTrie();
+
+    assertEquals(trie.getEncoded("/statuses/1", 1, 9), "a");
+    assertEquals(trie.getEncoded("st%61tus", 0, 8), "b");
+    assertEquals(trie.getEncoded("%73tats", 0, 7), "c");
+    assertEquals(trie.getEncoded("a+b", 0, 3), "e");
+    assertEquals(trie.getEncoded("/a%20b/1", 1, 6), "e");
+
+    assertNull(trie.getEncoded("st%61t", 0, 6));
+    assertNull(trie.getEncoded("statuses%2F1", 0, 12));
+  }
+}
@@ -0,0 +1,166 @@
+/*
+   Copyright (c) 2012 LinkedIn Corp.
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+
+package com.linkedin.restli.internal.server.util;
+
+
+import java.net.URI;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.linkedin.data.DataList;
+import com.linkedin.data.DataMap;
+import com.linkedin.data.schema.PathSpec;
+import com.linkedin.data.transform.DataMapProcessor;
+import com.linkedin.data.transform.DataProcessingException;
+import com.linkedin.data.transform.filter.Filter;
+import com.linkedin.data.transform.filter.request.MaskOperation;
+import com.linkedin.r2.message.RequestContext;
+import com.linkedin.r2.message.rest.RestRequestBuilder;
+import com.linkedin.restli.internal.server.PathKeysImpl;
+import com.linkedin.restli.internal.server.ResourceContextImpl;
+import com.linkedin.restli.internal.server.RestLiInternalException;
+import com.linkedin.restli.internal.server.ServerResourceContext;
+import com.linkedin.restli.server.ResourceContext;
+
+public class TestRestUtils
+{
+  @DataProvider(name = "projections")
+  public Object[][] projections()
+  {
+    return new Object[][] {
+        { "a" },
+        { "a,b" },
+        { "b:(c)" },
+        { "b:(c),a,missing" },
+        { "b:(e:(f))" },
+        { "b:(e:(g))" },
+        { "list:(c)" },
+        { "text:(c)" },
+        { "b:($*)" },
+        { "list:($*:(c))" },
+    };
+  }
+
+  @Test(dataProvider = "projections")
+  public void testProjectFieldsMatchesFilter(String fields) throws Exception
+  {
+    DataMap data = record();
+    ResourceContext context = context(fields);
+
+    DataMap expected = data.copy();
+    boolean filterFailed = false;
+    try
+    {
+      new DataMapProcessor(new Filter(), context.getProjectionMask().getDataMap(), expected).run(false);
+    }
+    catch (DataProcessingException e)
+    {
+      filterFailed = true;
+    }
+
+    try
+    {
+      DataMap projected = RestUtils.projectFields(data, context);
+      Assert.assertFalse(filterFailed, fields);
+      Assert.assertEquals(projected, expected, fields);
+    }
+    catch (RestLiInternalException e)
+    {
+      Assert.assertTrue(filterFailed, fields);
+    }
+  }
+
+  @Test
+  public void testSelectionDoesNotModifyRecord() throws Exception
+  {
+    DataMap data = record();
+    ResourceContext context = context("b:(e:(f))");
+
+    RestUtils.projectFields(data, context);
+    Assert.assertEquals(data, record());
+  }
+
+  @Test
+  public void testCompiledProjectionIsShared() throws Exception
+  {
+    ServerResourceContext first = context("a,b:(c)");
+    ServerResourceContext second = context("a,b:(c)");
+
+    Assert.assertSame(second.getCompiledProjection(), first.getCompiledProjection());
+    Assert.assertTrue(first.getCompiledProjection().isSelection());
+    Assert.assertFalse(context("b:($*)").getCompiledProjection().isSelection());
+    Assert.assertNull(new ResourceContextImpl().getCompiledProjection());
+    Assert.assertNull(new ResourceContextImpl().getProjectionMask());
+  }
+
+  @Test
+  public void testResourceCanModifyProjectionMask() throws Exception
+  {
+    ServerResourceContext first = context("a,b:(c)");
+    ServerResourceContext second = context("a,b:(c)");
+    CompiledProjection shared = first.getCompiledProjection();
+
+    Assert.assertNotSame(second.getProjectionMask(), first.getProjectionMask());
+    Assert.assertSame(first.getProjectionMask(), first.getProjectionMask());
+    Assert.assertSame(first.getCompiledProjection(), shared);
+
+    first.getProjectionMask().addOperation(new PathSpec("text"), MaskOperation.POSITIVE_MASK_OP);
+    Assert.assertEquals(RestUtils.projectFields(record(), first).get("text"), "value");
+    // the modified mask is compiled once
+    CompiledProjection modified = first.getCompiledProjection();
+    Assert.assertNotSame(modified, shared);
+    Assert.assertSame(first.getCompiledProjection(), modified);
+    Assert.assertNull(RestUtils.projectFields(record(), second).get("text"));
+    Assert.assertSame(second.getCompiledProjection(), shared);
+    Assert.assertFalse(shared.getMaskTree().getDataMap().containsKey("text"));
+  }
+
+  private static ServerResourceContext context(String fields) throws Exception
+  {
+    return new ResourceContextImpl(new PathKeysImpl(),
+                                   new RestRequestBuilder(URI.create("/test?fields=" + fields)).build(),
+                                   new RequestContext());
+  }
+
+  private static DataMap record()
+  {
+    DataMap e = new DataMap();
+    e.put("f", 1);
+    e.put("g", 2L);
+    DataMap b = new DataMap();
+    b.put("c", "x");
+    b.put("d", "y");
+    b.put("e", e);
+    DataMap first = new DataMap();
+    first.put("c", 1);
+    first.put("d", 2);
+    DataMap second = new DataMap();
+    second.put("d", 3);
+    DataList list = new DataList();
+    list.add(first);
+    list.add(second);
+
+    DataMap data = new DataMap();
+    data.put("a", 1);
+    data.put("b", b);
+    data.put("list", list);
+    data.put("text", "value");
+    return data;
+  }
+}
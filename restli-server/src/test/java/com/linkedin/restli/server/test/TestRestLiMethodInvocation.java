@@ -870,6 +870,47 @@ public class TestRestLiMethodInvocation
                            "/statuses?q=search&fields=foo))");
   }
 
+  @Test
+  public void testGeneratedInvokers() throws Exception
+  {
+    Map<String, ResourceModel> resourceModels =
+        buildResourceModels(StatusCollectionResource.class, PromiseStatusCollectionResource.class);
+    ResourceModel statusResourceModel = resourceModels.get("/statuses");
+    ResourceModel promiseStatusResourceModel = resourceModels.get("/promisestatuses");
+    ResourceMethodDescriptor methodDescriptor;
+    StatusCollectionResource statusResource;
+    PromiseStatusCollectionResource promiseStatusResource;
+
+    RestLiMethodInvoker reflectiveInvoker = _invoker;
+    _invoker = new RestLiMethodInvoker(_resourceFactory, _engine, resourceModels);
+    try
+    {
+      // #1: finder
+      methodDescriptor = statusResourceModel.findNamedMethod("search");
+      statusResource = getMockResource(StatusCollectionResource.class);
+      EasyMock.expect(statusResource.search(eq("linkedin"), eq(1L), eq(StatusType.REPLY))).andReturn(null).once();
+      checkInvocation(statusResource, methodDescriptor, "GET",
+                      "/statuses?q=search&keywords=linkedin&since=1&type=REPLY");
+
+      // #2: get
+      methodDescriptor = statusResourceModel.findMethod(ResourceMethod.GET);
+      statusResource = getMockResource(StatusCollectionResource.class);
+      EasyMock.expect(statusResource.get(eq(1L))).andReturn(null).once();
+      checkInvocation(statusResource, methodDescriptor, "GET", "/statuses/1", buildPathKeys("statusID", 1L));
+
+      // #3: promise get
+      methodDescriptor = promiseStatusResourceModel.findMethod(ResourceMethod.GET);
+      promiseStatusResource = getMockResource(PromiseStatusCollectionResource.class);
+      EasyMock.expect(promiseStatusResource.get(eq(1L))).andReturn(Promises.<Status>value(null)).once();
+      checkInvocation(promiseStatusResource, methodDescriptor, "GET", "/promisestatuses/1",
+                      buildPathKeys("statusID", 1L));
+    }
+    finally
+    {
+      _invoker = reflectiveInvoker;
+    }
+  }
+
   @Test
   public void testGetAssociativeResource() throws Exception
   {
@@ -16,6 +16,7 @@
 
 package com.linkedin.restli.server.test;
 
+import com.linkedin.data.codec.CompactDataCodec;
 import com.linkedin.data.codec.DataCodec;
 import com.linkedin.data.codec.JacksonDataCodec;
 import com.linkedin.data.codec.PsonDataCodec;
@@ -98,14 +99,17 @@ public class TestRestLiResponseHandler
 
   private static final String APPLICATION_JSON = "application/json";
   private static final String APPLICATION_PSON = "application/x-pson";
+  private static final String APPLICATION_COMPACT = "application/x-compact";
 
   private static final Map<String, String> JSON_ACCEPT_HEADERS  = Collections.singletonMap("Accept", APPLICATION_JSON);
   private static final Map<String, String> PSON_ACCEPT_HEADERS  = Collections.singletonMap("Accept", APPLICATION_PSON);
+  private static final Map<String, String> COMPACT_ACCEPT_HEADERS = Collections.singletonMap("Accept", APPLICATION_COMPACT);
   private static final Map<String, String> EMPTY_ACCEPT_HEADERS = Collections.emptyMap();
   private static final Map<String, String> ANY_ACCEPT_HEADERS   = Collections.singletonMap("Accept", "*/*");
 
   private static final PsonDataCodec PSON_DATA_CODEC = new PsonDataCodec();
   private static final JacksonDataCodec JACKSON_DATA_CODEC = new JacksonDataCodec();
+  private static final CompactDataCodec COMPACT_DATA_CODEC = new CompactDataCodec();
 
   private static final String EXPECTED_STATUS_JSON = doubleQuote("{'text':'test status'}");
   private static final String EXPECTED_STATUS_ACTION_RESPONSE_JSON = doubleQuote("{'value':") + EXPECTED_STATUS_JSON + '}';
@@ -126,6 +130,7 @@ public class TestRestLiResponseHandler
   {
     JSON  (JSON_ACCEPT_HEADERS,   APPLICATION_JSON,   JACKSON_DATA_CODEC),
     PSON  (PSON_ACCEPT_HEADERS,   APPLICATION_PSON,   PSON_DATA_CODEC),
+    COMPACT (COMPACT_ACCEPT_HEADERS, APPLICATION_COMPACT, COMPACT_DATA_CODEC),
     EMPTY (EMPTY_ACCEPT_HEADERS,  APPLICATION_JSON,   JACKSON_DATA_CODEC),
     ANY   (ANY_ACCEPT_HEADERS,    APPLICATION_JSON,   JACKSON_DATA_CODEC);
 
@@ -214,6 +219,48 @@ public class TestRestLiResponseHandler
 
   }
 
+  @Test
+  public void testCompactResponses() throws Exception
+  {
+    Status status = buildStatusRecord();
+
+    // a get response is encoded with the schema of the resource value if the client has it
+    CompactDataCodec statusCodec = new CompactDataCodec(status.schema());
+    Map<String, String> headers = new HashMap<String, String>(COMPACT_ACCEPT_HEADERS);
+    headers.put(RestConstants.HEADER_RESTLI_SCHEMA_FINGERPRINT, Long.toString(statusCodec.getFingerprint()));
+    RestResponse response = invokeResponseHandler("/test", status, ResourceMethod.GET, headers);
+    checkResponse(response, 200, 2, APPLICATION_COMPACT, Status.class.getName(), null, true);
+    assertEquals(statusCodec.readMap(response.getEntity()), status.data());
+    try
+    {
+      COMPACT_DATA_CODEC.readMap(response.getEntity());
+      Assert.fail("Decoding a get response without the schema should fail");
+    }
+    catch (IOException e)
+    {
+      // expected
+    }
+
+    // and without a schema if the client has another schema, or did not send its fingerprint
+    headers.put(RestConstants.HEADER_RESTLI_SCHEMA_FINGERPRINT, Long.toString(statusCodec.getFingerprint() + 1));
+    response = invokeResponseHandler("/test", status, ResourceMethod.GET, headers);
+    assertEquals(COMPACT_DATA_CODEC.readMap(response.getEntity()), status.data());
+    response = invokeResponseHandler("/test", status, ResourceMethod.GET, COMPACT_ACCEPT_HEADERS);
+    assertEquals(COMPACT_DATA_CODEC.readMap(response.getEntity()), status.data());
+
+    // other responses are encoded without a schema
+    response = _responseHandler.buildResponse(buildRequest(COMPACT_ACCEPT_HEADERS),
+                                              buildRoutingResultAction(Status.class),
+                                              status);
+    checkResponse(response, 200, 3, APPLICATION_COMPACT, ActionResponse.class.getName(), Status.class.getName(), true);
+    assertEquals(statusCodec.readMap(response.getEntity()), COMPACT_DATA_CODEC.readMap(response.getEntity()));
+
+    // compact is only picked when it is explicitly accepted
+    response = invokeResponseHandler("/test", status, ResourceMethod.GET,
+                                     Collections.singletonMap("Accept", "application/*"));
+    assertEquals(response.getHeader(RestConstants.HEADER_CONTENT_TYPE), APPLICATION_JSON);
+  }
+
   @DataProvider(name="basicData")
   public Object[][] basicData()
   {
@@ -226,7 +273,20 @@ public class TestRestLiResponseHandler
       };
   }
 
-  @Test(dataProvider = "basicData")
+  @DataProvider(name="basicAndCompactData")
+  public Object[][] basicAndCompactData()
+  {
+    return new Object[][]
+      {
+        { AcceptTypeData.EMPTY },
+        { AcceptTypeData.ANY },
+        { AcceptTypeData.JSON },
+        { AcceptTypeData.PSON },
+        { AcceptTypeData.COMPACT }
+      };
+  }
+
+  @Test(dataProvider = "basicAndCompactData")
   public void testBatchResponses(AcceptTypeData acceptTypeData) throws Exception
   {
     RestResponse response;
@@ -263,7 +323,7 @@ public class TestRestLiResponseHandler
     checkResponse(response, 200, 3, acceptTypeData.responseContentType, CollectionResponse.class.getName(), CreateStatus.class.getName(), true);
   }
 
-  @Test(dataProvider = "basicData")
+  @Test(dataProvider = "basicAndCompactData")
   public void testCollections(AcceptTypeData acceptTypeData) throws Exception
   {
     ResourceModel resourceModel = buildResourceModel(StatusCollectionResource.class);
@@ -40,6 +40,7 @@ import com.linkedin.r2.message.RequestContext;
 import com.linkedin.r2.message.rest.RestRequest;
 import com.linkedin.r2.message.rest.RestRequestBuilder;
 import com.linkedin.restli.common.CompoundKey;
+import com.linkedin.restli.common.HttpStatus;
 import com.linkedin.restli.common.ResourceMethod;
 import com.linkedin.restli.internal.server.RestLiRouter;
 import com.linkedin.restli.internal.server.RoutingResult;
@@ -195,6 +196,21 @@ public class TestRestLiRouting
     checkResult("/statuses", "POST", ResourceMethod.CREATE, StatusCollectionResource.class, "create", false);
     checkResult("/statuses", "POST", "CREATE", ResourceMethod.CREATE, StatusCollectionResource.class, "create", false);
     checkResult("/statuses/1/replies", "POST", ResourceMethod.CREATE, RepliesCollectionResource.class, "create", false, "statusID");
+    checkResult("/statuses/1/repl%69es/", "POST", ResourceMethod.CREATE, RepliesCollectionResource.class, "create", false, "statusID");
+    expectRoutingException("/statuses/1/repl", "POST");
+    expectRoutingException("/statuses/1//replies", "POST");
+    checkResult("/statuses?ids=1&ids=2&ids=3", "GET", ResourceMethod.BATCH_GET.toString(),
+                ResourceMethod.BATCH_GET, StatusCollectionResource.class, "batchGet", true);
+    try
+    {
+      _router.process(new RestRequestBuilder(new URI("/st%61tus/1")).setMethod("GET").build(), new RequestContext());
+      fail("Expected RoutingException");
+    }
+    catch (RoutingException e)
+    {
+      assertEquals(e.getStatus(), HttpStatus.S_404_NOT_FOUND.getCode());
+      assertEquals(e.getMessage(), "No root resource defined for path '/status'");
+    }
     checkResult("/statuses/1/replies?ids=1&ids=2&ids=3", "GET",
                 ResourceMethod.BATCH_GET, RepliesCollectionResource.class, "batchGet", true, "statusID");
     checkResult("/statuses/1", "PUT", ResourceMethod.UPDATE, StatusCollectionResource.class, "update", false);